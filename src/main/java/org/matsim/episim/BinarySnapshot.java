@@ -0,0 +1,536 @@
+/*-
+ * #%L
+ * MATSim Episim
+ * %%
+ * Copyright (C) 2020 matsim-org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.matsim.episim;
+
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.zip.*;
+
+/**
+ * Binary snapshot format, used instead of the serialized state when {@link EpisimConfigGroup.SnapshotFormat#binary} is set.
+ * <p>
+ * Ids of persons and containers are written once, all other sections reference persons by their position in this dictionary.
+ * Person state is stored in primitive columns. Sections are captured into memory first, then each one is compressed
+ * on its own thread and stored uncompressed in the snapshot archive. Restoring resolves the ids once and loads the sections in parallel.
+ * <p>
+ * Delta snapshots only contain persons and containers whose state differs from a full base snapshot, which is referenced by
+ * its file name. Changes are detected by comparing hashes of the state captured together with the base.
+ * The hashes are 64 bit and built only from primitive values, ordinals and the characters of strings, not from {@link Object#hashCode()}.
+ * A change is still missed if it results in the same hash, which is very unlikely but not impossible.
+ * Full snapshots are not affected.
+ */
+final class BinarySnapshot {
+
+	/**
+	 * Prefix of all archive entries belonging to this format.
+	 */
+	static final String PREFIX = "binary/";
+
+	private static final String HEADER = "header";
+	private static final String PERSONS = "persons";
+	private static final String PERSON_STATE = "personState";
+	private static final String PERSON_RELATIONS = "personRelations";
+	private static final String VEHICLES = "vehicles";
+	private static final String FACILITIES = "facilities";
+	private static final String DELTA = "delta";
+
+	private static final Logger log = LogManager.getLogger(BinarySnapshot.class);
+
+	private BinarySnapshot() {
+	}
+
+	/**
+	 * Serialize all sections in parallel. The result is not yet compressed and can be written later with
+	 * {@link #write(ArchiveOutputStream, Map, Executor)}, while the simulation continues.
+	 *
+	 * @param header     writes state of the handler that is not part of persons or containers
+	 * @param persons    all persons of the simulation
+	 * @param vehicles   all vehicles
+	 * @param facilities all facilities
+	 * @return serialized sections by name
+	 */
+	static Map<String, byte[]> capture(Executor executor, Section header,
+	                                   Map<Id<Person>, EpisimPerson> persons,
+	                                   Map<?, ? extends EpisimContainer<?>> vehicles,
+	                                   Map<?, ? extends EpisimContainer<?>> facilities) throws IOException {
+
+		EpisimPerson[] personArray = persons.values().toArray(new EpisimPerson[0]);
+		EpisimContainer<?>[] vehicleArray = vehicles.values().toArray(new EpisimContainer<?>[0]);
+		EpisimContainer<?>[] facilityArray = facilities.values().toArray(new EpisimContainer<?>[0]);
+		int[] positions = positions(personArray);
+
+		Map<String, Section> sections = new LinkedHashMap<>();
+		sections.put(HEADER, header);
+		sections.put(PERSONS, out -> {
+			out.writeInt(personArray.length);
+			for (EpisimPerson p : personArray) {
+				out.writeUTF(p.getPersonId().toString());
+			}
+		});
+		sections.put(PERSON_STATE, out -> EpisimPerson.writeColumns(out, personArray));
+		sections.put(PERSON_RELATIONS, out -> EpisimPerson.writeRelations(out, personArray, positions));
+		sections.put(VEHICLES, out -> writeContainers(out, vehicleArray, positions));
+		sections.put(FACILITIES, out -> writeContainers(out, facilityArray, positions));
+
+		return serialize(sections, executor);
+	}
+
+	/**
+	 * Remember the state of a full snapshot, so that following snapshots only need to contain the difference.
+	 *
+	 * @param name file name of the full snapshot, which is referenced by delta snapshots
+	 */
+	static Base createBase(String name, Map<Id<Person>, EpisimPerson> persons,
+	                       Map<?, ? extends EpisimContainer<?>> vehicles,
+	                       Map<?, ? extends EpisimContainer<?>> facilities) {
+
+		return new Base(name,
+				persons.values().stream().mapToLong(EpisimPerson::stateHash).toArray(),
+				vehicles.values().stream().mapToLong(EpisimContainer::occupancyHash).toArray(),
+				facilities.values().stream().mapToLong(EpisimContainer::occupancyHash).toArray()
+		);
+	}
+
+	/**
+	 * Serialize only persons and containers that changed since the base snapshot.
+	 * Persons and containers are referenced by their position in the base snapshot.
+	 *
+	 * @see #capture(Executor, Section, Map, Map, Map)
+	 */
+	static Map<String, byte[]> captureDelta(Executor executor, Section header, Base base,
+	                                        Map<Id<Person>, EpisimPerson> persons,
+	                                        Map<?, ? extends EpisimContainer<?>> vehicles,
+	                                        Map<?, ? extends EpisimContainer<?>> facilities) throws IOException {
+
+		EpisimPerson[] personArray = persons.values().toArray(new EpisimPerson[0]);
+		EpisimContainer<?>[] vehicleArray = vehicles.values().toArray(new EpisimContainer<?>[0]);
+		EpisimContainer<?>[] facilityArray = facilities.values().toArray(new EpisimContainer<?>[0]);
+
+		if (personArray.length != base.persons.length || vehicleArray.length != base.vehicles.length
+				|| facilityArray.length != base.facilities.length)
+			throw new IllegalStateException("Persons or containers changed since the base snapshot " + base.name);
+
+		int[] positions = positions(personArray);
+
+		int[] changedPersons = IntStream.range(0, personArray.length)
+				.filter(i -> personArray[i].stateHash() != base.persons[i]).toArray();
+		int[] changedVehicles = IntStream.range(0, vehicleArray.length)
+				.filter(i -> vehicleArray[i].occupancyHash() != base.vehicles[i]).toArray();
+		int[] changedFacilities = IntStream.range(0, facilityArray.length)
+				.filter(i -> facilityArray[i].occupancyHash() != base.facilities[i]).toArray();
+
+		EpisimPerson[] personSubset = Arrays.stream(changedPersons).mapToObj(i -> personArray[i]).toArray(EpisimPerson[]::new);
+
+		log.info("Delta snapshot contains {} of {} persons, {} vehicles and {} facilities", changedPersons.length,
+				personArray.length, changedVehicles.length, changedFacilities.length);
+
+		Map<String, Section> sections = new LinkedHashMap<>();
+		sections.put(HEADER, header);
+		sections.put(DELTA, out -> {
+			out.writeUTF(base.name);
+			out.writeInt(personArray.length);
+			out.writeInt(vehicleArray.length);
+			out.writeInt(facilityArray.length);
+		});
+		sections.put(PERSON_STATE, out -> {
+			writePositions(out, changedPersons);
+			EpisimPerson.writeColumns(out, personSubset);
+		});
+		sections.put(PERSON_RELATIONS, out -> EpisimPerson.writeRelations(out, personSubset, positions));
+		sections.put(VEHICLES, out -> {
+			writePositions(out, changedVehicles);
+			EpisimContainer.writeOccupancy(out, subset(vehicleArray, changedVehicles), positions);
+		});
+		sections.put(FACILITIES, out -> {
+			writePositions(out, changedFacilities);
+			EpisimContainer.writeOccupancy(out, subset(facilityArray, changedFacilities), positions);
+		});
+
+		return serialize(sections, executor);
+	}
+
+	/**
+	 * Position in the person array, by the dense index of the person id.
+	 */
+	private static int[] positions(EpisimPerson[] persons) {
+		int[] positions = new int[Id.getNumberOfIds(Person.class)];
+		Arrays.fill(positions, -1);
+		for (int i = 0; i < persons.length; i++) {
+			positions[persons[i].getPersonId().index()] = i;
+		}
+
+		return positions;
+	}
+
+	private static Map<String, byte[]> serialize(Map<String, Section> sections, Executor executor) throws IOException {
+
+		Map<String, CompletableFuture<byte[]>> futures = new LinkedHashMap<>();
+		sections.forEach((name, section) -> futures.put(name, CompletableFuture.supplyAsync(() -> serialize(section), executor)));
+
+		Map<String, byte[]> result = new LinkedHashMap<>();
+		for (Map.Entry<String, CompletableFuture<byte[]>> e : futures.entrySet()) {
+			result.put(e.getKey(), join(e.getValue()));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Compress captured sections in parallel and write them into the archive.
+	 *
+	 * @param sections result of {@link #capture(Executor, Section, Map, Map, Map)}
+	 */
+	static void write(ArchiveOutputStream archive, Map<String, byte[]> sections, Executor executor) throws IOException {
+
+		Map<String, CompletableFuture<byte[]>> futures = new LinkedHashMap<>();
+		sections.forEach((name, data) -> futures.put(name, CompletableFuture.supplyAsync(() -> compress(data), executor)));
+
+		for (Map.Entry<String, CompletableFuture<byte[]>> e : futures.entrySet()) {
+
+			byte[] data = join(e.getValue());
+
+			CRC32 crc = new CRC32();
+			crc.update(data);
+
+			// sections are already compressed
+			ZipArchiveEntry entry = new ZipArchiveEntry(PREFIX + e.getKey());
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(data.length);
+			entry.setCrc(crc.getValue());
+
+			archive.putArchiveEntry(entry);
+			archive.write(data);
+			archive.closeArchiveEntry();
+		}
+	}
+
+	/**
+	 * File name of the base snapshot, if these sections belong to a delta snapshot.
+	 *
+	 * @param sections content of all entries starting with {@link #PREFIX}, with the prefix removed from the names
+	 * @return null if the sections are a full snapshot
+	 */
+	@Nullable
+	static String getBase(Map<String, byte[]> sections) throws IOException {
+		if (!sections.containsKey(DELTA))
+			return null;
+
+		try (DataInputStream in = new DataInputStream(inflate(sections.get(DELTA)))) {
+			return in.readUTF();
+		}
+	}
+
+	/**
+	 * Restore state from sections read from the archive.
+	 *
+	 * @param sections   content of all entries starting with {@link #PREFIX}, with the prefix removed from the names
+	 * @param base       sections of the base snapshot, only needed if {@link #getBase(Map)} is not null
+	 * @param header     reads what was written by the header of {@link #capture(Executor, Section, Map, Map, Map)}
+	 * @param vehicles   lookup of vehicles by their id
+	 * @param facilities lookup of facilities by their id
+	 */
+	static void read(Map<String, byte[]> sections, @Nullable Map<String, byte[]> base, Executor executor, SectionReader header,
+	                 Map<Id<Person>, EpisimPerson> persons,
+	                 Function<String, ? extends EpisimContainer<?>> vehicles,
+	                 Function<String, ? extends EpisimContainer<?>> facilities) throws IOException {
+
+		boolean delta = sections.containsKey(DELTA);
+
+		check(sections, HEADER, PERSON_STATE, PERSON_RELATIONS, VEHICLES, FACILITIES);
+
+		// the header of the base is not needed, all its information is contained in the delta as well
+		read(sections.get(HEADER), header);
+
+		if (delta && base == null)
+			throw new IllegalArgumentException("Base snapshot is required to restore a delta snapshot");
+
+		// a delta is applied on top of its base
+		Map<String, byte[]> full = delta ? base : sections;
+		check(full, PERSONS, PERSON_STATE, PERSON_RELATIONS, VEHICLES, FACILITIES);
+
+		EpisimPerson[] all;
+		try (DataInputStream in = new DataInputStream(inflate(full.get(PERSONS)))) {
+			all = readPersons(in, persons);
+		}
+
+		EpisimContainer<?>[][] containers = readFull(full, all, executor, vehicles, facilities);
+
+		if (!delta)
+			return;
+
+		try (DataInputStream in = new DataInputStream(inflate(sections.get(DELTA)))) {
+			String name = in.readUTF();
+			if (in.readInt() != all.length || in.readInt() != containers[0].length || in.readInt() != containers[1].length)
+				throw new IllegalStateException("Delta snapshot does not match its base " + name);
+		}
+
+		EpisimPerson[][] changed = new EpisimPerson[1][];
+
+		read(sections.get(PERSON_STATE), in -> {
+			changed[0] = Arrays.stream(readPositions(in)).mapToObj(i -> all[i]).toArray(EpisimPerson[]::new);
+			EpisimPerson.readColumns(in, changed[0]);
+		});
+		read(sections.get(PERSON_RELATIONS), in -> EpisimPerson.readRelations(in, changed[0], all));
+
+		read(sections.get(VEHICLES), in -> EpisimContainer.readOccupancy(in, subset(containers[0], readPositions(in)), all));
+		read(sections.get(FACILITIES), in -> EpisimContainer.readOccupancy(in, subset(containers[1], readPositions(in)), all));
+	}
+
+	/**
+	 * Restore the state of a full snapshot, without the header.
+	 *
+	 * @return vehicles and facilities in the order of the snapshot
+	 */
+	private static EpisimContainer<?>[][] readFull(Map<String, byte[]> sections, EpisimPerson[] all, Executor executor,
+	                                               Function<String, ? extends EpisimContainer<?>> vehicles,
+	                                               Function<String, ? extends EpisimContainer<?>> facilities) throws IOException {
+
+		EpisimContainer<?>[][] containers = new EpisimContainer<?>[2][];
+
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+		// relations are read after the columns, because reporting counters are updated there
+		futures.add(CompletableFuture.runAsync(() -> {
+			read(sections.get(PERSON_STATE), in -> EpisimPerson.readColumns(in, all));
+			read(sections.get(PERSON_RELATIONS), in -> EpisimPerson.readRelations(in, all, all));
+		}, executor));
+		futures.add(CompletableFuture.runAsync(() -> read(sections.get(VEHICLES), in -> containers[0] = readContainers(in, vehicles, all)), executor));
+		futures.add(CompletableFuture.runAsync(() -> read(sections.get(FACILITIES), in -> containers[1] = readContainers(in, facilities, all)), executor));
+
+		for (CompletableFuture<Void> f : futures) {
+			join(f);
+		}
+
+		return containers;
+	}
+
+	private static void check(Map<String, byte[]> sections, String... names) {
+		for (String name : names) {
+			if (!sections.containsKey(name))
+				throw new IllegalStateException("Snapshot section " + name + " is missing");
+		}
+	}
+
+	private static void writePositions(DataOutput out, int[] positions) throws IOException {
+		out.writeInt(positions.length);
+		for (int i : positions) {
+			out.writeInt(i);
+		}
+	}
+
+	private static int[] readPositions(DataInput in) throws IOException {
+		int[] positions = new int[in.readInt()];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = in.readInt();
+		}
+
+		return positions;
+	}
+
+	private static EpisimContainer<?>[] subset(EpisimContainer<?>[] containers, int[] positions) {
+		EpisimContainer<?>[] result = new EpisimContainer<?>[positions.length];
+		for (int i = 0; i < positions.length; i++) {
+			result[i] = containers[positions[i]];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Mix a value into a hash.
+	 */
+	static long mix(long h, long value) {
+		h = (h ^ value) * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 32);
+	}
+
+	/**
+	 * Mix the length and all characters of a string into a hash.
+	 */
+	static long mix(long h, String value) {
+		h = mix(h, value.length());
+		for (int i = 0; i < value.length(); i++) {
+			h = mix(h, value.charAt(i));
+		}
+
+		return h;
+	}
+
+	private static EpisimPerson[] readPersons(DataInput in, Map<Id<Person>, EpisimPerson> persons) throws IOException {
+
+		EpisimPerson[] result = new EpisimPerson[in.readInt()];
+		for (int i = 0; i < result.length; i++) {
+			Id<Person> id = Id.createPersonId(in.readUTF());
+			result[i] = persons.get(id);
+			if (result[i] == null)
+				throw new IllegalStateException("Person " + id + " from snapshot is not part of the scenario");
+		}
+
+		return result;
+	}
+
+	private static void writeContainers(DataOutput out, EpisimContainer<?>[] containers, int[] positions) throws IOException {
+
+		out.writeInt(containers.length);
+		for (EpisimContainer<?> c : containers) {
+			out.writeUTF(c.getContainerId().toString());
+		}
+
+		EpisimContainer.writeOccupancy(out, containers, positions);
+	}
+
+	private static EpisimContainer<?>[] readContainers(DataInput in, Function<String, ? extends EpisimContainer<?>> containers,
+	                                                   EpisimPerson[] persons) throws IOException {
+
+		EpisimContainer<?>[] result = new EpisimContainer<?>[in.readInt()];
+		for (int i = 0; i < result.length; i++) {
+			String id = in.readUTF();
+			result[i] = containers.apply(id);
+			if (result[i] == null)
+				throw new IllegalStateException("Container " + id + " from snapshot is not part of the scenario");
+		}
+
+		EpisimContainer.readOccupancy(in, result, persons);
+		return result;
+	}
+
+	private static byte[] serialize(Section section) {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(65536);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes, 65536))) {
+			section.write(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private static byte[] compress(byte[] data) {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+		try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater, 65536)) {
+			out.write(data);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			deflater.end();
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Stream of the inflated data. The native memory of the inflater is released when the stream is closed.
+	 */
+	private static InputStream inflate(byte[] data) {
+		Inflater inflater = new Inflater();
+		InputStream in = new InflaterInputStream(new ByteArrayInputStream(data), inflater, 65536) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					inflater.end();
+				}
+			}
+		};
+
+		return new BufferedInputStream(in, 65536);
+	}
+
+	private static void read(byte[] data, SectionReader reader) {
+		try (DataInputStream in = new DataInputStream(inflate(data))) {
+			reader.read(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Wait for a task and rethrow its failure.
+	 */
+	private static <T> T join(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException)
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Hashes of persons and containers at the time of a full snapshot.
+	 */
+	static final class Base {
+
+		private final String name;
+		private final long[] persons;
+		private final long[] vehicles;
+		private final long[] facilities;
+
+		private Base(String name, long[] persons, long[] vehicles, long[] facilities) {
+			this.name = name;
+			this.persons = persons;
+			this.vehicles = vehicles;
+			this.facilities = facilities;
+		}
+	}
+
+	/**
+	 * Writes one section of the snapshot.
+	 */
+	@FunctionalInterface
+	interface Section {
+		void write(DataOutput out) throws IOException;
+	}
+
+	/**
+	 * Reads one section of the snapshot.
+	 */
+	@FunctionalInterface
+	interface SectionReader {
+		void read(DataInput in) throws IOException;
+	}
+}
@@ -0,0 +1,89 @@
+package org.matsim.episim;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.episim.model.activity.ActivityParticipationModel;
+import org.matsim.episim.model.testing.TestingModel;
+import org.matsim.episim.policy.Restriction;
+
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Executes the per person updates at the end of the day for a chunk of the population.
+ * Each handler has its own instances of the participation and testing model, which use the random instance of this handler.
+ *
+ * @see EpisimConfigGroup.ParallelDayTransition
+ */
+final class DayTransitionHandler {
+
+	private final ActivityParticipationModel activityParticipationModel;
+	private final TestingModel testingModel;
+
+	/**
+	 * The "local" random instance, used for all submodels.
+	 */
+	private final SplittableRandom rnd;
+
+	@Inject
+	DayTransitionHandler(ActivityParticipationModel activityParticipationModel, TestingModel testingModel, SplittableRandom rnd) {
+		this.activityParticipationModel = activityParticipationModel;
+		this.testingModel = testingModel;
+		this.rnd = rnd;
+	}
+
+	SplittableRandom getRnd() {
+		return rnd;
+	}
+
+	/**
+	 * Prepare the submodels for the current iteration.
+	 */
+	void setIteration(int iteration, ImmutableMap<String, Restriction> im, Map<Id<Person>, EpisimPerson> personMap,
+					  EpisimReporting.InfectionReport report) {
+		testingModel.setIteration(iteration);
+		testingModel.beforeStateUpdates(personMap, iteration, report);
+		activityParticipationModel.setRestrictionsForIteration(iteration, im);
+	}
+
+	/**
+	 * Update activity participation for all persons in the chunk.
+	 */
+	void updateParticipation(List<EpisimPerson> persons, DayOfWeek day) {
+		for (EpisimPerson person : persons) {
+			activityParticipationModel.updateParticipation(person, person.getActivityParticipation(),
+					person.getStartOfDay(day), person.getActivities(day));
+		}
+	}
+
+	/**
+	 * Update participation, perform testing and apply quarantine for all persons in the chunk.
+	 * This may only be used if the testing model has no limited capacity.
+	 */
+	void updatePersons(List<EpisimPerson> persons, DayOfWeek day, int iteration) {
+		for (EpisimPerson person : persons) {
+			activityParticipationModel.updateParticipation(person, person.getActivityParticipation(),
+					person.getStartOfDay(day), person.getActivities(day));
+
+			testingModel.performTesting(person, iteration);
+
+			activityParticipationModel.applyQuarantine(person, person.getActivityParticipation(),
+					person.getStartOfDay(day), person.getActivities(day));
+		}
+	}
+
+	/**
+	 * Apply quarantine restrictions for all persons in the chunk.
+	 */
+	void applyQuarantine(List<EpisimPerson> persons, DayOfWeek day) {
+		for (EpisimPerson person : persons) {
+			activityParticipationModel.applyQuarantine(person, person.getActivityParticipation(),
+					person.getStartOfDay(day), person.getActivities(day));
+		}
+	}
+
+}
@@ -24,6 +24,7 @@ import com.google.common.annotations.Beta;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
@@ -69,6 +70,11 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 	private static final String START_FROM_SNAPSHOT = "startFromSnapshot";
 	private static final String SNAPSHOT_PREFIX = "snapshotPrefix";
 	private static final String SNAPSHOT_SEED = "snapshotSeed";
+	private static final String SNAPSHOT_FORMAT = "snapshotFormat";
+	private static final String SNAPSHOT_COPY_OUTPUT = "snapshotCopyOutput";
+	private static final String SNAPSHOT_ASYNC = "snapshotAsync";
+	private static final String SNAPSHOT_MAX_PENDING = "snapshotMaxPending";
+	private static final String SNAPSHOT_FULL_INTERVAL = "snapshotFullInterval";
 	private static final String LEISUREOUTDOORFRACTION = "leisureOutdoorFraction";
 	private static final String INPUT_DAYS = "inputDays";
 	private static final String AGE_SUSCEPTIBILITY = "ageSusceptibility";
@@ -82,7 +88,17 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 	private static final String CONTAGIOUS_CONTAINER_OPTIMIZATION = "contagiousContainerOptimization";
 	private static final String REPORT_TIME_USE = "reportTimeUse";
 	private static final String SINGLE_EVENT_FILE = "singleEventFile";
+	private static final String EVENT_FORMAT = "eventFormat";
+	private static final String EVENT_COMPRESSION = "eventCompression";
+	private static final String EVENT_FILTER_TYPES = "eventFilterTypes";
+	private static final String EVENT_FILTER_DAYS = "eventFilterDays";
+	private static final String EVENT_FILTER_PERSONS = "eventFilterPersons";
+	private static final String EVENT_FILTER_PERSON_ATTRIBUTE = "eventFilterPersonAttribute";
+	private static final String EVENT_FILTER_ACTIVITIES = "eventFilterActivities";
 	private static final String END_EARLY = "endEarly";
+	private static final String PARALLEL_DAY_TRANSITION = "parallelDayTransition";
+	private static final String BERNOULLI_SAMPLING = "bernoulliSampling";
+	private static final String REPORT_COUNTING = "reportCounting";
 
 	private static final Logger log = LogManager.getLogger(EpisimConfigGroup.class);
 	private static final String GROUPNAME = "episim";
@@ -94,6 +110,7 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 	 * Default is 1 infection per day for {@link VirusStrain#SARS_CoV_2}.
 	 */
 	private final Map<VirusStrain, NavigableMap<LocalDate, Integer>> infectionsPerDay = new EnumMap<>(Map.of(VirusStrain.SARS_CoV_2, new TreeMap<>()));
+	private final Map<VirusStrain, StepFunction<LocalDate, Integer>> infectionsPerDayFunction = new EnumMap<>(VirusStrain.class);
 
 	/**
 	 * Leisure outdoor fractions per day.
@@ -154,6 +171,11 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 	 * How the internal rng state should be handled.
 	 */
 	private SnapshotSeed snapshotSeed = SnapshotSeed.restore;
+	private SnapshotFormat snapshotFormat = SnapshotFormat.serialized;
+	private SnapshotCopyOutput snapshotCopyOutput = SnapshotCopyOutput.yes;
+	private SnapshotAsync snapshotAsync = SnapshotAsync.no;
+	private int snapshotMaxPending = 1;
+	private int snapshotFullInterval = 0;
 	private FacilitiesHandling facilitiesHandling = FacilitiesHandling.snz;
 	private ActivityHandling activityHandling = ActivityHandling.duringContact;
 	private Config policyConfig = ConfigFactory.empty();
@@ -166,6 +188,16 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 	private ContagiousOptimization contagiousContainerOptimization = ContagiousOptimization.no;
 	private ReportTimeUse reportTimeUse = ReportTimeUse.no;
 	private SingleEventFile singleEventFile = SingleEventFile.yes;
+	private EventFormat eventFormat = EventFormat.xml;
+	private EventCompression eventCompression = EventCompression.single;
+	private String eventFilterTypes = "";
+	private String eventFilterDays = "";
+	private String eventFilterPersons = "";
+	private String eventFilterPersonAttribute = "";
+	private String eventFilterActivities = "";
+	private ParallelDayTransition parallelDayTransition = ParallelDayTransition.no;
+	private BernoulliSampling bernoulliSampling = BernoulliSampling.perDecision;
+	private ReportCounting reportCounting = ReportCounting.fullScan;
 	private boolean endEarly = false;
 	private int threads = 2;
 	/**
@@ -190,6 +222,7 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 	 * Compliance if a curfew is set.
 	 */
 	private NavigableMap<LocalDate, Double> curfewCompliance = new TreeMap<>();
+	private StepFunction<LocalDate, Double> curfewComplianceFunction;
 
 	/**
 	 * Default constructor.
@@ -296,7 +329,8 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 	}
 
 	public Map<VirusStrain, NavigableMap<LocalDate, Integer>> getInfections_pers_per_day() {
-		return infectionsPerDay;
+		// read-only, so that the compiled step functions stay in sync
+		return Collections.unmodifiableMap(Maps.transformValues(infectionsPerDay, Collections::unmodifiableNavigableMap));
 	}
 
 	/**
@@ -316,6 +350,16 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 		// This logic of handling no entries is not part of the config, but the initial infection handler  - cr, nov'20
 		perDay.clear();
 		perDay.putAll(infectionsPerDay);
+		infectionsPerDayFunction.remove(strain);
+	}
+
+	/**
+	 * Infections per day of one strain as compiled step function.
+	 *
+	 * @see #getInfections_pers_per_day()
+	 */
+	public StepFunction<LocalDate, Integer> getInfectionsPerDayFunction(VirusStrain strain) {
+		return infectionsPerDayFunction.computeIfAbsent(strain, k -> StepFunction.of(infectionsPerDay.getOrDefault(k, new TreeMap<>())));
 	}
 
 	@StringGetter(INFECTIONS_PER_DAY)
@@ -410,6 +454,72 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 		this.snapshotSeed = snapshotSeed;
 	}
 
+	/**
+	 * Format used for writing snapshots. Both formats can always be read.
+	 */
+	@StringGetter(SNAPSHOT_FORMAT)
+	public SnapshotFormat getSnapshotFormat() {
+		return snapshotFormat;
+	}
+
+	@StringSetter(SNAPSHOT_FORMAT)
+	public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+		this.snapshotFormat = snapshotFormat;
+	}
+
+	/**
+	 * Whether the content of the output directory is copied into snapshots.
+	 */
+	@StringGetter(SNAPSHOT_COPY_OUTPUT)
+	public SnapshotCopyOutput getSnapshotCopyOutput() {
+		return snapshotCopyOutput;
+	}
+
+	@StringSetter(SNAPSHOT_COPY_OUTPUT)
+	public void setSnapshotCopyOutput(SnapshotCopyOutput snapshotCopyOutput) {
+		this.snapshotCopyOutput = snapshotCopyOutput;
+	}
+
+	/**
+	 * Whether snapshots are written in the background while the simulation continues.
+	 */
+	@StringGetter(SNAPSHOT_ASYNC)
+	public SnapshotAsync getSnapshotAsync() {
+		return snapshotAsync;
+	}
+
+	@StringSetter(SNAPSHOT_ASYNC)
+	public void setSnapshotAsync(SnapshotAsync snapshotAsync) {
+		this.snapshotAsync = snapshotAsync;
+	}
+
+	/**
+	 * Maximum number of captured snapshots that are not yet written. The simulation waits when this limit is reached.
+	 */
+	@StringGetter(SNAPSHOT_MAX_PENDING)
+	public int getSnapshotMaxPending() {
+		return snapshotMaxPending;
+	}
+
+	@StringSetter(SNAPSHOT_MAX_PENDING)
+	public void setSnapshotMaxPending(int snapshotMaxPending) {
+		this.snapshotMaxPending = snapshotMaxPending;
+	}
+
+	/**
+	 * Every n-th snapshot is written in full, the ones in between only contain persons and containers that changed since the last
+	 * full snapshot, which is needed to restore them. Only supported by the binary snapshot format. Values below 2 always write full snapshots.
+	 */
+	@StringGetter(SNAPSHOT_FULL_INTERVAL)
+	public int getSnapshotFullInterval() {
+		return snapshotFullInterval;
+	}
+
+	@StringSetter(SNAPSHOT_FULL_INTERVAL)
+	public void setSnapshotFullInterval(int snapshotFullInterval) {
+		this.snapshotFullInterval = snapshotFullInterval;
+	}
+
 	public long getStartOffset() {
 		return startOffset;
 	}
@@ -635,12 +745,25 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 
 
 	public NavigableMap<LocalDate, Double> getCurfewCompliance() {
-		return curfewCompliance;
+		return Collections.unmodifiableNavigableMap(curfewCompliance);
 	}
 
 	public void setCurfewCompliance(Map<LocalDate, Double> curfewCompliance) {
 		this.curfewCompliance.clear();
 		this.curfewCompliance.putAll(curfewCompliance);
+		this.curfewComplianceFunction = null;
+	}
+
+	/**
+	 * Curfew compliance as compiled step function.
+	 *
+	 * @see #getCurfewCompliance()
+	 */
+	public StepFunction<LocalDate, Double> getCurfewComplianceFunction() {
+		if (curfewComplianceFunction == null)
+			curfewComplianceFunction = StepFunction.of(curfewCompliance);
+
+		return curfewComplianceFunction;
 	}
 
 	@StringGetter(CURFEW_COMPLIANCE)
@@ -755,6 +878,93 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 		this.singleEventFile = singleEventFile;
 	}
 
+	@StringGetter(EVENT_FORMAT)
+	public EventFormat getEventFormat() {
+		return eventFormat;
+	}
+
+	@StringSetter(EVENT_FORMAT)
+	public void setEventFormat(EventFormat eventFormat) {
+		this.eventFormat = eventFormat;
+	}
+
+	@StringGetter(EVENT_COMPRESSION)
+	public EventCompression getEventCompression() {
+		return eventCompression;
+	}
+
+	@StringSetter(EVENT_COMPRESSION)
+	public void setEventCompression(EventCompression eventCompression) {
+		this.eventCompression = eventCompression;
+	}
+
+	/**
+	 * Comma separated event types that are written, e.g. {@code episimContact,episimInfection}. Empty to write all types.
+	 */
+	@StringGetter(EVENT_FILTER_TYPES)
+	public String getEventFilterTypes() {
+		return eventFilterTypes;
+	}
+
+	@StringSetter(EVENT_FILTER_TYPES)
+	public void setEventFilterTypes(String eventFilterTypes) {
+		this.eventFilterTypes = eventFilterTypes;
+	}
+
+	/**
+	 * Comma separated days or inclusive day ranges for which events are written, e.g. {@code 10-16,30}. Empty to write all days.
+	 */
+	@StringGetter(EVENT_FILTER_DAYS)
+	public String getEventFilterDays() {
+		return eventFilterDays;
+	}
+
+	@StringSetter(EVENT_FILTER_DAYS)
+	public void setEventFilterDays(String eventFilterDays) {
+		this.eventFilterDays = eventFilterDays;
+	}
+
+	/**
+	 * File with one person id per line, only events of these persons are written. Empty to write events of all persons.
+	 */
+	@StringGetter(EVENT_FILTER_PERSONS)
+	public String getEventFilterPersons() {
+		return eventFilterPersons;
+	}
+
+	@StringSetter(EVENT_FILTER_PERSONS)
+	public void setEventFilterPersons(String eventFilterPersons) {
+		this.eventFilterPersons = eventFilterPersons;
+	}
+
+	/**
+	 * Person attribute predicate in the form {@code name=value}, only events of matching persons are written.
+	 * Can be combined with {@link #getEventFilterPersons()}. Empty to disable.
+	 */
+	@StringGetter(EVENT_FILTER_PERSON_ATTRIBUTE)
+	public String getEventFilterPersonAttribute() {
+		return eventFilterPersonAttribute;
+	}
+
+	@StringSetter(EVENT_FILTER_PERSON_ATTRIBUTE)
+	public void setEventFilterPersonAttribute(String eventFilterPersonAttribute) {
+		this.eventFilterPersonAttribute = eventFilterPersonAttribute;
+	}
+
+	/**
+	 * Comma separated activities, contacts and infections are only written if their activity type contains one of them.
+	 * Empty to write all activities.
+	 */
+	@StringGetter(EVENT_FILTER_ACTIVITIES)
+	public String getEventFilterActivities() {
+		return eventFilterActivities;
+	}
+
+	@StringSetter(EVENT_FILTER_ACTIVITIES)
+	public void setEventFilterActivities(String eventFilterActivities) {
+		this.eventFilterActivities = eventFilterActivities;
+	}
+
 	@StringGetter(REPORT_TIME_USE)
 	public ReportTimeUse getReportTimeUse() {
 		return reportTimeUse;
@@ -765,6 +975,36 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 		this.reportTimeUse = reportTimeUse;
 	}
 
+	@StringGetter(PARALLEL_DAY_TRANSITION)
+	public ParallelDayTransition getParallelDayTransition() {
+		return parallelDayTransition;
+	}
+
+	@StringSetter(PARALLEL_DAY_TRANSITION)
+	public void setParallelDayTransition(ParallelDayTransition parallelDayTransition) {
+		this.parallelDayTransition = parallelDayTransition;
+	}
+
+	@StringGetter(BERNOULLI_SAMPLING)
+	public BernoulliSampling getBernoulliSampling() {
+		return bernoulliSampling;
+	}
+
+	@StringSetter(BERNOULLI_SAMPLING)
+	public void setBernoulliSampling(BernoulliSampling bernoulliSampling) {
+		this.bernoulliSampling = bernoulliSampling;
+	}
+
+	@StringGetter(REPORT_COUNTING)
+	public ReportCounting getReportCounting() {
+		return reportCounting;
+	}
+
+	@StringSetter(REPORT_COUNTING)
+	public void setReportCounting(ReportCounting reportCounting) {
+		this.reportCounting = reportCounting;
+	}
+
 
 	@Override
 	public void addParameterSet(final ConfigGroup set) {
@@ -832,9 +1072,16 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 			final boolean removed = removeParameterSet(previous);
 			if (!removed)
 				throw new IllegalStateException("problem replacing params");
+
+			previous.code = -1;
 		}
 
 		super.addParameterSet(params);
+
+		// codes follow the order of the parameter sets, which is also the order of the restrictions
+		int code = 0;
+		for (InfectionParams p : getInfectionParams())
+			p.code = code++;
 	}
 
 	/**
@@ -998,6 +1245,49 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 		reseed,
 	}
 
+	/**
+	 * Format of the simulation state in snapshots.
+	 */
+	public enum SnapshotFormat {
+		/**
+		 * State is written with java serialization, keyed by person and container ids.
+		 */
+		serialized,
+		/**
+		 * Compact binary sections keyed by dense person and container indices, which are written and compressed in parallel.
+		 */
+		binary
+	}
+
+	/**
+	 * Whether snapshots contain a copy of the output directory.
+	 */
+	public enum SnapshotCopyOutput {
+		/**
+		 * Output is copied into the snapshot and restored when starting from it.
+		 */
+		yes,
+		/**
+		 * Only the simulation state is written, the output of earlier days needs to be kept separately.
+		 */
+		no
+	}
+
+	/**
+	 * How snapshots are written.
+	 */
+	public enum SnapshotAsync {
+		/**
+		 * The simulation waits until the snapshot is written.
+		 */
+		no,
+		/**
+		 * The state is captured in memory at the start of the iteration and written by a background thread.
+		 * Output files are copied up to the length they had at that time.
+		 */
+		yes
+	}
+
 	/**
 	 * Defines how activity participation is handled.
 	 */
@@ -1052,6 +1342,79 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 		no
 	}
 
+	/**
+	 * Format of the written event files.
+	 */
+	public enum EventFormat {
+		/**
+		 * Standard MATSim xml events.
+		 */
+		xml,
+		/**
+		 * Compact columnar format, see {@link org.matsim.episim.events.EpisimBinaryEventsWriter}.
+		 * Files can be read with {@link org.matsim.episim.events.EpisimBinaryEventsReader}.
+		 */
+		binary
+	}
+
+	/**
+	 * How event files are compressed.
+	 */
+	public enum EventCompression {
+		/**
+		 * One gzip stream, compressed by the thread writing the events.
+		 */
+		single,
+		/**
+		 * Blocks of the output are compressed by a thread pool shared by all runs and written as concatenated gzip members,
+		 * see {@link org.matsim.episim.reporting.ParallelGZIPOutputStream}. Files are still readable by any gzip reader.
+		 */
+		parallel
+	}
+
+	/**
+	 * Whether the per person updates at the end of the day (activity participation, testing and quarantine)
+	 * are executed in parallel. Results are deterministic for the same number of threads, but differ from the sequential
+	 * version, which is why this needs to be enabled explicitly.
+	 */
+	public enum ParallelDayTransition {
+		yes,
+		no
+	}
+
+	/**
+	 * How random decisions with a given rate are sampled for activity participation and testing.
+	 */
+	public enum BernoulliSampling {
+		/**
+		 * Draw one random number for each decision.
+		 */
+		perDecision,
+		/**
+		 * Skip over decisions with the same rate by geometrically distributed lengths. Random numbers are only needed for the
+		 * less likely outcome. The decisions have the same distribution, but results differ from {@link #perDecision}.
+		 */
+		geometricSkip
+	}
+
+	/**
+	 * How the daily infection reports are counted.
+	 */
+	public enum ReportCounting {
+		/**
+		 * Iterate all persons each day.
+		 */
+		fullScan,
+		/**
+		 * Keep counters per district up to date on every status change. Results are the same as {@link #fullScan}.
+		 */
+		incremental,
+		/**
+		 * Use the counters, but also perform the full scan and fail if they differ. Only useful for debugging.
+		 */
+		crossCheck
+	}
+
 	/**
 	 * Parameter set for one activity type.
 	 */
@@ -1084,6 +1447,11 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 		 */
 		private boolean seasonal = false;
 
+		/**
+		 * Dense index of this activity, assigned when the params are added to the config.
+		 */
+		private int code = -1;
+
 		/**
 		 * See {@link #InfectionParams(String, String...)}. Name itself will also be used as prefix.
 		 */
@@ -1179,6 +1547,14 @@ public final class EpisimConfigGroup extends ReflectiveConfigGroup {
 			return seasonal;
 		}
 
+		/**
+		 * Code of this activity, used as index into compiled per-activity data like {@link org.matsim.episim.policy.RestrictionTable}.
+		 * Codes range from 0 to the number of infection params, -1 if the params are not part of a config.
+		 */
+		public int getCode() {
+			return code;
+		}
+
 		/**
 		 * Check whether an activity belong to this container group.
 		 */
@@ -26,6 +26,8 @@ import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Person;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
@@ -84,6 +86,11 @@ public class EpisimContainer<T> {
 	 */
 	private double numSpaces = 1;
 
+	/**
+	 * Code of the district this container is located in, negative if unknown.
+	 */
+	private int districtCode = -1;
+
 	/**
 	 * The id of the ReplayEventTask that handles the events for this container
 	 */
@@ -129,6 +136,56 @@ public class EpisimContainer<T> {
 		}
 	}
 
+	/**
+	 * Writes the persons in all containers, referenced by their position in the person array.
+	 *
+	 * @param positions position in the person array for each person id index
+	 */
+	static void writeOccupancy(DataOutput out, EpisimContainer<?>[] containers, int[] positions) throws IOException {
+		for (EpisimContainer<?> c : containers) {
+			out.writeInt(c.personsAsList.size());
+			for (EpisimPerson p : c.personsAsList) {
+				int index = p.getPersonId().index();
+				out.writeInt(positions[index]);
+				out.writeDouble(c.containerEnterTimes.get(index));
+			}
+		}
+	}
+
+	/**
+	 * Reads data written by {@link #writeOccupancy(DataOutput, EpisimContainer[], int[])}.
+	 */
+	static void readOccupancy(DataInput in, EpisimContainer<?>[] containers, EpisimPerson[] persons) throws IOException {
+		for (EpisimContainer<?> c : containers) {
+			c.persons.clear();
+			c.personsAsList.clear();
+			c.containerEnterTimes.clear();
+
+			int n = in.readInt();
+			for (int i = 0; i < n; i++) {
+				EpisimPerson p = persons[in.readInt()];
+				int index = p.getPersonId().index();
+				c.persons.add(index);
+				c.personsAsList.add(p);
+				c.containerEnterTimes.put(index, in.readDouble());
+			}
+		}
+	}
+
+	/**
+	 * Hash over the state written by {@link #writeOccupancy(DataOutput, EpisimContainer[], int[])}.
+	 */
+	long occupancyHash() {
+		long h = personsAsList.size();
+		for (EpisimPerson p : personsAsList) {
+			int index = p.getPersonId().index();
+			h = BinarySnapshot.mix(h, index);
+			h = BinarySnapshot.mix(h, Double.doubleToLongBits(containerEnterTimes.get(index)));
+		}
+
+		return h;
+	}
+
 	boolean containsPerson(EpisimPerson person) {
 		final int index = person.getPersonId().index();
 		return persons.contains(index);
@@ -230,6 +287,17 @@ public class EpisimContainer<T> {
 		this.numSpaces = numSpaces;
 	}
 
+	/**
+	 * Code of the district, as index into the district names used by the contact models. Negative if unknown.
+	 */
+	public int getDistrictCode() {
+		return districtCode;
+	}
+
+	public void setDistrictCode(int districtCode) {
+		this.districtCode = districtCode;
+	}
+
 	public void setTaskId(int taskId) {
 		this.taskId = taskId;
 	}
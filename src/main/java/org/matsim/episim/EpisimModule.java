@@ -77,6 +77,7 @@ public class EpisimModule extends AbstractModule {
 		bind(ReplayHandler.class).in(Singleton.class);
 		bind(InfectionEventHandler.class).in(Singleton.class);
 		bind(EpisimReporting.class).in(Singleton.class);
+		bind(FacilityIndex.class).in(Singleton.class);
 
 		Multibinder.newSetBinder(binder(), SimulationListener.class);
 	}
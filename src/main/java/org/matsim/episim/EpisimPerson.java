@@ -21,9 +21,11 @@
 package org.matsim.episim;
 
 import com.google.common.annotations.Beta;
-import it.unimi.dsi.fastutil.objects.Object2DoubleLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMaps;
 import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.episim.events.EpisimInfectionEvent;
@@ -37,13 +39,15 @@ import org.matsim.utils.objectattributes.attributable.Attributable;
 import org.matsim.utils.objectattributes.attributable.Attributes;
 
 import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.time.DayOfWeek;
 import java.util.*;
 import java.util.function.BiFunction;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 import static org.matsim.episim.EpisimUtils.readChars;
 import static org.matsim.episim.EpisimUtils.writeChars;
@@ -95,7 +99,7 @@ public final class EpisimPerson implements Attributable {
 	/**
 	 * Traced contacts with other persons.
 	 */
-	private final Object2DoubleMap<EpisimPerson> traceableContactPersons = new Object2DoubleLinkedOpenHashMap<>(4);
+	private final TraceableContacts traceableContactPersons = new TraceableContacts();
 
 	/**
 	 * Stores first time of status changes to specific type.
@@ -103,9 +107,11 @@ public final class EpisimPerson implements Attributable {
 	private final EnumMap<DiseaseStatus, Double> statusChanges = new EnumMap<>(DiseaseStatus.class);
 
 	/**
-	 * Total spent time during activities.
+	 * Spent time restored from older snapshots or added with {@link #addSpentTime(String, double)}, null if there is none.
+	 * It is moved to the time use of the {@link TrajectoryHandler}s, which hold the sums of the whole population.
 	 */
-	private final Object2DoubleMap<String> spentTime = new Object2DoubleOpenHashMap<>(4);
+	@Nullable
+	private Object2DoubleMap<String> spentTime;
 
 	/**
 	 * Activity participation of the current day. Same length as {@link #trajectory}
@@ -120,6 +126,11 @@ public final class EpisimPerson implements Attributable {
 	 */
 	private EpisimInfectionEvent earliestInfection = null;
 
+	/**
+	 * Whether an infection was committed since the last call to {@link #pollCommittedInfection()}.
+	 */
+	private boolean committedInfection = false;
+
 	/**
 	 * List of all potential infection that happened during the day.
 	 */
@@ -179,6 +190,12 @@ public final class EpisimPerson implements Attributable {
 	 */
 	private int testDate = -1;
 
+	/**
+	 * Cell and test date this person is currently counted in by {@link ReportCounters}. Negative if not counted.
+	 */
+	int reportCell = -1;
+	int reportTestDate = -1;
+
 	/**
 	 * How many times a person did go through the infected -> recovered cycle.
 	 */
@@ -252,7 +269,10 @@ public final class EpisimPerson implements Attributable {
 		traceableContactPersons.clear();
 		for (int i = 0; i < n; i++) {
 			Id<Person> id = Id.create(readChars(in), Person.class);
-			traceableContactPersons.put(persons.get(id), in.readDouble());
+			double time = in.readDouble();
+			EpisimPerson contact = persons.get(id);
+			if (contact != null)
+				traceableContactPersons.put(contact, time);
 		}
 
 		n = in.readInt();
@@ -270,11 +290,12 @@ public final class EpisimPerson implements Attributable {
 			infectionType = readChars(in);
 		}
 
+		// spent time was stored per person in older snapshots, it is added to the time use of the population afterwards
 		n = in.readInt();
-		spentTime.clear();
+		spentTime = null;
 		for (int i = 0; i < n; i++) {
 			String act = readChars(in);
-			spentTime.put(act, in.readDouble());
+			addSpentTime(act, in.readDouble());
 		}
 
 		status = DiseaseStatus.values()[in.readInt()];
@@ -294,6 +315,8 @@ public final class EpisimPerson implements Attributable {
 
 		vaccinationType = VaccinationType.values()[in.readInt()];
 		susceptibility = in.readDouble();
+
+		reporting.updateCounters(this);
 	}
 
 	/**
@@ -302,9 +325,9 @@ public final class EpisimPerson implements Attributable {
 	void write(ObjectOutput out) throws IOException {
 
 		out.writeInt(traceableContactPersons.size());
-		for (Map.Entry<EpisimPerson, Double> kv : traceableContactPersons.entrySet()) {
-			writeChars(out, kv.getKey().getPersonId().toString());
-			out.writeDouble(kv.getValue());
+		for (int i = 0; i < traceableContactPersons.size(); i++) {
+			writeChars(out, traceableContactPersons.getPerson(i).getPersonId().toString());
+			out.writeDouble(traceableContactPersons.getTime(i));
 		}
 
 		out.writeInt(statusChanges.size());
@@ -323,8 +346,9 @@ public final class EpisimPerson implements Attributable {
 			writeChars(out, infectionType);
 		}
 
+		// only spent time not yet moved to the population, kept for compatibility with older snapshots
+		Object2DoubleMap<String> spentTime = getSpentTime();
 		out.writeInt(spentTime.size());
-
 		for (Object2DoubleMap.Entry<String> kv : spentTime.object2DoubleEntrySet()) {
 			writeChars(out, kv.getKey());
 			out.writeDouble(kv.getDoubleValue());
@@ -346,6 +370,170 @@ public final class EpisimPerson implements Attributable {
 		out.writeDouble(susceptibility);
 	}
 
+	/**
+	 * Writes the scalar state of all persons, one column per field in the order of the array.
+	 */
+	static void writeColumns(DataOutput out, EpisimPerson[] persons) throws IOException {
+
+		for (EpisimPerson p : persons) out.writeByte(p.status.ordinal());
+		for (EpisimPerson p : persons) out.writeByte(p.virusStrain.ordinal());
+		for (EpisimPerson p : persons) out.writeByte(p.quarantineStatus.ordinal());
+		for (EpisimPerson p : persons) out.writeInt(p.quarantineDate);
+		for (EpisimPerson p : persons) out.writeByte(p.vaccinationStatus.ordinal());
+		for (EpisimPerson p : persons) out.writeByte(p.reVaccinationStatus.ordinal());
+		for (EpisimPerson p : persons) out.writeInt(p.vaccinationDate);
+		for (EpisimPerson p : persons) out.writeByte(p.testStatus.ordinal());
+		for (EpisimPerson p : persons) out.writeInt(p.testDate);
+		for (EpisimPerson p : persons) out.writeBoolean(p.traceable);
+		for (EpisimPerson p : persons) out.writeInt(p.numInfections);
+		for (EpisimPerson p : persons) out.writeByte(p.vaccinationType.ordinal());
+		for (EpisimPerson p : persons) out.writeDouble(p.susceptibility);
+	}
+
+	/**
+	 * Reads columns written by {@link #writeColumns(DataOutput, EpisimPerson[])}.
+	 */
+	static void readColumns(DataInput in, EpisimPerson[] persons) throws IOException {
+
+		DiseaseStatus[] states = DiseaseStatus.values();
+		VirusStrain[] strains = VirusStrain.values();
+		QuarantineStatus[] quarantine = QuarantineStatus.values();
+		VaccinationStatus[] vaccination = VaccinationStatus.values();
+		TestStatus[] tests = TestStatus.values();
+		VaccinationType[] types = VaccinationType.values();
+
+		for (EpisimPerson p : persons) p.status = states[in.readByte()];
+		for (EpisimPerson p : persons) p.virusStrain = strains[in.readByte()];
+		for (EpisimPerson p : persons) p.quarantineStatus = quarantine[in.readByte()];
+		for (EpisimPerson p : persons) p.quarantineDate = in.readInt();
+		for (EpisimPerson p : persons) p.vaccinationStatus = vaccination[in.readByte()];
+		for (EpisimPerson p : persons) p.reVaccinationStatus = vaccination[in.readByte()];
+		for (EpisimPerson p : persons) p.vaccinationDate = in.readInt();
+		for (EpisimPerson p : persons) p.testStatus = tests[in.readByte()];
+		for (EpisimPerson p : persons) p.testDate = in.readInt();
+		for (EpisimPerson p : persons) p.traceable = in.readBoolean();
+		for (EpisimPerson p : persons) p.numInfections = in.readInt();
+		for (EpisimPerson p : persons) p.vaccinationType = types[in.readByte()];
+		for (EpisimPerson p : persons) p.susceptibility = in.readDouble();
+	}
+
+	/**
+	 * Writes status changes, infection origin and traced contacts of all persons.
+	 * Contacts are referenced by their position in the array.
+	 *
+	 * @param positions position in the array for each person id index
+	 */
+	static void writeRelations(DataOutput out, EpisimPerson[] persons, int[] positions) throws IOException {
+
+		// infection containers and types repeat a lot and are written once
+		Object2IntMap<String> strings = new Object2IntLinkedOpenHashMap<>();
+		for (EpisimPerson p : persons) {
+			if (p.infectionContainer != null)
+				strings.putIfAbsent(p.infectionContainer.toString(), strings.size());
+			if (p.infectionType != null)
+				strings.putIfAbsent(p.infectionType, strings.size());
+		}
+
+		out.writeInt(strings.size());
+		for (String s : strings.keySet()) {
+			out.writeUTF(s);
+		}
+
+		for (EpisimPerson p : persons) {
+			out.writeInt(p.infectionContainer != null ? strings.getInt(p.infectionContainer.toString()) : -1);
+			out.writeInt(p.infectionType != null ? strings.getInt(p.infectionType) : -1);
+
+			out.writeByte(p.statusChanges.size());
+			for (Map.Entry<DiseaseStatus, Double> e : p.statusChanges.entrySet()) {
+				out.writeByte(e.getKey().ordinal());
+				out.writeDouble(e.getValue());
+			}
+
+			out.writeInt(p.traceableContactPersons.size());
+			for (int i = 0; i < p.traceableContactPersons.size(); i++) {
+				out.writeInt(positions[p.traceableContactPersons.getPerson(i).getPersonId().index()]);
+				out.writeDouble(p.traceableContactPersons.getTime(i));
+			}
+		}
+	}
+
+	/**
+	 * Reads data written by {@link #writeRelations(DataOutput, EpisimPerson[], int[])}.
+	 * Needs to be called after the columns have been restored, because the reporting counters are updated here.
+	 *
+	 * @param persons persons in the order they were written
+	 * @param all     all persons, by the positions used when writing
+	 */
+	static void readRelations(DataInput in, EpisimPerson[] persons, EpisimPerson[] all) throws IOException {
+
+		String[] strings = new String[in.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = in.readUTF();
+		}
+
+		DiseaseStatus[] states = DiseaseStatus.values();
+
+		for (EpisimPerson p : persons) {
+			int container = in.readInt();
+			p.infectionContainer = container >= 0 ? Id.create(strings[container], ActivityFacility.class) : null;
+
+			int type = in.readInt();
+			p.infectionType = type >= 0 ? strings[type] : null;
+
+			int n = in.readByte();
+			p.statusChanges.clear();
+			for (int i = 0; i < n; i++) {
+				DiseaseStatus status = states[in.readByte()];
+				p.statusChanges.put(status, in.readDouble());
+			}
+
+			n = in.readInt();
+			p.traceableContactPersons.clear();
+			for (int i = 0; i < n; i++) {
+				EpisimPerson contact = all[in.readInt()];
+				p.traceableContactPersons.put(contact, in.readDouble());
+			}
+
+			p.reporting.updateCounters(p);
+		}
+	}
+
+	/**
+	 * Hash over the state that is written by {@link #writeColumns(DataOutput, EpisimPerson[])} and
+	 * {@link #writeRelations(DataOutput, EpisimPerson[], int[])}. Used to find persons that changed since a snapshot.
+	 */
+	long stateHash() {
+
+		long h = BinarySnapshot.mix(status.ordinal(), virusStrain.ordinal());
+		h = BinarySnapshot.mix(h, quarantineStatus.ordinal());
+		h = BinarySnapshot.mix(h, quarantineDate);
+		h = BinarySnapshot.mix(h, vaccinationStatus.ordinal());
+		h = BinarySnapshot.mix(h, reVaccinationStatus.ordinal());
+		h = BinarySnapshot.mix(h, vaccinationDate);
+		h = BinarySnapshot.mix(h, testStatus.ordinal());
+		h = BinarySnapshot.mix(h, testDate);
+		h = BinarySnapshot.mix(h, traceable ? 1 : 0);
+		h = BinarySnapshot.mix(h, numInfections);
+		h = BinarySnapshot.mix(h, vaccinationType.ordinal());
+		h = BinarySnapshot.mix(h, Double.doubleToLongBits(susceptibility));
+		h = BinarySnapshot.mix(h, infectionContainer != null ? infectionContainer.index() : -1);
+		h = infectionType != null ? BinarySnapshot.mix(h, infectionType) : BinarySnapshot.mix(h, -1);
+
+		h = BinarySnapshot.mix(h, statusChanges.size());
+		for (Map.Entry<DiseaseStatus, Double> e : statusChanges.entrySet()) {
+			h = BinarySnapshot.mix(h, e.getKey().ordinal());
+			h = BinarySnapshot.mix(h, Double.doubleToLongBits(e.getValue()));
+		}
+
+		h = BinarySnapshot.mix(h, traceableContactPersons.size());
+		for (int i = 0; i < traceableContactPersons.size(); i++) {
+			h = BinarySnapshot.mix(h, traceableContactPersons.getPerson(i).getPersonId().index());
+			h = BinarySnapshot.mix(h, Double.doubleToLongBits(traceableContactPersons.getTime(i)));
+		}
+
+		return h;
+	}
+
 	public Id<Person> getPersonId() {
 		return personId;
 	}
@@ -412,12 +600,22 @@ public final class EpisimPerson implements Attributable {
 			numInfections++;
 
 			this.earliestInfection = null;
+			this.committedInfection = true;
 			return event;
 		}
 
 		return null;
 	}
 
+	/**
+	 * Returns whether an infection has been committed by {@link #checkInfection()} since the last call of this method.
+	 */
+	boolean pollCommittedInfection() {
+		boolean committed = committedInfection;
+		committedInfection = false;
+		return committed;
+	}
+
 	/**
 	 * Get all potential infection events.
 	 */
@@ -433,6 +631,8 @@ public final class EpisimPerson implements Attributable {
 		this.quarantineStatus = quarantineStatus;
 		this.quarantineDate = iteration;
 
+		reporting.updateCounters(this);
+
 		// this function should receive now instead of iteration
 		// only for testing currently
 		//reporting.reportPersonStatus(this, new EpisimPersonStatusEvent(iteration * 86400d, personId, quarantineStatus));
@@ -466,6 +666,7 @@ public final class EpisimPerson implements Attributable {
 		this.vaccinationDate = iteration;
 
 		reporting.reportVaccination(personId, iteration, type, false);
+		reporting.updateCounters(this);
 	}
 
 	public void setReVaccinationStatus(VaccinationStatus vaccinationStatus, int iteration) {
@@ -476,6 +677,7 @@ public final class EpisimPerson implements Attributable {
 		this.vaccinationDate = iteration;
 
 		reporting.reportVaccination(personId, iteration, vaccinationType,true);
+		reporting.updateCounters(this);
 	}
 
 	public TestStatus getTestStatus() {
@@ -485,6 +687,8 @@ public final class EpisimPerson implements Attributable {
 	public void setTestStatus(TestStatus testStatus, int iteration) {
 		this.testStatus = testStatus;
 		this.testDate = iteration;
+
+		reporting.updateCounters(this);
 	}
 
 	public void setSusceptibility(double susceptibility) {
@@ -546,6 +750,13 @@ public final class EpisimPerson implements Attributable {
 		return currentDay - vaccinationDate;
 	}
 
+	/**
+	 * Iteration of the last test, negative if person was never tested.
+	 */
+	int getTestDate() {
+		return testDate;
+	}
+
 	/**
 	 * Days elapsed since person got its first vaccination.
 	 *
@@ -582,31 +793,32 @@ public final class EpisimPerson implements Attributable {
 	}
 
 	/**
-	 * Get all traced contacts that happened after certain time.
+	 * Get all traced contacts that happened after certain time, sorted by person id.
 	 */
 	public synchronized List<EpisimPerson> getTraceableContactPersons(double after) {
-		// needs to be sorted or results will be non deterministic with multithreading
-		return traceableContactPersons.object2DoubleEntrySet()
-				.stream().filter(p -> p.getDoubleValue() >= after)
-				.map(Map.Entry::getKey)
-				.sorted(Comparator.comparing(EpisimPerson::getPersonId))
-				.collect(Collectors.toList());
-
-		// yyyy if the computationally intensive operation is to search by time, we should sort traceableContactPersons by time.  To simplify this, I
-		// would argue that it is not a problem to have a person in there multiple times.  kai, may'20
+		List<EpisimPerson> result = new ArrayList<>();
+		traceableContactPersons.visit(after, result::add);
+		return result;
+	}
 
+	/**
+	 * Visit all traced contacts that happened after certain time in order of their person id, without creating a copy of them.
+	 * The order is needed for results to be deterministic with multithreading.
+	 *
+	 * @param visitor called for each contact person, the iteration stops as soon as it returns false
+	 */
+	public synchronized void visitTraceableContactPersons(double after, Predicate<EpisimPerson> visitor) {
+		traceableContactPersons.visit(after, visitor);
 	}
 
 	/**
 	 * Remove old contact tracing data before a certain date.
 	 */
-	public void clearTraceableContractPersons(double before) {
+	public synchronized void clearTraceableContractPersons(double before) {
 
-		int oldSize = traceableContactPersons.size();
+		if (traceableContactPersons.size() == 0) return;
 
-		if (oldSize == 0) return;
-
-		traceableContactPersons.keySet().removeIf(k -> traceableContactPersons.getDouble(k) < before);
+		traceableContactPersons.removeBefore(before);
 	}
 
 	/**
@@ -775,16 +987,43 @@ public final class EpisimPerson implements Attributable {
 
 	/**
 	 * Add amount of time to spent time for an activity.
+	 *
+	 * @deprecated time use is summed for the whole population by the trajectory handlers,
+	 * time added here is moved there before the next report
 	 */
+	@Deprecated
 	public synchronized void addSpentTime(String actType, double timeSpent) {
+		if (spentTime == null)
+			spentTime = new Object2DoubleOpenHashMap<>(4);
+
 		spentTime.mergeDouble(actType, timeSpent, Double::sum);
 	}
 
 	/**
-	 * Spent time of this person by activity.
+	 * Spent time of this person by activity, that has not been moved to the time use of the population yet.
+	 *
+	 * @deprecated time use is not stored per person anymore, this map will usually be empty
+	 */
+	@Deprecated
+	public synchronized Object2DoubleMap<String> getSpentTime() {
+		return spentTime == null ? Object2DoubleMaps.emptyMap() : Object2DoubleMaps.unmodifiable(spentTime);
+	}
+
+	/**
+	 * Whether this person holds spent time, which needs to be moved with {@link #removeSpentTime()}.
 	 */
-	public Object2DoubleMap<String> getSpentTime() {
-		return spentTime;
+	boolean hasSpentTime() {
+		return spentTime != null;
+	}
+
+	/**
+	 * Returns and removes the spent time held by this person.
+	 */
+	@Nullable
+	synchronized Object2DoubleMap<String> removeSpentTime() {
+		Object2DoubleMap<String> result = spentTime;
+		spentTime = null;
+		return result;
 	}
 
 	@Override
@@ -23,6 +23,7 @@ package org.matsim.episim;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.typesafe.config.ConfigRenderOptions;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
@@ -43,15 +44,20 @@ import org.matsim.episim.model.VaccinationType;
 import org.matsim.episim.model.VirusStrain;
 import org.matsim.episim.policy.Restriction;
 import org.matsim.episim.reporting.EpisimWriter;
+import org.matsim.episim.reporting.ParallelGZIPOutputStream;
 
+import javax.annotation.Nullable;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.zip.GZIPOutputStream;
 
 import static org.matsim.episim.EpisimUtils.readChars;
@@ -109,10 +115,28 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 	private TarArchiveOutputStream zipOut;
 
 	/**
-	 * Output for event files.
+	 * Temporary file holding the compressed events of the current day, when single events is true.
+	 * Events are streamed into this file and copied into the archive once the day is complete, because the size of an archive entry
+	 * needs to be known before its content is written.
 	 */
-	private final ByteArrayOutputStream os;
+	private final Path spool;
 
+	/**
+	 * Collects the events of a day, when events are written in binary format.
+	 */
+	@Nullable
+	private final EpisimBinaryEventsWriter binaryEvents;
+
+	/**
+	 * Threads compressing event files, when parallel compression is enabled. Shared with other runs.
+	 */
+	@Nullable
+	private final ExecutorService compression;
+
+	/**
+	 * Selects which events are written.
+	 */
+	private final EventFilter filter;
 
 
 	private final Config config;
@@ -134,14 +158,24 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 
 	private String memorizedDate = null;
 
+	/**
+	 * Counters for the infection reports, only used if enabled in {@link EpisimConfigGroup#getReportCounting()}.
+	 */
+	private volatile ReportCounters counters;
+
 	/**
 	 * flag to ensure only one threads writes certain outputs.
 	 */
 	private final AtomicBoolean writeFlag = new AtomicBoolean(false);
 
+	/**
+	 * Listeners that are called after the state of a person has changed.
+	 */
+	private final List<Consumer<EpisimPerson>> stateListener = new CopyOnWriteArrayList<>();
+
 
 	@Inject
-	EpisimReporting(Config config, EpisimWriter writer, EventsManager manager) {
+	EpisimReporting(Config config, EpisimWriter writer, EventsManager manager, EventFilter filter) {
 		outDir = config.controler().getOutputDirectory();
 
 		// file names depend on the run name
@@ -154,6 +188,9 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 
 		episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
 		singleEvents = episimConfig.getSingleEventFile() == EpisimConfigGroup.SingleEventFile.yes;
+		binaryEvents = episimConfig.getEventFormat() == EpisimConfigGroup.EventFormat.binary ? new EpisimBinaryEventsWriter() : null;
+		compression = episimConfig.getEventCompression() == EpisimConfigGroup.EventCompression.parallel ?
+				ParallelGZIPOutputStream.sharedExecutor() : null;
 
 		try {
 			if (singleEvents) {
@@ -162,10 +199,10 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 					Files.createDirectories(eventPath.getParent());
 
 				zipOut = new TarArchiveOutputStream(Files.newOutputStream(eventPath));
-				os = new ByteArrayOutputStream(1024);
+				spool = Path.of(base + "events.tar.part");
 			} else {
 				eventPath = Path.of(outDir, "events");
-				os = null;
+				spool = null;
 				if (!Files.exists(eventPath))
 					Files.createDirectories(eventPath);
 			}
@@ -179,6 +216,7 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 		this.vaccinationConfig = ConfigUtils.addOrGetModule(config, VaccinationConfigGroup.class);
 		this.writer = writer;
 		this.manager = manager;
+		this.filter = filter;
 
 		infectionReport = EpisimWriter.prepare(base + "infections.txt", InfectionsWriterFields.class);
 		infectionEvents = EpisimWriter.prepare(base + "infectionEvents.txt", InfectionEventsWriterFields.class);
@@ -273,6 +311,13 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 	 * Checks whether a person is vaccinated (and has full effectiveness).
 	 */
 	private boolean isVaccinated(EpisimPerson person) {
+		return isVaccinated(person, vaccinationConfig, iteration);
+	}
+
+	/**
+	 * Checks whether a person is vaccinated (and has full effectiveness) at a given iteration.
+	 */
+	static boolean isVaccinated(EpisimPerson person, VaccinationConfigGroup vaccinationConfig, int iteration) {
 		if (person.getVaccinationStatus() != VaccinationStatus.yes)
 			return false;
 
@@ -282,150 +327,55 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 	}
 
 	/**
-	 * Creates infections reports for the day. Grouped by district, but always containing a "total" entry.
+	 * Register a listener that is called after the state of a person has changed.
+	 * It can be called concurrently for different persons.
 	 */
-	Map<String, InfectionReport> createReports(Collection<EpisimPerson> persons, int iteration) {
+	public void addStateListener(Consumer<EpisimPerson> listener) {
+		stateListener.add(listener);
+	}
 
-		Map<String, InfectionReport> reports = new LinkedHashMap<>();
+	/**
+	 * Update the counters for the infection reports after the state of a person has changed and notify the state listeners.
+	 * Counters are not updated if they are not used.
+	 */
+	void updateCounters(EpisimPerson person) {
+		ReportCounters c = counters;
+		if (c != null)
+			c.update(person, iteration);
 
-		double time = EpisimUtils.getCorrectedTime(EpisimUtils.getStartOffset(episimConfig.getStartDate()), 0., iteration);
-		String date = episimConfig.getStartDate().plusDays(iteration - 1).toString();
+		for (int i = 0; i < stateListener.size(); i++) {
+			stateListener.get(i).accept(person);
+		}
+	}
 
-		InfectionReport report = new InfectionReport("total", time, date, iteration);
-		reports.put("total", report);
+	/**
+	 * Creates infections reports for the day. Grouped by district, but always containing a "total" entry.
+	 */
+	Map<String, InfectionReport> createReports(Collection<EpisimPerson> persons, int iteration) {
 
-		for (EpisimPerson person : persons) {
-			String districtName = (String) person.getAttributes().getAttribute("district");
+		Map<String, InfectionReport> reports;
+		EpisimConfigGroup.ReportCounting counting = episimConfig.getReportCounting();
 
-			boolean isVaccinated = isVaccinated(person);
+		if (counting == EpisimConfigGroup.ReportCounting.fullScan) {
+			reports = countPersons(persons, iteration);
+		} else {
 
-			// Also aggregate by district
-			InfectionReport district = reports.computeIfAbsent(districtName == null ? "unknown"
-					: districtName, name -> new InfectionReport(name, report.time, report.date, report.day));
-			switch (person.getDiseaseStatus()) {
-				case susceptible:
-					report.nSusceptible++;
-					district.nSusceptible++;
-					if (isVaccinated) {
-						report.nSusceptibleVaccinated++;
-						district.nSusceptibleVaccinated++;
-					}
-					break;
-				case infectedButNotContagious:
-					report.nInfectedButNotContagious++;
-					district.nInfectedButNotContagious++;
-					report.nTotalInfected++;
-					district.nTotalInfected++;
-					if (isVaccinated) {
-						report.nInfectedButNotContagiousVaccinated++;
-						district.nInfectedButNotContagiousVaccinated++;
-						report.nTotalInfectedVaccinated++;
-						district.nTotalInfectedVaccinated++;
-					}
-					break;
-				case contagious:
-					report.nContagious++;
-					district.nContagious++;
-					report.nTotalInfected++;
-					district.nTotalInfected++;
-					if (isVaccinated) {
-						report.nContagiousVaccinated++;
-						district.nContagiousVaccinated++;
-						report.nTotalInfectedVaccinated++;
-						district.nTotalInfectedVaccinated++;
-					}
-					break;
-				case showingSymptoms:
-					report.nShowingSymptoms++;
-					district.nShowingSymptoms++;
-					report.nTotalInfected++;
-					district.nTotalInfected++;
-					if (isVaccinated) {
-						report.nShowingSymptomsVaccinated++;
-						district.nShowingSymptomsVaccinated++;
-						report.nTotalInfectedVaccinated++;
-						district.nTotalInfectedVaccinated++;
-					}
-					break;
-				case seriouslySick:
-				case seriouslySickAfterCritical:
-					report.nSeriouslySick++;
-					district.nSeriouslySick++;
-					report.nTotalInfected++;
-					district.nTotalInfected++;
-					if (isVaccinated) {
-						report.nSeriouslySickVaccinated++;
-						district.nSeriouslySickVaccinated++;
-						report.nTotalInfectedVaccinated++;
-						district.nTotalInfectedVaccinated++;
-					}
-					break;
-				case critical:
-					report.nCritical++;
-					district.nCritical++;
-					report.nTotalInfected++;
-					district.nTotalInfected++;
-					if (isVaccinated) {
-						report.nCriticalVaccinated++;
-						district.nCriticalVaccinated++;
-						report.nTotalInfectedVaccinated++;
-						district.nTotalInfectedVaccinated++;
-					}
-					break;
-				case recovered:
-					report.nRecovered++;
-					district.nRecovered++;
-					if (isVaccinated) {
-						report.nRecoveredVaccinated++;
-						district.nRecoveredVaccinated++;
-					}
-					break;
-				default:
-					throw new IllegalStateException("Unexpected value: " + person.getDiseaseStatus());
-			}
-			switch (person.getQuarantineStatus()) {
-				// For now there is no separation in the report between full and home
-				case atHome:
-					report.nInQuarantineHome++;
-					district.nInQuarantineHome++;
-					break;
-				case full:
-					report.nInQuarantineFull++;
-					district.nInQuarantineFull++;
-					break;
-				case no:
-					break;
-				default:
-					throw new IllegalStateException("Unexpected value: " + person.getQuarantineStatus());
-			}
+			// counters are initialized once, afterwards they are updated by the persons
+			if (counters == null)
+				counters = new ReportCounters(persons, vaccinationConfig, this.iteration);
 
-			switch (person.getVaccinationStatus()) {
-				case yes:
-					report.nVaccinated++;
-					district.nVaccinated++;
-				case no:
-					break;
-				default:
-					throw new IllegalArgumentException("Unexpected value: " + person.getVaccinationStatus());
-			}
+			reports = new LinkedHashMap<>();
+			InfectionReport report = createReport("total", iteration);
+			reports.put("total", report);
 
-			switch (person.getReVaccinationStatus()) {
-				case yes:
-					report.nReVaccinated++;
-					district.nReVaccinated++;
-				case no:
-					break;
-				default:
-					throw new IllegalArgumentException("Unexpected value: " + person.getReVaccinationStatus());
-			}
+			counters.fill(reports, report, iteration);
 
-			// stats are collected one day after the test has been performed
-			if (person.daysSinceTest(iteration) == 1 && person.getTestStatus() != EpisimPerson.TestStatus.untested) {
-				report.nTested++;
-				district.nTested++;
-			}
+			if (counting == EpisimConfigGroup.ReportCounting.crossCheck)
+				checkCounters(reports, countPersons(persons, iteration));
 		}
 
+		InfectionReport report = reports.get("total");
+
 		for (String district : reports.keySet()) {
 
 			int nInfected = cumulativeCases.get(EpisimPerson.DiseaseStatus.infectedButNotContagious).getOrDefault(district, 0);
@@ -471,6 +421,173 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 		return reports;
 	}
 
+	private InfectionReport createReport(String name, int iteration) {
+		double time = EpisimUtils.getCorrectedTime(EpisimUtils.getStartOffset(episimConfig.getStartDate()), 0., iteration);
+		String date = episimConfig.getStartDate().plusDays(iteration - 1).toString();
+
+		return new InfectionReport(name, time, date, iteration);
+	}
+
+	/**
+	 * Count the current state of all persons.
+	 */
+	private Map<String, InfectionReport> countPersons(Collection<EpisimPerson> persons, int iteration) {
+
+		Map<String, InfectionReport> reports = new LinkedHashMap<>();
+
+		InfectionReport report = createReport("total", iteration);
+		reports.put("total", report);
+
+		for (EpisimPerson person : persons) {
+			String districtName = (String) person.getAttributes().getAttribute("district");
+
+			boolean isVaccinated = isVaccinated(person);
+
+			// Also aggregate by district
+			InfectionReport district = reports.computeIfAbsent(districtName == null ? "unknown"
+					: districtName, name -> new InfectionReport(name, report.time, report.date, report.day));
+
+			count(report, person.getDiseaseStatus(), isVaccinated, person.getQuarantineStatus(),
+					person.getVaccinationStatus(), person.getReVaccinationStatus(), 1);
+			count(district, person.getDiseaseStatus(), isVaccinated, person.getQuarantineStatus(),
+					person.getVaccinationStatus(), person.getReVaccinationStatus(), 1);
+
+			// stats are collected one day after the test has been performed
+			if (person.daysSinceTest(iteration) == 1 && person.getTestStatus() != EpisimPerson.TestStatus.untested) {
+				report.nTested++;
+				district.nTested++;
+			}
+		}
+
+		return reports;
+	}
+
+	/**
+	 * Add {@code n} persons with the given state to a report.
+	 */
+	static void count(InfectionReport report, EpisimPerson.DiseaseStatus status, boolean isVaccinated, EpisimPerson.QuarantineStatus quarantineStatus,
+	                  VaccinationStatus vaccinationStatus, VaccinationStatus reVaccinationStatus, long n) {
+
+		switch (status) {
+			case susceptible:
+				report.nSusceptible += n;
+				if (isVaccinated)
+					report.nSusceptibleVaccinated += n;
+				break;
+			case infectedButNotContagious:
+				report.nInfectedButNotContagious += n;
+				report.nTotalInfected += n;
+				if (isVaccinated) {
+					report.nInfectedButNotContagiousVaccinated += n;
+					report.nTotalInfectedVaccinated += n;
+				}
+				break;
+			case contagious:
+				report.nContagious += n;
+				report.nTotalInfected += n;
+				if (isVaccinated) {
+					report.nContagiousVaccinated += n;
+					report.nTotalInfectedVaccinated += n;
+				}
+				break;
+			case showingSymptoms:
+				report.nShowingSymptoms += n;
+				report.nTotalInfected += n;
+				if (isVaccinated) {
+					report.nShowingSymptomsVaccinated += n;
+					report.nTotalInfectedVaccinated += n;
+				}
+				break;
+			case seriouslySick:
+			case seriouslySickAfterCritical:
+				report.nSeriouslySick += n;
+				report.nTotalInfected += n;
+				if (isVaccinated) {
+					report.nSeriouslySickVaccinated += n;
+					report.nTotalInfectedVaccinated += n;
+				}
+				break;
+			case critical:
+				report.nCritical += n;
+				report.nTotalInfected += n;
+				if (isVaccinated) {
+					report.nCriticalVaccinated += n;
+					report.nTotalInfectedVaccinated += n;
+				}
+				break;
+			case recovered:
+				report.nRecovered += n;
+				if (isVaccinated)
+					report.nRecoveredVaccinated += n;
+				break;
+			default:
+				throw new IllegalStateException("Unexpected value: " + status);
+		}
+		switch (quarantineStatus) {
+			// For now there is no separation in the report between full and home
+			case atHome:
+				report.nInQuarantineHome += n;
+				break;
+			case full:
+				report.nInQuarantineFull += n;
+				break;
+			case no:
+				break;
+			default:
+				throw new IllegalStateException("Unexpected value: " + quarantineStatus);
+		}
+
+		switch (vaccinationStatus) {
+			case yes:
+				report.nVaccinated += n;
+			case no:
+				break;
+			default:
+				throw new IllegalArgumentException("Unexpected value: " + vaccinationStatus);
+		}
+
+		switch (reVaccinationStatus) {
+			case yes:
+				report.nReVaccinated += n;
+			case no:
+				break;
+			default:
+				throw new IllegalArgumentException("Unexpected value: " + reVaccinationStatus);
+		}
+	}
+
+	/**
+	 * Compare reports created from the counters with the ones from a full scan.
+	 *
+	 * @throws IllegalStateException if any number differs
+	 */
+	private static void checkCounters(Map<String, InfectionReport> reports, Map<String, InfectionReport> expected) {
+
+		if (!new ArrayList<>(reports.keySet()).equals(new ArrayList<>(expected.keySet())))
+			throw new IllegalStateException("Districts of counters " + reports.keySet() + " differ from full scan " + expected.keySet());
+
+		for (Map.Entry<String, InfectionReport> e : expected.entrySet()) {
+			InfectionReport report = reports.get(e.getKey());
+
+			for (java.lang.reflect.Field field : InfectionReport.class.getFields()) {
+				if (field.getType() != long.class)
+					continue;
+
+				try {
+					long actual = field.getLong(report);
+					long value = field.getLong(e.getValue());
+
+					if (actual != value)
+						throw new IllegalStateException(String.format("Counter %s for %s on day %d is %d, but full scan counted %d",
+								field.getName(), e.getKey(), report.day, actual, value));
+
+				} catch (IllegalAccessException ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Writes the infection report to csv.
 	 *
@@ -606,12 +723,19 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 	 *
 	 * @see EpisimContactEvent
 	 */
-	public synchronized void reportContact(double now, EpisimPerson person, EpisimPerson contactPerson, EpisimContainer<?> container,
-	                                       StringBuilder actType, double duration) {
+	public void reportContact(double now, EpisimPerson person, EpisimPerson contactPerson, EpisimContainer<?> container,
+	                          StringBuilder actType, double duration) {
+
+		// filtered contacts are never created
+		if ((writeEvents == EpisimConfigGroup.WriteEvents.tracing || writeEvents == EpisimConfigGroup.WriteEvents.all)
+				&& filter.acceptContact(iteration, person.getPersonId(), contactPerson.getPersonId(), actType)) {
+
+			EpisimContactEvent event = new EpisimContactEvent(now, person.getPersonId(), contactPerson.getPersonId(), container.getContainerId(),
+					actType.toString(), duration, container.getPersons().size());
 
-		if (writeEvents == EpisimConfigGroup.WriteEvents.tracing || writeEvents == EpisimConfigGroup.WriteEvents.all) {
-			manager.processEvent(new EpisimContactEvent(now, person.getPersonId(), contactPerson.getPersonId(), container.getContainerId(),
-					actType.toString(), duration, container.getPersons().size()));
+			synchronized (this) {
+				manager.processEvent(event);
+			}
 		}
 
 	}
@@ -622,7 +746,8 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 	 */
 	void reportTracing(double now, EpisimPerson person, EpisimPerson contactPerson) {
 
-		if (writeEvents == EpisimConfigGroup.WriteEvents.tracing || writeEvents == EpisimConfigGroup.WriteEvents.all) {
+		if ((writeEvents == EpisimConfigGroup.WriteEvents.tracing || writeEvents == EpisimConfigGroup.WriteEvents.all)
+				&& filter.acceptTracing(iteration, person.getPersonId(), contactPerson.getPersonId())) {
 			manager.processEvent(new EpisimTracingEvent(now, person.getPersonId(), contactPerson.getPersonId()));
 		}
 	}
@@ -634,23 +759,13 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 		writer.append(restrictionReport, "\n");
 	}
 
-	void reportTimeUse(Set<String> activities, Collection<EpisimPerson> persons, long iteration, String date) {
+	void reportTimeUse(Set<String> activities, Object2DoubleMap<String> timeSpent, int persons, long iteration, String date) {
 		if (iteration == 0 || episimConfig.getReportTimeUse() == EpisimConfigGroup.ReportTimeUse.no) return;
 
-		Map<String, Double> avg = new ConcurrentHashMap<>();
-
-		activities.parallelStream().forEach(act -> {
-			int i = 1;
-			double timeSpent = 0;
-			for (EpisimPerson person : persons) {
-				timeSpent += (person.getSpentTime().getDouble(act) - timeSpent) / i;
-				i++;
-			}
-			avg.put(act, timeSpent);
-		});
-
-		for (EpisimPerson person : persons) {
-			person.getSpentTime().clear();
+		// average over the whole population
+		Map<String, Double> avg = new HashMap<>();
+		for (String act : activities) {
+			avg.put(act, timeSpent.getDouble(act) / persons);
 		}
 
 		List<String> order = Lists.newArrayList(activities);
@@ -681,6 +796,7 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 				cumulativeCasesVaccinated.get(newStatus).mergeInt(districtName == null ? "unknown" : districtName, 1, Integer::sum);
 		}
 
+		updateCounters(person);
 		manager.processEvent(event);
 	}
 
@@ -765,14 +881,22 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 		writer.close(virusStrains);
 		writer.close(cpuTime);
 
+		try {
+			// a day that was not finished, e.g. when ending early
+			if (binaryEvents != null)
+				binaryEvents.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
 		if (singleEvents) {
 			try {
 				zipOut.close();
+				Files.deleteIfExists(spool);
 			} catch (IOException e) {
 				throw new UncheckedIOException(e);
 			}
 		}
-
 	}
 
 	/**
@@ -784,19 +908,28 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 		// Events on 0th day are not needed
 		if (iteration == 0) return;
 
+		if (!filter.accept(event, iteration)) return;
+
 		// Crucial episim events are always written, others only if enabled
 		if (event instanceof EpisimPersonStatusEvent || event instanceof EpisimInfectionEvent || event instanceof EpisimVaccinationEvent || event instanceof EpisimPotentialInfectionEvent ||
 				event instanceof EpisimInitialInfectionEvent
 				|| (writeEvents == EpisimConfigGroup.WriteEvents.tracing && event instanceof EpisimTracingEvent)
 				|| (writeEvents == EpisimConfigGroup.WriteEvents.tracing && event instanceof EpisimContactEvent)) {
 
-			writer.append(events, event);
+			if (binaryEvents != null)
+				binaryEvents.append(event);
+			else
+				writer.append(events, event);
 
 		} else if (writeEvents == EpisimConfigGroup.WriteEvents.all || writeEvents == EpisimConfigGroup.WriteEvents.input) {
 
 			// All non-epism events need a corrected timestamp
-			writer.append(events, event,
-					EpisimUtils.getCorrectedTime(episimConfig.getStartOffset(), event.getTime(), iteration));
+			double time = EpisimUtils.getCorrectedTime(episimConfig.getStartOffset(), event.getTime(), iteration);
+
+			if (binaryEvents != null)
+				binaryEvents.append(event, time);
+			else
+				writer.append(events, event, time);
 
 		}
 
@@ -809,15 +942,34 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 		if (iteration == 0 || writeEvents == EpisimConfigGroup.WriteEvents.none)
 			return;
 
+		if (binaryEvents != null) {
+			Path path = singleEvents ? spool : eventPath.resolve(String.format("day_%03d.bin.gz", iteration));
+			try {
+				// events are written in chunks while the day is simulated
+				binaryEvents.open(compress(Files.newOutputStream(path)));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return;
+		}
+
+		Path path = eventPath.resolve(String.format("day_%03d.xml.gz", iteration));
+
 		if (singleEvents) {
 			try {
 				// each entry is gzipped individually, otherwise we could not easily append files to the archive
-				events = new OutputStreamWriter(new GZIPOutputStream(os));
+				events = new OutputStreamWriter(compress(Files.newOutputStream(spool)));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} else if (compression != null) {
+			try {
+				events = new BufferedWriter(new OutputStreamWriter(compress(Files.newOutputStream(path)), StandardCharsets.UTF_8));
 			} catch (IOException e) {
 				throw new UncheckedIOException(e);
 			}
 		} else
-			events = IOUtils.getBufferedWriter(eventPath.resolve(String.format("day_%03d.xml.gz", iteration)).toString());
+			events = IOUtils.getBufferedWriter(path.toString());
 
 		writer.append(events, "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n");
 	}
@@ -827,26 +979,64 @@ public final class EpisimReporting implements BasicEventHandler, Closeable, Exte
 	 * Flush written events.
 	 */
 	void flushEvents() {
+
+		if (binaryEvents != null) {
+			if (iteration > 0 && writeEvents != EpisimConfigGroup.WriteEvents.none)
+				flushBinaryEvents();
+
+			return;
+		}
+
 		if (events != null) {
 			writer.append(events, "</events>");
 			writer.close(events);
 
-			if (singleEvents) {
-				try {
-					TarArchiveEntry entry = new TarArchiveEntry(String.format("day_%03d.xml.gz", iteration));
-					entry.setSize(os.size());
+			if (singleEvents)
+				writeEntry(String.format("day_%03d.xml.gz", iteration));
+		}
+	}
+
+	/**
+	 * Write the remaining events of the day in binary format and close the file.
+	 */
+	private void flushBinaryEvents() {
 
-					zipOut.putArchiveEntry(entry);
+		try {
+			binaryEvents.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 
-					os.writeTo(zipOut);
-					os.reset();
+		if (singleEvents)
+			writeEntry(String.format("day_%03d.bin.gz", iteration));
+	}
 
-					zipOut.closeArchiveEntry();
-					zipOut.flush();
-				} catch (IOException e) {
-					throw new UncheckedIOException(e);
-				}
-			}
+	/**
+	 * Gzip compressing stream for event output, using the compression threads if enabled.
+	 */
+	private OutputStream compress(OutputStream out) throws IOException {
+		if (compression != null)
+			return new ParallelGZIPOutputStream(out, compression, episimConfig.getThreads());
+
+		return new GZIPOutputStream(out, 65536);
+	}
+
+	/**
+	 * Copy the content of {@link #spool} into a new entry of the event archive.
+	 */
+	private void writeEntry(String name) {
+		try {
+			TarArchiveEntry entry = new TarArchiveEntry(name);
+			entry.setSize(Files.size(spool));
+
+			zipOut.putArchiveEntry(entry);
+
+			Files.copy(spool, zipOut);
+
+			zipOut.closeArchiveEntry();
+			zipOut.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
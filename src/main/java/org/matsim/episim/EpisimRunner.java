@@ -24,6 +24,7 @@ import com.google.inject.Inject;
 import com.google.inject.Provider;
 import org.apache.commons.compress.archivers.*;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.events.Event;
@@ -34,16 +35,19 @@ import org.matsim.core.controler.ControlerUtils;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.episim.model.ProgressionModel;
 
-import java.io.Externalizable;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.time.DayOfWeek;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main entry point and runner of one epidemic simulation.
@@ -62,6 +66,21 @@ public final class EpisimRunner {
 	private final Provider<EpisimReporting> reportingProvider;
 	private final Provider<ProgressionModel> progressionProvider;
 
+	/**
+	 * Writes snapshots in the background, only present when enabled and during {@link #run(int)}.
+	 */
+	private ExecutorService snapshotWriter;
+
+	/**
+	 * Limits the number of captured snapshots waiting to be written.
+	 */
+	private Semaphore pendingSnapshots;
+
+	/**
+	 * Number of snapshots written during the current run.
+	 */
+	private int snapshotCount;
+
 	@Inject
 	public EpisimRunner(Config config, EventsManager manager, Provider<InfectionEventHandler> handlerProvider, Provider<ReplayHandler> replay,
 	                    Provider<EpisimReporting> reportingProvider, Provider<ProgressionModel> progressionProvider) {
@@ -79,6 +98,17 @@ public final class EpisimRunner {
 	 * @param maxIterations maximum number of iterations (inclusive)
 	 */
 	public void run(int maxIterations) {
+		run(maxIterations, false);
+	}
+
+	/**
+	 * Main loop that performs the iterations of the simulation.
+	 *
+	 * @param maxIterations maximum number of iterations (inclusive)
+	 * @param snapshotAfter write a snapshot of the state at the start of the iteration after {@code maxIterations},
+	 *                      if all iterations were simulated. This requires a snapshot interval to be set.
+	 */
+	public void run(int maxIterations, boolean snapshotAfter) {
 
 		// Construct these dependencies as late as possible, so all other configs etc have been fully configured
 		final ReplayHandler replay = replayProvider.get();
@@ -98,6 +128,19 @@ public final class EpisimRunner {
 
 		Path output = Path.of(config.controler().getOutputDirectory());
 
+		if (episimConfig.getSnapshotInterval() > 0 && episimConfig.getSnapshotAsync() == EpisimConfigGroup.SnapshotAsync.yes) {
+			snapshotWriter = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "snapshot-writer");
+				thread.setDaemon(true);
+				return thread;
+			});
+			pendingSnapshots = new Semaphore(Math.max(1, episimConfig.getSnapshotMaxPending()));
+		}
+
+		snapshotCount = 0;
+		if (episimConfig.getSnapshotFullInterval() > 1 && episimConfig.getSnapshotFormat() != EpisimConfigGroup.SnapshotFormat.binary)
+			log.warn("Delta snapshots are only supported by the binary format, all snapshots will be written in full.");
+
 		int iteration = 1;
 		if (episimConfig.getStartFromSnapshot() != null) {
 			reporting.close();
@@ -106,6 +149,7 @@ public final class EpisimRunner {
 				reporting.append(episimConfig.getStartDate().plusDays(iteration - 1).toString());
 			} catch (IOException e) {
 				log.error("Snapshot output could not be created", e);
+				awaitSnapshots();
 				return;
 			}
 		}
@@ -127,6 +171,11 @@ public final class EpisimRunner {
 
 		}
 
+		if (snapshotAfter && iteration == maxIterations + 1)
+			writeSnapshot(output, iteration);
+
+		awaitSnapshots();
+
 		handler.finish();
 
 		reporting.close();
@@ -182,54 +231,169 @@ public final class EpisimRunner {
 
 
 	/**
-	 * Write snapshot into output directory.
+	 * Write snapshot into output directory. Depending on the config the snapshot is only captured and written in the background.
 	 *
 	 * @param output    target output directory
 	 * @param iteration current iteration
 	 */
 	private void writeSnapshot(Path output, int iteration) {
 
+		EpisimConfigGroup episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
+
+		String date = episimConfig.getStartDate().plusDays(iteration - 1).toString();
+
+		Path path = output.resolve(episimConfig.getSnapshotPrefix() + String.format("-%03d-%s.zip", iteration, date));
+
+		if (snapshotWriter == null) {
+			log.info("Writing snapshot to {}", path);
+
+			try {
+				writeSnapshot(path, captureSnapshot(output, path, iteration), true);
+			} catch (IOException | ArchiveException e) {
+				log.error("Could not write snapshot", e);
+			}
+
+			log.info("Snapshot for day {} written successfully", iteration);
+			return;
+		}
+
+		try {
+			pendingSnapshots.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for pending snapshots", e);
+		}
+
+		Snapshot snapshot;
+		try {
+			snapshot = captureSnapshot(output, path, iteration);
+		} catch (IOException e) {
+			pendingSnapshots.release();
+			log.error("Could not capture snapshot", e);
+			return;
+		}
+
+		log.info("Captured snapshot for day {}, writing to {} in the background", iteration, path);
+
+		snapshotWriter.execute(() -> {
+			try {
+				writeSnapshot(path, snapshot, false);
+				log.info("Snapshot for day {} written successfully", iteration);
+			} catch (IOException | ArchiveException | RuntimeException e) {
+				log.error("Could not write snapshot", e);
+			} finally {
+				pendingSnapshots.release();
+			}
+		});
+	}
+
+	/**
+	 * Copy the current simulation state into memory.
+	 *
+	 * @param path file the snapshot will be written to
+	 */
+	private Snapshot captureSnapshot(Path output, Path path, int iteration) throws IOException {
+
 		InfectionEventHandler handler = handlerProvider.get();
 		EpisimReporting reporting = reportingProvider.get();
 		ProgressionModel progressionModel = progressionProvider.get();
 
 		EpisimConfigGroup episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
 
-		String date = episimConfig.getStartDate().plusDays(iteration - 1).toString();
+		Snapshot snapshot = new Snapshot(iteration);
 
-		Path path = output.resolve(episimConfig.getSnapshotPrefix() + String.format("-%03d-%s.zip", iteration, date));
+		if (episimConfig.getSnapshotCopyOutput() == EpisimConfigGroup.SnapshotCopyOutput.yes) {
+			EpisimUtils.collectFiles(output.toString(), output.toString(), config.controler().getRunId(), snapshot.files);
+
+			// files are still written while the snapshot is in progress
+			snapshot.files.forEach((name, file) -> snapshot.lengths.put(name, file.length()));
+		}
+
+		int fullInterval = episimConfig.getSnapshotFullInterval();
+
+		if (episimConfig.getSnapshotFormat() == EpisimConfigGroup.SnapshotFormat.serialized)
+			snapshot.state = serialize(handler);
+		else if (fullInterval <= 1)
+			snapshot.binary = handler.captureBinary(null);
+		else {
+			// delta is null if there is no full snapshot of this run yet
+			if (snapshotCount % fullInterval != 0)
+				snapshot.binary = handler.captureBinaryDelta();
+
+			if (snapshot.binary == null)
+				snapshot.binary = handler.captureBinary(path.getFileName().toString());
+		}
+
+		snapshotCount++;
+
+		snapshot.reporting = serialize(reporting);
 
-		log.info("Writing snapshot to {}", path);
+		if (progressionModel instanceof Externalizable)
+			snapshot.progression = serialize((Externalizable) progressionModel);
+
+		return snapshot;
+	}
+
+	/**
+	 * Write a captured snapshot to disk.
+	 *
+	 * @param parallel whether the simulation threads can be used, which is not the case while the simulation is running
+	 */
+	private void writeSnapshot(Path path, Snapshot snapshot, boolean parallel) throws IOException, ArchiveException {
 
 		try (var out = Files.newOutputStream(path)) {
 
 			ArchiveOutputStream archive = new ArchiveStreamFactory()
 					.createArchiveOutputStream("zip", out);
 
-			// Copy whole output to the snapshot
-			EpisimUtils.compressDirectory(output.toString(), output.toString(), config.controler().getRunId(), archive);
+			// Copy whole output to the snapshot, as it was when capturing the state
+			for (Map.Entry<String, File> e : snapshot.files.entrySet()) {
+				archive.putArchiveEntry(new ZipArchiveEntry(e.getKey()));
+				try (var in = Files.newInputStream(e.getValue().toPath())) {
+					IOUtils.copyLarge(in, archive, 0, snapshot.lengths.get(e.getKey()));
+				}
+				archive.closeArchiveEntry();
+			}
 
 			archive.putArchiveEntry(new ZipArchiveEntry("iteration"));
 			ObjectOutputStream oos = new ObjectOutputStream(archive);
-			oos.writeInt(iteration);
+			oos.writeInt(snapshot.iteration);
 			oos.flush();
 			archive.closeArchiveEntry();
 
-			writeObject(handler, "state", archive);
-			writeObject(reporting, "reporting", archive);
+			if (snapshot.binary != null)
+				handlerProvider.get().writeBinary(archive, snapshot.binary, parallel);
+			else
+				writeEntry(snapshot.state, "state", archive);
+
+			writeEntry(snapshot.reporting, "reporting", archive);
 
-			if (progressionModel instanceof Externalizable)
-				writeObject((Externalizable) progressionModel, "progression", archive);
+			if (snapshot.progression != null)
+				writeEntry(snapshot.progression, "progression", archive);
 
 			archive.finish();
 			archive.close();
-
-		} catch (IOException | ArchiveException e) {
-			log.error("Could not write snapshot", e);
 		}
+	}
+
+	/**
+	 * Wait until all snapshots written in the background are finished.
+	 */
+	private void awaitSnapshots() {
 
-		log.info("Snapshot for day {} written successfully", iteration);
+		if (snapshotWriter == null)
+			return;
 
+		snapshotWriter.shutdown();
+		try {
+			if (!snapshotWriter.awaitTermination(1, TimeUnit.HOURS))
+				log.error("Snapshots were not written in time");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		snapshotWriter = null;
+		pendingSnapshots = null;
 	}
 
 	/**
@@ -248,6 +412,7 @@ public final class EpisimRunner {
 		ProgressionModel progressionModel = progressionProvider.get();
 
 		int iteration = -1;
+		Map<String, byte[]> binary = new HashMap<>();
 		try (var in = Files.newInputStream(path)) {
 
 			ArchiveInputStream archive = new ArchiveStreamFactory()
@@ -273,6 +438,10 @@ public final class EpisimRunner {
 					handler.readExternal(ois);
 				}
 
+				// binary sections are restored together after all entries have been read
+				if (name.startsWith(BinarySnapshot.PREFIX))
+					binary.put(name.substring(BinarySnapshot.PREFIX.length()), archive.readAllBytes());
+
 				if (name.equals("reporting")) {
 					ObjectInputStream ois = new ObjectInputStream(archive);
 					reporting.readExternal(ois);
@@ -289,6 +458,14 @@ public final class EpisimRunner {
 
 			archive.close();
 
+			if (!binary.isEmpty()) {
+				String base = BinarySnapshot.getBase(binary);
+				if (base != null)
+					log.info("Restoring delta snapshot on top of {}", base);
+
+				handler.readBinary(binary, base != null ? readBinarySections(path.resolveSibling(base)) : null);
+			}
+
 			return iteration;
 
 		} catch (IOException | ArchiveException | ClassNotFoundException e) {
@@ -298,14 +475,76 @@ public final class EpisimRunner {
 	}
 
 	/**
-	 * Helper method to write object into archive,
+	 * Read only the binary state of a snapshot.
 	 */
-	private void writeObject(Externalizable obj, String name, ArchiveOutputStream archive) throws IOException {
-		archive.putArchiveEntry(new ZipArchiveEntry(name));
-		ObjectOutputStream oos = new ObjectOutputStream(archive);
+	private static Map<String, byte[]> readBinarySections(Path path) throws IOException, ArchiveException {
+
+		if (!Files.exists(path))
+			throw new IllegalArgumentException("Base snapshot " + path + " does not exist.");
+
+		Map<String, byte[]> sections = new HashMap<>();
+		try (var in = Files.newInputStream(path)) {
+
+			ArchiveInputStream archive = new ArchiveStreamFactory()
+					.createArchiveInputStream("zip", in);
+
+			ArchiveEntry entry;
+			while ((entry = archive.getNextEntry()) != null) {
+				if (entry.getName().startsWith(BinarySnapshot.PREFIX))
+					sections.put(entry.getName().substring(BinarySnapshot.PREFIX.length()), archive.readAllBytes());
+			}
+
+			archive.close();
+		}
+
+		return sections;
+	}
+
+	/**
+	 * Helper method to serialize an object into memory.
+	 */
+	private static byte[] serialize(Externalizable obj) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(out);
 		obj.writeExternal(oos);
 		oos.flush();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Helper method to write serialized object into archive.
+	 */
+	private static void writeEntry(byte[] data, String name, ArchiveOutputStream archive) throws IOException {
+		archive.putArchiveEntry(new ZipArchiveEntry(name));
+		archive.write(data);
 		archive.closeArchiveEntry();
 	}
 
+	/**
+	 * State of the simulation at the start of one iteration.
+	 */
+	private static final class Snapshot {
+
+		private final int iteration;
+
+		/**
+		 * Output files by their name in the archive, and their length when the snapshot was taken.
+		 */
+		private final Map<String, File> files = new LinkedHashMap<>();
+		private final Map<String, Long> lengths = new HashMap<>();
+
+		/**
+		 * Either the serialized or the binary state of the handler is present.
+		 */
+		private byte[] state;
+		private Map<String, byte[]> binary;
+
+		private byte[] reporting;
+		private byte[] progression;
+
+		private Snapshot(int iteration) {
+			this.iteration = iteration;
+		}
+	}
+
 }
@@ -177,8 +177,16 @@ public final class EpisimUtils {
 	 * @param defaultValue default value
 	 * @param date         date to search for
 	 * @return value from the map larger or equal to {@code date}
+	 * @see StepFunction for repeated lookups
 	 */
 	public static <K extends Comparable, T> T findValidEntry(Map<K, T> map, T defaultValue, K date) {
+
+		// sorted maps can be searched directly
+		if (map instanceof NavigableMap && ((NavigableMap<K, T>) map).comparator() == null) {
+			Map.Entry<K, T> floor = ((NavigableMap<K, T>) map).floorEntry(date);
+			return floor != null ? floor.getValue() : defaultValue;
+		}
+
 		T result = defaultValue;
 		for (Map.Entry<K, T> kv : map.entrySet()) {
 			K key = kv.getKey();
@@ -253,6 +261,23 @@ public final class EpisimUtils {
 	 * Compress directory recursively.
 	 */
 	public static void compressDirectory(String rootDir, String sourceDir, String runId, ArchiveOutputStream out) throws IOException {
+		Map<String, File> files = new LinkedHashMap<>();
+		collectFiles(rootDir, sourceDir, runId, files);
+
+		for (Map.Entry<String, File> e : files.entrySet()) {
+			ArchiveEntry entry = out.createArchiveEntry(e.getValue(), e.getKey());
+			out.putArchiveEntry(entry);
+			FileUtils.copyFile(e.getValue(), out);
+			out.closeArchiveEntry();
+		}
+	}
+
+	/**
+	 * Collect files of a directory recursively, as they would be added by {@link #compressDirectory(String, String, String, ArchiveOutputStream)}.
+	 *
+	 * @param files map of archive entry names to files, which will be filled
+	 */
+	public static void collectFiles(String rootDir, String sourceDir, String runId, Map<String, File> files) {
 		File[] fileList = new File(sourceDir).listFiles();
 		if (fileList == null) return;
 		for (File file : fileList) {
@@ -262,16 +287,16 @@ public final class EpisimUtils {
 			// Zip files (i.e. other snapshots or large files) are not added
 			else if (file.getName().endsWith(".zip") || file.getName().endsWith(".txt.gz"))
 				continue;
+			// Partially written files, like the spool of the event archive
+			else if (file.getName().endsWith(".part"))
+				continue;
 
 			if (file.isDirectory()) {
-				compressDirectory(rootDir, sourceDir + "/" + file.getName(), runId, out);
+				collectFiles(rootDir, sourceDir + "/" + file.getName(), runId, files);
 			} else {
 				// Remove runId from the output name
 				String name = file.getName().replace(runId + ".", "");
-				ArchiveEntry entry = out.createArchiveEntry(file, "output" + sourceDir.replace(rootDir, "") + "/" + name);
-				out.putArchiveEntry(entry);
-				FileUtils.copyFile(file, out);
-				out.closeArchiveEntry();
+				files.put("output" + sourceDir.replace(rootDir, "") + "/" + name, file);
 			}
 		}
 	}
@@ -0,0 +1,235 @@
+package org.matsim.episim;
+
+import com.google.common.base.Splitter;
+import com.google.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.episim.events.EpisimContactEvent;
+import org.matsim.episim.events.EpisimInfectionEvent;
+import org.matsim.episim.events.EpisimPotentialInfectionEvent;
+import org.matsim.episim.events.EpisimTracingEvent;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Decides which events are written to the output, configured by the event filter options of {@link EpisimConfigGroup}.
+ * <p>
+ * Events can be selected by type, simulation day, person and activity. Persons are either listed in a file with one id per line
+ * or selected by an attribute of the population, in which case they are resolved once when the filter is created.
+ * Contacts are kept if one of the two persons is selected. Unset options accept everything.
+ */
+public final class EventFilter {
+
+	private static final Logger log = LogManager.getLogger(EventFilter.class);
+
+	private static final Splitter SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+	@Nullable
+	private final Set<String> types;
+
+	/**
+	 * Inclusive ranges of days, as pairs of first and last day.
+	 */
+	@Nullable
+	private final int[] days;
+
+	/**
+	 * Selected persons by index of their id.
+	 */
+	@Nullable
+	private final BitSet persons;
+
+	@Nullable
+	private final String[] activities;
+
+	@Inject
+	public EventFilter(EpisimConfigGroup episimConfig, @Nullable Scenario scenario) {
+
+		List<String> t = SPLITTER.splitToList(episimConfig.getEventFilterTypes());
+		types = t.isEmpty() ? null : Set.copyOf(t);
+
+		List<String> d = SPLITTER.splitToList(episimConfig.getEventFilterDays());
+		if (d.isEmpty())
+			days = null;
+		else {
+			days = new int[d.size() * 2];
+			for (int i = 0; i < d.size(); i++) {
+				String range = d.get(i);
+				int idx = range.indexOf('-');
+				days[2 * i] = Integer.parseInt(idx == -1 ? range : range.substring(0, idx).trim());
+				days[2 * i + 1] = Integer.parseInt(idx == -1 ? range : range.substring(idx + 1).trim());
+			}
+		}
+
+		List<String> a = SPLITTER.splitToList(episimConfig.getEventFilterActivities());
+		activities = a.isEmpty() ? null : a.toArray(new String[0]);
+
+		String file = episimConfig.getEventFilterPersons();
+		String attribute = episimConfig.getEventFilterPersonAttribute();
+
+		if (file.isEmpty() && attribute.isEmpty())
+			persons = null;
+		else {
+			persons = new BitSet();
+
+			if (!file.isEmpty())
+				readPersons(file);
+
+			if (!attribute.isEmpty())
+				selectPersons(attribute, scenario);
+
+			log.info("Selected {} persons for event output", persons.cardinality());
+		}
+	}
+
+	private void readPersons(String file) {
+		try (BufferedReader reader = IOUtils.getBufferedReader(file)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty())
+					persons.set(Id.createPersonId(line).index());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Select persons by an attribute predicate in the form {@code name=value}.
+	 */
+	private void selectPersons(String attribute, @Nullable Scenario scenario) {
+
+		int idx = attribute.indexOf('=');
+		if (idx == -1)
+			throw new IllegalArgumentException("Person attribute filter must be in the form name=value: " + attribute);
+
+		if (scenario == null)
+			throw new IllegalStateException("Person attribute filter requires a scenario with population");
+
+		String name = attribute.substring(0, idx).trim();
+		String value = attribute.substring(idx + 1).trim();
+
+		for (Person p : scenario.getPopulation().getPersons().values()) {
+			Object attr = p.getAttributes().getAttribute(name);
+			if (attr != null && attr.toString().equals(value))
+				persons.set(p.getId().index());
+		}
+	}
+
+	/**
+	 * Whether events of this type are written.
+	 */
+	public boolean acceptType(String type) {
+		return types == null || types.contains(type);
+	}
+
+	/**
+	 * Whether events of this simulation day are written.
+	 */
+	public boolean acceptDay(int day) {
+		if (days == null)
+			return true;
+
+		for (int i = 0; i < days.length; i += 2) {
+			if (day >= days[i] && day <= days[i + 1])
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Whether events of this person are written.
+	 */
+	public boolean acceptPerson(@Nullable Id<Person> person) {
+		return persons == null || (person != null && persons.get(person.index()));
+	}
+
+	/**
+	 * Whether events with this activity or infection type, e.g. {@code work_leisure}, are written.
+	 * Like the activity params, a filter matches all activities starting with it. For infection types
+	 * each of the activities joined by {@code _} is matched.
+	 */
+	public boolean acceptActivity(CharSequence type) {
+		if (activities == null)
+			return true;
+
+		for (String act : activities) {
+			for (int i = 0; i < type.length(); i++) {
+				if ((i == 0 || type.charAt(i - 1) == '_') && startsWith(type, i, act))
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Whether {@code type} contains {@code prefix} at {@code offset}, without copying the string builder used by the contact models.
+	 */
+	private static boolean startsWith(CharSequence type, int offset, String prefix) {
+		if (offset + prefix.length() > type.length())
+			return false;
+
+		for (int i = 0; i < prefix.length(); i++) {
+			if (type.charAt(offset + i) != prefix.charAt(i))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Check a contact before the event is created.
+	 */
+	public boolean acceptContact(int day, Id<Person> person, Id<Person> contactPerson, CharSequence actType) {
+		return acceptType(EpisimContactEvent.EVENT_TYPE) && acceptDay(day)
+				&& (acceptPerson(person) || acceptPerson(contactPerson)) && acceptActivity(actType);
+	}
+
+	/**
+	 * Check a successful tracing before the event is created.
+	 */
+	public boolean acceptTracing(int day, Id<Person> person, Id<Person> contactPerson) {
+		return acceptType(EpisimTracingEvent.EVENT_TYPE) && acceptDay(day) && (acceptPerson(person) || acceptPerson(contactPerson));
+	}
+
+	/**
+	 * Check any event that is about to be written.
+	 */
+	public boolean accept(Event event, int day) {
+
+		if (!acceptType(event.getEventType()) || !acceptDay(day))
+			return false;
+
+		if (event instanceof EpisimContactEvent) {
+			EpisimContactEvent e = (EpisimContactEvent) event;
+			return (acceptPerson(e.getPersonId()) || acceptPerson(e.getContactPersonId())) && acceptActivity(e.getActType());
+		}
+
+		if (event instanceof EpisimTracingEvent) {
+			EpisimTracingEvent e = (EpisimTracingEvent) event;
+			return acceptPerson(e.getPersonId()) || acceptPerson(e.getContactPersonId());
+		}
+
+		if (event instanceof EpisimInfectionEvent && !acceptActivity(((EpisimInfectionEvent) event).getInfectionType()))
+			return false;
+
+		if (event instanceof EpisimPotentialInfectionEvent && !acceptActivity(((EpisimPotentialInfectionEvent) event).getInfectionType()))
+			return false;
+
+		return !(event instanceof HasPersonId) || acceptPerson(((HasPersonId) event).getPersonId());
+	}
+
+}
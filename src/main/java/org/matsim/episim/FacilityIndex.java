@@ -0,0 +1,135 @@
+package org.matsim.episim;
+
+import com.google.inject.Inject;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.facilities.ActivityFacility;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable index of the scenario facilities and their attributes, indexed by {@link Id#index()} of the facility id.
+ * <p>
+ * The index is built once and shared by all models and threads, instead of each model copying the facility attributes it needs.
+ * Districts used by district level restrictions are stored as codes, which are the position in the sorted list of district names.
+ */
+public final class FacilityIndex {
+
+	private static final Logger log = LogManager.getLogger(FacilityIndex.class);
+
+	@Nullable
+	private final Scenario scenario;
+
+	/**
+	 * Facilities by index of their id, null where the index does not belong to a facility of the scenario.
+	 */
+	private final ActivityFacility[] facilities;
+
+	/**
+	 * Sorted district names.
+	 */
+	private final List<String> districts;
+
+	/**
+	 * District code of each facility, -1 if unknown.
+	 */
+	private final int[] districtCodes;
+
+	/**
+	 * Build the index from the scenario facilities. Districts are only indexed if district level restrictions are enabled.
+	 */
+	@Inject
+	public FacilityIndex(@Nullable Scenario scenario, EpisimConfigGroup episimConfig) {
+
+		this.scenario = scenario;
+
+		Map<Id<ActivityFacility>, ? extends ActivityFacility> map = scenario != null ? scenario.getActivityFacilities().getFacilities() : Map.of();
+
+		int size = map.keySet().stream().mapToInt(Id::index).max().orElse(-1) + 1;
+
+		facilities = new ActivityFacility[size];
+		map.values().forEach(f -> facilities[f.getId().index()] = f);
+
+		districtCodes = new int[size];
+		Arrays.fill(districtCodes, -1);
+
+		if (episimConfig.getDistrictLevelRestrictions() == EpisimConfigGroup.DistrictLevelRestrictions.yes) {
+
+			String attr = episimConfig.getDistrictLevelRestrictionsAttribute();
+
+			districts = map.values().stream()
+					.map(f -> (String) f.getAttributes().getAttribute(attr))
+					.filter(Objects::nonNull)
+					.distinct()
+					.sorted()
+					.collect(Collectors.toUnmodifiableList());
+
+			Object2IntMap<String> codes = new Object2IntOpenHashMap<>();
+			for (int i = 0; i < districts.size(); i++) {
+				codes.put(districts.get(i), i);
+			}
+
+			for (ActivityFacility f : map.values()) {
+				String district = (String) f.getAttributes().getAttribute(attr);
+				if (district != null)
+					districtCodes[f.getId().index()] = codes.getInt(district);
+			}
+
+			log.info("Indexed {} facilities in {} districts", map.size(), districts.size());
+
+		} else
+			districts = List.of();
+	}
+
+	/**
+	 * Scenario this index was built from, may be null.
+	 */
+	@Nullable
+	public Scenario getScenario() {
+		return scenario;
+	}
+
+	/**
+	 * Sorted names of all districts, the position of a name is its district code.
+	 * Empty if district level restrictions are not enabled.
+	 */
+	public List<String> getDistricts() {
+		return districts;
+	}
+
+	/**
+	 * District code of a facility, -1 if unknown.
+	 */
+	public int getDistrictCode(Id<ActivityFacility> id) {
+		int idx = id.index();
+		return idx < districtCodes.length ? districtCodes[idx] : -1;
+	}
+
+	/**
+	 * Scenario facility with this id, or null if not present.
+	 */
+	@Nullable
+	public ActivityFacility getFacility(Id<ActivityFacility> id) {
+		int idx = id.index();
+		return idx < facilities.length ? facilities[idx] : null;
+	}
+
+	/**
+	 * Attribute of a scenario facility, or null if the facility or attribute is not present.
+	 */
+	@Nullable
+	public Object getAttribute(Id<ActivityFacility> id, String attribute) {
+		ActivityFacility f = getFacility(id);
+		return f != null ? f.getAttributes().getAttribute(attribute) : null;
+	}
+
+}
@@ -26,8 +26,11 @@ import com.google.inject.name.Names;
 import com.google.inject.util.Types;
 import com.typesafe.config.ConfigFactory;
 import it.unimi.dsi.fastutil.objects.AbstractObject2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -51,6 +54,9 @@ import org.matsim.facilities.ActivityFacility;
 import org.matsim.utils.objectattributes.attributable.Attributes;
 import org.matsim.vehicles.Vehicle;
 
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -61,6 +67,7 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
 
 import static org.matsim.episim.EpisimUtils.readChars;
 import static org.matsim.episim.EpisimUtils.writeChars;
@@ -102,6 +109,16 @@ public final class InfectionEventHandler implements Externalizable {
 	 */
 	private final List<TrajectoryHandler> handlers = new ArrayList<>();
 
+	/**
+	 * Handlers for the parallel day transition, empty if not enabled.
+	 */
+	private final List<DayTransitionHandler> transitionHandlers = new ArrayList<>();
+
+	/**
+	 * Persons partitioned into one chunk per {@link DayTransitionHandler}. Created lazily.
+	 */
+	private List<List<EpisimPerson>> personChunks;
+
 	private final Map<Id<Person>, EpisimPerson> personMap = new IdMap<>(Person.class);
 	private final Map<Id<Vehicle>, EpisimVehicle> vehicleMap = new IdMap<>(Vehicle.class);
 	private final Map<Id<ActivityFacility>, EpisimFacility> pseudoFacilityMap = new IdMap<>(ActivityFacility.class,
@@ -156,6 +173,12 @@ public final class InfectionEventHandler implements Externalizable {
 	 */
 	private final ExecutorService executor;
 
+	/**
+	 * State of the last full snapshot, which delta snapshots are based on.
+	 */
+	@Nullable
+	private BinarySnapshot.Base snapshotBase;
+
 	private final Config config;
 	private final EpisimConfigGroup episimConfig;
 	private final TracingConfigGroup tracingConfig;
@@ -236,8 +259,6 @@ public final class InfectionEventHandler implements Externalizable {
 
 		policy.init(episimConfig.getStartDate(), ImmutableMap.copyOf(this.restrictions));
 
-		// Clear time-use after first iteration
-		personMap.values().forEach(p -> p.getSpentTime().clear());
 		personMap.values().forEach(EpisimPerson::initParticipation);
 
 		// init person vaccination compliance sorted by age descending
@@ -245,7 +266,7 @@ public final class InfectionEventHandler implements Externalizable {
 				.sorted(Comparator.comparingInt(p -> ((EpisimPerson) p).getAgeOrDefault(-1)).reversed()
 						.thenComparing(p -> ((EpisimPerson) p).getPersonId()))
 				.forEach(p -> {
-			Double compliance = EpisimUtils.findValidEntry(vaccinationConfig.getCompliancePerAge(), 1.0, p.getAgeOrDefault(-1));
+			Double compliance = vaccinationConfig.getCompliancePerAgeFunction().get(p.getAgeOrDefault(-1), 1.0);
 			p.setVaccinable(localRnd.nextDouble() < compliance);
 		});
 
@@ -262,6 +283,9 @@ public final class InfectionEventHandler implements Externalizable {
 
 		createTrajectoryHandlers();
 
+		if (episimConfig.getParallelDayTransition() == EpisimConfigGroup.ParallelDayTransition.yes)
+			createDayTransitionHandlers();
+
 		init = true;
 	}
 
@@ -283,6 +307,9 @@ public final class InfectionEventHandler implements Externalizable {
 
 		this.personMap.values().forEach(EpisimPerson::resetTrajectory);
 
+		// persons might be added
+		personChunks = null;
+
 		for (Map.Entry<DayOfWeek, List<Event>> entry : events.entrySet()) {
 
 			DayOfWeek day = entry.getKey();
@@ -538,6 +565,22 @@ public final class InfectionEventHandler implements Externalizable {
 
 		balanceContainersByLoad(estimatedLoad);
 
+		assignDistricts();
+	}
+
+	/**
+	 * Set the district code of all facilities, if district level restrictions are enabled.
+	 */
+	private void assignDistricts() {
+
+		if (episimConfig.getDistrictLevelRestrictions() != EpisimConfigGroup.DistrictLevelRestrictions.yes)
+			return;
+
+		FacilityIndex index = injector.getInstance(FacilityIndex.class);
+
+		for (EpisimFacility container : pseudoFacilityMap.values()) {
+			container.setDistrictCode(index.getDistrictCode(container.getContainerId()));
+		}
 	}
 
 	/**
@@ -589,6 +632,42 @@ public final class InfectionEventHandler implements Externalizable {
 		}
 	}
 
+	/**
+	 * Sum of the time spent by all persons for each activity.
+	 *
+	 * @param reset whether the time use of all handlers will be reset
+	 */
+	private Object2DoubleMap<String> collectTimeUse(boolean reset) {
+
+		moveSpentTime();
+
+		Object2DoubleMap<String> timeUse = new Object2DoubleOpenHashMap<>();
+		for (TrajectoryHandler h : handlers) {
+			h.collectTimeUse(timeUse, reset);
+		}
+
+		return timeUse;
+	}
+
+	/**
+	 * Adds spent time held by persons, from older snapshots or the deprecated {@link EpisimPerson#addSpentTime(String, double)},
+	 * to the time use of the first handler.
+	 */
+	private void moveSpentTime() {
+		for (EpisimPerson p : personMap.values()) {
+			if (!p.hasSpentTime())
+				continue;
+
+			Object2DoubleMap<String> spentTime = p.removeSpentTime();
+			if (spentTime == null)
+				continue;
+
+			for (Object2DoubleMap.Entry<String> kv : spentTime.object2DoubleEntrySet()) {
+				handlers.get(0).addSpentTime(kv.getKey(), kv.getDoubleValue());
+			}
+		}
+	}
+
 	/**
 	 * Create handlers for executing th
 	 */
@@ -628,6 +707,98 @@ public final class InfectionEventHandler implements Externalizable {
 	}
 
 
+	/**
+	 * Create handlers for the parallel execution of the day transition.
+	 */
+	private void createDayTransitionHandlers() {
+
+		log.info("Initializing {} day transition handlers", episimConfig.getThreads());
+
+		for (int i = 0; i < episimConfig.getThreads(); i++) {
+
+			final int seed = i;
+			AbstractModule childModule = new AbstractModule() {
+				@Override
+				protected void configure() {
+					// the seed state is set later by this class
+					bind(SplittableRandom.class).toInstance(new SplittableRandom(seed));
+					bind(DayTransitionHandler.class);
+				}
+			};
+
+			Injector inj = GuiceUtils.createCopiedInjector(injector, List.of(childModule), ActivityParticipationModel.class, TestingModel.class);
+			transitionHandlers.add(inj.getInstance(DayTransitionHandler.class));
+		}
+	}
+
+	/**
+	 * Partition persons into contiguous chunks, the order of the person map is deterministic.
+	 */
+	private List<List<EpisimPerson>> getPersonChunks() {
+
+		if (personChunks != null)
+			return personChunks;
+
+		List<EpisimPerson> persons = new ArrayList<>(personMap.values());
+		int n = transitionHandlers.size();
+
+		personChunks = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			personChunks.add(persons.subList(i * persons.size() / n, (i + 1) * persons.size() / n));
+		}
+
+		return personChunks;
+	}
+
+	/**
+	 * Performs the day transition of all persons using the {@link DayTransitionHandler}s.
+	 * Steps with limited capacity are executed afterwards sequentially in the order of persons.
+	 */
+	private void performDayTransition(int iteration, DayOfWeek day, ImmutableMap<String, Restriction> im) {
+
+		// each chunk uses its own random stream, derived from the global one
+		for (DayTransitionHandler h : transitionHandlers) {
+			h.setIteration(iteration, im, personMap, report);
+			EpisimUtils.setSeed(h.getRnd(), rnd.nextLong());
+		}
+
+		if (!testingModel.isCapacityLimited()) {
+			runDayTransition((h, persons) -> h.updatePersons(persons, day, iteration));
+			return;
+		}
+
+		runDayTransition((h, persons) -> h.updateParticipation(persons, day));
+
+		for (EpisimPerson person : personMap.values()) {
+			testingModel.performTesting(person, iteration);
+		}
+
+		runDayTransition((h, persons) -> h.applyQuarantine(persons, day));
+	}
+
+	/**
+	 * Execute a task for each transition handler and its chunk of persons in parallel.
+	 */
+	private void runDayTransition(BiConsumer<DayTransitionHandler, List<EpisimPerson>> task) {
+
+		List<List<EpisimPerson>> chunks = getPersonChunks();
+
+		var futures = new CompletableFuture[transitionHandlers.size()];
+		for (int i = 0; i < transitionHandlers.size(); i++) {
+			DayTransitionHandler h = transitionHandlers.get(i);
+			List<EpisimPerson> persons = chunks.get(i);
+			futures[i] = CompletableFuture.runAsync(() -> task.accept(h, persons), executor);
+		}
+
+		try {
+			CompletableFuture.allOf(futures).join();
+		} catch (CompletionException e) {
+			log.error("A DayTransitionHandler caused the exception: ", e.getCause());
+			executor.shutdown();
+			throw e;
+		}
+	}
+
 	/**
 	 * Create a new person and lookup attributes from scenario.
 	 */
@@ -735,10 +906,10 @@ public final class InfectionEventHandler implements Externalizable {
 		reporting.reportCpuTime(iteration, "ProgressionModel", "finished", -1);
 
 		reporting.reportCpuTime(iteration, "VaccinationModel", "start", -1);
-		int available = EpisimUtils.findValidEntry(vaccinationConfig.getVaccinationCapacity(), -1, date);
+		int available = vaccinationConfig.getVaccinationCapacityFunction().get(date, -1);
 		vaccinationModel.handleVaccination(personMap, false, available > 0 ? (int) (available * episimConfig.getSampleSize()) : -1, date, iteration, now);
 
-		available = EpisimUtils.findValidEntry(vaccinationConfig.getReVaccinationCapacity(), -1, date);
+		available = vaccinationConfig.getReVaccinationCapacityFunction().get(date, -1);
 		vaccinationModel.handleVaccination(personMap, true, available > 0 ? (int) (available * episimConfig.getSampleSize()) : -1, date, iteration, now);
 		reporting.reportCpuTime(iteration, "VaccinationModel", "finished", -1);
 
@@ -754,7 +925,7 @@ public final class InfectionEventHandler implements Externalizable {
 
 		reporting.reporting(reports, iteration, report.date);
 		reporting.reportCpuTime(iteration, "ReportTimeUse", "start", -2);
-		reporting.reportTimeUse(restrictions.keySet(), personMap.values(), iteration, report.date);
+		reporting.reportTimeUse(restrictions.keySet(), collectTimeUse(true), personMap.size(), iteration, report.date);
 		reporting.reportCpuTime(iteration, "ReportTimeUse", "finished", -2);
 		reporting.reportDiseaseImport(infected, iteration, report.date);
 
@@ -768,15 +939,19 @@ public final class InfectionEventHandler implements Externalizable {
 
 		activityParticipationModel.setRestrictionsForIteration(iteration, im);
 
-		for (EpisimPerson person : personMap.values()) {
-			// update person activity participation for the day
-			activityParticipationModel.updateParticipation(person, person.getActivityParticipation(),
-					person.getStartOfDay(day), person.getActivities(day));
+		if (!transitionHandlers.isEmpty()) {
+			performDayTransition(iteration, day, im);
+		} else {
+			for (EpisimPerson person : personMap.values()) {
+				// update person activity participation for the day
+				activityParticipationModel.updateParticipation(person, person.getActivityParticipation(),
+						person.getStartOfDay(day), person.getActivities(day));
 
-			testingModel.performTesting(person, iteration);
+				testingModel.performTesting(person, iteration);
 
-			activityParticipationModel.applyQuarantine(person, person.getActivityParticipation(), person.getStartOfDay(day), person.getActivities(day));
+				activityParticipationModel.applyQuarantine(person, person.getActivityParticipation(), person.getStartOfDay(day), person.getActivities(day));
 
+			}
 		}
 		reporting.reportCpuTime(iteration, "TestingModel", "finished", -1);
 
@@ -800,15 +975,11 @@ public final class InfectionEventHandler implements Externalizable {
 	@Override
 	public void writeExternal(ObjectOutput out) throws IOException {
 
-		out.writeLong(EpisimUtils.getSeed(rnd));
-		out.writeInt(initialInfections.getInfectionsLeft());
-		out.writeInt(iteration);
+		writeHeader(out);
 
-		out.writeInt(restrictions.size());
-		for (Map.Entry<String, Restriction> e : restrictions.entrySet()) {
-			writeChars(out, e.getKey());
-			writeChars(out, e.getValue().asMap().toString());
-		}
+		// marks that time use follows, older snapshots continue with the number of persons
+		out.writeInt(-1);
+		writeTimeUse(out);
 
 		out.writeInt(personMap.size());
 		for (Map.Entry<Id<Person>, EpisimPerson> e : personMap.entrySet()) {
@@ -832,6 +1003,117 @@ public final class InfectionEventHandler implements Externalizable {
 	@Override
 	public void readExternal(ObjectInput in) throws IOException {
 
+		readHeader(in);
+
+		int persons = in.readInt();
+		if (persons == -1) {
+			readTimeUse(in);
+			persons = in.readInt();
+		}
+
+		for (int i = 0; i < persons; i++) {
+			Id<Person> id = Id.create(readChars(in), Person.class);
+			personMap.get(id).read(in, personMap);
+		}
+
+		int vehicles = in.readInt();
+		for (int i = 0; i < vehicles; i++) {
+			Id<Vehicle> id = Id.create(readChars(in), Vehicle.class);
+			vehicleMap.get(id).read(in, personMap);
+		}
+
+		int container = in.readInt();
+		for (int i = 0; i < container; i++) {
+			Id<ActivityFacility> id = Id.create(readChars(in), ActivityFacility.class);
+			pseudoFacilityMap.get(id).read(in, personMap);
+		}
+
+		// older snapshots store the spent time per person
+		moveSpentTime();
+
+		restoreRestrictions();
+	}
+
+	/**
+	 * Captures the state in the binary snapshot format, see {@link BinarySnapshot}.
+	 *
+	 * @param name name of the snapshot file, or null if following snapshots will not be written as delta
+	 * @return uncompressed sections, to be written with {@link #writeBinary(ArchiveOutputStream, Map, boolean)}
+	 */
+	Map<String, byte[]> captureBinary(@Nullable String name) throws IOException {
+
+		if (name != null)
+			snapshotBase = BinarySnapshot.createBase(name, personMap, vehicleMap, pseudoFacilityMap);
+
+		return BinarySnapshot.capture(executor, this::writeBinaryHeader, personMap, vehicleMap, pseudoFacilityMap);
+	}
+
+	/**
+	 * Captures only the difference to the last snapshot captured with a name.
+	 *
+	 * @return uncompressed sections, or null if there is no full snapshot to use as base
+	 */
+	@Nullable
+	Map<String, byte[]> captureBinaryDelta() throws IOException {
+
+		if (snapshotBase == null)
+			return null;
+
+		return BinarySnapshot.captureDelta(executor, this::writeBinaryHeader, snapshotBase, personMap, vehicleMap, pseudoFacilityMap);
+	}
+
+	private void writeBinaryHeader(DataOutput out) throws IOException {
+		writeHeader(out);
+		writeTimeUse(out);
+	}
+
+	/**
+	 * Compress and write captured sections.
+	 *
+	 * @param parallel whether to compress using the executor of this handler, which should not be used while the simulation is running
+	 */
+	void writeBinary(ArchiveOutputStream archive, Map<String, byte[]> sections, boolean parallel) throws IOException {
+		BinarySnapshot.write(archive, sections, parallel ? executor : Runnable::run);
+	}
+
+	/**
+	 * Restores the state from sections of a binary snapshot.
+	 *
+	 * @param base sections of the base snapshot, if this is a delta snapshot
+	 */
+	void readBinary(Map<String, byte[]> sections, @Nullable Map<String, byte[]> base) throws IOException {
+
+		BinarySnapshot.read(sections, base, executor, in -> {
+			readHeader(in);
+			readTimeUse(in);
+		}, personMap,
+				id -> vehicleMap.get(Id.create(id, Vehicle.class)),
+				id -> pseudoFacilityMap.get(Id.create(id, ActivityFacility.class)));
+
+		restoreRestrictions();
+	}
+
+	/**
+	 * Writes seed, remaining initial infections, iteration and restrictions.
+	 */
+	private void writeHeader(DataOutput out) throws IOException {
+
+		out.writeLong(EpisimUtils.getSeed(rnd));
+		out.writeInt(initialInfections.getInfectionsLeft());
+		out.writeInt(iteration);
+
+		out.writeInt(restrictions.size());
+		for (Map.Entry<String, Restriction> e : restrictions.entrySet()) {
+			writeChars(out, e.getKey());
+			writeChars(out, e.getValue().asMap().toString());
+		}
+	}
+
+	/**
+	 * Reads data written by {@link #writeHeader(DataOutput)}.
+	 */
+	private void readHeader(DataInput in) throws IOException {
+
 		long storedSeed = in.readLong();
 		if (episimConfig.getSnapshotSeed() == EpisimConfigGroup.SnapshotSeed.restore) {
 			EpisimUtils.setSeed(rnd, storedSeed);
@@ -848,26 +1130,36 @@ public final class InfectionEventHandler implements Externalizable {
 			String act = readChars(in);
 			restrictions.put(act, Restriction.fromConfig(ConfigFactory.parseString(readChars(in))));
 		}
+	}
 
-		int persons = in.readInt();
-		for (int i = 0; i < persons; i++) {
-			Id<Person> id = Id.create(readChars(in), Person.class);
-			personMap.get(id).read(in, personMap);
-		}
+	/**
+	 * Writes the time use of the whole population, which is only reported as sum.
+	 */
+	private void writeTimeUse(DataOutput out) throws IOException {
 
-		int vehicles = in.readInt();
-		for (int i = 0; i < vehicles; i++) {
-			Id<Vehicle> id = Id.create(readChars(in), Vehicle.class);
-			vehicleMap.get(id).read(in, personMap);
-		}
+		Object2DoubleMap<String> timeUse = collectTimeUse(false);
 
-		int container = in.readInt();
-		for (int i = 0; i < container; i++) {
-			Id<ActivityFacility> id = Id.create(readChars(in), ActivityFacility.class);
-			pseudoFacilityMap.get(id).read(in, personMap);
+		out.writeInt(timeUse.size());
+		for (Object2DoubleMap.Entry<String> kv : timeUse.object2DoubleEntrySet()) {
+			out.writeUTF(kv.getKey());
+			out.writeDouble(kv.getDoubleValue());
 		}
+	}
 
+	/**
+	 * Reads data written by {@link #writeTimeUse(DataOutput)}, restored time use is added to the first handler.
+	 */
+	private void readTimeUse(DataInput in) throws IOException {
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			handlers.get(0).addSpentTime(in.readUTF(), in.readDouble());
+		}
+	}
 
+	/**
+	 * Pass restored restrictions to the policy and trajectory handlers.
+	 */
+	private void restoreRestrictions() {
 		ImmutableMap<String, Restriction> im = ImmutableMap.copyOf(this.restrictions);
 
 		policy.restore(episimConfig.getStartDate().plusDays(iteration), im);
@@ -913,6 +1205,10 @@ public final class InfectionEventHandler implements Externalizable {
 			if ((e = person.checkInfection()) != null)
 				infections.add(e);
 
+			// infections might have been committed already during the day when running single threaded
+			if (person.pollCommittedInfection())
+				progressionModel.onInfection(person);
+
 			if (!person.getPotentialInfections().isEmpty()) {
 				infections.addAll(person.getPotentialInfections());
 				person.getPotentialInfections().clear();
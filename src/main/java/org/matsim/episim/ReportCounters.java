@@ -0,0 +1,250 @@
+package org.matsim.episim;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Number of persons per district and combination of disease, quarantine and vaccination status.
+ * <p>
+ * The counters are updated whenever the state of a person changes, so that the daily {@link EpisimReporting.InfectionReport}s
+ * can be created without iterating the whole population.
+ * Whether a vaccination has full effect depends on the iteration, these persons are re-evaluated when the wait period is over.
+ * Tests are counted per iteration of the test, because the reports only contain the tests of the previous day.
+ * <p>
+ * Updates can happen concurrently from the threads of the trajectory handlers. Each thread collects its changes in its own
+ * {@link Delta}, which are added to the counters when the reports are filled.
+ */
+final class ReportCounters {
+
+	private static final EpisimPerson.DiseaseStatus[] DISEASE = EpisimPerson.DiseaseStatus.values();
+	private static final EpisimPerson.QuarantineStatus[] QUARANTINE = EpisimPerson.QuarantineStatus.values();
+	private static final EpisimPerson.VaccinationStatus[] VACCINATION = EpisimPerson.VaccinationStatus.values();
+
+	/**
+	 * Number of cells for each district.
+	 */
+	private static final int CELLS = DISEASE.length * 2 * QUARANTINE.length * VACCINATION.length * VACCINATION.length * 2;
+
+	private final VaccinationConfigGroup vaccinationConfig;
+
+	/**
+	 * Index of each district, in order of their first appearance.
+	 */
+	private final Object2IntMap<String> districts = new Object2IntLinkedOpenHashMap<>();
+
+	/**
+	 * Number of tested persons for each district, by iteration of the test.
+	 */
+	private final List<Int2IntMap> tested = new ArrayList<>();
+
+	/**
+	 * Persons whose vaccination gets full effect, by iteration at which they need to be re-evaluated.
+	 */
+	private final TreeMap<Integer, List<EpisimPerson>> pending = new TreeMap<>();
+
+	/**
+	 * Changes of all threads, not yet added to the counters.
+	 */
+	private final Queue<Delta> deltas = new ConcurrentLinkedQueue<>();
+
+	private final ThreadLocal<Delta> local = ThreadLocal.withInitial(() -> {
+		Delta delta = new Delta();
+		deltas.add(delta);
+		return delta;
+	});
+
+	private int[] counts = new int[0];
+
+	ReportCounters(Collection<EpisimPerson> persons, VaccinationConfigGroup vaccinationConfig, int iteration) {
+		this.vaccinationConfig = vaccinationConfig;
+
+		for (EpisimPerson person : persons) {
+			update(person, iteration);
+		}
+	}
+
+	/**
+	 * Index of the district of a person, new districts are added as needed.
+	 */
+	private synchronized int district(EpisimPerson person) {
+		String name = (String) person.getAttributes().getAttribute("district");
+		if (name == null)
+			name = "unknown";
+
+		int idx = districts.getOrDefault(name, -1);
+		if (idx >= 0)
+			return idx;
+
+		idx = districts.size();
+		districts.put(name, idx);
+		tested.add(new Int2IntOpenHashMap());
+		counts = Arrays.copyOf(counts, districts.size() * CELLS);
+
+		return idx;
+	}
+
+	/**
+	 * Cell of a person within its district.
+	 */
+	private static int cell(EpisimPerson person, boolean vaccinated) {
+
+		int cell = person.getDiseaseStatus().ordinal();
+		cell = cell * 2 + (vaccinated ? 1 : 0);
+		cell = cell * QUARANTINE.length + person.getQuarantineStatus().ordinal();
+		cell = cell * VACCINATION.length + person.getVaccinationStatus().ordinal();
+		cell = cell * VACCINATION.length + person.getReVaccinationStatus().ordinal();
+		cell = cell * 2 + (isTested(person) ? 1 : 0);
+
+		return cell;
+	}
+
+	private static boolean isTested(EpisimPerson person) {
+		return person.getTestStatus() != EpisimPerson.TestStatus.untested;
+	}
+
+	/**
+	 * Move a person into the cell matching its current state. Must not be called concurrently for the same person.
+	 *
+	 * @param iteration current iteration, needed to determine the effect of vaccinations
+	 */
+	void update(EpisimPerson person, int iteration) {
+
+		Delta delta = local.get();
+
+		int district;
+		if (person.reportCell >= 0) {
+			district = person.reportCell / CELLS;
+			delta.add(person.reportCell, -1);
+
+			// last bit of the cell
+			if (person.reportCell % 2 == 1)
+				delta.tested(district).mergeInt(person.reportTestDate, -1, Integer::sum);
+
+		} else
+			district = district(person);
+
+		boolean vaccinated = EpisimReporting.isVaccinated(person, vaccinationConfig, iteration);
+
+		person.reportCell = district * CELLS + cell(person, vaccinated);
+		person.reportTestDate = person.getTestDate();
+		delta.add(person.reportCell, 1);
+
+		if (isTested(person))
+			delta.tested(district).mergeInt(person.reportTestDate, 1, Integer::sum);
+
+		// full effect is only reached after some days
+		if (!vaccinated && person.getVaccinationStatus() == EpisimPerson.VaccinationStatus.yes) {
+			int fullEffect = vaccinationConfig.getParams(person.getVaccinationType()).getDaysBeforeFullEffect();
+			int at = iteration - person.daysSince(EpisimPerson.VaccinationStatus.yes, iteration) + fullEffect;
+			delta.pending.computeIfAbsent(at, k -> new ArrayList<>()).add(person);
+		}
+	}
+
+	/**
+	 * Add the changes of all threads to the counters.
+	 */
+	private void merge() {
+		for (Delta delta : deltas) {
+
+			for (int i = 0; i < delta.counts.length; i++) {
+				counts[i] += delta.counts[i];
+			}
+			Arrays.fill(delta.counts, 0);
+
+			for (int i = 0; i < delta.tested.size(); i++) {
+				Int2IntMap target = tested.get(i);
+				for (Int2IntMap.Entry e : delta.tested.get(i).int2IntEntrySet()) {
+					target.mergeInt(e.getIntKey(), e.getIntValue(), Integer::sum);
+				}
+				delta.tested.get(i).clear();
+			}
+
+			for (Map.Entry<Integer, List<EpisimPerson>> e : delta.pending.entrySet()) {
+				pending.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).addAll(e.getValue());
+			}
+			delta.pending.clear();
+		}
+	}
+
+	/**
+	 * Fill the reports of all districts and the total report from the counters.
+	 * Must not be called while persons are updated.
+	 *
+	 * @param reports reports per district, will be added in order of their first appearance
+	 * @param total   report with the sum of all districts
+	 */
+	synchronized void fill(Map<String, EpisimReporting.InfectionReport> reports, EpisimReporting.InfectionReport total, int iteration) {
+
+		merge();
+
+		while (!pending.isEmpty() && pending.firstKey() <= iteration) {
+			for (EpisimPerson person : pending.pollFirstEntry().getValue()) {
+				update(person, iteration);
+			}
+
+			merge();
+		}
+
+		for (Object2IntMap.Entry<String> e : districts.object2IntEntrySet()) {
+
+			EpisimReporting.InfectionReport district = new EpisimReporting.InfectionReport(e.getKey(), total.time, total.date, total.day);
+			reports.put(e.getKey(), district);
+
+			int offset = e.getIntValue() * CELLS;
+			for (int i = 0; i < CELLS; i++) {
+				int n = counts[offset + i];
+				if (n == 0)
+					continue;
+
+				// decode cell in reverse order, the tested bit is counted separately
+				int cell = i / 2;
+				EpisimPerson.VaccinationStatus reVaccination = VACCINATION[cell % VACCINATION.length];
+				cell /= VACCINATION.length;
+				EpisimPerson.VaccinationStatus vaccination = VACCINATION[cell % VACCINATION.length];
+				cell /= VACCINATION.length;
+				EpisimPerson.QuarantineStatus quarantine = QUARANTINE[cell % QUARANTINE.length];
+				cell /= QUARANTINE.length;
+				boolean vaccinated = cell % 2 == 1;
+				EpisimPerson.DiseaseStatus status = DISEASE[cell / 2];
+
+				EpisimReporting.count(total, status, vaccinated, quarantine, vaccination, reVaccination, n);
+				EpisimReporting.count(district, status, vaccinated, quarantine, vaccination, reVaccination, n);
+			}
+
+			// stats are collected one day after the test has been performed
+			int nTested = tested.get(e.getIntValue()).get(iteration - 1);
+			total.nTested += nTested;
+			district.nTested += nTested;
+		}
+	}
+
+	/**
+	 * Changes to the counters by one thread. Counts of a cell can be negative, if a person left it.
+	 */
+	private static final class Delta {
+
+		private final List<Int2IntMap> tested = new ArrayList<>();
+		private final TreeMap<Integer, List<EpisimPerson>> pending = new TreeMap<>();
+		private int[] counts = new int[0];
+
+		private void add(int cell, int n) {
+			if (cell >= counts.length)
+				counts = Arrays.copyOf(counts, (cell / CELLS + 1) * CELLS);
+
+			counts[cell] += n;
+		}
+
+		private Int2IntMap tested(int district) {
+			while (tested.size() <= district)
+				tested.add(new Int2IntOpenHashMap());
+
+			return tested.get(district);
+		}
+	}
+
+}
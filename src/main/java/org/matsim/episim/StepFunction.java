@@ -0,0 +1,106 @@
+package org.matsim.episim;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Step function compiled from a map of keys (e.g. dates or ages) to values. Each value is valid from its key until the next larger key.
+ * <p>
+ * Lookups are a binary search over the sorted keys. The result of the last lookup is cached, so that repeated lookups
+ * of the same key, e.g. the current day of an iteration, are answered in constant time.
+ * This replaces {@link EpisimUtils#findValidEntry(Map, Object, Comparable)}, which iterates the whole map on every call.
+ *
+ * @param <K> type of the keys
+ * @param <T> type of the values
+ */
+public final class StepFunction<K extends Comparable<? super K>, T> {
+
+	private final Object[] keys;
+	private final Object[] values;
+
+	/**
+	 * Result of the last lookup.
+	 */
+	private Lookup last;
+
+	private StepFunction(Object[] keys, Object[] values) {
+		this.keys = keys;
+		this.values = values;
+	}
+
+	/**
+	 * Compile step function from a map. The map is copied and later changes will not be reflected.
+	 */
+	public static <K extends Comparable<? super K>, T> StepFunction<K, T> of(Map<K, T> map) {
+
+		TreeMap<K, T> sorted = new TreeMap<>(map);
+
+		return new StepFunction<>(sorted.keySet().toArray(), sorted.values().toArray());
+	}
+
+	/**
+	 * Index of the last key smaller or equal to {@code key}, -1 if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	private int search(K key) {
+
+		int idx = Arrays.binarySearch(keys, key, (a, b) -> ((K) a).compareTo((K) b));
+		if (idx >= 0)
+			return idx;
+
+		// insertion point - 1
+		return -idx - 2;
+	}
+
+	/**
+	 * Return the value valid at {@code key}.
+	 *
+	 * @param key          key to search for
+	 * @param defaultValue value if there is no key smaller or equal to {@code key}
+	 * @return value of the largest key smaller or equal to {@code key}
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(K key, T defaultValue) {
+
+		Lookup l = last;
+		if (l == null || !l.key.equals(key)) {
+			l = new Lookup(key, search(key));
+			last = l;
+		}
+
+		return l.index >= 0 ? (T) values[l.index] : defaultValue;
+	}
+
+	/**
+	 * Whether the function has no entries.
+	 */
+	public boolean isEmpty() {
+		return keys.length == 0;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder("StepFunction{");
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0) b.append(", ");
+			b.append(keys[i]).append('=').append(values[i]);
+		}
+		return b.append('}').toString();
+	}
+
+	/**
+	 * Immutable holder of a lookup result, so it can be shared between threads safely.
+	 */
+	private static final class Lookup {
+
+		private final Object key;
+		private final int index;
+
+		private Lookup(Object key, int index) {
+			this.key = key;
+			this.index = index;
+		}
+	}
+
+}
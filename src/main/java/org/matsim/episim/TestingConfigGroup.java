@@ -90,6 +90,11 @@ public class TestingConfigGroup extends ReflectiveConfigGroup {
 		 */
 		private final Map<LocalDate, Integer> testingCapacity = new TreeMap<>();
 
+		/**
+		 * Compiled testing capacity, created on first access.
+		 */
+		private StepFunction<LocalDate, Integer> testingCapacityFunction;
+
 		/**
 		 * Probability that a not infected person is reported as positive.
 		 */
@@ -153,10 +158,23 @@ public class TestingConfigGroup extends ReflectiveConfigGroup {
 		public void setTestingCapacity_pers_per_day(Map<LocalDate, Integer> capacity) {
 			testingCapacity.clear();
 			testingCapacity.putAll(capacity);
+			testingCapacityFunction = null;
 		}
 
 		public Map<LocalDate, Integer> getTestingCapacity() {
-			return testingCapacity;
+			return Collections.unmodifiableMap(testingCapacity);
+		}
+
+		/**
+		 * Testing capacity as compiled step function.
+		 *
+		 * @see #getTestingCapacity()
+		 */
+		public StepFunction<LocalDate, Integer> getTestingCapacityFunction() {
+			if (testingCapacityFunction == null)
+				testingCapacityFunction = StepFunction.of(testingCapacity);
+
+			return testingCapacityFunction;
 		}
 
 		@StringSetter(CAPACITY)
@@ -0,0 +1,233 @@
+package org.matsim.episim;
+
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Traced contacts of one person, storing the time of the latest contact with each other person.
+ * <p>
+ * Entries are kept sorted by the day of the contact and then by person id. Contacts after a certain time are therefore a tail range
+ * of this structure, which is visited in order of person id by merging the (few) days in that range. This gives the same order as
+ * sorting all matching contacts by person id, but without the sorting and without creating intermediate collections.
+ * New contacts are usually added to the last day, so insertions only need to shift entries of that day.
+ */
+final class TraceableContacts {
+
+	private static final EpisimPerson[] EMPTY_PERSONS = new EpisimPerson[0];
+	private static final double[] EMPTY_TIMES = new double[0];
+
+	/**
+	 * Time of the latest contact for each person, used to locate existing entries.
+	 */
+	private final Object2DoubleMap<EpisimPerson> latest = new Object2DoubleOpenHashMap<>(4);
+
+	private EpisimPerson[] persons = EMPTY_PERSONS;
+	private double[] times = EMPTY_TIMES;
+	private int size = 0;
+
+	private static long day(double time) {
+		return (long) Math.floor(time / EpisimUtils.DAY);
+	}
+
+	/**
+	 * Compares entry at {@code i} with the given day and person.
+	 */
+	private int compare(int i, long day, EpisimPerson person) {
+		int cmp = Long.compare(day(times[i]), day);
+		if (cmp != 0)
+			return cmp;
+
+		return persons[i].getPersonId().compareTo(person.getPersonId());
+	}
+
+	/**
+	 * Binary search for an entry, returns (-(insertion point) - 1) if there is none.
+	 */
+	private int search(long day, EpisimPerson person) {
+
+		// fast path for appending at the end
+		if (size == 0 || compare(size - 1, day, person) < 0)
+			return -size - 1;
+
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compare(mid, day, person);
+			if (cmp < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+
+		return -(low + 1);
+	}
+
+	/**
+	 * Index of the first entry with a day equal or larger than {@code day}.
+	 */
+	private int firstOfDay(long day) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (day(times[mid]) < day)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Number of stored contacts.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Set the time of the contact with a person, replacing an existing one.
+	 */
+	void put(EpisimPerson person, double time) {
+
+		if (latest.containsKey(person)) {
+			double old = latest.getDouble(person);
+			if (old == time)
+				return;
+
+			removeAt(search(day(old), person));
+		}
+
+		latest.put(person, time);
+
+		int idx = -search(day(time), person) - 1;
+
+		if (size == persons.length) {
+			int capacity = Math.max(4, size + (size >> 1));
+			persons = Arrays.copyOf(persons, capacity);
+			times = Arrays.copyOf(times, capacity);
+		}
+
+		System.arraycopy(persons, idx, persons, idx + 1, size - idx);
+		System.arraycopy(times, idx, times, idx + 1, size - idx);
+		persons[idx] = person;
+		times[idx] = time;
+		size++;
+	}
+
+	private void removeAt(int idx) {
+		System.arraycopy(persons, idx + 1, persons, idx, size - idx - 1);
+		System.arraycopy(times, idx + 1, times, idx, size - idx - 1);
+		persons[--size] = null;
+	}
+
+	/**
+	 * Remove all contacts that happened before a certain time.
+	 */
+	void removeBefore(double before) {
+
+		int from = firstOfDay(day(before));
+
+		for (int i = 0; i < from; i++)
+			latest.removeDouble(persons[i]);
+
+		// remaining entries on the same day need to be checked individually
+		int to = from;
+		for (int i = from; i < size; i++) {
+			if (times[i] < before && day(times[i]) == day(before)) {
+				latest.removeDouble(persons[i]);
+				continue;
+			}
+
+			persons[to] = persons[i];
+			times[to] = times[i];
+			to++;
+		}
+
+		Arrays.fill(persons, to, size, null);
+		size = to;
+	}
+
+	/**
+	 * Visit all contacts that happened at or after {@code after} in order of person id.
+	 *
+	 * @param visitor called for each contact person, the iteration stops when it returns false
+	 */
+	void visit(double after, Predicate<EpisimPerson> visitor) {
+
+		int start = firstOfDay(day(after));
+		if (start == size)
+			return;
+
+		// number of distinct days in the tail, which are the sorted runs that need to be merged
+		int runs = 1;
+		for (int i = start + 1; i < size; i++) {
+			if (day(times[i]) != day(times[i - 1]))
+				runs++;
+		}
+
+		if (runs == 1) {
+			for (int i = start; i < size; i++) {
+				if (times[i] >= after && !visitor.test(persons[i]))
+					return;
+			}
+			return;
+		}
+
+		int[] pos = new int[runs];
+		int[] end = new int[runs];
+
+		int r = 0;
+		pos[0] = start;
+		for (int i = start + 1; i < size; i++) {
+			if (day(times[i]) != day(times[i - 1])) {
+				end[r++] = i;
+				pos[r] = i;
+			}
+		}
+		end[r] = size;
+
+		while (true) {
+
+			int min = -1;
+			for (int j = 0; j < runs; j++) {
+				if (pos[j] < end[j] && (min == -1 || persons[pos[j]].getPersonId().compareTo(persons[pos[min]].getPersonId()) < 0))
+					min = j;
+			}
+
+			if (min == -1)
+				return;
+
+			int i = pos[min]++;
+			if (times[i] >= after && !visitor.test(persons[i]))
+				return;
+		}
+	}
+
+	/**
+	 * Person of the entry at {@code i}, entries are stored ordered by day and person id.
+	 */
+	EpisimPerson getPerson(int i) {
+		return persons[i];
+	}
+
+	/**
+	 * Time of the entry at {@code i}.
+	 */
+	double getTime(int i) {
+		return times[i];
+	}
+
+	void clear() {
+		latest.clear();
+		Arrays.fill(persons, 0, size, null);
+		size = 0;
+	}
+
+}
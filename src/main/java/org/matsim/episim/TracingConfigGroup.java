@@ -5,6 +5,7 @@ import com.google.common.base.Splitter;
 import org.matsim.core.config.ReflectiveConfigGroup;
 
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
@@ -47,6 +48,13 @@ public class TracingConfigGroup extends ReflectiveConfigGroup {
 	 */
 	private final Map<LocalDate, Integer> tracingDelay = new TreeMap<>();
 
+	/**
+	 * Compiled step functions of the maps above, created on first access.
+	 */
+	private StepFunction<LocalDate, Integer> tracingCapacityFunction;
+	private StepFunction<LocalDate, Double> tracingProbabilityFunction;
+	private StepFunction<LocalDate, Integer> tracingDelayFunction;
+
 	/**
 	 * Day after which tracing starts and puts persons into quarantine.
 	 */
@@ -128,7 +136,19 @@ public class TracingConfigGroup extends ReflectiveConfigGroup {
 	}
 
 	public Map<LocalDate, Integer> getTracingDelay() {
-		return tracingDelay;
+		return Collections.unmodifiableMap(tracingDelay);
+	}
+
+	/**
+	 * Tracing delay as compiled step function.
+	 *
+	 * @see #getTracingDelay()
+	 */
+	public StepFunction<LocalDate, Integer> getTracingDelayFunction() {
+		if (tracingDelayFunction == null)
+			tracingDelayFunction = StepFunction.of(tracingDelay);
+
+		return tracingDelayFunction;
 	}
 
 	@StringSetter(TRACING_DELAY)
@@ -157,6 +177,7 @@ public class TracingConfigGroup extends ReflectiveConfigGroup {
 	public void setTracingDelay_days(Map<LocalDate, Integer> tracingDelay) {
 		this.tracingDelay.clear();
 		this.tracingDelay.putAll(tracingDelay);
+		this.tracingDelayFunction = null;
 	}
 
 	@StringGetter(TRACING_PROBABILITY)
@@ -165,7 +186,19 @@ public class TracingConfigGroup extends ReflectiveConfigGroup {
 	}
 
 	public Map<LocalDate, Double> getTracingProbability() {
-		return tracingProbability;
+		return Collections.unmodifiableMap(tracingProbability);
+	}
+
+	/**
+	 * Tracing probability as compiled step function.
+	 *
+	 * @see #getTracingProbability()
+	 */
+	public StepFunction<LocalDate, Double> getTracingProbabilityFunction() {
+		if (tracingProbabilityFunction == null)
+			tracingProbabilityFunction = StepFunction.of(tracingProbability);
+
+		return tracingProbabilityFunction;
 	}
 
 	@StringSetter(TRACING_PROBABILITY)
@@ -179,6 +212,7 @@ public class TracingConfigGroup extends ReflectiveConfigGroup {
 	public void setTracingProbability(Map<LocalDate, Double> tracingProbability) {
 		this.tracingProbability.clear();
 		this.tracingProbability.putAll(tracingProbability);
+		this.tracingProbabilityFunction = null;
 	}
 
 	/**
@@ -206,10 +240,23 @@ public class TracingConfigGroup extends ReflectiveConfigGroup {
 	public void setTracingCapacity_pers_per_day(Map<LocalDate, Integer> capacity) {
 		tracingCapacity.clear();
 		tracingCapacity.putAll(capacity);
+		tracingCapacityFunction = null;
 	}
 
 	public Map<LocalDate, Integer> getTracingCapacity() {
-		return tracingCapacity;
+		return Collections.unmodifiableMap(tracingCapacity);
+	}
+
+	/**
+	 * Tracing capacity as compiled step function.
+	 *
+	 * @see #getTracingCapacity()
+	 */
+	public StepFunction<LocalDate, Integer> getTracingCapacityFunction() {
+		if (tracingCapacityFunction == null)
+			tracingCapacityFunction = StepFunction.of(tracingCapacity);
+
+		return tracingCapacityFunction;
 	}
 
 	@StringSetter(CAPACITY)
@@ -2,6 +2,9 @@ package org.matsim.episim;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -17,6 +20,7 @@ import org.matsim.vehicles.Vehicle;
 
 import javax.inject.Named;
 import java.time.DayOfWeek;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.SplittableRandom;
@@ -41,6 +45,16 @@ final class TrajectoryHandler {
 	 */
 	private final SplittableRandom rnd;
 
+	/**
+	 * Index of activities for which the time use is reported.
+	 */
+	private final Object2IntMap<String> timeUseIndex = new Object2IntOpenHashMap<>();
+
+	/**
+	 * Time spent by all persons handled by this instance for each activity in {@link #timeUseIndex}.
+	 */
+	private final double[] timeUse;
+
 	private int iteration = 0;
 	private DayOfWeek day;
 
@@ -56,12 +70,43 @@ final class TrajectoryHandler {
 		this.personMap = personMap;
 		this.vehicleMap = vehicleMap;
 		this.pseudoFacilityMap = pseudoFacilityMap;
+
+		timeUseIndex.defaultReturnValue(-1);
+		for (String act : episimConfig.createInitialRestrictions().keySet()) {
+			timeUseIndex.put(act, timeUseIndex.size());
+		}
+
+		this.timeUse = new double[timeUseIndex.size()];
 	}
 
 	SplittableRandom getRnd() {
 		return rnd;
 	}
 
+	/**
+	 * Add amount of time to spent time for an activity.
+	 * Only this handler writes to its sums, so this does not need synchronization.
+	 */
+	void addSpentTime(String actType, double timeSpent) {
+		int idx = timeUseIndex.getInt(actType);
+		if (idx >= 0)
+			timeUse[idx] += timeSpent;
+	}
+
+	/**
+	 * Add the time spent by all persons of this handler to {@code target}.
+	 *
+	 * @param reset whether the sums will be reset afterwards
+	 */
+	void collectTimeUse(Object2DoubleMap<String> target, boolean reset) {
+		for (Object2IntMap.Entry<String> e : timeUseIndex.object2IntEntrySet()) {
+			target.mergeDouble(e.getKey(), timeUse[e.getIntValue()], Double::sum);
+		}
+
+		if (reset)
+			Arrays.fill(timeUse, 0);
+	}
+
 	void setRestrictionsForIteration(int iteration, ImmutableMap<String, Restriction> im) {
 		this.iteration = iteration;
 		this.day = EpisimUtils.getDayOfWeek(episimConfig, iteration);
@@ -95,7 +140,7 @@ final class TrajectoryHandler {
 			// index of last activity at previous day
 			String actType = person.getActivity(day.minus(1), 24 * 3600.).actType();
 			double timeSpent = now - lastFacility.getContainerEnteringTime(person.getPersonId());
-			person.addSpentTime(actType, timeSpent);
+			addSpentTime(actType, timeSpent);
 
 			if (iteration > 1 && timeSpent > 86400 && !actType.equals("home")) {
 				// there might be some implausible trajectories
@@ -162,7 +207,7 @@ final class TrajectoryHandler {
 					EpisimPerson.PerformedActivity lastActivity = facility.getPerformedActivity(person.getPersonId());
 
 					double timeSpent = now - facility.getContainerEnteringTime(person.getPersonId());
-					person.addSpentTime(lastActivity.actType(), timeSpent);
+					addSpentTime(lastActivity.actType(), timeSpent);
 
 					contactModel.infectionDynamicsFacility(person, facility, now);
 					facility.removePerson(person, it);
@@ -269,7 +314,7 @@ final class TrajectoryHandler {
 
 		if (episimConfig.getReportTimeUse() == EpisimConfigGroup.ReportTimeUse.yes) {
 			double timeSpent = now - episimFacility.getContainerEnteringTime(episimPerson.getPersonId());
-			episimPerson.addSpentTime(activityEndEvent.getActType(), timeSpent);
+			addSpentTime(activityEndEvent.getActType(), timeSpent);
 		}
 
 		episimFacility.removePerson(episimPerson);
@@ -320,7 +365,7 @@ final class TrajectoryHandler {
 		if (episimConfig.getReportTimeUse() == EpisimConfigGroup.ReportTimeUse.yes) {
 			double timeSpent = now - episimVehicle.getContainerEnteringTime(episimPerson.getPersonId());
 
-			episimPerson.addSpentTime("pt", timeSpent);
+			addSpentTime("pt", timeSpent);
 		}
 
 		// remove person from vehicle:
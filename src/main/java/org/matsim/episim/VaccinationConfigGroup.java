@@ -2,6 +2,7 @@ package org.matsim.episim;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.collect.Maps;
 import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.config.ReflectiveConfigGroup;
 import org.matsim.episim.model.VaccinationType;
@@ -9,6 +10,7 @@ import org.matsim.episim.model.VirusStrain;
 import org.matsim.episim.model.vaccination.VaccinationModel;
 
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -58,6 +60,14 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 	 */
 	private final NavigableMap<Integer, Double> compliance = new TreeMap<>(Map.of(-1, 1.0));
 
+	/**
+	 * Compiled step functions of the maps above, created on first access.
+	 */
+	private StepFunction<LocalDate, Integer> vaccinationCapacityFunction;
+	private StepFunction<LocalDate, Integer> reVaccinationCapacityFunction;
+	private StepFunction<LocalDate, Map<VaccinationType, Double>> vaccinationShareFunction;
+	private StepFunction<Integer, Double> complianceFunction;
+
 	/**
 	 * Holds all specific vaccination params.
 	 */
@@ -131,13 +141,26 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 	public void setCompliancePerAge(Map<Integer, Double> compliance) {
 		this.compliance.clear();
 		this.compliance.putAll(compliance);
+		this.complianceFunction = null;
 	}
 
 	/**
 	 * Get vaccination compliance by age.
 	 */
 	public NavigableMap<Integer, Double> getCompliancePerAge() {
-		return compliance;
+		return Collections.unmodifiableNavigableMap(compliance);
+	}
+
+	/**
+	 * Vaccination compliance by age as compiled step function.
+	 *
+	 * @see #getCompliancePerAge()
+	 */
+	public StepFunction<Integer, Double> getCompliancePerAgeFunction() {
+		if (complianceFunction == null)
+			complianceFunction = StepFunction.of(compliance);
+
+		return complianceFunction;
 	}
 
 	@StringSetter(COMPLIANCE)
@@ -163,10 +186,23 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 	public void setVaccinationCapacity_pers_per_day(Map<LocalDate, Integer> capacity) {
 		vaccinationCapacity.clear();
 		vaccinationCapacity.putAll(capacity);
+		vaccinationCapacityFunction = null;
 	}
 
 	public NavigableMap<LocalDate, Integer> getVaccinationCapacity() {
-		return vaccinationCapacity;
+		return Collections.unmodifiableNavigableMap(vaccinationCapacity);
+	}
+
+	/**
+	 * Vaccination capacity as compiled step function.
+	 *
+	 * @see #getVaccinationCapacity()
+	 */
+	public StepFunction<LocalDate, Integer> getVaccinationCapacityFunction() {
+		if (vaccinationCapacityFunction == null)
+			vaccinationCapacityFunction = StepFunction.of(vaccinationCapacity);
+
+		return vaccinationCapacityFunction;
 	}
 
 	@StringSetter(CAPACITY)
@@ -202,10 +238,23 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 	public void setReVaccinationCapacity_pers_per_day(Map<LocalDate, Integer> capacity) {
 		reVaccinationCapacity.clear();
 		reVaccinationCapacity.putAll(capacity);
+		reVaccinationCapacityFunction = null;
 	}
 
 	public NavigableMap<LocalDate, Integer> getReVaccinationCapacity() {
-		return reVaccinationCapacity;
+		return Collections.unmodifiableNavigableMap(reVaccinationCapacity);
+	}
+
+	/**
+	 * Re-vaccination capacity as compiled step function.
+	 *
+	 * @see #getReVaccinationCapacity()
+	 */
+	public StepFunction<LocalDate, Integer> getReVaccinationCapacityFunction() {
+		if (reVaccinationCapacityFunction == null)
+			reVaccinationCapacityFunction = StepFunction.of(reVaccinationCapacity);
+
+		return reVaccinationCapacityFunction;
 	}
 
 	@StringSetter(RECAPACITY)
@@ -237,13 +286,14 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 
 		this.vaccinationShare.clear();
 		this.vaccinationShare.putAll(share);
+		this.vaccinationShareFunction = null;
 	}
 
 	/**
 	 * Return vaccination share per date.
 	 */
 	public NavigableMap<LocalDate, Map<VaccinationType, Double>> getVaccinationShare() {
-		return vaccinationShare;
+		return Collections.unmodifiableNavigableMap(Maps.transformValues(vaccinationShare, Collections::unmodifiableMap));
 	}
 
 	/**
@@ -255,7 +305,10 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 
 		EnumMap<VaccinationType, Double> prob = new EnumMap<>(VaccinationType.class);
 
-		Map<VaccinationType, Double> share = EpisimUtils.findValidEntry(vaccinationShare, null, date);
+		if (vaccinationShareFunction == null)
+			vaccinationShareFunction = StepFunction.of(vaccinationShare);
+
+		Map<VaccinationType, Double> share = vaccinationShareFunction.get(date, null);
 
 		if (share == null)
 			share = Map.of(VaccinationType.generic, 1d);
@@ -423,7 +476,10 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 		 * @return interpolated factor
 		 */
 		private double getParamsInternal(Map<VirusStrain, Parameter> map, VirusStrain strain, int day) {
-			Parameter p = map.getOrDefault(strain, map.get(VirusStrain.SARS_CoV_2));
+			Parameter p = map.get(strain);
+			if (p == null)
+				p = map.get(VirusStrain.SARS_CoV_2);
+
 			return p.get(day);
 		}
 
@@ -607,6 +663,11 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 		private final VirusStrain[] strain;
 		private final NavigableMap<Integer, Double> map = new TreeMap<>();
 
+		/**
+		 * Values for each day, computed on first access and reset when the parameter changes.
+		 */
+		private Table table;
+
 		private Parameter(VirusStrain[] strain) {
 			this.strain = strain;
 		}
@@ -624,6 +685,7 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 		 */
 		public Parameter atDay(int day, double value) {
 			map.put(day, value);
+			table = null;
 			return this;
 		}
 
@@ -634,14 +696,33 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 		 */
 		public Parameter atFullEffect(double value) {
 			map.put(Integer.MAX_VALUE, value);
+			table = null;
 			return this;
 		}
 
 
+		/**
+		 * Return value for given day, using the precomputed table.
+		 */
+		double get(int day) {
+
+			Table t = table;
+			if (t == null)
+				table = t = new Table(this);
+
+			if (day >= 0 && day < t.values.length)
+				return t.values[day];
+
+			if (day >= 0 && t.saturated)
+				return t.values[t.values.length - 1];
+
+			return interpolate(day);
+		}
+
 		/**
 		 * Interpolate for given day.
 		 */
-		private double get(int day) {
+		double interpolate(int day) {
 
 			Map.Entry<Integer, Double> floor = map.floorEntry(day);
 
@@ -665,6 +746,8 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 		private void setDaysBeforeFullEffect(int daysBeforeFullEffect) {
 			if (map.containsKey(Integer.MAX_VALUE))
 				map.put(daysBeforeFullEffect, map.remove(Integer.MAX_VALUE));
+
+			table = null;
 		}
 
 		@Override
@@ -676,6 +759,33 @@ public class VaccinationConfigGroup extends ReflectiveConfigGroup {
 			Map<String, String> m = SPLITTER.split(value);
 			return new Parameter(m);
 		}
+
+		/**
+		 * Interpolated values for each day since vaccination, up to the last defined day.
+		 */
+		private static final class Table {
+
+			private final double[] values;
+
+			/**
+			 * Whether the values stay constant after the last day of the table.
+			 * This is not the case if the day of full effect was never resolved.
+			 */
+			private final boolean saturated;
+
+			private Table(Parameter p) {
+
+				Integer last = p.map.lastKey();
+				saturated = last != Integer.MAX_VALUE || p.map.size() == 1;
+
+				if (last == Integer.MAX_VALUE)
+					last = p.map.lowerKey(Integer.MAX_VALUE);
+
+				values = new double[Math.max(last == null ? 0 : last, 0) + 1];
+				for (int i = 0; i < values.length; i++)
+					values[i] = p.interpolate(i);
+			}
+		}
 	}
 
 }
@@ -0,0 +1,226 @@
+package org.matsim.episim.events;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsReaderXMLv1;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.episim.EpisimContainer;
+import org.matsim.episim.EpisimPerson.DiseaseStatus;
+import org.matsim.episim.model.VaccinationType;
+import org.matsim.episim.model.VirusStrain;
+import org.matsim.facilities.ActivityFacility;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.*;
+import java.util.Stack;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+import static org.matsim.episim.events.EpisimBinaryEventsWriter.*;
+
+/**
+ * Reads events written by {@link EpisimBinaryEventsWriter} and passes them to an {@link EventsManager}, so that all existing
+ * event handlers can be used. Events are created in the same order and with the same attributes as when reading the xml output.
+ * <p>
+ * Ids and enum values are only created once per dictionary entry.
+ */
+public final class EpisimBinaryEventsReader {
+
+	private final EventsManager manager;
+
+	/**
+	 * Used to create events that are not episim events, the same way as the xml reader.
+	 */
+	private final EventsReaderXMLv1 delegate;
+
+	/**
+	 * Dictionary of the current chunk and the objects created from it, by dictionary position.
+	 */
+	private String[] strings;
+	private Object[] persons;
+	private Object[] containers;
+	private Object[] facilities;
+	private Object[] actTypes;
+	private Object[] strains;
+	private Object[] states;
+	private Object[] vaccinations;
+
+	public EpisimBinaryEventsReader(EventsManager manager) {
+		this.manager = manager;
+		this.delegate = new EventsReaderXMLv1(manager);
+	}
+
+	/**
+	 * Read a gzipped event file.
+	 */
+	public void readFile(String filename) {
+		try (InputStream in = new GZIPInputStream(new FileInputStream(filename), 65536)) {
+			parse(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Read uncompressed events from {@code in}, which will not be closed.
+	 */
+	public void parse(InputStream in) throws IOException {
+
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in, 65536));
+
+		if (data.readInt() != MAGIC)
+			throw new IOException("Not a binary episim event file");
+
+		// chunks are terminated by one with zero events
+		int events;
+		while ((events = data.readInt()) > 0)
+			parseChunk(data, events);
+	}
+
+	/**
+	 * Read one chunk with its own dictionary and dispatch its events.
+	 */
+	private void parseChunk(DataInputStream data, int events) throws IOException {
+
+		int n = data.readInt();
+		strings = new String[n];
+		for (int i = 0; i < n; i++) {
+			strings[i] = data.readUTF();
+		}
+
+		persons = new Object[n];
+		containers = new Object[n];
+		facilities = new Object[n];
+		actTypes = new Object[n];
+		strains = new Object[n];
+		states = new Object[n];
+		vaccinations = new Object[n];
+
+		byte[] order = new byte[events];
+		data.readFully(order);
+
+		int numTypes = DOUBLE_COLUMNS.length;
+		double[][][] doubles = new double[numTypes][][];
+		int[][][] ints = new int[numTypes][][];
+
+		for (int type = 0; type < numTypes; type++) {
+			int size = data.readInt();
+
+			doubles[type] = new double[DOUBLE_COLUMNS[type]][size];
+			for (double[] column : doubles[type]) {
+				for (int i = 0; i < size; i++) {
+					column[i] = data.readDouble();
+				}
+			}
+
+			ints[type] = new int[INT_COLUMNS[type]][size];
+			for (int[] column : ints[type]) {
+				for (int i = 0; i < size; i++) {
+					column[i] = data.readInt();
+				}
+			}
+		}
+
+		int[] attributes = new int[data.readInt()];
+		for (int i = 0; i < attributes.length; i++) {
+			attributes[i] = data.readInt();
+		}
+
+		// position in each block and in the generic attributes
+		int[] idx = new int[numTypes];
+		int attrIdx = 0;
+
+		for (byte type : order) {
+
+			int i = idx[type]++;
+			double[][] d = doubles[type];
+			int[][] c = ints[type];
+
+			Event event;
+			switch (type) {
+				case INFECTION:
+					event = new EpisimInfectionEvent(d[0][i], person(c[0][i]), person(c[1][i]), container(c[2][i]), string(c[3][i]),
+							c[4][i], strain(c[5][i]), d[1][i]);
+					break;
+				case POTENTIAL_INFECTION:
+					event = new EpisimPotentialInfectionEvent(d[0][i], person(c[0][i]), person(c[1][i]), container(c[2][i]), string(c[3][i]),
+							c[4][i], strain(c[5][i]), d[1][i], d[2][i], d[3][i]);
+					break;
+				case INITIAL_INFECTION:
+					event = new EpisimInitialInfectionEvent(d[0][i], person(c[0][i]), strain(c[1][i]));
+					break;
+				case PERSON_STATUS:
+					event = new EpisimPersonStatusEvent(d[0][i], person(c[0][i]), lookup(states, c[1][i], DiseaseStatus::valueOf));
+					break;
+				case CONTACT:
+					event = new EpisimContactEvent(d[0][i], person(c[0][i]), person(c[1][i]), facility(c[2][i]),
+							lookup(actTypes, c[3][i], String::intern), d[1][i], c[4][i]);
+					break;
+				case VACCINATION:
+					event = new EpisimVaccinationEvent(d[0][i], person(c[0][i]), lookup(vaccinations, c[1][i], VaccinationType::valueOf), c[2][i] == 1);
+					break;
+				case GENERIC:
+					generic(d[0][i], string(c[0][i]), attributes, attrIdx, c[1][i]);
+					attrIdx += 2 * c[1][i];
+					continue;
+				default:
+					throw new IOException("Unknown event type " + type);
+			}
+
+			manager.processEvent(event);
+		}
+	}
+
+	/**
+	 * Generic events are passed through the xml reader, which creates the matching event class.
+	 */
+	private void generic(double time, String type, int[] attributes, int offset, int n) {
+
+		AttributesImpl atts = new AttributesImpl();
+		atts.addAttribute("", Event.ATTRIBUTE_TIME, Event.ATTRIBUTE_TIME, "CDATA", Double.toString(time));
+		atts.addAttribute("", Event.ATTRIBUTE_TYPE, Event.ATTRIBUTE_TYPE, "CDATA", type);
+
+		for (int j = 0; j < n; j++) {
+			String key = string(attributes[offset + 2 * j]);
+			String value = string(attributes[offset + 2 * j + 1]);
+			atts.addAttribute("", key, key, "CDATA", value != null ? value : "");
+		}
+
+		delegate.startTag("event", atts, new Stack<>());
+	}
+
+	private String string(int code) {
+		return code >= 0 ? strings[code] : null;
+	}
+
+	private Id<Person> person(int code) {
+		return lookup(persons, code, Id::createPersonId);
+	}
+
+	private Id<EpisimContainer> container(int code) {
+		return lookup(containers, code, s -> Id.create(s, EpisimContainer.class));
+	}
+
+	private Id<ActivityFacility> facility(int code) {
+		return lookup(facilities, code, s -> Id.create(s, ActivityFacility.class));
+	}
+
+	private VirusStrain strain(int code) {
+		return lookup(strains, code, VirusStrain::valueOf);
+	}
+
+	/**
+	 * Object for a dictionary entry, which is created only once and stored in {@code cache}.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T lookup(Object[] cache, int code, Function<String, T> create) {
+		if (code < 0) return null;
+		if (cache[code] == null)
+			cache[code] = create.apply(strings[code]);
+
+		return (T) cache[code];
+	}
+
+}
@@ -0,0 +1,375 @@
+package org.matsim.episim.events;
+
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.matsim.api.core.v01.events.Event;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes events in a compact columnar binary format, which can be read with {@link EpisimBinaryEventsReader}.
+ * <p>
+ * A file consists of chunks with a bounded number of events, so only one chunk is kept in memory while the events of a day are written.
+ * Within a chunk, events are stored in one block per event type, each block consists of primitive columns. All strings, e.g. person and container ids,
+ * are replaced by their position in a dictionary that is written before the blocks. The order of events over all types is kept
+ * as one byte per event, so reading a file dispatches the events in the same order as they were written.
+ * <p>
+ * Episim events are stored with their own columns, all other events are stored with their attributes as generic event.
+ * The output is not compressed, callers usually wrap the stream into a gzip stream.
+ * Events can be added from multiple threads.
+ */
+public final class EpisimBinaryEventsWriter {
+
+	/**
+	 * Magic number and version at the start of each file.
+	 */
+	static final int MAGIC = 0x45504202;
+
+	/**
+	 * Default number of events per chunk.
+	 */
+	public static final int CHUNK_SIZE = 1 << 16;
+
+	static final byte GENERIC = 0;
+	static final byte INFECTION = 1;
+	static final byte POTENTIAL_INFECTION = 2;
+	static final byte INITIAL_INFECTION = 3;
+	static final byte PERSON_STATUS = 4;
+	static final byte CONTACT = 5;
+	static final byte VACCINATION = 6;
+
+	/**
+	 * Number of double and int columns for each type.
+	 */
+	static final int[] DOUBLE_COLUMNS = {1, 2, 4, 1, 1, 2, 1};
+	static final int[] INT_COLUMNS = {2, 6, 6, 2, 2, 5, 3};
+
+	private final Object2IntMap<String> dictionary = new Object2IntOpenHashMap<>();
+	private final List<String> strings = new ArrayList<>();
+
+	/**
+	 * Type of each event in order.
+	 */
+	private final ByteArrayList order = new ByteArrayList();
+
+	private final Block[] blocks = new Block[DOUBLE_COLUMNS.length];
+
+	/**
+	 * Attribute keys and values of generic events.
+	 */
+	private final IntArrayList attributes = new IntArrayList();
+
+	private final int chunkSize;
+
+	/**
+	 * Stream of the currently opened file, null if events are only collected.
+	 */
+	@Nullable
+	private DataOutputStream out;
+
+	public EpisimBinaryEventsWriter() {
+		this(CHUNK_SIZE);
+	}
+
+	EpisimBinaryEventsWriter(int chunkSize) {
+		this.chunkSize = chunkSize;
+		dictionary.defaultReturnValue(-1);
+		for (int i = 0; i < blocks.length; i++) {
+			blocks[i] = new Block(DOUBLE_COLUMNS[i], INT_COLUMNS[i]);
+		}
+	}
+
+	/**
+	 * Add an event with its own time.
+	 */
+	public synchronized void append(Event event) {
+
+		if (event instanceof EpisimInfectionEvent) {
+			EpisimInfectionEvent e = (EpisimInfectionEvent) event;
+			Block b = next(INFECTION);
+			b.add(0, e.getTime());
+			b.add(1, e.getProbability());
+			b.add(0, code(e.getPersonId()));
+			b.add(1, code(e.getInfectorId()));
+			b.add(2, code(e.getContainerId()));
+			b.add(3, code(e.getInfectionType()));
+			b.add(4, e.getGroupSize());
+			b.add(5, code(e.getVirusStrain()));
+
+		} else if (event instanceof EpisimPotentialInfectionEvent) {
+			EpisimPotentialInfectionEvent e = (EpisimPotentialInfectionEvent) event;
+			Block b = next(POTENTIAL_INFECTION);
+			b.add(0, e.getTime());
+			b.add(1, e.getProbability());
+			b.add(2, e.getUnVacProbability());
+			b.add(3, e.getRnd());
+			b.add(0, code(e.getPersonId()));
+			b.add(1, code(e.getInfectorId()));
+			b.add(2, code(e.getContainerId()));
+			b.add(3, code(e.getInfectionType()));
+			b.add(4, e.getGroupSize());
+			b.add(5, code(e.getVirusStrain()));
+
+		} else if (event instanceof EpisimInitialInfectionEvent) {
+			EpisimInitialInfectionEvent e = (EpisimInitialInfectionEvent) event;
+			Block b = next(INITIAL_INFECTION);
+			b.add(0, e.getTime());
+			b.add(0, code(e.getPersonId()));
+			b.add(1, code(e.getVirusStrain()));
+
+		} else if (event instanceof EpisimPersonStatusEvent) {
+			EpisimPersonStatusEvent e = (EpisimPersonStatusEvent) event;
+			Block b = next(PERSON_STATUS);
+			b.add(0, e.getTime());
+			b.add(0, code(e.getPersonId()));
+			b.add(1, code(e.getDiseaseStatus()));
+
+		} else if (event instanceof EpisimContactEvent) {
+			EpisimContactEvent e = (EpisimContactEvent) event;
+			Block b = next(CONTACT);
+			b.add(0, e.getTime());
+			b.add(1, e.getDuration());
+			b.add(0, code(e.getPersonId()));
+			b.add(1, code(e.getContactPersonId()));
+			b.add(2, code(e.getContainerId()));
+			b.add(3, code(e.getActType()));
+			b.add(4, e.getGroupSize());
+
+		} else if (event instanceof EpisimVaccinationEvent) {
+			EpisimVaccinationEvent e = (EpisimVaccinationEvent) event;
+			Block b = next(VACCINATION);
+			b.add(0, e.getTime());
+			b.add(0, code(e.getPersonId()));
+			b.add(1, code(e.getVaccinationType()));
+			b.add(2, e.getReVaccination() ? 1 : 0);
+
+		} else
+			appendGeneric(event, event.getTime());
+
+		flushChunk();
+	}
+
+	/**
+	 * Add an event with corrected time. Such events are always stored as generic events.
+	 */
+	public synchronized void append(Event event, double correctedTime) {
+		appendGeneric(event, correctedTime);
+		flushChunk();
+	}
+
+	private void appendGeneric(Event event, double time) {
+
+		Map<String, String> attr = event.getAttributes();
+		attr.remove(Event.ATTRIBUTE_TIME);
+		attr.remove(Event.ATTRIBUTE_TYPE);
+
+		Block b = next(GENERIC);
+		b.add(0, time);
+		b.add(0, code(event.getEventType()));
+		b.add(1, attr.size());
+
+		for (Map.Entry<String, String> e : attr.entrySet()) {
+			attributes.add(code(e.getKey()));
+			attributes.add(code(e.getValue()));
+		}
+	}
+
+	private Block next(byte type) {
+		order.add(type);
+		return blocks[type];
+	}
+
+	/**
+	 * Position of a string in the dictionary, -1 for null.
+	 */
+	private int code(@Nullable Object value) {
+
+		if (value == null)
+			return -1;
+
+		String s = value.toString();
+		int code = dictionary.getInt(s);
+		if (code == -1) {
+			code = strings.size();
+			dictionary.put(s, code);
+			strings.add(s);
+		}
+
+		return code;
+	}
+
+	/**
+	 * Number of events that are collected and not yet written.
+	 */
+	public synchronized int size() {
+		return order.size();
+	}
+
+	/**
+	 * Start a new file on {@code out}, which will be closed by {@link #close()}.
+	 * All following events are written to it in chunks, so they don't accumulate in memory.
+	 */
+	public synchronized void open(OutputStream out) throws IOException {
+
+		if (this.out != null)
+			throw new IllegalStateException("Previous file was not closed");
+
+		reset();
+
+		this.out = new DataOutputStream(new BufferedOutputStream(out, 65536));
+		this.out.writeInt(MAGIC);
+	}
+
+	/**
+	 * Write the remaining events and the end of the file, then close the stream given to {@link #open(OutputStream)}.
+	 */
+	public synchronized void close() throws IOException {
+
+		if (out == null)
+			return;
+
+		try (DataOutputStream data = out) {
+			out = null;
+			if (size() > 0)
+				writeChunk(data);
+
+			data.writeInt(0);
+		}
+	}
+
+	/**
+	 * Write all collected events as a complete file to {@code out}, which will be flushed but not closed.
+	 */
+	public synchronized void write(OutputStream out) throws IOException {
+
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 65536));
+
+		data.writeInt(MAGIC);
+		if (size() > 0)
+			writeChunk(data);
+
+		data.writeInt(0);
+		data.flush();
+	}
+
+	/**
+	 * Write the current chunk to the opened file, once it is full.
+	 */
+	private void flushChunk() {
+
+		if (out == null || order.size() < chunkSize)
+			return;
+
+		try {
+			writeChunk(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		reset();
+	}
+
+	/**
+	 * Write the collected events as one chunk, starting with the number of events.
+	 */
+	private void writeChunk(DataOutputStream data) throws IOException {
+
+		data.writeInt(order.size());
+
+		data.writeInt(strings.size());
+		for (String s : strings) {
+			data.writeUTF(s);
+		}
+
+		data.write(order.elements(), 0, order.size());
+
+		for (int type = 0; type < blocks.length; type++) {
+			Block b = blocks[type];
+			int size = b.size();
+			data.writeInt(size);
+
+			for (DoubleArrayList column : b.doubles) {
+				for (int i = 0; i < size; i++) {
+					data.writeDouble(column.getDouble(i));
+				}
+			}
+
+			for (IntArrayList column : b.ints) {
+				for (int i = 0; i < size; i++) {
+					data.writeInt(column.getInt(i));
+				}
+			}
+		}
+
+		data.writeInt(attributes.size());
+		for (int i = 0; i < attributes.size(); i++) {
+			data.writeInt(attributes.getInt(i));
+		}
+	}
+
+	/**
+	 * Discard all events that are not yet written, the allocated columns will be reused.
+	 */
+	public synchronized void reset() {
+		dictionary.clear();
+		strings.clear();
+		order.clear();
+		attributes.clear();
+		for (Block b : blocks) {
+			b.clear();
+		}
+	}
+
+	/**
+	 * Columns of one event type.
+	 */
+	private static final class Block {
+
+		private final DoubleArrayList[] doubles;
+		private final IntArrayList[] ints;
+
+		private Block(int numDoubles, int numInts) {
+			doubles = new DoubleArrayList[numDoubles];
+			ints = new IntArrayList[numInts];
+			for (int i = 0; i < numDoubles; i++) {
+				doubles[i] = new DoubleArrayList();
+			}
+			for (int i = 0; i < numInts; i++) {
+				ints[i] = new IntArrayList();
+			}
+		}
+
+		private void add(int column, double value) {
+			doubles[column].add(value);
+		}
+
+		private void add(int column, int value) {
+			ints[column].add(value);
+		}
+
+		private int size() {
+			return doubles[0].size();
+		}
+
+		private void clear() {
+			for (DoubleArrayList column : doubles) {
+				column.clear();
+			}
+			for (IntArrayList column : ints) {
+				column.clear();
+			}
+		}
+	}
+
+}
@@ -66,6 +66,24 @@ public final class EpisimContactEvent extends Event implements HasPersonId {
 		return duration;
 	}
 
+	/**
+	 * Container where the contact took place.
+	 */
+	public Id<?> getContainerId() {
+		return containerId;
+	}
+
+	/**
+	 * Activity type performed by the person.
+	 */
+	public String getActType() {
+		return actType;
+	}
+
+	public int getGroupSize() {
+		return groupSize;
+	}
+
 	@Override
 	public Map<String, String> getAttributes() {
 		Map<String, String> attr = super.getAttributes();
@@ -15,7 +15,7 @@ import static org.matsim.api.core.v01.events.ActivityEndEvent.ATTRIBUTE_ACTTYPE;
  */
 public final class EpisimTracingEvent extends Event implements HasPersonId {
 
-	private static final String EVENT_TYPE = "episimTracing";
+	public static final String EVENT_TYPE = "episimTracing";
 	private static final String CONTACT_PERSON = "contactPerson";
 
 	private final Id<Person> personId;
@@ -20,6 +20,7 @@
  */
 package org.matsim.episim.model;
 
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
@@ -27,10 +28,12 @@ import org.matsim.episim.*;
 import org.matsim.episim.events.EpisimInfectionEvent;
 import org.matsim.episim.events.EpisimPotentialInfectionEvent;
 import org.matsim.episim.policy.Restriction;
+import org.matsim.episim.policy.RestrictionTable;
 import org.matsim.facilities.ActivityFacility;
 
-import java.util.HashMap;
+import javax.annotation.Nullable;
 import java.time.DayOfWeek;
+import java.util.List;
 import java.util.Map;
 import java.util.SplittableRandom;
 
@@ -44,7 +47,19 @@ import static org.matsim.episim.InfectionEventHandler.EpisimVehicle;
 public abstract class AbstractContactModel implements ContactModel {
 	public static final String QUARANTINE_HOME = "quarantine_home";
 
+	/**
+	 * Scenario the facility index was built from, may be null.
+	 *
+	 * @deprecated use {@link #facilities} for lookups of facilities and their attributes
+	 */
+	@Deprecated
 	protected final Scenario scenario;
+
+	/**
+	 * Shared index of the scenario facilities, may be null.
+	 */
+	@Nullable
+	protected final FacilityIndex facilities;
 	protected final SplittableRandom rnd;
 	protected final EpisimConfigGroup episimConfig;
 	protected final EpisimReporting reporting;
@@ -71,18 +86,23 @@ public abstract class AbstractContactModel implements ContactModel {
 	protected DayOfWeek day;
 	private Map<String, Restriction> restrictions;
 
+	/**
+	 * Restrictions compiled at the start of each iteration.
+	 */
+	private RestrictionTable restrictionTable;
+
 	/**
 	 * Curfew compliance valid for the day.
 	 */
 	private double curfewCompliance;
 
 	/**
-	 * Map of each ActivityFacility with the corresponding subdistrict
+	 * District names, indexed by {@link EpisimContainer#getDistrictCode()}.
 	 */
-	private final Map<String, String> subdistrictFacilities;
+	private final List<String> districts;
 
 
-	AbstractContactModel(SplittableRandom rnd, Config config, InfectionModel infectionModel, EpisimReporting reporting, Scenario scenario) {
+	AbstractContactModel(SplittableRandom rnd, Config config, InfectionModel infectionModel, EpisimReporting reporting, @Nullable FacilityIndex facilities) {
 		this.rnd = rnd;
 		this.episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
 		this.infectionModel = infectionModel;
@@ -90,21 +110,9 @@ public abstract class AbstractContactModel implements ContactModel {
 		this.trParams = episimConfig.selectInfectionParams("tr");
 		this.qhParams = episimConfig.selectInfectionParams(QUARANTINE_HOME);
 		this.trackingMinDuration = ConfigUtils.addOrGetModule(config, TracingConfigGroup.class).getMinDuration();
-		this.scenario = scenario;
-
-		subdistrictFacilities = new HashMap<>();
-		if (episimConfig.getDistrictLevelRestrictions().equals(EpisimConfigGroup.DistrictLevelRestrictions.yes)
-				&& scenario != null
-				&& !scenario.getActivityFacilities().getFacilities().isEmpty()) {
-
-			for (ActivityFacility facility : scenario.getActivityFacilities().getFacilities().values()) {
-				String subdistrictAttributeName = episimConfig.getDistrictLevelRestrictionsAttribute();
-				String subdistrict = (String) facility.getAttributes().getAttribute(subdistrictAttributeName);
-				if (subdistrict != null) {
-					this.subdistrictFacilities.put(facility.getId().toString(), subdistrict);
-				}
-			}
-		}
+		this.facilities = facilities;
+		this.scenario = facilities != null ? facilities.getScenario() : null;
+		this.districts = facilities != null ? facilities.getDistricts() : List.of();
 	}
 
 	AbstractContactModel(SplittableRandom rnd, Config config, InfectionModel infectionModel, EpisimReporting reporting) {
@@ -198,8 +206,7 @@ public abstract class AbstractContactModel implements ContactModel {
 		otherPerson.addTraceableContactPerson(personLeavingContainer, now);
 	}
 
-	private boolean activityRelevantForInfectionDynamics(EpisimPerson person, EpisimContainer<?> container, Map<String,
-			Restriction> restrictions, SplittableRandom rnd) {
+	private boolean activityRelevantForInfectionDynamics(EpisimPerson person, EpisimContainer<?> container, SplittableRandom rnd) {
 
 		EpisimPerson.PerformedActivity act = container.getPerformedActivity(person.getPersonId());
 
@@ -207,15 +214,18 @@ public abstract class AbstractContactModel implements ContactModel {
 		if (person.getQuarantineStatus() == EpisimPerson.QuarantineStatus.atHome && !act.actType().startsWith("home"))
 			return false;
 
+		RestrictionTable table = table();
+		int code = act.params.getCode();
+
 		// enforce max group sizes
-		Restriction r = restrictions.get(act.params.getContainerName());
-		if (r.getMaxGroupSize() != null && r.getMaxGroupSize() > -1 && container.getMaxGroupSize() > 0 &&
-				container.getMaxGroupSize() > r.getMaxGroupSize())
+		int maxGroupSize = table.getMaxGroupSize(code);
+		if (maxGroupSize > -1 && container.getMaxGroupSize() > 0 &&
+				container.getMaxGroupSize() > maxGroupSize)
 			return false;
 
 		// reduce group size probabilistically
-		Integer reducedGroupSize = r.getReducedGroupSize();
-		if (reducedGroupSize != null && reducedGroupSize > -1 && reducedGroupSize != Integer.MAX_VALUE) {
+		int reducedGroupSize = table.getReducedGroupSize(code);
+		if (reducedGroupSize > -1) {
 			double current = (container.getPersons().size() * episimConfig.getSampleSize()) / container.getNumSpaces();
 
 			// always false if current < reduced size
@@ -225,25 +235,37 @@ public abstract class AbstractContactModel implements ContactModel {
 			if (out) return false;
 		}
 
-		if (r.isClosed(container.getContainerId()))
+		if (table.isClosed(code, container.getContainerId().index()))
 			return false;
 
-		return actIsRelevant(act.params, restrictions, rnd, container);
+		return actIsRelevant(act.params, table, rnd, container);
 	}
 
-	private boolean actIsRelevant(EpisimConfigGroup.InfectionParams params, Map<String, Restriction> restrictions, SplittableRandom rnd,EpisimContainer container) {
+	/**
+	 * District code of a container. Facilities that have no code assigned by the event handler are looked up in the index.
+	 */
+	@SuppressWarnings("unchecked")
+	private int getDistrictCode(EpisimContainer<?> container) {
+		int district = container.getDistrictCode();
+		if (district < 0 && facilities != null && container instanceof EpisimFacility)
+			district = facilities.getDistrictCode((Id<ActivityFacility>) container.getContainerId());
+
+		return district;
+	}
 
-		Restriction r = restrictions.get(params.getContainerName());
-		Double remainingFraction = r.getRemainingFraction();
+	private boolean actIsRelevant(EpisimConfigGroup.InfectionParams params, RestrictionTable table, SplittableRandom rnd, EpisimContainer<?> container) {
+
+		int code = params.getCode();
+		double remainingFraction = table.getRemainingFraction(code);
 
 		// Applies location based restriction, if applicable
 		// So far, they are only applied for EpisimFacilities, not EpisimVehicles
-		if (episimConfig.getDistrictLevelRestrictions().equals(EpisimConfigGroup.DistrictLevelRestrictions.yes) && container != null) {
-			if (subdistrictFacilities.containsKey(container.getContainerId().toString())) {
-				String subdistrict = subdistrictFacilities.get(container.getContainerId().toString());
-				if (r.getLocationBasedRf().containsKey(subdistrict)) {
-					remainingFraction = r.getLocationBasedRf().get(subdistrict);
-				}
+		if (container != null && !districts.isEmpty()) {
+			int district = getDistrictCode(container);
+			if (district >= 0) {
+				double rf = table.getLocationBasedRf(code, district);
+				if (!Double.isNaN(rf))
+					remainingFraction = rf;
 			}
 		}
 
@@ -257,7 +279,7 @@ public abstract class AbstractContactModel implements ContactModel {
 
 	}
 
-	private boolean tripRelevantForInfectionDynamics(double time, EpisimPerson person, Map<String, Restriction> restrictions, SplittableRandom rnd) {
+	private boolean tripRelevantForInfectionDynamics(double time, EpisimPerson person, SplittableRandom rnd) {
 
 		if (person.getQuarantineStatus() != EpisimPerson.QuarantineStatus.no)
 			return false;
@@ -266,10 +288,12 @@ public abstract class AbstractContactModel implements ContactModel {
 
 		EpisimPerson.PerformedActivity nextAct = person.getNextActivity(day, time % 86400);
 
+		RestrictionTable table = table();
+
 		// next activity is only considered if present
-		return actIsRelevant(trParams, restrictions, rnd, null) &&
-				(nextAct == null || actIsRelevant(nextAct.params, restrictions, rnd, null)) &&
-				(actIsRelevant(lastAct.params, restrictions, rnd, null));
+		return actIsRelevant(trParams, table, rnd, null) &&
+				(nextAct == null || actIsRelevant(nextAct.params, table, rnd, null)) &&
+				(actIsRelevant(lastAct.params, table, rnd, null));
 
 	}
 
@@ -303,10 +327,10 @@ public abstract class AbstractContactModel implements ContactModel {
 		if (episimConfig.getActivityHandling() != EpisimConfigGroup.ActivityHandling.duringContact)
 			return true;
 
-		if (container instanceof EpisimFacility && activityRelevantForInfectionDynamics(person, container, restrictions, rnd)) {
+		if (container instanceof EpisimFacility && activityRelevantForInfectionDynamics(person, container, rnd)) {
 			return true;
 		}
-		return container instanceof EpisimVehicle && tripRelevantForInfectionDynamics(time, person, restrictions, rnd);
+		return container instanceof EpisimVehicle && tripRelevantForInfectionDynamics(time, person, rnd);
 	}
 
 	/**
@@ -314,18 +338,20 @@ public abstract class AbstractContactModel implements ContactModel {
 	 * This takes possible closing hours into account.
 	 */
 	protected double calculateJointTimeInContainer(double now, EpisimConfigGroup.InfectionParams act, double containerEnterTimeOfPersonLeaving, double containerEnterTimeOfOtherPerson) {
-		Restriction r = getRestrictions().get(act.getContainerName());
+		int code = act.getCode();
 
 		double max = Math.max(containerEnterTimeOfPersonLeaving, containerEnterTimeOfOtherPerson);
 
+		RestrictionTable table = table();
+
 		// no closing hour set, or no compliance
-		if (!r.hasClosingHours() || curfewCompliance == 0) {
+		if (!table.hasClosingHours(code) || curfewCompliance == 0) {
 			return now - max;
 		} else if (episimConfig.getCalibrationParameter() != 1 && rnd.nextDouble() >= curfewCompliance) {
 			return now - max;
 		}
 
-		double overlap = r.overlapWithClosingHour(max, now);
+		double overlap = table.overlapWithClosingHour(code, max, now);
 		if (overlap > 0) {
 			double jointTime = now - max - overlap;
 			// joint time can now be negative and will be set to 0
@@ -336,6 +362,18 @@ public abstract class AbstractContactModel implements ContactModel {
 		}
 	}
 
+	/**
+	 * Compiled restrictions of the current iteration. Compiled again if the restriction map has been changed in place.
+	 */
+	private RestrictionTable table() {
+		if (!restrictionTable.isFor(restrictions)) {
+			restrictionTable = RestrictionTable.compile(episimConfig, restrictions, districts);
+			infectionModel.setRestrictionTable(restrictionTable);
+		}
+
+		return restrictionTable;
+	}
+
 	/**
 	 * Set the iteration number and restrictions that are in place.
 	 */
@@ -344,9 +382,11 @@ public abstract class AbstractContactModel implements ContactModel {
 		this.iteration = iteration;
 		this.day = EpisimUtils.getDayOfWeek(episimConfig, iteration);
 		this.restrictions = restrictions;
+		this.restrictionTable = RestrictionTable.compile(episimConfig, restrictions, districts);
 		this.infectionModel.setIteration(iteration);
-		this.curfewCompliance = EpisimUtils.findValidEntry(episimConfig.getCurfewCompliance(), 1.0,
-				episimConfig.getStartDate().plusDays(iteration - 1));
+		this.infectionModel.setRestrictionTable(restrictionTable);
+		this.curfewCompliance = episimConfig.getCurfewComplianceFunction()
+				.get(episimConfig.getStartDate().plusDays(iteration - 1), 1.0);
 	}
 
 	/**
@@ -7,6 +7,7 @@ import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.episim.*;
 import org.matsim.episim.policy.Restriction;
+import org.matsim.episim.policy.RestrictionTable;
 
 import java.util.Map;
 import java.util.SplittableRandom;
@@ -37,6 +38,7 @@ public final class AgeAndProgressionDependentInfectionModelWithSeasonality imple
 
 	private double outdoorFactor;
 	private int iteration;
+	private RestrictionTable table;
 
 	@Inject
 	AgeAndProgressionDependentInfectionModelWithSeasonality(FaceMaskModel faceMaskModel, ProgressionModel progression,
@@ -67,13 +69,23 @@ public final class AgeAndProgressionDependentInfectionModelWithSeasonality imple
 
 	}
 
+	@Override
+	public void setRestrictionTable(RestrictionTable table) {
+		this.table = table;
+	}
+
 	@Override
 	public double calcInfectionProbability(EpisimPerson target, EpisimPerson infector, Map<String, Restriction> restrictions,
 										   EpisimConfigGroup.InfectionParams act1, EpisimConfigGroup.InfectionParams act2,
 										   double contactIntensity, double jointTimeInContainer) {
 
 		//noinspection ConstantConditions 		// ci corr can not be null, because sim is initialized with non null value
-		double ciCorrection = Math.min(restrictions.get(act1.getContainerName()).getCiCorrection(), restrictions.get(act2.getContainerName()).getCiCorrection());
+		int code1 = act1.getCode();
+		int code2 = act2.getCode();
+
+		// compiled from the passed restrictions if no matching table was set
+		table = RestrictionTable.compile(table, episimConfig, restrictions);
+		double ciCorrection = Math.min(table.getCiCorrection(code1), table.getCiCorrection(code2));
 
 		double susceptibility = this.susceptibility[target.getAge()];
 		double infectivity = this.infectivity[infector.getAge()];
@@ -89,8 +101,8 @@ public final class AgeAndProgressionDependentInfectionModelWithSeasonality imple
 				* target.getSusceptibility()
 				* getInfectivity(infector)
 				* strain.getInfectiousness()
-				* maskModel.getWornMask(infector, act2, restrictions.get(act2.getContainerName())).shedding
-				* maskModel.getWornMask(target, act1, restrictions.get(act1.getContainerName())).intake
+				* maskModel.getWornMask(infector, act2, table, code2).shedding
+				* maskModel.getWornMask(target, act1, table, code1).intake
 				* indoorOutdoorFactor
 		);
 	}
@@ -98,7 +110,12 @@ public final class AgeAndProgressionDependentInfectionModelWithSeasonality imple
 	@Override
 	public double calcUnVacInfectionProbability(EpisimPerson target, EpisimPerson infector, Map<String, Restriction> restrictions, EpisimConfigGroup.InfectionParams act1, EpisimConfigGroup.InfectionParams act2, double contactIntensity, double jointTimeInContainer) {
 		//noinspection ConstantConditions 		// ci corr can not be null, because sim is initialized with non null value
-		double ciCorrection = Math.min(restrictions.get(act1.getContainerName()).getCiCorrection(), restrictions.get(act2.getContainerName()).getCiCorrection());
+		int code1 = act1.getCode();
+		int code2 = act2.getCode();
+
+		// compiled from the passed restrictions if no matching table was set
+		table = RestrictionTable.compile(table, episimConfig, restrictions);
+		double ciCorrection = Math.min(table.getCiCorrection(code1), table.getCiCorrection(code2));
 
 		double susceptibility = this.susceptibility[target.getAge()];
 		double infectivity = this.infectivity[infector.getAge()];
@@ -115,8 +132,8 @@ public final class AgeAndProgressionDependentInfectionModelWithSeasonality imple
 				* target.getSusceptibility()
 				* getInfectivity(infector)
 				* strain.getInfectiousness()
-				* maskModel.getWornMask(infector, act2, restrictions.get(act2.getContainerName())).shedding
-				* maskModel.getWornMask(target, act1, restrictions.get(act1.getContainerName())).intake
+				* maskModel.getWornMask(infector, act2, table, code2).shedding
+				* maskModel.getWornMask(target, act1, table, code1).intake
 				* indoorOutdoorFactor
 		);
 	}
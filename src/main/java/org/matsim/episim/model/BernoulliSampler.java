@@ -0,0 +1,110 @@
+package org.matsim.episim.model;
+
+import org.matsim.episim.EpisimConfigGroup;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Samples random decisions that are true with a given probability.
+ * <p>
+ * With {@link EpisimConfigGroup.BernoulliSampling#geometricSkip} a sequence of decisions with the same probability is sampled
+ * by drawing the number of decisions until the next less likely outcome from a geometric distribution.
+ * All decisions are still independent with the requested probability, because the geometric distribution is memoryless.
+ * Random numbers are only needed for the less likely outcomes, instead of one for each decision.
+ * <p>
+ * Decisions are grouped into sequences by a small non-negative key, usually the activity code of {@link EpisimConfigGroup.InfectionParams#getCode()}.
+ * When the probability of a key changes, its sequence is started again with a new draw.
+ */
+public final class BernoulliSampler {
+
+	private final SplittableRandom rnd;
+	private final EpisimConfigGroup.BernoulliSampling mode;
+
+	/**
+	 * State of the sequence for each key, null if not started.
+	 */
+	private Skip[] skips = new Skip[16];
+
+	public BernoulliSampler(SplittableRandom rnd, EpisimConfigGroup.BernoulliSampling mode) {
+		this.rnd = rnd;
+		this.mode = mode;
+	}
+
+	/**
+	 * Sample one decision.
+	 *
+	 * @param key group of the decision, e.g. the activity code
+	 * @param p   probability of returning true
+	 */
+	public boolean sample(int key, double p) {
+
+		if (mode == EpisimConfigGroup.BernoulliSampling.perDecision) {
+			if (p == 1.0)
+				return true;
+			else if (p == 0.0)
+				return false;
+
+			return rnd.nextDouble() < p;
+		}
+
+		if (p >= 1.0)
+			return true;
+		else if (p <= 0.0)
+			return false;
+
+		if (key >= skips.length)
+			skips = Arrays.copyOf(skips, Math.max(key + 1, skips.length * 2));
+
+		Skip skip = skips[key];
+		if (skip == null || skip.p != p) {
+			skip = new Skip(p);
+			skip.remaining = skip.draw(rnd);
+			skips[key] = skip;
+		}
+
+		if (skip.remaining > 0) {
+			skip.remaining--;
+			return skip.inverted;
+		}
+
+		skip.remaining = skip.draw(rnd);
+		return !skip.inverted;
+	}
+
+	/**
+	 * Discard all state. Needs to be called when the random number generator is reseeded to get reproducible results.
+	 */
+	public void reset() {
+		Arrays.fill(skips, null);
+	}
+
+	/**
+	 * Remaining decisions until the next less likely outcome for one probability.
+	 */
+	private static final class Skip {
+
+		private final double p;
+
+		/**
+		 * Whether the less likely outcome is false.
+		 */
+		private final boolean inverted;
+		private final double logQ;
+		private long remaining;
+
+		private Skip(double p) {
+			this.p = p;
+			inverted = p > 0.5;
+			logQ = Math.log1p(-(inverted ? 1 - p : p));
+		}
+
+		/**
+		 * Number of decisions before the next less likely outcome.
+		 */
+		private long draw(SplittableRandom rnd) {
+			return (long) Math.floor(Math.log(1 - rnd.nextDouble()) / logQ);
+		}
+	}
+
+}
@@ -76,6 +76,11 @@ public class ConfigurableProgressionModel extends AbstractProgressionModel {
 
 	private static final double DAY = 24. * 3600;
 
+	/**
+	 * Order of persons in the person map.
+	 */
+	private static final Comparator<EpisimPerson> BY_INDEX = Comparator.comparingInt(p -> p.getPersonId().index());
+
 	/**
 	 * Definition of state transitions from x -> y
 	 * Indices are the ordinal values of {@link DiseaseStatus} (as 2d matrix form)
@@ -88,6 +93,17 @@ public class ConfigurableProgressionModel extends AbstractProgressionModel {
 	 */
 	private final Object2IntMap<Id<ActivityFacility>> locations = new Object2IntOpenHashMap<>();
 
+	/**
+	 * Persons by the facility where they got infected, sorted by their id index. Only maintained for location based tracing.
+	 * Entries of persons that got infected again elsewhere or outside the look-back window are removed on day change.
+	 */
+	private final Map<Id<ActivityFacility>, List<EpisimPerson>> infectedAt = new HashMap<>();
+
+	/**
+	 * Whether {@link #infectedAt} has been initialized from the current state of all persons.
+	 */
+	private boolean infectedAtInitialized = false;
+
 	/**
 	 * Person ids already traced.
 	 */
@@ -142,14 +158,14 @@ public class ConfigurableProgressionModel extends AbstractProgressionModel {
 		LocalDate date = episimConfig.getStartDate().plusDays(day - 1);
 
 		// Default capacity if none is set
-		tracingCapacity = EpisimUtils.findValidEntry(tracingConfig.getTracingCapacity(), Integer.MAX_VALUE, date);
+		tracingCapacity = tracingConfig.getTracingCapacityFunction().get(date, Integer.MAX_VALUE);
 
 		// scale by sample size
 		if (tracingCapacity != Integer.MAX_VALUE)
 			tracingCapacity *= episimConfig.getSampleSize();
 
-		tracingProb = EpisimUtils.findValidEntry(tracingConfig.getTracingProbability(), 1.0, date);
-		tracingDelay = EpisimUtils.findValidEntry(tracingConfig.getTracingDelay(), 0, date);
+		tracingProb = tracingConfig.getTracingProbabilityFunction().get(date, 1.0);
+		tracingDelay = tracingConfig.getTracingDelayFunction().get(date, 0);
 	}
 
 	@Override
@@ -224,8 +240,7 @@ public class ConfigurableProgressionModel extends AbstractProgressionModel {
 			}
 
 			// count infections at locations
-			if (tracingConfig.getStrategy() == TracingConfigGroup.Strategy.LOCATION ||
-					tracingConfig.getStrategy() == TracingConfigGroup.Strategy.LOCATION_WITH_TESTING) {
+			if (isLocationBased()) {
 				// persons with no infection container have been initially infected
 				if (person.getInfectionContainer() != null && person.getInfectionType() != null) {
 					String container = person.getInfectionContainer().toString();
@@ -238,11 +253,82 @@ public class ConfigurableProgressionModel extends AbstractProgressionModel {
 		}
 	}
 
+	/**
+	 * Whether the tracing strategy needs the infection locations.
+	 */
+	private boolean isLocationBased() {
+		return tracingConfig.getStrategy() == TracingConfigGroup.Strategy.LOCATION ||
+				tracingConfig.getStrategy() == TracingConfigGroup.Strategy.LOCATION_WITH_TESTING;
+	}
+
+	@Override
+	public final void onInfection(EpisimPerson person) {
+
+		// infections before initialization will be found when the index is built
+		if (!infectedAtInitialized || person.getInfectionContainer() == null)
+			return;
+
+		addInfected(person);
+	}
+
+	/**
+	 * Insert a person into {@link #infectedAt}, keeping the order of the person map.
+	 */
+	private void addInfected(EpisimPerson person) {
+
+		List<EpisimPerson> list = infectedAt.computeIfAbsent(person.getInfectionContainer(), k -> new ArrayList<>());
+
+		// persons infected multiple times at the same location are only contained once
+		int idx = Collections.binarySearch(list, person, BY_INDEX);
+		if (idx < 0)
+			list.add(-idx - 1, person);
+	}
+
+	/**
+	 * Remove persons that have been infected elsewhere in the meantime or before the look-back window of location based tracing.
+	 * The window covers the quarantine duration and the tracing day distance, persons infected earlier are not put into quarantine anymore.
+	 */
+	private void pruneInfectedAt(int day) {
+
+		int window = tracingConfig.getQuarantineDuration() + tracingConfig.getTracingDayDistance();
+
+		Iterator<Map.Entry<Id<ActivityFacility>, List<EpisimPerson>>> it = infectedAt.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Id<ActivityFacility>, List<EpisimPerson>> e = it.next();
+
+			e.getValue().removeIf(p -> p.getInfectionContainer() != e.getKey() ||
+					(p.hadDiseaseStatus(DiseaseStatus.infectedButNotContagious) && p.daysSince(DiseaseStatus.infectedButNotContagious, day) > window));
+
+			if (e.getValue().isEmpty())
+				it.remove();
+		}
+	}
+
+	/**
+	 * Return all persons that got infected in a container, in the same order as they appear in the person map.
+	 */
+	private List<EpisimPerson> getInfectedAt(Id<ActivityFacility> container) {
+		return infectedAt.getOrDefault(container, List.of());
+	}
+
 	@Override
 	public final void beforeStateUpdates(Map<Id<Person>, EpisimPerson> persons, int day, EpisimReporting.InfectionReport report) {
 
 		double now = EpisimUtils.getCorrectedTime(episimConfig.getStartOffset(), 0, day);
 
+		// index is build once from the current state, e.g. after restoring a snapshot and then updated incrementally
+		if (!infectedAtInitialized && isLocationBased()) {
+			for (EpisimPerson p : persons.values()) {
+				if (p.getInfectionContainer() != null)
+					addInfected(p);
+			}
+
+			infectedAtInitialized = true;
+		}
+
+		if (infectedAtInitialized)
+			pruneInfectedAt(day);
+
 		// perform the location based tracing
 		// there is always a delay of 1 day
 		ObjectIterator<Object2IntMap.Entry<Id<ActivityFacility>>> it = locations.object2IntEntrySet().iterator();
@@ -258,19 +344,16 @@ public class ConfigurableProgressionModel extends AbstractProgressionModel {
 				if (tracingCapacity <= 0)
 					break;
 
-				for (EpisimPerson p : persons.values()) {
-
-					if (p.getInfectionContainer() == e.getKey()) {
+				for (EpisimPerson p : getInfectedAt(e.getKey())) {
 
-						quarantinePerson(p, day);
+					quarantinePerson(p, day);
 
-						if (tracingConfig.getStrategy() == TracingConfigGroup.Strategy.LOCATION) {
-							tracingCapacity--;
-						} else if (tracingConfig.getStrategy() == TracingConfigGroup.Strategy.LOCATION_WITH_TESTING) {
-							// assumes that all contact persons get tested
-							// then quarantines all of their contacts
-							performTracing(p, now, day);
-						}
+					if (tracingConfig.getStrategy() == TracingConfigGroup.Strategy.LOCATION) {
+						tracingCapacity--;
+					} else if (tracingConfig.getStrategy() == TracingConfigGroup.Strategy.LOCATION_WITH_TESTING) {
+						// assumes that all contact persons get tested
+						// then quarantines all of their contacts
+						performTracing(p, now, day);
 					}
 				}
 
@@ -302,7 +385,7 @@ public class ConfigurableProgressionModel extends AbstractProgressionModel {
 			prevShowingSymptoms = report.nShowingSymptomsCumulative;
 
 			LocalDate date = episimConfig.getStartDate().plusDays(day - 1);
-			Double prob = EpisimUtils.findValidEntry(tracingConfig.getTracingProbability(), 1.0, date);
+			Double prob = tracingConfig.getTracingProbabilityFunction().get(date, 1.0);
 
 			// scale probability with config value
 			double p = prob * newCases / report.nTotal();
@@ -345,23 +428,21 @@ public class ConfigurableProgressionModel extends AbstractProgressionModel {
 		//	return;
 		// traced.add(person.getPersonId());
 
-		String homeId = null;
-
 		// quarantine household flag controls direct household and 2nd order household
-		if (tracingConfig.getQuarantineHousehold())
-			homeId = (String) person.getAttributes().getAttribute("homeId");
+		String homeId = tracingConfig.getQuarantineHousehold() ? (String) person.getAttributes().getAttribute("homeId") : null;
 
-		for (EpisimPerson pw : person.getTraceableContactPersons(now - tracingConfig.getTracingDayDistance() * DAY)) {
+		// contacts are visited in order of person id, without copying them first
+		person.visitTraceableContactPersons(now - tracingConfig.getTracingDayDistance() * DAY, pw -> {
 
 			if (tracingConfig.getCapacityType() == TracingConfigGroup.CapacityType.PER_CONTACT_PERSON) {
 				tracingCapacity--;
 				if (tracingCapacity <= 0)
-					break;
+					return false;
 			}
 
 			// don't draw random number when tracing is practically off
 			if (tracingProb == 0 && homeId == null)
-				continue;
+				return true;
 
 			// Persons of the same household are always traced successfully
 			if ((homeId != null && homeId.equals(pw.getAttributes().getAttribute("homeId")))
@@ -370,7 +451,8 @@ public class ConfigurableProgressionModel extends AbstractProgressionModel {
 				log.debug("sending person={} into quarantine because of contact to person={}", pw.getPersonId(), person.getPersonId());
 			}
 
-		}
+			return true;
+		});
 
 		if (tracingConfig.getCapacityType() == TracingConfigGroup.CapacityType.PER_PERSON)
 			tracingCapacity--;
@@ -4,6 +4,7 @@ import com.google.inject.Inject;
 import org.matsim.episim.EpisimConfigGroup;
 import org.matsim.episim.EpisimPerson;
 import org.matsim.episim.policy.Restriction;
+import org.matsim.episim.policy.RestrictionTable;
 
 import java.util.SplittableRandom;
 
@@ -24,4 +25,9 @@ public class DefaultFaceMaskModel implements FaceMaskModel {
 	public FaceMask getWornMask(EpisimPerson person, EpisimConfigGroup.InfectionParams act, Restriction restriction) {
 		return restriction.determineMask(rnd);
 	}
+
+	@Override
+	public FaceMask getWornMask(EpisimPerson person, EpisimConfigGroup.InfectionParams act, RestrictionTable table, int code) {
+		return table.determineMask(code, rnd);
+	}
 }
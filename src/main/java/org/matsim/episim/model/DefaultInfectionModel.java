@@ -8,6 +8,7 @@ import org.matsim.episim.EpisimPerson;
 import org.matsim.episim.VaccinationConfigGroup;
 import org.matsim.episim.VirusStrainConfigGroup;
 import org.matsim.episim.policy.Restriction;
+import org.matsim.episim.policy.RestrictionTable;
 
 import java.util.Map;
 
@@ -24,6 +25,7 @@ public final class DefaultInfectionModel implements InfectionModel {
 	private final VaccinationConfigGroup vaccinationConfig;
 	private final VirusStrainConfigGroup virusStrainConfig;
 	private int iteration;
+	private RestrictionTable table;
 
 	@Inject
 	public DefaultInfectionModel(FaceMaskModel faceMaskModel, Config config) {
@@ -39,13 +41,23 @@ public final class DefaultInfectionModel implements InfectionModel {
 		this.iteration = iteration;
 	}
 
+	@Override
+	public void setRestrictionTable(RestrictionTable table) {
+		this.table = table;
+	}
+
 	@Override
 	public double calcInfectionProbability(EpisimPerson target, EpisimPerson infector, Map<String, Restriction> restrictions,
 	                                       EpisimConfigGroup.InfectionParams act1, EpisimConfigGroup.InfectionParams act2,
 	                                       double contactIntensity, double jointTimeInContainer) {
 
 		// ci corr can not be null, because sim is initialized with non null value
-		double ciCorrection = Math.min(restrictions.get(act1.getContainerName()).getCiCorrection(), restrictions.get(act2.getContainerName()).getCiCorrection());
+		int code1 = act1.getCode();
+		int code2 = act2.getCode();
+
+		// compiled from the passed restrictions if no matching table was set
+		table = RestrictionTable.compile(table, episimConfig, restrictions);
+		double ciCorrection = Math.min(table.getCiCorrection(code1), table.getCiCorrection(code2));
 
 		// note that for 1pct runs, calibParam is of the order of one, which means that for typical times of 100sec or more,
 		// exp( - 1 * 1 * 100 ) \approx 0, and thus the infection proba becomes 1.  Which also means that changes in contactIntensity has
@@ -58,8 +70,8 @@ public final class DefaultInfectionModel implements InfectionModel {
 				* target.getSusceptibility()
 				* susceptibility
 				* strain.getInfectiousness()
-				* maskModel.getWornMask(infector, act2, restrictions.get(act2.getContainerName())).shedding
-				* maskModel.getWornMask(target, act1, restrictions.get(act1.getContainerName())).intake
+				* maskModel.getWornMask(infector, act2, table, code2).shedding
+				* maskModel.getWornMask(target, act1, table, code1).intake
 		);
 	}
 
@@ -3,6 +3,7 @@ package org.matsim.episim.model;
 import org.matsim.episim.EpisimConfigGroup;
 import org.matsim.episim.EpisimPerson;
 import org.matsim.episim.policy.Restriction;
+import org.matsim.episim.policy.RestrictionTable;
 
 /**
  * Model which decides which mask a person is wearing during activity.
@@ -14,4 +15,13 @@ public interface FaceMaskModel {
 	 */
 	FaceMask getWornMask(EpisimPerson person, EpisimConfigGroup.InfectionParams act, Restriction restriction);
 
+	/**
+	 * Return the mask a person is wearing for specific activity, using the compiled restrictions.
+	 *
+	 * @param code code of the activity in the table
+	 */
+	default FaceMask getWornMask(EpisimPerson person, EpisimConfigGroup.InfectionParams act, RestrictionTable table, int code) {
+		return getWornMask(person, act, table.getRestriction(code));
+	}
+
 }
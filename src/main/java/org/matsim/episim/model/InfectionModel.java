@@ -3,6 +3,7 @@ package org.matsim.episim.model;
 import org.matsim.episim.EpisimConfigGroup;
 import org.matsim.episim.EpisimPerson;
 import org.matsim.episim.policy.Restriction;
+import org.matsim.episim.policy.RestrictionTable;
 
 import java.util.Map;
 
@@ -17,6 +18,14 @@ public interface InfectionModel {
 	default void setIteration(int iteration) {
 	}
 
+	/**
+	 * Called at the start of an iteration with the compiled restrictions, which are also passed as map to
+	 * {@link #calcInfectionProbability(EpisimPerson, EpisimPerson, Map, EpisimConfigGroup.InfectionParams, EpisimConfigGroup.InfectionParams, double, double)}.
+	 * The built-in models read restrictions from this table and compile their own one if it was not set or does not match the passed map.
+	 */
+	default void setRestrictionTable(RestrictionTable table) {
+	}
+
 	/**
 	 * Calculates the probability that person {@code infector} infects {@code target}.
 	 *
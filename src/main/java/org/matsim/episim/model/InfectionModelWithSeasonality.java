@@ -5,6 +5,7 @@ import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.episim.*;
 import org.matsim.episim.policy.Restriction;
+import org.matsim.episim.policy.RestrictionTable;
 
 import java.time.LocalDate;
 import java.util.Map;
@@ -27,6 +28,7 @@ public final class InfectionModelWithSeasonality implements InfectionModel {
 
 	private double outdoorFactor;
 	private int iteration;
+	private RestrictionTable table;
 
 	@Inject
 	public InfectionModelWithSeasonality(FaceMaskModel faceMaskModel, SplittableRandom rnd, Config config, EpisimReporting reporting) {
@@ -45,13 +47,23 @@ public final class InfectionModelWithSeasonality implements InfectionModel {
 		reporting.reportOutdoorFraction(this.outdoorFactor, iteration);
 	}
 
+	@Override
+	public void setRestrictionTable(RestrictionTable table) {
+		this.table = table;
+	}
+
 	@Override
 	public double calcInfectionProbability(EpisimPerson target, EpisimPerson infector, Map<String, Restriction> restrictions,
 										   EpisimConfigGroup.InfectionParams act1, EpisimConfigGroup.InfectionParams act2,
 										   double contactIntensity, double jointTimeInContainer) {
 
 		// ci corr can not be null, because sim is initialized with non null value
-		double ciCorrection = Math.min(restrictions.get(act1.getContainerName()).getCiCorrection(), restrictions.get(act2.getContainerName()).getCiCorrection());
+		int code1 = act1.getCode();
+		int code2 = act2.getCode();
+
+		// compiled from the passed restrictions if no matching table was set
+		table = RestrictionTable.compile(table, episimConfig, restrictions);
+		double ciCorrection = Math.min(table.getCiCorrection(code1), table.getCiCorrection(code2));
 
 		// note that for 1pct runs, calibParam is of the order of one, which means that for typical times of 100sec or more,
 		// exp( - 1 * 1 * 100 ) \approx 0, and thus the infection proba becomes 1.  Which also means that changes in contactIntensity has
@@ -64,8 +76,8 @@ public final class InfectionModelWithSeasonality implements InfectionModel {
 				* target.getSusceptibility()
 				* susceptibility
 				* strain.getInfectiousness()
-				* maskModel.getWornMask(infector, act2, restrictions.get(act2.getContainerName())).shedding
-				* maskModel.getWornMask(target, act1, restrictions.get(act1.getContainerName())).intake
+				* maskModel.getWornMask(infector, act2, table, code2).shedding
+				* maskModel.getWornMask(target, act1, table, code1).intake
 				* getIndoorOutdoorFactor(outdoorFactor, rnd, act1, act2)
 		);
 
@@ -54,6 +54,11 @@ public interface ProgressionModel {
 	 */
 	default void afterStateUpdates(Map<Id<Person>, EpisimPerson> persons, int day) {}
 
+	/**
+	 * Called at the end of the day for each person that got infected during the day.
+	 */
+	default void onInfection(EpisimPerson person) {}
+
 	
 	/**
 	 * Checks whether any state transitions are possible. Otherwise the simulation will end.
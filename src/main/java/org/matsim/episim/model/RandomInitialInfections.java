@@ -2,6 +2,8 @@ package org.matsim.episim.model;
 
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -10,14 +12,13 @@ import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.episim.EpisimConfigGroup;
 import org.matsim.episim.EpisimPerson;
+import org.matsim.episim.EpisimReporting;
 import org.matsim.episim.EpisimUtils;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
-import java.util.SplittableRandom;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Randomly infect persons, optionally filtering by age group and district.
@@ -31,10 +32,21 @@ public class RandomInitialInfections implements InitialInfectionHandler {
 
 	private int initialInfectionsLeft;
 
+	/**
+	 * Index of persons matching district and age band, only created once.
+	 */
+	private volatile CandidateIndex index;
+
 	@Inject
-	public RandomInitialInfections(Config config, SplittableRandom rnd) {
+	public RandomInitialInfections(Config config, SplittableRandom rnd, EpisimReporting reporting) {
 		this.episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
 		this.rnd = rnd;
+
+		reporting.addStateListener(p -> {
+			CandidateIndex idx = index;
+			if (idx != null)
+				idx.changed(p);
+		});
 	}
 
 	@Override
@@ -51,33 +63,50 @@ public class RandomInitialInfections implements InitialInfectionHandler {
 
 		LocalDate date = episimConfig.getStartDate().plusDays(iteration - 1);
 
+		if (index == null || !index.isFor(persons, district, lowerAgeBoundaryForInitInfections, upperAgeBoundaryForInitInfections)) {
+			index = new CandidateIndex(persons, district, lowerAgeBoundaryForInitInfections, upperAgeBoundaryForInitInfections);
+		}
+
+		// persons that changed their state are updated in the index
+		index.update();
+
 		int infected = 0;
 
 		for (Map.Entry<VirusStrain, NavigableMap<LocalDate, Integer>> e : episimConfig.getInfections_pers_per_day().entrySet()) {
 
-			int numInfections = EpisimUtils.findValidEntry(e.getValue(), 1, date);
+			int numInfections = episimConfig.getInfectionsPerDayFunction(e.getKey()).get(date, 1);
 
-			List<EpisimPerson> candidates = persons.values().stream()
-					.filter(p -> district == null || district.equals(p.getAttributes().getAttribute("district")))
-					.filter(p -> lowerAgeBoundaryForInitInfections == -1 || (int) p.getAttributes().getAttribute("microm:modeled:age") >= lowerAgeBoundaryForInitInfections)
-					.filter(p -> upperAgeBoundaryForInitInfections == -1 || (int) p.getAttributes().getAttribute("microm:modeled:age") <= upperAgeBoundaryForInitInfections)
-					.filter(p -> p.getDiseaseStatus() == EpisimPerson.DiseaseStatus.susceptible)
-					.collect(Collectors.toList());
+			if (numInfections <= 0)
+				continue;
 
-			if (candidates.size() < numInfections) {
+			if (index.size() < numInfections) {
 				log.warn("Not enough persons match the initial infection requirement, using whole population...");
-				candidates = Lists.newArrayList(persons.values());
-			}
+				List<EpisimPerson> candidates = Lists.newArrayList(persons.values());
 
-			while (numInfections > 0 && initialInfectionsLeft > 0 && candidates.size() > 0) {
-				EpisimPerson randomPerson = candidates.remove(rnd.nextInt(candidates.size()));
-				if (randomPerson.getDiseaseStatus() == EpisimPerson.DiseaseStatus.susceptible) {
-					randomPerson.setInitialInfection(now, e.getKey());
-					log.warn("Person {} has initial infection with {}.", randomPerson.getPersonId(), e.getKey());
-					initialInfectionsLeft--;
-					numInfections--;
-					infected++;
+				while (numInfections > 0 && initialInfectionsLeft > 0 && candidates.size() > 0) {
+					EpisimPerson randomPerson = candidates.remove(rnd.nextInt(candidates.size()));
+					if (randomPerson.getDiseaseStatus() == EpisimPerson.DiseaseStatus.susceptible) {
+						randomPerson.setInitialInfection(now, e.getKey());
+						log.warn("Person {} has initial infection with {}.", randomPerson.getPersonId(), e.getKey());
+						initialInfectionsLeft--;
+						numInfections--;
+						infected++;
+					}
 				}
+
+				// infected candidates are removed from the index
+				index.update();
+				continue;
+			}
+
+			// all persons in the index are susceptible
+			while (numInfections > 0 && initialInfectionsLeft > 0 && index.size() > 0) {
+				EpisimPerson randomPerson = index.remove(rnd.nextInt(index.size()));
+				randomPerson.setInitialInfection(now, e.getKey());
+				log.warn("Person {} has initial infection with {}.", randomPerson.getPersonId(), e.getKey());
+				initialInfectionsLeft--;
+				numInfections--;
+				infected++;
 			}
 		}
 
@@ -94,4 +123,142 @@ public class RandomInitialInfections implements InitialInfectionHandler {
 	public void setInfectionsLeft(int num) {
 		initialInfectionsLeft = num;
 	}
+
+	/**
+	 * Persons matching the district and age band in order of the population. Only susceptible persons are available for sampling.
+	 * <p>
+	 * Available persons are tracked with a Fenwick tree, so that the k-th available person can be found and removed in O(log n).
+	 * This selects the same persons as removing from a list of all susceptible candidates, without shifting its elements.
+	 * Candidates whose state changed are collected from the state listener and only these are re-evaluated by {@link #update()}.
+	 */
+	private static final class CandidateIndex {
+
+		private final Map<Id<Person>, EpisimPerson> persons;
+		private final String district;
+		private final int lower;
+		private final int upper;
+
+		private final EpisimPerson[] candidates;
+
+		/**
+		 * Position of each candidate.
+		 */
+		private final Object2IntMap<EpisimPerson> positions;
+
+		/**
+		 * Whether a candidate is counted as available in the tree.
+		 */
+		private final boolean[] available;
+
+		/**
+		 * Positions of candidates that changed their state since the last update, each one is only added once.
+		 */
+		private final Queue<Integer> changed = new ConcurrentLinkedQueue<>();
+		private final AtomicIntegerArray pending;
+
+		/**
+		 * Fenwick tree (1-based) over the availability of the candidates.
+		 */
+		private final int[] tree;
+		private int size;
+
+		private CandidateIndex(Map<Id<Person>, EpisimPerson> persons, String district, int lower, int upper) {
+			this.persons = persons;
+			this.district = district;
+			this.lower = lower;
+			this.upper = upper;
+
+			this.candidates = persons.values().stream()
+					.filter(p -> district == null || district.equals(p.getAttributes().getAttribute("district")))
+					.filter(p -> lower == -1 || (int) p.getAttributes().getAttribute("microm:modeled:age") >= lower)
+					.filter(p -> upper == -1 || (int) p.getAttributes().getAttribute("microm:modeled:age") <= upper)
+					.toArray(EpisimPerson[]::new);
+
+			this.positions = new Object2IntOpenHashMap<>(candidates.length);
+			this.positions.defaultReturnValue(-1);
+			this.available = new boolean[candidates.length];
+			this.pending = new AtomicIntegerArray(candidates.length);
+			this.tree = new int[candidates.length + 1];
+
+			for (int i = 1; i < tree.length; i++) {
+				positions.put(candidates[i - 1], i - 1);
+
+				if (candidates[i - 1].getDiseaseStatus() == EpisimPerson.DiseaseStatus.susceptible) {
+					available[i - 1] = true;
+					tree[i]++;
+					size++;
+				}
+
+				int parent = i + (i & -i);
+				if (parent < tree.length)
+					tree[parent] += tree[i];
+			}
+		}
+
+		private boolean isFor(Map<Id<Person>, EpisimPerson> persons, String district, int lower, int upper) {
+			return this.persons == persons && Objects.equals(this.district, district) && this.lower == lower && this.upper == upper;
+		}
+
+		/**
+		 * Remember that the state of a person has changed. Can be called concurrently.
+		 */
+		private void changed(EpisimPerson person) {
+			int pos = positions.getInt(person);
+			if (pos >= 0 && pending.compareAndSet(pos, 0, 1))
+				changed.add(pos);
+		}
+
+		/**
+		 * Mark changed candidates as available if they are susceptible, or remove them otherwise.
+		 */
+		private void update() {
+			Integer pos;
+			while ((pos = changed.poll()) != null) {
+				pending.set(pos, 0);
+
+				boolean susceptible = candidates[pos].getDiseaseStatus() == EpisimPerson.DiseaseStatus.susceptible;
+				if (susceptible != available[pos]) {
+					available[pos] = susceptible;
+					add(pos + 1, susceptible ? 1 : -1);
+				}
+			}
+		}
+
+		private void add(int pos, int n) {
+			for (int i = pos; i < tree.length; i += i & -i)
+				tree[i] += n;
+
+			size += n;
+		}
+
+		/**
+		 * Number of available candidates.
+		 */
+		private int size() {
+			return size;
+		}
+
+		/**
+		 * Remove and return the k-th (0-based) available candidate.
+		 */
+		private EpisimPerson remove(int k) {
+
+			// find the smallest position with k+1 available candidates before and at it
+			int pos = 0;
+			int remaining = k + 1;
+			for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+				int next = pos + step;
+				if (next < tree.length && tree[next] < remaining) {
+					pos = next;
+					remaining -= tree[next];
+				}
+			}
+
+			// pos is the last 1-based position before the candidate, which is its 0-based index
+			available[pos] = false;
+			add(pos + 1, -1);
+
+			return candidates[pos];
+		}
+	}
 }
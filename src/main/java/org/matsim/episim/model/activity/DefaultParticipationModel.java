@@ -5,6 +5,7 @@ import com.google.inject.Inject;
 import org.matsim.episim.EpisimConfigGroup;
 import org.matsim.episim.EpisimPerson;
 import org.matsim.episim.VaccinationConfigGroup;
+import org.matsim.episim.model.BernoulliSampler;
 import org.matsim.episim.policy.Restriction;
 
 import java.util.BitSet;
@@ -17,6 +18,7 @@ import java.util.SplittableRandom;
 public class DefaultParticipationModel implements ActivityParticipationModel {
 
 	private final SplittableRandom rnd;
+	private final BernoulliSampler sampler;
 	private final EpisimConfigGroup episimConfig;
 	private final VaccinationConfigGroup vaccinationConfig;
 	private ImmutableMap<String, Restriction> im;
@@ -27,6 +29,7 @@ public class DefaultParticipationModel implements ActivityParticipationModel {
 		this.rnd = rnd;
 		this.episimConfig = episimConfig;
 		this.vaccinationConfig = vaccinationConfig;
+		this.sampler = new BernoulliSampler(rnd, episimConfig.getBernoulliSampling());
 
 		if (episimConfig.getActivityHandling() == EpisimConfigGroup.ActivityHandling.duringContact)
 			throw new IllegalStateException("Participation model can only be used with activityHandling startOfDay");
@@ -36,35 +39,37 @@ public class DefaultParticipationModel implements ActivityParticipationModel {
 	public void setRestrictionsForIteration(int iteration, ImmutableMap<String, Restriction> im) {
 		this.im = im;
 		this.iteration = iteration;
+		this.sampler.reset();
 	}
 
 	@Override
 	public void updateParticipation(EpisimPerson person, BitSet trajectory, int offset, List<EpisimPerson.PerformedActivity> activities) {
 		for (int i = 0; i < activities.size(); i++) {
-			Restriction context = im.get(activities.get(i).params.getContainerName());
+			EpisimConfigGroup.InfectionParams params = activities.get(i).params;
+			Restriction context = im.get(params.getContainerName());
 			double r = context.getRemainingFraction();
 
+			// decisions with a reduced fraction are sampled separately for each activity
+			int reduced = 0;
+
 			// reduce fraction for persons that are not vaccinated
 			if (context.getSusceptibleRf() != null && context.getSusceptibleRf() != 1d) {
 				if (!(person.isRecentlyRecovered(iteration) || (person.getVaccinationStatus() == EpisimPerson.VaccinationStatus.yes &&
-						person.daysSince(EpisimPerson.VaccinationStatus.yes, iteration) > vaccinationConfig.getParams(person.getVaccinationType()).getDaysBeforeFullEffect())))
+						person.daysSince(EpisimPerson.VaccinationStatus.yes, iteration) > vaccinationConfig.getParams(person.getVaccinationType()).getDaysBeforeFullEffect()))) {
 					r *= context.getSusceptibleRf();
+					reduced = 1;
+				}
 			}
 
 			if (context.getVaccinatedRf() != null && context.getVaccinatedRf() != 1d) {
 				if (person.getVaccinationStatus() == EpisimPerson.VaccinationStatus.yes &&
-						person.daysSince(EpisimPerson.VaccinationStatus.yes, iteration) > vaccinationConfig.getParams(person.getVaccinationType()).getDaysBeforeFullEffect())
+						person.daysSince(EpisimPerson.VaccinationStatus.yes, iteration) > vaccinationConfig.getParams(person.getVaccinationType()).getDaysBeforeFullEffect()) {
 					r *= context.getVaccinatedRf();
+					reduced = 2;
+				}
 			}
 
-			if (r == 1.0)
-				trajectory.set(offset + i, true);
-			else if (r == 0.0)
-				trajectory.set(offset + i, false);
-			else
-				trajectory.set(offset + i, rnd.nextDouble() < r);
-
-
+			trajectory.set(offset + i, sampler.sample(params.getCode() * 3 + reduced, r));
 		}
 	}
 }
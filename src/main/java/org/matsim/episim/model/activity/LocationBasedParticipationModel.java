@@ -3,13 +3,17 @@ package org.matsim.episim.model.activity;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.Scenario;
 import org.matsim.episim.EpisimConfigGroup;
 import org.matsim.episim.EpisimPerson;
+import org.matsim.episim.FacilityIndex;
+import org.matsim.episim.model.BernoulliSampler;
 import org.matsim.episim.policy.Restriction;
+import org.matsim.episim.policy.RestrictionTable;
 import org.matsim.facilities.ActivityFacility;
 
-import java.util.*;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * Location based participation model restricts activity participation by the local remaining fraction corresponding
@@ -18,18 +22,20 @@ import java.util.*;
 public class LocationBasedParticipationModel implements ActivityParticipationModel {
 
 	private final SplittableRandom rnd;
+	private final BernoulliSampler sampler;
 	private final EpisimConfigGroup episimConfig;
-	private ImmutableMap<String, Restriction> im;
+	private RestrictionTable table;
 
 	/**
-	 * Map of each ActivityFacility with the corresponding subdistrict
+	 * Shared index with the district of each facility.
 	 */
-	private final Map<String, String> subdistrictFacilities;
+	private final FacilityIndex facilities;
 
 	@Inject
-	public LocationBasedParticipationModel(SplittableRandom rnd, EpisimConfigGroup episimConfig, Scenario scenario) {
+	public LocationBasedParticipationModel(SplittableRandom rnd, EpisimConfigGroup episimConfig, FacilityIndex facilities) {
 		this.rnd = rnd;
 		this.episimConfig = episimConfig;
+		this.sampler = new BernoulliSampler(rnd, episimConfig.getBernoulliSampling());
 
 		if (episimConfig.getActivityHandling() == EpisimConfigGroup.ActivityHandling.duringContact)
 			throw new IllegalStateException("Participation model can only be used with activityHandling startOfDay");
@@ -38,48 +44,38 @@ public class LocationBasedParticipationModel implements ActivityParticipationMod
 			throw new IllegalStateException("LocationBasedParticipationModel can only be used if location based restrictions are used");
 		}
 
-		subdistrictFacilities = new HashMap<>();
-		if (scenario != null && !scenario.getActivityFacilities().getFacilities().isEmpty()) {
-			for (ActivityFacility facility : scenario.getActivityFacilities().getFacilities().values()) {
-				String subdistrictAttributeName = episimConfig.getDistrictLevelRestrictionsAttribute();
-				String subdistrict = (String) facility.getAttributes().getAttribute(subdistrictAttributeName);
-				if (subdistrict != null) {
-					this.subdistrictFacilities.put(facility.getId().toString(), subdistrict);
-				}
-			}
-		}
+		this.facilities = facilities;
 	}
 
 	@Override
 	public void setRestrictionsForIteration(int iteration, ImmutableMap<String, Restriction> im) {
-		this.im = im;
+		this.table = RestrictionTable.compile(episimConfig, im, facilities.getDistricts());
+		this.sampler.reset();
 	}
 
 	@Override
 	public void updateParticipation(EpisimPerson person, BitSet trajectory, int offset, List<EpisimPerson.PerformedActivity> activities) {
 		for (int i = 0; i < activities.size(); i++) {
-			String context = activities.get(i).params.getContainerName();
+			int code = activities.get(i).params.getCode();
 			Id<ActivityFacility> facilityId = activities.get(i).getFacilityId();
 
-			Restriction restriction = im.get(context);
-			double remainingFraction = restriction.getRemainingFraction();
+			double remainingFraction = table.getRemainingFraction(code);
+
+			// decisions are sampled separately for each activity and district
+			int district = -1;
 
 			// Replaces global remaining fraction with local one, if applicable
 			if (facilityId != null) {
-				if (subdistrictFacilities.containsKey(facilityId.toString())) {
-					String subdistrict = subdistrictFacilities.get(facilityId.toString());
-					if (restriction.getLocationBasedRf().containsKey(subdistrict)) {
-						remainingFraction = restriction.getLocationBasedRf().get(subdistrict);
-					}
+				int districtCode = facilities.getDistrictCode(facilityId);
+				double rf = table.getLocationBasedRf(code, districtCode);
+				if (!Double.isNaN(rf)) {
+					remainingFraction = rf;
+					district = districtCode;
 				}
 			}
 
-			if (remainingFraction == 1.0)
-				trajectory.set(offset + i, true);
-			else if (remainingFraction == 0.0)
-				trajectory.set(offset + i, false);
-			else
-				trajectory.set(offset + i, rnd.nextDouble() < remainingFraction);
+			int key = code * (facilities.getDistricts().size() + 1) + district + 1;
+			trajectory.set(offset + i, sampler.sample(key, remainingFraction));
 
 		}
 	}
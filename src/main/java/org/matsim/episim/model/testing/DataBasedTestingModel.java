@@ -10,6 +10,7 @@ import org.matsim.core.config.Config;
 import org.matsim.episim.EpisimConfigGroup;
 import org.matsim.episim.EpisimPerson;
 import org.matsim.episim.EpisimUtils;
+import org.matsim.episim.StepFunction;
 import org.matsim.episim.TestingConfigGroup;
 
 import java.io.IOException;
@@ -30,7 +31,7 @@ public final class DataBasedTestingModel extends DefaultTestingModel {
 	/**
 	 * The testing capacities for each context.
 	 */
-	protected final NavigableMap<LocalDate, Object2IntMap<String>> capacities;
+	protected final StepFunction<LocalDate, Object2IntMap<String>> capacities;
 
 	/**
 	 * Capacities for the current day.
@@ -41,7 +42,7 @@ public final class DataBasedTestingModel extends DefaultTestingModel {
 	DataBasedTestingModel(SplittableRandom rnd, Config config, TestingConfigGroup testingConfig, EpisimConfigGroup episimConfig) {
 		super(rnd, config, testingConfig, null, episimConfig);
 
-		capacities = readActivities();
+		capacities = StepFunction.of(readActivities());
 	}
 
 	/**
@@ -82,7 +83,7 @@ public final class DataBasedTestingModel extends DefaultTestingModel {
 
 		LocalDate date = episimConfig.getStartDate().plusDays(day - 1);
 
-		Object2IntMap<String> local = EpisimUtils.findValidEntry(capacities, null, date);
+		Object2IntMap<String> local = capacities.get(date, null);
 
 		// create copy that will be modified
 		if (local != null) {
@@ -95,6 +96,12 @@ public final class DataBasedTestingModel extends DefaultTestingModel {
 		}
 	}
 
+	@Override
+	public boolean isCapacityLimited() {
+		// capacities from the data are always finite
+		return true;
+	}
+
 	@Override
 	public void performTesting(EpisimPerson person, int day) {
 
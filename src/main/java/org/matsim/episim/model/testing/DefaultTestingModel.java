@@ -6,6 +6,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.Config;
 import org.matsim.episim.*;
+import org.matsim.episim.model.BernoulliSampler;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
@@ -16,7 +17,15 @@ import java.util.*;
  */
 public class DefaultTestingModel implements TestingModel {
 
+	/**
+	 * Maximum number of distinct testing rates that get their own sampling sequence.
+	 */
+	private static final int MAX_RATES = 32;
+
+	private static final int N_TYPES = TestType.values().length;
+
 	protected final SplittableRandom rnd;
+	protected final BernoulliSampler sampler;
 	protected final VaccinationConfigGroup vaccinationConfig;
 	protected final EpisimConfigGroup episimConfig;
 	protected final TestingConfigGroup testingConfig;
@@ -34,6 +43,11 @@ public class DefaultTestingModel implements TestingModel {
 
 	private final Map<TestType, Object2DoubleMap<String>> testingRateForActivitiesVaccinated = new EnumMap<>(TestType.class);
 
+	/**
+	 * Distinct testing rates seen so far, the index is part of the sampling key.
+	 */
+	private double[] rates = new double[0];
+
 	/**
 	 * Ids of households that are not compliant.
 	 */
@@ -56,11 +70,14 @@ public class DefaultTestingModel implements TestingModel {
 		this.testingConfig = testingConfig;
 		this.vaccinationConfig = vaccinationConfig;
 		this.episimConfig = episimConfig;
+		this.sampler = new BernoulliSampler(rnd, episimConfig.getBernoulliSampling());
 	}
 
 	@Override
 	public void setIteration(int day) {
 
+		sampler.reset();
+
 		LocalDate date = episimConfig.getStartDate().plusDays(day - 1);
 
 		testAllPersons = testingConfig.getTestAllPersonsAfter() != null && date.isAfter(testingConfig.getTestAllPersonsAfter());
@@ -68,7 +85,7 @@ public class DefaultTestingModel implements TestingModel {
 
 		for (TestingConfigGroup.TestingParams params : testingConfig.getTestingParams()) {
 
-			int testingCapacity = EpisimUtils.findValidEntry(params.getTestingCapacity(), 0, date);
+			int testingCapacity = params.getTestingCapacityFunction().get(date, 0);
 			if (testingCapacity != Integer.MAX_VALUE)
 				testingCapacity *= episimConfig.getSampleSize();
 
@@ -78,6 +95,12 @@ public class DefaultTestingModel implements TestingModel {
 		}
 	}
 
+	@Override
+	public boolean isCapacityLimited() {
+		// zero capacity disables the test type completely, which is independent of the order
+		return testingCapacity.values().stream().anyMatch(c -> c > 0 && c != Integer.MAX_VALUE);
+	}
+
 	@Override
 	public void beforeStateUpdates(Map<Id<Person>, EpisimPerson> personMap, int iteration, EpisimReporting.InfectionReport report) {
 
@@ -168,6 +191,33 @@ public class DefaultTestingModel implements TestingModel {
 
 	}
 
+	/**
+	 * Decide whether a person is tested. Rates vary per person, e.g. by activities or vaccination status,
+	 * so there is one sampling sequence for each test type and distinct rate.
+	 */
+	boolean sampleTest(TestType type, double testingRate) {
+
+		int idx = -1;
+		for (int i = 0; i < rates.length; i++) {
+			if (rates[i] == testingRate) {
+				idx = i;
+				break;
+			}
+		}
+
+		if (idx == -1) {
+			// too many distinct rates, sample each decision on its own
+			if (rates.length >= MAX_RATES)
+				return rnd.nextDouble() < testingRate;
+
+			idx = rates.length;
+			rates = Arrays.copyOf(rates, idx + 1);
+			rates[idx] = testingRate;
+		}
+
+		return sampler.sample(idx * N_TYPES + type.ordinal(), testingRate);
+	}
+
 	/**
 	 * Perform testing and quarantine person.
 	 *
@@ -181,7 +231,7 @@ public class DefaultTestingModel implements TestingModel {
 		if (nonCompliantHouseholds.contains(getHomeId(person)))
 			return false;
 
-		if (testingRate != 1d && rnd.nextDouble() >= testingRate)
+		if (!sampleTest(params.getType(), testingRate))
 			return false;
 
 		if (params.getType().shouldDetectNegative(person, day)) {
@@ -26,4 +26,12 @@ public interface TestingModel {
 	 * Called before {@link #performTesting(EpisimPerson, int)}.
 	 */
 	void beforeStateUpdates(Map<Id<Person>, EpisimPerson> personMap, int iteration, EpisimReporting.InfectionReport report);
+
+	/**
+	 * Whether the testing capacity of the current day is limited, i.e. the order in which persons are tested affects the result.
+	 * Models with limited capacity are never executed in parallel.
+	 */
+	default boolean isCapacityLimited() {
+		return true;
+	}
 }
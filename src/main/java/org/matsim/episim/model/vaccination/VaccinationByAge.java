@@ -4,7 +4,6 @@ import com.google.inject.Inject;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.episim.EpisimPerson;
-import org.matsim.episim.EpisimUtils;
 import org.matsim.episim.VaccinationConfigGroup;
 import org.matsim.episim.model.VaccinationType;
 
@@ -29,27 +28,48 @@ public class VaccinationByAge implements VaccinationModel {
 	}
 
 	/**
-	 * Return an array where we have for each age (in years) an ArrayList of Persons that are qualified for a vaccination
+	 * Persons the candidate indices have been build for.
 	 */
-	List<EpisimPerson>[] collectPerAge(Map<Id<Person>, EpisimPerson> persons, int iteration, boolean reVaccination) {
-		final List<EpisimPerson>[] perAge = new List[MAX_AGE];
-
-		for (int i = 0; i < MAX_AGE; i++)
-			perAge[i] = new ArrayList<>();
-
-		for (EpisimPerson p : persons.values()) {
-			if (
-					p.isVaccinable() &&
-							p.getDiseaseStatus() == EpisimPerson.DiseaseStatus.susceptible && !p.isRecentlyRecovered(iteration) &&
-							(p.getVaccinationStatus() == (reVaccination ? EpisimPerson.VaccinationStatus.yes : EpisimPerson.VaccinationStatus.no)) &&
-							(p.getReVaccinationStatus() == EpisimPerson.VaccinationStatus.no) &&
-							(reVaccination ? p.daysSince(EpisimPerson.VaccinationStatus.yes, iteration) >= vaccinationConfig.getParams(p.getVaccinationType()).getBoostWaitPeriod() : true)) {
-
-				perAge[p.getAge()].add(p);
-			}
+	private Map<Id<Person>, EpisimPerson> indexed;
+
+	/**
+	 * Candidates for first and re-vaccination. Only updated when the vaccination status of persons changes.
+	 */
+	private VaccinationCandidates candidates;
+	private VaccinationCandidates reCandidates;
+
+	/**
+	 * Return the index of persons that are qualified for a vaccination, for each age (in years).
+	 */
+	VaccinationCandidates getCandidates(Map<Id<Person>, EpisimPerson> persons, int iteration, boolean reVaccination) {
+
+		if (indexed != persons) {
+			indexed = persons;
+			candidates = new VaccinationCandidates(persons.values(), false, vaccinationConfig, MAX_AGE);
+			reCandidates = new VaccinationCandidates(persons.values(), true, vaccinationConfig, MAX_AGE);
 		}
 
-		return perAge;
+		if (!reVaccination)
+			return candidates;
+
+		reCandidates.update(iteration);
+		return reCandidates;
+	}
+
+	/**
+	 * Whether a person can be vaccinated, with regards to its disease status.
+	 */
+	protected boolean isEligible(EpisimPerson p, int iteration) {
+		return p.getDiseaseStatus() == EpisimPerson.DiseaseStatus.susceptible && !p.isRecentlyRecovered(iteration);
+	}
+
+	@Override
+	public void vaccinate(EpisimPerson p, int iteration, VaccinationType type, boolean reVaccination) {
+		VaccinationModel.super.vaccinate(p, iteration, type, reVaccination);
+
+		// vaccinated persons will be eligible for re-vaccination later
+		if (!reVaccination && reCandidates != null)
+			reCandidates.add(p);
 	}
 
 	@Override
@@ -59,24 +79,16 @@ public class VaccinationByAge implements VaccinationModel {
 
 		Map<VaccinationType, Double> prob = vaccinationConfig.getVaccinationTypeProb(date);
 
-		final List<EpisimPerson>[] perAge = collectPerAge(persons, iteration, reVaccination);
+		VaccinationCandidates perAge = getCandidates(persons, iteration, reVaccination);
 
 		int age = MAX_AGE - 1;
 		int vaccinationsLeft = availableVaccinations;
 
 		while (vaccinationsLeft > 0 && age > MINIMUM_AGE_FOR_VACCINATIONS) {
 
-			List<EpisimPerson> candidates = perAge[age];
-
-			// list is shuffled to avoid eventual bias
-			if (candidates.size() > vaccinationsLeft)
-				Collections.shuffle(perAge[age], new Random(EpisimUtils.getSeed(rnd)));
-
-			for (int i = 0; i < Math.min(candidates.size(), vaccinationsLeft); i++) {
-				EpisimPerson person = candidates.get(i);
-				vaccinate(person, iteration, reVaccination ? null : VaccinationModel.chooseVaccinationType(prob, rnd), reVaccination);
-				vaccinationsLeft--;
-			}
+			// persons are drawn randomly to avoid eventual bias
+			vaccinationsLeft -= perAge.sample(age, vaccinationsLeft, rnd, p -> isEligible(p, iteration),
+					p -> vaccinate(p, iteration, reVaccination ? null : VaccinationModel.chooseVaccinationType(prob, rnd), reVaccination));
 
 			age--;
 		}
@@ -0,0 +1,123 @@
+package org.matsim.episim.model.vaccination;
+
+import org.matsim.episim.EpisimPerson;
+import org.matsim.episim.VaccinationConfigGroup;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Index of persons that may receive a first or re-vaccination, bucketed by age.
+ * <p>
+ * The index is build once from the population and afterwards only updated when the vaccination status of persons changes.
+ * Persons that can only be boosted after the wait period are held back until the iteration they become eligible.
+ * Conditions that depend on the disease status are checked during sampling, so that the cost of a day scales with the number
+ * of drawn persons and not with the size of the population.
+ */
+final class VaccinationCandidates {
+
+	private final boolean reVaccination;
+	private final VaccinationConfigGroup vaccinationConfig;
+	private final List<EpisimPerson>[] perAge;
+
+	/**
+	 * Persons waiting for their boost wait period, by iteration at which they can be re-vaccinated.
+	 */
+	private final TreeMap<Integer, List<EpisimPerson>> pending = new TreeMap<>();
+
+	@SuppressWarnings("unchecked")
+	VaccinationCandidates(Collection<EpisimPerson> persons, boolean reVaccination, VaccinationConfigGroup vaccinationConfig, int maxAge) {
+		this.reVaccination = reVaccination;
+		this.vaccinationConfig = vaccinationConfig;
+		this.perAge = new List[maxAge];
+
+		for (int i = 0; i < maxAge; i++)
+			perAge[i] = new ArrayList<>();
+
+		for (EpisimPerson p : persons) {
+			add(p);
+		}
+	}
+
+	/**
+	 * Whether the vaccination state of a person allows the vaccination of this index at all.
+	 */
+	private boolean matches(EpisimPerson p) {
+		return p.isVaccinable() &&
+				(p.getVaccinationStatus() == (reVaccination ? EpisimPerson.VaccinationStatus.yes : EpisimPerson.VaccinationStatus.no)) &&
+				(p.getReVaccinationStatus() == EpisimPerson.VaccinationStatus.no);
+	}
+
+	/**
+	 * Add a person to the index, if the vaccination state is matching.
+	 */
+	void add(EpisimPerson p) {
+		if (!matches(p))
+			return;
+
+		if (reVaccination) {
+			// iteration at which the wait period is over
+			int eligible = vaccinationConfig.getParams(p.getVaccinationType()).getBoostWaitPeriod() - p.daysSince(EpisimPerson.VaccinationStatus.yes, 0);
+			pending.computeIfAbsent(eligible, k -> new ArrayList<>()).add(p);
+		} else
+			perAge[p.getAge()].add(p);
+	}
+
+	/**
+	 * Moves persons that reached their boost wait period into the index.
+	 */
+	void update(int iteration) {
+		while (!pending.isEmpty() && pending.firstKey() <= iteration) {
+			for (EpisimPerson p : pending.pollFirstEntry().getValue()) {
+				if (matches(p))
+					perAge[p.getAge()].add(p);
+			}
+		}
+	}
+
+	/**
+	 * Number of persons in an age bucket, including those that will not be eligible because of their disease status.
+	 */
+	int size(int age) {
+		return perAge[age].size();
+	}
+
+	/**
+	 * Draw up to {@code n} persons uniformly at random without replacement from an age bucket, using a partial Fisher-Yates shuffle.
+	 * Drawn persons that are not eligible are skipped and do not count.
+	 *
+	 * @param eligible condition depending on the disease status of a person
+	 * @param action   called for each selected person, must change the vaccination status
+	 * @return number of persons selected
+	 */
+	int sample(int age, int n, SplittableRandom rnd, Predicate<EpisimPerson> eligible, Consumer<EpisimPerson> action) {
+
+		List<EpisimPerson> candidates = perAge[age];
+		int size = candidates.size();
+		int end = size;
+		int selected = 0;
+
+		while (selected < n && end > 0) {
+
+			int j = rnd.nextInt(end);
+			EpisimPerson p = candidates.get(j);
+
+			// move drawn person to the end, which is excluded from further draws
+			candidates.set(j, candidates.get(end - 1));
+			candidates.set(end - 1, p);
+			end--;
+
+			if (matches(p) && eligible.test(p)) {
+				action.accept(p);
+				selected++;
+			}
+		}
+
+		// vaccinated persons and persons that became not vaccinable are removed, this touches only the drawn part of the list
+		candidates.subList(end, size).removeIf(p -> !matches(p));
+
+		return selected;
+	}
+
+}
@@ -10,8 +10,8 @@ import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.episim.EpisimPerson;
-import org.matsim.episim.EpisimUtils;
 import org.matsim.episim.InfectionEventHandler;
+import org.matsim.episim.StepFunction;
 import org.matsim.episim.VaccinationConfigGroup;
 import org.matsim.episim.model.VaccinationType;
 import org.matsim.facilities.ActivityFacility;
@@ -43,12 +43,17 @@ public class VaccinationFromData extends VaccinationByAge {
 	/**
 	 * Entries for each day.
 	 */
-	private TreeMap<LocalDate, DoubleList> entries = null;
+	private StepFunction<LocalDate, DoubleList> entries = null;
 
 	/**
 	 * Entries with booster vaccinations for each day.
 	 */
-	private TreeMap<LocalDate, DoubleList> booster = null;
+	private StepFunction<LocalDate, DoubleList> booster = null;
+
+	/**
+	 * Persons for which the vaccinated persons per age group have been counted.
+	 */
+	private Map<Id<Person>, EpisimPerson> counted = null;
 
 	/**
 	 * Config for this class.
@@ -64,7 +69,13 @@ public class VaccinationFromData extends VaccinationByAge {
 	public VaccinationFromData(SplittableRandom rnd, VaccinationConfigGroup vaccinationConfig, org.matsim.episim.model.vaccination.VaccinationFromData.Config config) {
 		super(rnd, vaccinationConfig);
 		this.config = config;
-		this.random = new RandomVaccination(rnd, vaccinationConfig);
+		this.random = new RandomVaccination(rnd, vaccinationConfig) {
+			@Override
+			public void vaccinate(EpisimPerson p, int iteration, VaccinationType type, boolean reVaccination) {
+				// keeps the candidate indices and counts up to date
+				VaccinationFromData.this.vaccinate(p, iteration, type, reVaccination);
+			}
+		};
 	}
 
 	@Override
@@ -73,8 +84,8 @@ public class VaccinationFromData extends VaccinationByAge {
 			throw new IllegalArgumentException("Vaccination file must be set, but was null");
 
 		ageGroups = new ArrayList<>();
-		entries = new TreeMap<>();
-		booster = new TreeMap<>();
+		TreeMap<LocalDate, DoubleList> entries = new TreeMap<>();
+		TreeMap<LocalDate, DoubleList> booster = new TreeMap<>();
 
 		ColumnType[] types = {LOCAL_DATE, STRING, STRING, INTEGER, INTEGER};
 
@@ -113,6 +124,9 @@ public class VaccinationFromData extends VaccinationByAge {
 			throw new UncheckedIOException(e);
 		}
 
+		this.entries = StepFunction.of(entries);
+		this.booster = StepFunction.of(booster);
+
 		// collect population sizes
 		for (EpisimPerson p : persons.values()) {
 			VaccinationFromData.AgeGroup ag = findAgeGroup(p.getAge());
@@ -142,43 +156,18 @@ public class VaccinationFromData extends VaccinationByAge {
 		DoubleList entry;
 
 		if (reVaccination)
-			entry = EpisimUtils.findValidEntry(booster, null, date);
+			entry = booster.get(date, null);
 		else
-			entry = EpisimUtils.findValidEntry(entries, null, date);
+			entry = entries.get(date, null);
 
 		// No vaccinations today
 		if (entry == null)
 			return 0;
 
-		// reset count
-		for (VaccinationFromData.AgeGroup ag : ageGroups) {
-			ag.vaccinated = 0;
-		}
-
-		final List<EpisimPerson>[] perAge = new List[MAX_AGE];
-
-		for (int i = 0; i < MAX_AGE; i++)
-			perAge[i] = new ArrayList<>();
+		VaccinationCandidates perAge = getCandidates(persons, iteration, reVaccination);
 
-		for (EpisimPerson p : persons.values()) {
-
-			VaccinationFromData.AgeGroup ag = findAgeGroup(p.getAge());
-
-			if (ag == null) continue;
-
-			if (p.getVaccinationStatus() == EpisimPerson.VaccinationStatus.yes && (!reVaccination || p.getReVaccinationStatus() == EpisimPerson.VaccinationStatus.yes)) {
-				ag.vaccinated++;
-				continue;
-			}
-
-			if (p.isVaccinable() && p.getDiseaseStatus() == EpisimPerson.DiseaseStatus.susceptible &&
-					//!p.isRecentlyRecovered(iteration) &&
-					(p.getVaccinationStatus() == (reVaccination ? EpisimPerson.VaccinationStatus.yes : EpisimPerson.VaccinationStatus.no)) &&
-					(reVaccination ? p.daysSince(EpisimPerson.VaccinationStatus.yes, iteration) >= vaccinationConfig.getParams(p.getVaccinationType()).getBoostWaitPeriod() : true)
-			) {
-				perAge[p.getAge()].add(p);
-			}
-		}
+		if (counted != persons)
+			countVaccinated(persons);
 
 		Map<VaccinationType, Double> prob = vaccinationConfig.getVaccinationTypeProb(date);
 
@@ -189,24 +178,18 @@ public class VaccinationFromData extends VaccinationByAge {
 			org.matsim.episim.model.vaccination.VaccinationFromData.AgeGroup ag = ageGroups.get(ii);
 			double share = entry.getDouble(ii);
 
-			int vaccinationsLeft = (int) ((ag.size * share) - ag.vaccinated);
+			int vaccinationsLeft = (int) ((ag.size * share) - (reVaccination ? ag.reVaccinated : ag.vaccinated));
 
 			int age = ag.to;
 
 			while (vaccinationsLeft > 0 && age >= ag.from) {
 
-				List<EpisimPerson> candidates = perAge[age];
-
-				// list is shuffled to avoid eventual bias
-				if (candidates.size() > vaccinationsLeft)
-					Collections.shuffle(perAge[age], new Random(EpisimUtils.getSeed(rnd)));
+				// persons are drawn randomly to avoid eventual bias
+				int n = perAge.sample(age, vaccinationsLeft, rnd, p -> isEligible(p, iteration),
+						p -> vaccinate(p, iteration, reVaccination ? null : VaccinationModel.chooseVaccinationType(prob, rnd), reVaccination));
 
-				for (int i = 0; i < Math.min(candidates.size(), vaccinationsLeft); i++) {
-					EpisimPerson person = candidates.get(i);
-					vaccinate(person, iteration, reVaccination ? null : VaccinationModel.chooseVaccinationType(prob, rnd), reVaccination);
-					vaccinationsLeft--;
-					totalVaccinations++;
-				}
+				vaccinationsLeft -= n;
+				totalVaccinations += n;
 
 				age--;
 			}
@@ -217,6 +200,51 @@ public class VaccinationFromData extends VaccinationByAge {
 		return totalVaccinations;
 	}
 
+	/**
+	 * Count the number of vaccinated persons in each age group, which is afterwards updated with each vaccination.
+	 */
+	private void countVaccinated(Map<Id<Person>, EpisimPerson> persons) {
+
+		for (VaccinationFromData.AgeGroup ag : ageGroups) {
+			ag.vaccinated = 0;
+			ag.reVaccinated = 0;
+		}
+
+		for (EpisimPerson p : persons.values()) {
+
+			VaccinationFromData.AgeGroup ag = findAgeGroup(p.getAge());
+
+			if (ag == null) continue;
+
+			if (p.getVaccinationStatus() == EpisimPerson.VaccinationStatus.yes)
+				ag.vaccinated++;
+
+			if (p.getReVaccinationStatus() == EpisimPerson.VaccinationStatus.yes)
+				ag.reVaccinated++;
+		}
+
+		counted = persons;
+	}
+
+	@Override
+	protected boolean isEligible(EpisimPerson p, int iteration) {
+		//!p.isRecentlyRecovered(iteration) &&
+		return p.getDiseaseStatus() == EpisimPerson.DiseaseStatus.susceptible;
+	}
+
+	@Override
+	public void vaccinate(EpisimPerson p, int iteration, VaccinationType type, boolean reVaccination) {
+		super.vaccinate(p, iteration, type, reVaccination);
+
+		VaccinationFromData.AgeGroup ag = findAgeGroup(p.getAge());
+		if (ag != null) {
+			if (reVaccination)
+				ag.reVaccinated++;
+			else
+				ag.vaccinated++;
+		}
+	}
+
 	static Table filterData(Table table, String ageGroup, double population) {
 
 		Selection selection = table.stringColumn("Altersgruppe").isEqualTo(ageGroup);
@@ -275,6 +303,7 @@ public class VaccinationFromData extends VaccinationByAge {
 
 		private int size = 0;
 		private int vaccinated = 0;
+		private int reVaccinated = 0;
 
 		private AgeGroup(int from, int to) {
 			this.from = from;
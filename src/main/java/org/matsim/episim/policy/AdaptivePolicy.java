@@ -27,7 +27,6 @@ import it.unimi.dsi.fastutil.objects.*;
 import org.matsim.episim.EpisimReporting;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -64,9 +63,24 @@ public class AdaptivePolicy extends ShutdownPolicy {
 	private final Config openPolicy;
 
 	/**
-	 * Store incidence for each day.
+	 * Activities with incidence triggers, in config order.
 	 */
-	private final Object2DoubleSortedMap<LocalDate> cumCases = new Object2DoubleAVLTreeMap<>();
+	private final String[] triggerActivities;
+
+	/**
+	 * Incidence threshold to restrict each activity.
+	 */
+	private final double[] restrictAt;
+
+	/**
+	 * Threshold index in {@link #incidence} to open each activity.
+	 */
+	private final int[] openAt;
+
+	/**
+	 * Incidences of the last days.
+	 */
+	private final IncidenceWindow incidence = new IncidenceWindow(INTERVAL_DAY);
 
 	/**
 	 * Whether currently in lockdown.
@@ -82,6 +96,21 @@ public class AdaptivePolicy extends ShutdownPolicy {
 		restrictedPolicy = config.getConfig("restricted-policy");
 		openPolicy = config.getConfig("open-policy");
 		initialPolicy = config.hasPath("init-policy") ? config.getConfig("init-policy") : null;
+
+		int n = incidenceTriggers.entrySet().size();
+		triggerActivities = new String[n];
+		restrictAt = new double[n];
+		openAt = new int[n];
+
+		int i = 0;
+		for (Map.Entry<String, ConfigValue> e : incidenceTriggers.entrySet()) {
+			List<Number> trigger = (List<Number>) e.getValue().unwrapped();
+
+			triggerActivities[i] = e.getKey();
+			openAt[i] = incidence.register(trigger.get(0).doubleValue());
+			restrictAt[i] = trigger.get(1).doubleValue();
+			i++;
+		}
 	}
 
 	/**
@@ -112,38 +141,25 @@ public class AdaptivePolicy extends ShutdownPolicy {
 		LocalDate date = LocalDate.parse(report.date);
 
 		calculateCases(report);
-		Object2DoubleSortedMap<LocalDate> cases = cumCases.tailMap(date.minus(INTERVAL_DAY + 6, ChronoUnit.DAYS));
-
-		Object2DoubleSortedMap<LocalDate> incidence = new Object2DoubleAVLTreeMap<>();
-
-		for (Object2DoubleMap.Entry<LocalDate> from : cases.object2DoubleEntrySet()) {
-			LocalDate until = from.getKey().plusDays(7);
-			if (cases.containsKey(until)) {
-				incidence.put(until, cases.getDouble(until) - cases.getDouble(from.getKey()));
-			} else
-				// if until was not contained, the next ones will not be either
-				break;
-		}
 
 		// for first 7 days, restrictions will stay the same
-		if (incidence.isEmpty())
+		if (incidence.size() == 0)
 			return;
 
 		// TODO: use first incidence to decide whether in lockdown or not
 
-		for (Map.Entry<String, ConfigValue> e : incidenceTriggers.entrySet()) {
+		for (int i = 0; i < triggerActivities.length; i++) {
 
-			String act = e.getKey();
-			List<Double> trigger = (List<Double>) e.getValue().unwrapped();
+			String act = triggerActivities[i];
 
 			if (inLockdown.getBoolean(act)) {
-				if (incidence.values().stream().allMatch(inc -> inc <= trigger.get(0))) {
+				if (incidence.allBelow(openAt[i])) {
 					updateRestrictions(date, openPolicy, act, restrictions.get(act));
 					inLockdown.put(act, false);
 				}
 
 			} else {
-				if (incidence.getDouble(incidence.lastKey()) >= trigger.get(1)) {
+				if (incidence.getIncidence() >= restrictAt[i]) {
 					updateRestrictions(date, restrictedPolicy, act, restrictions.get(act));
 					inLockdown.put(act, true);
 				}
@@ -156,7 +172,7 @@ public class AdaptivePolicy extends ShutdownPolicy {
 	 */
 	private void calculateCases(EpisimReporting.InfectionReport report) {
 		double cases = report.nShowingSymptomsCumulative * (100_000d / report.nTotal());
-		this.cumCases.put(LocalDate.parse(report.date), cases);
+		incidence.add(LocalDate.parse(report.date), cases);
 	}
 
 	private void updateRestrictions(LocalDate start, Config policy, String act, Restriction restriction) {
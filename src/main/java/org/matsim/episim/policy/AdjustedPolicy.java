@@ -56,6 +56,11 @@ public final class AdjustedPolicy extends ShutdownPolicy {
 	 */
 	private final Set<String> excluded = new HashSet<>();
 
+	/**
+	 * Compiled administrative restrictions.
+	 */
+	private RestrictionTimeline admin;
+
 	/**
 	 * Config builder for fixed policy.
 	 */
@@ -116,14 +121,13 @@ public final class AdjustedPolicy extends ShutdownPolicy {
 			simDurations.put(e.getKey(), durations);
 		}
 
-		FixedPolicy.initRestrictions(start, restrictions, config.getConfig("administrative"));
+		admin = new RestrictionTimeline(config.getConfig("administrative"));
+		admin.init(start, restrictions);
 	}
 
 	@Override
 	public void updateRestrictions(EpisimReporting.InfectionReport report, ImmutableMap<String, Restriction> restrictions) {
 
-		Config admin = config.getConfig("administrative");
-
 		LocalDate today = LocalDate.parse(report.date);
 
 		double baseDuration = simDurations.get(today.getDayOfWeek())
@@ -140,7 +144,7 @@ public final class AdjustedPolicy extends ShutdownPolicy {
 
 			double oldFraction = e.getValue().getRemainingFraction();
 
-			Restriction r = FixedPolicy.readForDay(report, admin, e.getKey());
+			Restriction r = admin.forDay(report, e.getKey());
 			if (r != null)
 				e.getValue().update(r);
 
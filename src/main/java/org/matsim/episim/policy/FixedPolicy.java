@@ -29,7 +29,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.episim.EpisimReporting;
 
-import javax.annotation.Nullable;
 import javax.inject.Named;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
@@ -49,6 +48,11 @@ public final class FixedPolicy extends ShutdownPolicy {
 
 	private final double hospitalScale;
 
+	/**
+	 * Restrictions of the config, compiled once.
+	 */
+	private final RestrictionTimeline timeline;
+
 	/**
 	 * Constructor.
 	 */
@@ -56,6 +60,8 @@ public final class FixedPolicy extends ShutdownPolicy {
 	public FixedPolicy(@Named("policy") Config config) {
 		super(config);
 
+		timeline = new RestrictionTimeline(config);
+
 		if (config.hasPath("hospital")) {
 			Config c = config.getConfig("hospital");
 			if (c.hasPath("scale"))
@@ -82,44 +88,21 @@ public final class FixedPolicy extends ShutdownPolicy {
 
 	@Override
 	public void init(LocalDate start, ImmutableMap<String, Restriction> restrictions) {
-		initRestrictions(start, restrictions, config);
+		timeline.init(start, restrictions);
 	}
 
-	/**
-	 * Init restrictions that are before simulation start
-	 */
-	static void initRestrictions(LocalDate start, ImmutableMap<String, Restriction> restrictions, Config config) {
-		for (Map.Entry<String, Restriction> entry : restrictions.entrySet()) {
-
-			// activity name
-			if (!config.hasPath(entry.getKey())) continue;
-
-			Config actConfig = config.getConfig(entry.getKey());
-
-			for (Map.Entry<String, ConfigValue> days : actConfig.root().entrySet()) {
-
-				if (days.getKey().startsWith("day")) continue;
-
-				LocalDate date = LocalDate.parse(days.getKey());
-				if (date.isBefore(start)) {
-					Restriction r = Restriction.fromConfig(actConfig.getConfig(days.getKey()));
-					entry.getValue().update(r);
-
-					if (ShutdownPolicy.REG_HOSPITAL.equals(r.getRemainingFraction()))
-						entry.getValue().setExtrapolate(true);
-
-				}
-			}
-		}
+	@Override
+	public void restore(LocalDate start, ImmutableMap<String, Restriction> restrictions) {
+		timeline.restore(start, restrictions);
 	}
 
 	@Override
 	public void updateRestrictions(EpisimReporting.InfectionReport report, ImmutableMap<String, Restriction> restrictions) {
 		for (Map.Entry<String, Restriction> entry : restrictions.entrySet()) {
 			// activity name
-			if (!config.hasPath(entry.getKey())) continue;
+			if (!timeline.contains(entry.getKey())) continue;
 
-			Restriction r = readForDay(report, config, entry.getKey());
+			Restriction r = timeline.forDay(report, entry.getKey());
 			if (r != null) {
 
 				if (ShutdownPolicy.REG_HOSPITAL.equals(r.getRemainingFraction()))
@@ -142,32 +125,6 @@ public final class FixedPolicy extends ShutdownPolicy {
 		}
 	}
 
-	/**
-	 * Read restriction from map.
-	 */
-	@Nullable
-	static Restriction readForDay(EpisimReporting.InfectionReport report, Config config, String act) {
-
-		if (!config.hasPath(act))
-			return null;
-
-		Config actConfig = config.getConfig(act);
-		String dayKey = "day-" + report.day;
-		String dateKey = report.date;
-
-		// check for day or date config
-		Config dayConfig = null;
-		if (actConfig.hasPath(dayKey))
-			dayConfig = actConfig.getConfig(dayKey);
-		else if (actConfig.hasPath(dateKey))
-			dayConfig = actConfig.getConfig(dateKey);
-
-		if (dayConfig != null) {
-			return Restriction.fromConfig(dayConfig);
-		}
-		return null;
-	}
-
 	/**
 	 * Builder for {@link FixedPolicy} config.
 	 */
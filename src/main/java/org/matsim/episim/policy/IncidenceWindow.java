@@ -0,0 +1,139 @@
+package org.matsim.episim.policy;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Rolling 7-day incidence over a fixed window of days, updated in constant time per day.
+ * <p>
+ * Cumulative cases of the last 8 days are kept in a ring buffer, the incidence of a day is the difference to the value 7 days before.
+ * For each registered threshold the number of consecutive latest days with incidence at or below the threshold is tracked,
+ * so the question whether all incidences of the window stayed below it does not require iterating the window.
+ * Several policy variants can share one window and only register their own thresholds.
+ * <p>
+ * Days have to be added consecutively, a gap or an earlier day discards the previous history.
+ * Adding the latest day again replaces its value.
+ */
+final class IncidenceWindow {
+
+	private static final int DAYS = 7;
+
+	/**
+	 * Number of days considered in the window.
+	 */
+	private final int window;
+
+	/**
+	 * Cumulative cases, indexed by day modulo the buffer size.
+	 */
+	private final double[] cumCases = new double[DAYS + 1];
+
+	private double[] thresholds = new double[0];
+
+	/**
+	 * Consecutive latest days with incidence below each threshold, and the state before the latest day.
+	 */
+	private int[] below = new int[0];
+	private int[] previousBelow = new int[0];
+
+	/**
+	 * First and last day of the current consecutive run of days.
+	 */
+	private long first = Long.MIN_VALUE;
+	private long last = Long.MIN_VALUE;
+
+	private double incidence = Double.NaN;
+
+	/**
+	 * Create a window over {@code window} days of incidences.
+	 */
+	IncidenceWindow(int window) {
+		if (window < 1)
+			throw new IllegalArgumentException("Window must be at least one day");
+
+		this.window = window;
+	}
+
+	/**
+	 * Register a threshold that can be checked with {@link #allBelow(int)}. Must be called before any day is added.
+	 *
+	 * @return index of the threshold
+	 */
+	int register(double threshold) {
+
+		if (last != Long.MIN_VALUE)
+			throw new IllegalStateException("Thresholds must be registered before adding days");
+
+		int idx = thresholds.length;
+		thresholds = Arrays.copyOf(thresholds, idx + 1);
+		thresholds[idx] = threshold;
+		below = new int[thresholds.length];
+		previousBelow = new int[thresholds.length];
+
+		return idx;
+	}
+
+	/**
+	 * Add the cumulative cases of one day.
+	 */
+	void add(LocalDate date, double cases) {
+
+		long day = date.toEpochDay();
+
+		if (day == last) {
+			// replace the latest day
+			System.arraycopy(previousBelow, 0, below, 0, below.length);
+		} else if (day == last + 1 && last != Long.MIN_VALUE) {
+			System.arraycopy(below, 0, previousBelow, 0, below.length);
+			last = day;
+		} else {
+			Arrays.fill(below, 0);
+			Arrays.fill(previousBelow, 0);
+			first = day;
+			last = day;
+		}
+
+		cumCases[slot(day)] = cases;
+
+		if (day - first < DAYS) {
+			incidence = Double.NaN;
+			return;
+		}
+
+		incidence = cases - cumCases[slot(day - DAYS)];
+
+		for (int i = 0; i < thresholds.length; i++) {
+			below[i] = incidence <= thresholds[i] ? below[i] + 1 : 0;
+		}
+	}
+
+	private static int slot(long day) {
+		return (int) Math.floorMod(day, DAYS + 1);
+	}
+
+	/**
+	 * Number of days with an incidence in the window.
+	 */
+	int size() {
+		if (last == Long.MIN_VALUE)
+			return 0;
+
+		return (int) Math.max(0, Math.min(window, last - first - DAYS + 1));
+	}
+
+	/**
+	 * Incidence of the latest day, NaN if not available.
+	 */
+	double getIncidence() {
+		return incidence;
+	}
+
+	/**
+	 * Whether all incidences in the window are at or below the registered threshold.
+	 * Returns true for an empty window.
+	 */
+	boolean allBelow(int threshold) {
+		return below[threshold] >= size();
+	}
+
+}
@@ -49,6 +49,12 @@ public final class Restriction {
 	@Nullable
 	private Set<Id<ActivityFacility>> closed;
 
+	/**
+	 * Closed facilities as bitset over {@link Id#index()}.
+	 */
+	@Nullable
+	private BitSet closedIndex;
+
 	/**
 	 * {@link ClosingHours} when activity is closed.
 	 */
@@ -108,6 +114,8 @@ public final class Restriction {
 
 		if (closed != null) {
 			this.closed = closed.stream().map(s -> Id.create(s, ActivityFacility.class)).collect(Collectors.toSet());
+			this.closedIndex = new BitSet();
+			this.closed.forEach(id -> closedIndex.set(id.index()));
 		}
 
 		// Compute cumulative probabilities
@@ -156,6 +164,8 @@ public final class Restriction {
 
 		if (closed != null) {
 			this.closed = closed.stream().map(s -> Id.create(s, ActivityFacility.class)).collect(Collectors.toSet());
+			this.closedIndex = new BitSet();
+			this.closed.forEach(id -> closedIndex.set(id.index()));
 		}
 	}
 
@@ -385,9 +395,11 @@ public final class Restriction {
 	 * @return adjusted time, unchanged when not in closing hour. Otherwise moved to closing hours
 	 */
 	double calculateOverlap(double sod, boolean adjustFrom) {
-		// seconds of day
-		ClosingHours ch = closingHours;
+		return calculateOverlap(closingHours, sod, adjustFrom);
+	}
 
+	private static double calculateOverlap(ClosingHours ch, double sod, boolean adjustFrom) {
+		// seconds of day
 		if (adjustFrom) {
 			if (ch.overnight)
 				return sod >= ch.from ? ch.length - (sod - ch.from) : ch.length -  (sod + 86400 - ch.from);
@@ -409,17 +421,25 @@ public final class Restriction {
 	 * @return overlap or 0 if the time interval is inside the closing.
 	 */
 	public double overlapWithClosingHour(double from, double to) {
+		return overlapWithClosingHour(closingHours, from, to);
+	}
 
-		if (closingHours == null)
+	/**
+	 * See {@link #overlapWithClosingHour(double, double)}.
+	 *
+	 * @param ch closing hours, may be null
+	 */
+	static double overlapWithClosingHour(@Nullable ClosingHours ch, double from, double to) {
+
+		if (ch == null)
 			return 0;
 
 		// closing of 0-24 needs to be handled separately, as overlap would be infinite
-		if (closingHours.length >= 86400)
+		if (ch.length >= 86400)
 			return Integer.MAX_VALUE;
 
 		double fSod = from % 86400;
 		double tSod = to % 86400;
-		ClosingHours ch = closingHours;
 
 		boolean containsFrom = ch.contains(fSod);
 		boolean containsTo = ch.contains(tSod);
@@ -429,9 +449,9 @@ public final class Restriction {
 			// whole time nullified
 			return to - from;
 		} else if (containsFrom) {
-			return calculateOverlap(fSod, true);
+			return calculateOverlap(ch, fSod, true);
 		} else if (containsTo) {
-			return calculateOverlap(tSod, false);
+			return calculateOverlap(ch, tSod, false);
 
 		} else if (ch.includedIn(fSod, tSod) && (ch.overnight == actOvernight)) {
 			// reduce by time of closing hour length
@@ -475,8 +495,10 @@ public final class Restriction {
 		if (r.getVaccinatedRf() != null)
 			vaccinatedRf = r.getVaccinatedRf();
 
-		if (r.closed != null)
+		if (r.closed != null) {
 			closed = r.closed;
+			closedIndex = r.closedIndex;
+		}
 
 		if (r.closingHours != null)
 			closingHours = r.closingHours;
@@ -606,6 +628,15 @@ public final class Restriction {
 		return closed.contains(containerId);
 	}
 
+	/**
+	 * Closed facilities indexed by {@link Id#index()} of the facility id, or null if none are closed.
+	 * The bitset is shared and must not be modified.
+	 */
+	@Nullable
+	BitSet getClosedIndex() {
+		return closedIndex;
+	}
+
 	@Nullable
 	ClosingHours getClosingHours() {
 		return closingHours;
@@ -0,0 +1,280 @@
+package org.matsim.episim.policy;
+
+import com.google.common.collect.ImmutableMap;
+import org.matsim.episim.EpisimConfigGroup;
+import org.matsim.episim.model.FaceMask;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Restrictions of one iteration compiled into flat arrays, which are indexed by {@link EpisimConfigGroup.InfectionParams#getCode()}.
+ * <p>
+ * The table is build once per iteration from the restriction map and is immutable afterwards, so it can be shared between threads.
+ * Consumers use the code of the activity params directly and read all needed values as primitives,
+ * instead of doing one map lookup and unboxing per value.
+ */
+public final class RestrictionTable {
+
+	/**
+	 * Map this table was compiled from.
+	 */
+	private final Map<String, Restriction> source;
+
+	private final String[] names;
+	private final Restriction[] restrictions;
+
+	/**
+	 * Values not set in a restriction are stored as NaN.
+	 */
+	private final double[] remainingFraction;
+	private final double[] ciCorrection;
+
+	/**
+	 * Group size limits, -1 if not in effect.
+	 */
+	private final int[] maxGroupSize;
+	private final int[] reducedGroupSize;
+
+	/**
+	 * Closing hours, null if there are none.
+	 */
+	private final Restriction.ClosingHours[] closingHours;
+
+	/**
+	 * Closed facilities by {@link org.matsim.api.core.v01.Id#index()}, null if none are closed.
+	 */
+	private final BitSet[] closed;
+
+	/**
+	 * Location based remaining fraction by district code, null if there are none for an activity.
+	 */
+	private final double[][] locationBasedRf;
+
+	/**
+	 * Masks and their cumulative probabilities, in the same order as in {@link Restriction#determineMask(SplittableRandom)}.
+	 */
+	private final FaceMask[][] masks;
+	private final double[][] maskProbabilities;
+
+	private RestrictionTable(EpisimConfigGroup episimConfig, Map<String, Restriction> source, List<String> districts) {
+
+		this.source = source;
+
+		int n = 0;
+		for (EpisimConfigGroup.InfectionParams params : episimConfig.getInfectionParams())
+			n = Math.max(n, params.getCode() + 1);
+
+		names = new String[n];
+		restrictions = new Restriction[n];
+		remainingFraction = new double[n];
+		ciCorrection = new double[n];
+		maxGroupSize = new int[n];
+		reducedGroupSize = new int[n];
+		closingHours = new Restriction.ClosingHours[n];
+		closed = new BitSet[n];
+		locationBasedRf = new double[n][];
+		masks = new FaceMask[n][];
+		maskProbabilities = new double[n][];
+
+		for (EpisimConfigGroup.InfectionParams params : episimConfig.getInfectionParams()) {
+
+			int i = params.getCode();
+			Restriction r = source.get(params.getContainerName());
+
+			names[i] = params.getContainerName();
+			restrictions[i] = r;
+
+			// activities without restriction can not be looked up
+			if (r == null) {
+				remainingFraction[i] = Double.NaN;
+				ciCorrection[i] = Double.NaN;
+				maxGroupSize[i] = -1;
+				reducedGroupSize[i] = -1;
+				masks[i] = new FaceMask[0];
+				maskProbabilities[i] = new double[0];
+				continue;
+			}
+
+			remainingFraction[i] = r.getRemainingFraction() != null ? r.getRemainingFraction() : Double.NaN;
+			ciCorrection[i] = r.getCiCorrection() != null ? r.getCiCorrection() : Double.NaN;
+
+			Integer max = r.getMaxGroupSize();
+			maxGroupSize[i] = max != null && max > -1 ? max : -1;
+
+			Integer reduced = r.getReducedGroupSize();
+			reducedGroupSize[i] = reduced != null && reduced > -1 && reduced != Integer.MAX_VALUE ? reduced : -1;
+
+			closingHours[i] = r.getClosingHours();
+			closed[i] = r.getClosedIndex();
+
+			Map<String, Double> rf = r.getLocationBasedRf();
+			if (rf != null && !rf.isEmpty() && !districts.isEmpty()) {
+				locationBasedRf[i] = new double[districts.size()];
+				for (int j = 0; j < districts.size(); j++) {
+					Double v = rf.get(districts.get(j));
+					locationBasedRf[i][j] = v != null ? v : Double.NaN;
+				}
+			}
+
+			Map<FaceMask, Double> usage = r.getMaskUsage();
+			masks[i] = new FaceMask[usage.size()];
+			maskProbabilities[i] = new double[usage.size()];
+
+			int j = 0;
+			for (Map.Entry<FaceMask, Double> m : usage.entrySet()) {
+				masks[i][j] = m.getKey();
+				maskProbabilities[i][j] = m.getValue();
+				j++;
+			}
+		}
+	}
+
+	/**
+	 * Compile the restrictions of an iteration for all activities of the config. The restrictions must not be changed while the table is in use.
+	 */
+	public static RestrictionTable compile(EpisimConfigGroup episimConfig, Map<String, Restriction> restrictions) {
+		return new RestrictionTable(episimConfig, restrictions, List.of());
+	}
+
+	/**
+	 * Compile the restrictions of an iteration, including location based remaining fractions.
+	 *
+	 * @param districts district names, the index in this list is the district code
+	 */
+	public static RestrictionTable compile(EpisimConfigGroup episimConfig, Map<String, Restriction> restrictions, List<String> districts) {
+		return new RestrictionTable(episimConfig, restrictions, districts);
+	}
+
+	/**
+	 * Returns the given table if it is still valid for the restrictions, otherwise compiles a new one.
+	 *
+	 * @see #isFor(Map)
+	 */
+	public static RestrictionTable compile(@Nullable RestrictionTable table, EpisimConfigGroup episimConfig, Map<String, Restriction> restrictions) {
+		if (table != null && table.isFor(restrictions))
+			return table;
+
+		return compile(episimConfig, restrictions);
+	}
+
+	/**
+	 * Whether this table was compiled from the given map and reflects its current content.
+	 * Mutable maps might have been changed in place, so their entries are compared with the ones this table was compiled from.
+	 */
+	public boolean isFor(Map<String, Restriction> restrictions) {
+		if (restrictions != source)
+			return false;
+
+		if (restrictions instanceof ImmutableMap)
+			return true;
+
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] != null && restrictions.get(names[i]) != this.restrictions[i])
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Original restriction object for values that are not compiled.
+	 */
+	public Restriction getRestriction(int code) {
+		return restrictions[code];
+	}
+
+	public double getRemainingFraction(int code) {
+		double v = remainingFraction[code];
+		if (Double.isNaN(v))
+			throw new IllegalStateException("Remaining fraction for " + names[code] + " is not set");
+
+		return v;
+	}
+
+	public double getCiCorrection(int code) {
+		double v = ciCorrection[code];
+		if (Double.isNaN(v))
+			throw new IllegalStateException("Ci correction for " + names[code] + " is not set");
+
+		return v;
+	}
+
+	/**
+	 * Maximum group size, -1 if there is no limit.
+	 */
+	public int getMaxGroupSize(int code) {
+		return maxGroupSize[code];
+	}
+
+	/**
+	 * Reduced group size, -1 if groups are not reduced.
+	 */
+	public int getReducedGroupSize(int code) {
+		return reducedGroupSize[code];
+	}
+
+	/**
+	 * See {@link Restriction#hasClosingHours()}.
+	 */
+	public boolean hasClosingHours(int code) {
+		return closingHours[code] != null;
+	}
+
+	/**
+	 * Same as {@link Restriction#overlapWithClosingHour(double, double)}.
+	 */
+	public double overlapWithClosingHour(int code, double from, double to) {
+		return Restriction.overlapWithClosingHour(closingHours[code], from, to);
+	}
+
+	/**
+	 * Whether a facility is closed.
+	 *
+	 * @param index {@link org.matsim.api.core.v01.Id#index()} of the facility id
+	 */
+	public boolean isClosed(int code, int index) {
+		BitSet b = closed[code];
+		return b != null && b.get(index);
+	}
+
+	/**
+	 * Location based remaining fraction of a district, NaN if there is none.
+	 *
+	 * @param district district code, negative if unknown
+	 */
+	public double getLocationBasedRf(int code, int district) {
+		double[] rf = locationBasedRf[code];
+		if (rf == null || district < 0 || district >= rf.length)
+			return Double.NaN;
+
+		return rf[district];
+	}
+
+	/**
+	 * Same as {@link Restriction#determineMask(SplittableRandom)}, using the same random numbers.
+	 */
+	public FaceMask determineMask(int code, SplittableRandom rnd) {
+
+		FaceMask[] m = masks[code];
+		if (m.length == 0) return FaceMask.NONE;
+
+		double[] prob = maskProbabilities[code];
+		double p = Double.NaN;
+		for (int i = 0; i < m.length; i++) {
+
+			if (prob[i] == 1d) return m[i];
+			else if (Double.isNaN(p))
+				p = rnd.nextDouble();
+
+			if (p < prob[i])
+				return m[i];
+		}
+
+		throw new IllegalStateException("Could not determine mask. Probabilities are likely wrong.");
+	}
+
+}
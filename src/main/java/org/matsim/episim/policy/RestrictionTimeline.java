@@ -0,0 +1,221 @@
+package org.matsim.episim.policy;
+
+import com.google.common.collect.ImmutableMap;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigValue;
+import org.matsim.episim.EpisimReporting;
+
+import javax.annotation.Nullable;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Dated restrictions of a policy config, compiled once per activity into arrays sorted by day or date.
+ * <p>
+ * Each activity keeps a cursor into its entries, so looking up the restriction of the current day is a constant time operation
+ * as long as days are requested in increasing order. Earlier days are still supported and will reposition the cursor.
+ * Restrictions are parsed only once and must not be modified, they are only used as argument of {@link Restriction#update(Restriction)}.
+ */
+final class RestrictionTimeline {
+
+	private static final String DAY_PREFIX = "day-";
+
+	private final Config config;
+
+	/**
+	 * Compiled entries per activity, activities without config are stored as null.
+	 */
+	private final Map<String, Activity> activities = new HashMap<>();
+
+	RestrictionTimeline(Config config) {
+		this.config = config;
+	}
+
+	/**
+	 * Apply all entries dated before {@code start}, in the order they are defined in the config.
+	 */
+	void init(LocalDate start, ImmutableMap<String, Restriction> restrictions) {
+
+		long startDay = start.toEpochDay();
+
+		for (Map.Entry<String, Restriction> entry : restrictions.entrySet()) {
+
+			Activity act = get(entry.getKey());
+			if (act == null) continue;
+
+			for (int i = 0; i < act.definedDates.length; i++) {
+				if (act.definedDates[i] < startDay) {
+					Restriction r = act.definedRestrictions[i];
+					entry.getValue().update(r);
+
+					if (ShutdownPolicy.REG_HOSPITAL.equals(r.getRemainingFraction()))
+						entry.getValue().setExtrapolate(true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Position the cursors at {@code date} after the restrictions have been restored from a snapshot.
+	 * Entries are not applied again, only the extrapolation flag, which is not part of a snapshot, is set again for dated entries.
+	 */
+	void restore(LocalDate date, ImmutableMap<String, Restriction> restrictions) {
+
+		long day = date.toEpochDay();
+
+		for (Map.Entry<String, Restriction> entry : restrictions.entrySet()) {
+
+			Activity act = get(entry.getKey());
+			if (act == null) continue;
+
+			act.dates.seek(day);
+
+			for (int i = 0; i < act.dates.cursor; i++) {
+				if (ShutdownPolicy.REG_HOSPITAL.equals(act.dates.restrictions[i].getRemainingFraction()))
+					entry.getValue().setExtrapolate(true);
+			}
+		}
+	}
+
+	/**
+	 * Whether there is any config for this activity.
+	 */
+	boolean contains(String act) {
+		return get(act) != null;
+	}
+
+	/**
+	 * Restriction defined for the day of the report. Entries for the simulation day take precedence over entries for the date.
+	 */
+	@Nullable
+	Restriction forDay(EpisimReporting.InfectionReport report, String act) {
+
+		Activity a = get(act);
+		if (a == null)
+			return null;
+
+		Restriction r = a.days.get(report.day);
+		if (r != null)
+			return r;
+
+		if (a.dates.keys.length == 0)
+			return null;
+
+		LocalDate date;
+		try {
+			date = LocalDate.parse(report.date);
+		} catch (DateTimeParseException e) {
+			// can not match any dated entry
+			return null;
+		}
+
+		return a.dates.get(date.toEpochDay());
+	}
+
+	@Nullable
+	private Activity get(String act) {
+
+		if (activities.containsKey(act))
+			return activities.get(act);
+
+		Activity a = config.hasPath(act) ? new Activity(config.getConfig(act)) : null;
+		activities.put(act, a);
+		return a;
+	}
+
+	/**
+	 * Compiled entries of one activity.
+	 */
+	private static final class Activity {
+
+		/**
+		 * Entries by simulation day.
+		 */
+		private final Entries days;
+
+		/**
+		 * Entries by date, as epoch day.
+		 */
+		private final Entries dates;
+
+		/**
+		 * Dated entries in config order, which is used for initialization.
+		 */
+		private final long[] definedDates;
+		private final Restriction[] definedRestrictions;
+
+		private Activity(Config actConfig) {
+
+			TreeMap<Long, Restriction> days = new TreeMap<>();
+			TreeMap<Long, Restriction> dates = new TreeMap<>();
+
+			List<Long> definedDates = new ArrayList<>();
+			List<Restriction> definedRestrictions = new ArrayList<>();
+
+			for (Map.Entry<String, ConfigValue> e : actConfig.root().entrySet()) {
+
+				String key = e.getKey();
+
+				if (key.startsWith("day")) {
+					// other keys would never match a simulation day
+					if (!key.startsWith(DAY_PREFIX)) continue;
+					try {
+						int day = Integer.parseInt(key.substring(DAY_PREFIX.length()));
+						if (key.equals(DAY_PREFIX + day))
+							days.put((long) day, Restriction.fromConfig(actConfig.getConfig(key)));
+					} catch (NumberFormatException ignored) {
+					}
+				} else {
+					long date = LocalDate.parse(key).toEpochDay();
+					Restriction r = Restriction.fromConfig(actConfig.getConfig(key));
+					dates.put(date, r);
+					definedDates.add(date);
+					definedRestrictions.add(r);
+				}
+			}
+
+			this.days = new Entries(days);
+			this.dates = new Entries(dates);
+			this.definedDates = definedDates.stream().mapToLong(Long::longValue).toArray();
+			this.definedRestrictions = definedRestrictions.toArray(new Restriction[0]);
+		}
+	}
+
+	/**
+	 * Sorted keys with their restriction and a cursor pointing to the first key not before the last requested one.
+	 */
+	private static final class Entries {
+
+		private final long[] keys;
+		private final Restriction[] restrictions;
+		private int cursor;
+
+		private Entries(SortedMap<Long, Restriction> map) {
+			keys = map.keySet().stream().mapToLong(Long::longValue).toArray();
+			restrictions = map.values().toArray(new Restriction[0]);
+		}
+
+		/**
+		 * Move the cursor to the first entry with key greater or equal to {@code key}.
+		 */
+		private void seek(long key) {
+
+			// go back if an earlier key is requested
+			if (cursor > 0 && keys[cursor - 1] >= key) {
+				int idx = Arrays.binarySearch(keys, 0, cursor, key);
+				cursor = idx >= 0 ? idx : -idx - 1;
+			}
+
+			while (cursor < keys.length && keys[cursor] < key)
+				cursor++;
+		}
+
+		@Nullable
+		private Restriction get(long key) {
+			seek(key);
+			return cursor < keys.length && keys[cursor] == key ? restrictions[cursor] : null;
+		}
+	}
+
+}
@@ -1,6 +1,8 @@
 package org.matsim.episim.reporting;
 
-import com.lmax.disruptor.*;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SleepingWaitStrategy;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import com.lmax.disruptor.util.DaemonThreadFactory;
@@ -12,155 +14,307 @@ import org.matsim.api.core.v01.events.Event;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Overwrites the default episim writer to do all IO in an extra thread using the {@link Disruptor} library.
+ * Overwrites the default episim writer to do all IO in extra threads using the {@link Disruptor} library.
+ * <p>
+ * Producers only publish references to the content, formatting of events and rows is done by the consumers.
+ * Each target writer is assigned to one consumer, which keeps the order of content per writer. Consumers collect the formatted
+ * content per writer and write it at the end of each batch.
+ * <p>
+ * {@link #flush(Writer)} and {@link #close(Writer)} block until the consumer has written all previous content of the writer,
+ * so that the underlying files can be read or moved afterwards.
  */
-public final class AsyncEpisimWriter extends EpisimWriter implements EventHandler<AsyncEpisimWriter.LogEvent>,
-		EventTranslatorThreeArg<AsyncEpisimWriter.LogEvent, Writer, Event, Double>, Closeable {
+public final class AsyncEpisimWriter extends EpisimWriter implements Closeable {
 
 	private static final Logger log = LogManager.getLogger(AsyncEpisimWriter.class);
+
+	/**
+	 * Size of formatted content after which it will be written even if the batch is not finished.
+	 */
+	private static final int BATCH_SIZE = 65536;
+
 	private final Disruptor<LogEvent> disruptor;
-	private final StringEventTranslator translator = new StringEventTranslator();
-	private final StringArrayEventTranslator arrayTranslator = new StringArrayEventTranslator();
+	private final RingBuffer<LogEvent> ringBuffer;
+	private final int consumers;
 
 	/**
-	 * Constructor.
+	 * Number of times and total time producers waited for free space in the ring buffer.
+	 */
+	private final LongAdder stalls = new LongAdder();
+	private final LongAdder stallTime = new LongAdder();
+
+	/**
+	 * Constructor using one consumer per producer, but at most 4.
 	 *
 	 * @param numProducer Expected number of producer. Does not need to be exact, but has to be larger 1 if there are multiple.
 	 */
 	public AsyncEpisimWriter(int numProducer) {
+		this(numProducer, Math.min(4, numProducer));
+	}
 
+	/**
+	 * Constructor.
+	 *
+	 * @param numProducer Expected number of producer. Does not need to be exact, but has to be larger 1 if there are multiple.
+	 * @param numConsumer Number of threads formatting and writing the content.
+	 */
+	public AsyncEpisimWriter(int numProducer, int numConsumer) {
 		// Specify the size of the ring buffer, must be power of 2.
-		int bufferSize = Math.max(16384, Util.ceilingNextPowerOfTwo(4096 * numProducer));
+		this(numProducer, numConsumer, Math.max(16384, Util.ceilingNextPowerOfTwo(4096 * numProducer)));
+	}
+
+	/**
+	 * Constructor with explicit size of the ring buffer.
+	 *
+	 * @param bufferSize number of entries in the ring buffer, must be a power of 2
+	 */
+	AsyncEpisimWriter(int numProducer, int numConsumer, int bufferSize) {
 
 		disruptor = new Disruptor<>(LogEvent::new, bufferSize, DaemonThreadFactory.INSTANCE, ProducerType.MULTI, new SleepingWaitStrategy());
+		ringBuffer = disruptor.getRingBuffer();
+		consumers = Math.max(1, numConsumer);
+
+		Consumer[] handler = new Consumer[consumers];
+		for (int i = 0; i < consumers; i++) {
+			handler[i] = new Consumer(i);
+		}
 
-		// Connect the handler
-		disruptor.handleEventsWith(this);
+		// Connect the handler, all of them see every event
+		disruptor.handleEventsWith(handler);
 
-		log.info("Using async writer with producer={}, bufferSize={}", numProducer, bufferSize);
+		log.info("Using async writer with producer={}, consumer={}, bufferSize={}", numProducer, consumers, bufferSize);
 
 		disruptor.start();
 	}
 
 	@Override
 	public void append(Writer writer, String[] array) {
-		disruptor.publishEvent(arrayTranslator, writer, array);
+		publish(writer, LogEvent.ROW, array, -1);
 	}
 
 	@Override
 	public void append(Writer writer, String content) {
-		disruptor.publishEvent(translator, writer, content, false);
+		publish(writer, LogEvent.STRING, content, -1);
 	}
 
 	@Override
 	public void append(Writer writer, Event event) {
-		disruptor.publishEvent(this, writer, event, -1d);
+		publish(writer, LogEvent.EVENT, event, -1);
 	}
 
 	@Override
 	public void append(Writer writer, Event event, double correctedTime) {
-		disruptor.publishEvent(this, writer, event, correctedTime);
+		publish(writer, LogEvent.EVENT, event, correctedTime);
 	}
 
 	@Override
 	public void close(Writer writer) {
-		disruptor.publishEvent(translator, writer, null, true);
+		publishAndWait(writer, LogEvent.CLOSE);
 	}
 
 	@Override
-	public void onEvent(LogEvent event, long sequence, boolean endOfBatch) throws Exception {
-
-		if (event.close) {
-			event.writer.close();
-		} else {
-			event.writer.append(event.content);
-			// Flushing is not enabled
-			// Events are async anyway, flushing does not make much sense
-			//if (event.flush)
-			//	event.writer.flush();
-		}
+	public void flush(Writer writer) {
+		publishAndWait(writer, LogEvent.FLUSH);
+	}
+
+	/**
+	 * Publish an event and wait until the consumer has processed it.
+	 */
+	private void publishAndWait(Writer writer, byte type) {
 
-		event.reset();
+		CountDownLatch done = new CountDownLatch(1);
+		publish(writer, type, done, -1);
+
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for writer", e);
+		}
 	}
 
-	@Override
-	public void translateTo(LogEvent event, long sequence, Writer arg0, Event arg1, Double arg2) {
-		event.writer = arg0;
-		event.flush = false;
+	/**
+	 * Claim the next slot of the ring buffer and store the reference to the content.
+	 */
+	private void publish(Writer writer, byte type, Object content, double correctedTime) {
+
+		long sequence;
+		if (ringBuffer.hasAvailableCapacity(1))
+			sequence = ringBuffer.next();
+		else {
+			long start = System.nanoTime();
+			sequence = ringBuffer.next();
+			stallTime.add(System.nanoTime() - start);
+			stalls.increment();
+		}
+
 		try {
-			EpisimWriter.writeEvent(event.content, arg1, arg2);
-		} catch (IOException e) {
-			log.error("Could not append event");
+			LogEvent event = ringBuffer.get(sequence);
+			event.writer = writer;
+			event.consumer = Math.floorMod(System.identityHashCode(writer), consumers);
+			event.type = type;
+			event.content = content;
+			event.correctedTime = correctedTime;
+		} finally {
+			ringBuffer.publish(sequence);
 		}
 	}
 
+	/**
+	 * Number of entries currently waiting in the ring buffer.
+	 */
+	public long getOccupancy() {
+		return ringBuffer.getBufferSize() - ringBuffer.remainingCapacity();
+	}
+
+	/**
+	 * Size of the ring buffer.
+	 */
+	public int getBufferSize() {
+		return ringBuffer.getBufferSize();
+	}
+
+	/**
+	 * Number of times a producer had to wait because the ring buffer was full.
+	 */
+	public long getStalls() {
+		return stalls.sum();
+	}
+
+	/**
+	 * Total time producers waited because the ring buffer was full.
+	 */
+	public long getStallTime(TimeUnit unit) {
+		return unit.convert(stallTime.sum(), TimeUnit.NANOSECONDS);
+	}
+
 	@Override
 	public void close() throws IOException {
-		log.info("Shutting down...");
+		log.info("Shutting down... Producers waited {} times for {} ms in total.", getStalls(), getStallTime(TimeUnit.MILLISECONDS));
 		disruptor.shutdown();
 	}
 
-	protected static class LogEvent {
+	/**
+	 * Formats and writes the content of all writers assigned to it.
+	 */
+	private static final class Consumer implements EventHandler<LogEvent> {
 
-		private static final int BUFFER_SIZE = 120;
+		private final int index;
 
-		private final StringBuilder content = new StringBuilder(BUFFER_SIZE);
-		private Writer writer;
-		private boolean close = false;
-		private boolean flush = true;
+		/**
+		 * Formatted content not yet written, per writer.
+		 */
+		private final Map<Writer, StringBuilder> buffers = new IdentityHashMap<>();
 
-		private void reset() {
-			close = false;
-			flush = true;
-			if (content.capacity() > BUFFER_SIZE) {
-				content.setLength(BUFFER_SIZE);
-				content.trimToSize();
+		private Consumer(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public void onEvent(LogEvent event, long sequence, boolean endOfBatch) {
+
+			if (event.consumer == index) {
+				try {
+					process(event);
+				} catch (IOException e) {
+					log.error("Could not write content", e);
+				} finally {
+					// release the waiting producer of close and flush events
+					if (event.content instanceof CountDownLatch)
+						((CountDownLatch) event.content).countDown();
+				}
+
+				event.reset();
 			}
 
-			content.setLength(0);
+			if (endOfBatch) {
+				for (Map.Entry<Writer, StringBuilder> e : buffers.entrySet()) {
+					try {
+						write(e.getKey(), e.getValue());
+					} catch (IOException ex) {
+						log.error("Could not write content", ex);
+					}
+				}
+			}
 		}
-	}
 
-	/**
-	 * Copy the string to buffer and also set close attribute.
-	 */
-	public static final class StringEventTranslator implements EventTranslatorThreeArg<LogEvent, Writer, String, Boolean> {
+		private void process(LogEvent event) throws IOException {
 
-		@Override
-		public void translateTo(LogEvent event, long sequence, Writer arg0, String arg1, Boolean arg2) {
-
-			event.writer = arg0;
-			if (arg2) {
-				event.close = true;
-			} else {
-				event.content.append(arg1);
-				event.flush = false;
+			Writer writer = event.writer;
+
+			if (event.type == LogEvent.CLOSE) {
+				StringBuilder buffer = buffers.remove(writer);
+				if (buffer != null)
+					write(writer, buffer);
+
+				writer.close();
+				return;
+			}
+
+			StringBuilder buffer = buffers.computeIfAbsent(writer, k -> new StringBuilder(BATCH_SIZE));
+
+			switch (event.type) {
+				case LogEvent.STRING:
+					buffer.append((String) event.content);
+					break;
+				case LogEvent.ROW:
+					String[] array = (String[]) event.content;
+					for (int i = 0; i < array.length; i++) {
+						buffer.append(array[i]);
+						if (i < array.length - 1) buffer.append(SEPARATOR);
+					}
+					buffer.append("\n");
+					break;
+				case LogEvent.EVENT:
+					EpisimWriter.writeEvent(buffer, (Event) event.content, event.correctedTime);
+					break;
+				case LogEvent.FLUSH:
+					write(writer, buffer);
+					writer.flush();
+					return;
+				default:
+					throw new IllegalStateException("Unknown type " + event.type);
+			}
+
+			if (buffer.length() >= BATCH_SIZE)
+				write(writer, buffer);
+		}
+
+		private static void write(Writer writer, StringBuilder buffer) throws IOException {
+			if (buffer.length() > 0) {
+				writer.append(buffer);
+				buffer.setLength(0);
 			}
 		}
 	}
 
 	/**
-	 * Convert MATSim event to log event.
+	 * Entry of the ring buffer, only holding references to the content.
 	 */
-	public static final class StringArrayEventTranslator implements EventTranslatorTwoArg<LogEvent, Writer, String[]> {
+	protected static class LogEvent {
 
-		/**
-		 * Write one line with content separated by separator.
-		 */
-		@Override
-		public void translateTo(LogEvent event, long sequence, Writer arg0, String[] arg1) {
-			event.writer = arg0;
+		private static final byte STRING = 0;
+		private static final byte ROW = 1;
+		private static final byte EVENT = 2;
+		private static final byte CLOSE = 3;
+		private static final byte FLUSH = 4;
 
-			for (int i = 0; i < arg1.length; i++) {
-				event.content.append(arg1[i]);
-				if (i < arg1.length - 1) event.content.append(SEPARATOR);
-			}
+		private Writer writer;
+		private int consumer;
+		private byte type;
+		private Object content;
+		private double correctedTime;
 
-			event.content.append("\n");
+		private void reset() {
+			writer = null;
+			content = null;
 		}
-
 	}
 
 }
@@ -14,6 +14,8 @@ import java.util.Map;
 
 /**
  * Utility class to write reported data into csv files.
+ * <p>
+ * Writing is synchronized on the target writer, so threads and runs writing to different files do not block each other.
  */
 public class EpisimWriter {
 
@@ -134,37 +136,43 @@ public class EpisimWriter {
 	/**
 	 * Append a new row to the writer, columns separated by separator.
 	 */
-	public synchronized void append(Writer writer, String[] array) {
-		try {
-			writer.write(JOINER.join(array));
-			writer.write("\n");
-			writer.flush();
-		} catch (IOException e) {
-			log.error("Could not write content", e);
+	public void append(Writer writer, String[] array) {
+		synchronized (writer) {
+			try {
+				writer.write(JOINER.join(array));
+				writer.write("\n");
+				writer.flush();
+			} catch (IOException e) {
+				log.error("Could not write content", e);
+			}
 		}
 	}
 
 	/**
 	 * Appends plain string to the writer.
 	 */
-	public synchronized void append(Writer writer, String string) {
-		try {
-			writer.write(string);
-			writer.flush();
-		} catch (IOException e) {
-			log.error("Could not write content", e);
+	public void append(Writer writer, String string) {
+		synchronized (writer) {
+			try {
+				writer.write(string);
+				writer.flush();
+			} catch (IOException e) {
+				log.error("Could not write content", e);
+			}
 		}
 	}
 
 	/**
 	 * Appends an event as xml representation to the output.
 	 */
-	public synchronized void append(Writer writer, Event event) {
-		try {
-			writeEvent(writer, event, -1);
-		} catch (IOException e) {
-			log.error("Could not write event");
-			throw new UncheckedIOException(e);
+	public void append(Writer writer, Event event) {
+		synchronized (writer) {
+			try {
+				writeEvent(writer, event, -1);
+			} catch (IOException e) {
+				log.error("Could not write event");
+				throw new UncheckedIOException(e);
+			}
 		}
 	}
 
@@ -173,33 +181,39 @@ public class EpisimWriter {
 	 *
 	 * @see #append(Writer, Event)
 	 */
-	public synchronized void append(Writer writer, Event event, double correctedTime) {
-		try {
-			writeEvent(writer, event, correctedTime);
-		} catch (IOException e) {
-			log.error("Could not write event");
-			throw new UncheckedIOException(e);
+	public void append(Writer writer, Event event, double correctedTime) {
+		synchronized (writer) {
+			try {
+				writeEvent(writer, event, correctedTime);
+			} catch (IOException e) {
+				log.error("Could not write event");
+				throw new UncheckedIOException(e);
+			}
 		}
 	}
 
 	/**
 	 * Close a writer for writing.
 	 */
-	public synchronized void close(Writer writer) {
-		try {
-			writer.close();
-		} catch (IOException e) {
-			log.error("Could not close writer", e);
-			throw new UncheckedIOException(e);
+	public void close(Writer writer) {
+		synchronized (writer) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				log.error("Could not close writer", e);
+				throw new UncheckedIOException(e);
+			}
 		}
 	}
 
-	public synchronized void flush(Writer writer) {
-		try {
-			writer.flush();
-		} catch (IOException e) {
-			log.error("Could not flush writer", e);
-			throw new UncheckedIOException(e);
+	public void flush(Writer writer) {
+		synchronized (writer) {
+			try {
+				writer.flush();
+			} catch (IOException e) {
+				log.error("Could not flush writer", e);
+				throw new UncheckedIOException(e);
+			}
 		}
 	}
 }
@@ -0,0 +1,196 @@
+package org.matsim.episim.reporting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip output stream that compresses fixed size blocks on an executor and writes them in order as concatenated gzip members.
+ * <p>
+ * Concatenated members are part of the gzip format, so the output can be read by {@link java.util.zip.GZIPInputStream} and
+ * other standard gzip readers. The number of blocks in flight is limited, which bounds the memory used.
+ * {@link #flush()} does not cut the current block and only flushes already compressed data.
+ * This stream is not thread-safe.
+ */
+public final class ParallelGZIPOutputStream extends OutputStream {
+
+	/**
+	 * Default size of uncompressed blocks.
+	 */
+	public static final int BLOCK_SIZE = 1 << 20;
+
+	/**
+	 * Pool shared by all streams in this JVM, so that runs executed in parallel don't start their own compression threads.
+	 * Its size is bounded by the number of processors and idle threads are released.
+	 */
+	private static final ExecutorService SHARED;
+
+	static {
+		int n = Runtime.getRuntime().availableProcessors();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(n, n, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+			Thread t = new Thread(r, "episim-compression");
+			t.setDaemon(true);
+			return t;
+		});
+		pool.allowCoreThreadTimeOut(true);
+		SHARED = pool;
+	}
+
+	private final OutputStream out;
+	private final ExecutorService executor;
+	private final int blockSize;
+	private final int maxPending;
+
+	/**
+	 * Compressed blocks in the order they have to be written.
+	 */
+	private final Deque<Future<ByteArrayOutputStream>> pending = new ArrayDeque<>();
+
+	/**
+	 * Current uncompressed block, allocated on first write.
+	 */
+	private byte[] block;
+	private int size;
+	private boolean closed;
+
+	/**
+	 * Set when a block could not be compressed or written, the remaining output is discarded then.
+	 */
+	private boolean failed;
+
+	/**
+	 * Constructor with default block size.
+	 *
+	 * @param out      target stream, will be closed together with this stream
+	 * @param executor executor used for compression
+	 * @param threads  number of threads of the executor
+	 */
+	public ParallelGZIPOutputStream(OutputStream out, ExecutorService executor, int threads) {
+		this(out, executor, threads, BLOCK_SIZE);
+	}
+
+	/**
+	 * Executor with bounded number of threads, which can be used by all streams. It must not be shut down.
+	 */
+	public static ExecutorService sharedExecutor() {
+		return SHARED;
+	}
+
+	ParallelGZIPOutputStream(OutputStream out, ExecutorService executor, int threads, int blockSize) {
+		this.out = out;
+		this.executor = executor;
+		this.blockSize = blockSize;
+		this.maxPending = 2 * Math.max(1, threads);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (block != null && size == block.length)
+			submit();
+		if (block == null)
+			block = new byte[blockSize];
+
+		block[size++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (block != null && size == block.length)
+				submit();
+			if (block == null)
+				block = new byte[blockSize];
+
+			int n = Math.min(len, block.length - size);
+			System.arraycopy(b, off, block, size, n);
+			size += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Submit the current block for compression and write finished blocks if too many are pending.
+	 */
+	private void submit() throws IOException {
+
+		byte[] data = block != null ? block : new byte[0];
+		int length = size;
+
+		pending.add(executor.submit(() -> compress(data, length)));
+
+		block = null;
+		size = 0;
+
+		while (pending.size() >= maxPending)
+			writeNext();
+	}
+
+	private static ByteArrayOutputStream compress(byte[] data, int length) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream(length / 4 + 64);
+		try (GZIPOutputStream gz = new GZIPOutputStream(result, 65536)) {
+			gz.write(data, 0, length);
+		}
+
+		return result;
+	}
+
+	private void writeNext() throws IOException {
+		try {
+			pending.poll().get().writeTo(out);
+		} catch (InterruptedException e) {
+			failed = true;
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while compressing", e);
+		} catch (ExecutionException e) {
+			failed = true;
+			throw new IOException("Could not compress block", e.getCause());
+		} catch (IOException e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (closed)
+			return;
+
+		closed = true;
+
+		try {
+			if (!failed) {
+				// an empty stream still needs one member to be valid gzip
+				if (size > 0 || pending.isEmpty())
+					submit();
+
+				while (!pending.isEmpty())
+					writeNext();
+			}
+		} finally {
+			// blocks left after a failure would otherwise still occupy the executor
+			for (Future<ByteArrayOutputStream> f : pending)
+				f.cancel(true);
+
+			pending.clear();
+			block = null;
+			out.close();
+		}
+	}
+
+}
@@ -33,6 +33,7 @@ import org.matsim.episim.analysis.CreateContactGraph;
 import org.matsim.episim.analysis.ExtractInfectionGraph;
 import org.matsim.episim.analysis.ExtractInfectionsByAge;
 import org.matsim.episim.analysis.RValuesFromEvents;
+import org.matsim.episim.events.EpisimBinaryEventsReader;
 import org.matsim.episim.events.EpisimEventsReader;
 import picocli.AutoComplete;
 import picocli.CommandLine;
@@ -137,7 +138,7 @@ public class AnalysisCommand implements Runnable {
 			List<Path> eventFiles;
 			try {
 				eventFiles = Files.list(events)
-						.filter(p -> p.getFileName().toString().contains("xml.gz"))
+						.filter(p -> p.getFileName().toString().contains("xml.gz") || isBinary(p.getFileName().toString()))
 						.sorted(Comparator.comparing(p -> p.getFileName().toString()))
 						.collect(Collectors.toList());
 			} catch (IOException e) {
@@ -148,7 +149,11 @@ public class AnalysisCommand implements Runnable {
 				try {
 					String name = p.getFileName().toString();
 					callback.accept(name);
-					new EpisimEventsReader(manager).readFile(p.toString());
+
+					if (isBinary(name))
+						new EpisimBinaryEventsReader(manager).readFile(p.toString());
+					else
+						new EpisimEventsReader(manager).readFile(p.toString());
 
 					read.add(name);
 				} catch (UncheckedIOException e) {
@@ -163,7 +168,10 @@ public class AnalysisCommand implements Runnable {
 				while ((entry = ar.getNextEntry()) != null) {
 					callback.accept(entry.getName());
 
-					new EpisimEventsReader(manager).parse(new NonClosingGZIPStream(ar));
+					if (isBinary(entry.getName()))
+						new EpisimBinaryEventsReader(manager).parse(new NonClosingGZIPStream(ar));
+					else
+						new EpisimEventsReader(manager).parse(new NonClosingGZIPStream(ar));
 
 					read.add(entry.getName());
 				}
@@ -225,6 +233,13 @@ public class AnalysisCommand implements Runnable {
 		}
 	}
 
+	/**
+	 * Whether an event file was written in binary format.
+	 */
+	private static boolean isBinary(String name) {
+		return name.endsWith(".bin.gz");
+	}
+
 	private static boolean isEmpty(Path path) {
 		try {
 			return Files.list(path).findFirst().isEmpty();
@@ -0,0 +1,400 @@
+package org.matsim.run;
+
+import com.google.common.base.Splitter;
+import com.google.inject.Binding;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.spi.Element;
+import com.google.inject.spi.Elements;
+import com.google.inject.spi.InstanceBinding;
+import com.google.inject.spi.LinkedKeyBinding;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigRenderOptions;
+import com.typesafe.config.ConfigValue;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.episim.EpisimConfigGroup;
+import org.matsim.episim.PreparedRun;
+import org.matsim.episim.policy.FixedPolicy;
+import org.matsim.episim.policy.ShutdownPolicy;
+
+import javax.annotation.Nullable;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Group of batch runs that simulate the same days at the beginning, which only need to be simulated once.
+ * <p>
+ * Two runs share a prefix if their bindings are equal and their configs only differ in date-keyed values. Such values are
+ * either options in the form {@code date=value;...}, optionally grouped by {@code name>...|...}, or the dated entries of an activity
+ * in the policy config. The runs are guaranteed to be identical before the first date at which any of these values differ.
+ * Option values may be interpolated, thus they are only considered equal up to the last common entry before the difference.
+ */
+final class CommonPrefix {
+
+	private static final Splitter GROUPS = Splitter.on('|');
+	private static final Splitter ENTRIES = Splitter.on(';');
+
+	private static final String EPISIM = "episim";
+
+	/**
+	 * Options that do not influence the simulation.
+	 */
+	private static final Set<String> IGNORED = Set.of(
+			ControlerConfigGroup.GROUP_NAME + ".outputDirectory",
+			ControlerConfigGroup.GROUP_NAME + ".runId",
+			// compared separately
+			EPISIM + ".policyConfig",
+			EPISIM + ".progressionConfig",
+			EPISIM + ".startFromSnapshot",
+			EPISIM + ".snapshotInterval",
+			EPISIM + ".snapshotPrefix",
+			EPISIM + ".snapshotSeed",
+			EPISIM + ".snapshotFormat",
+			EPISIM + ".snapshotCopyOutput",
+			EPISIM + ".snapshotAsync",
+			EPISIM + ".snapshotMaxPending",
+			EPISIM + ".snapshotFullInterval"
+	);
+
+	/**
+	 * Policies that are fully restored from snapshots. Others, like the {@link org.matsim.episim.policy.AdaptivePolicy},
+	 * keep state that is not part of the snapshot, so runs using them always simulate all days on their own.
+	 */
+	private static final Set<Class<? extends ShutdownPolicy>> RESTORABLE = Set.of(FixedPolicy.class);
+
+	/**
+	 * Runs of this group, the first one is used to simulate the prefix.
+	 */
+	final List<PreparedRun.Run> runs = new ArrayList<>();
+
+	/**
+	 * Iteration up to which all runs are identical, exclusive.
+	 */
+	int iteration;
+
+	private CommonPrefix(PreparedRun.Run leader, int iteration) {
+		this.runs.add(leader);
+		this.iteration = iteration;
+	}
+
+	/**
+	 * Group runs by their common prefix. Runs without any other run to share a prefix of at least {@code minPrefix} days form their own group.
+	 * Runs are compared with the first run of each group, so the grouping depends on the order of the runs.
+	 *
+	 * @param bindings      bindings of each run
+	 * @param maxIterations number of days to simulate
+	 */
+	static List<CommonPrefix> group(Map<PreparedRun.Run, Module> bindings, int maxIterations, int minPrefix) {
+
+		List<CommonPrefix> groups = new ArrayList<>();
+
+		for (Map.Entry<PreparedRun.Run, Module> e : bindings.entrySet()) {
+
+			PreparedRun.Run run = e.getKey();
+			EpisimConfigGroup episimConfig = ConfigUtils.addOrGetModule(run.config, EpisimConfigGroup.class);
+
+			CommonPrefix match = null;
+			// runs continuing from a snapshot already skip their prefix
+			if (minPrefix < maxIterations && episimConfig.getStartFromSnapshot() == null && restorable(e.getValue())) {
+				for (CommonPrefix group : groups) {
+
+					PreparedRun.Run leader = group.runs.get(0);
+					if (!sameBindings(bindings.get(leader), e.getValue()))
+						continue;
+
+					LocalDate date = divergence(leader.config, run.config);
+					if (date == null)
+						continue;
+
+					long days = ChronoUnit.DAYS.between(episimConfig.getStartDate(), date);
+					int iteration = (int) Math.min(Math.min(days + 1, maxIterations), group.iteration);
+					if (iteration > minPrefix) {
+						group.iteration = iteration;
+						match = group;
+						break;
+					}
+				}
+			}
+
+			if (match != null)
+				match.runs.add(run);
+			else
+				groups.add(new CommonPrefix(run, episimConfig.getStartFromSnapshot() == null ? maxIterations : 0));
+		}
+
+		return groups;
+	}
+
+	/**
+	 * Whether the policy bound by a module is restored completely from snapshots. Without a binding the default {@link FixedPolicy} is used.
+	 */
+	static boolean restorable(@Nullable Module bindings) {
+		if (bindings == null)
+			return true;
+
+		Key<ShutdownPolicy> key = Key.get(ShutdownPolicy.class);
+		for (Element element : Elements.getElements(bindings)) {
+
+			if (element instanceof LinkedKeyBinding && ((LinkedKeyBinding<?>) element).getKey().equals(key))
+				return RESTORABLE.contains(((LinkedKeyBinding<?>) element).getLinkedKey().getTypeLiteral().getRawType());
+
+			if (element instanceof InstanceBinding && ((InstanceBinding<?>) element).getKey().equals(key))
+				return RESTORABLE.contains(((InstanceBinding<?>) element).getInstance().getClass());
+
+			// policy provided in any other way can not be checked
+			if (element instanceof Binding && ((Binding<?>) element).getKey().equals(key))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Whether two runs use equal bindings. Modules without a meaningful equals method are compared field by field.
+	 */
+	static boolean sameBindings(@Nullable Module a, @Nullable Module b) {
+		if (a == null || b == null)
+			return a == b;
+
+		return a.getClass() == b.getClass() && EqualsBuilder.reflectionEquals(a, b);
+	}
+
+	/**
+	 * Determine the first date at which two configs may lead to different results.
+	 *
+	 * @return {@link LocalDate#MAX} if the configs are equal or null if they differ in other values than dated entries.
+	 */
+	@Nullable
+	static LocalDate divergence(Config a, Config b) {
+
+		Map<String, String> pa = flatten(a);
+		Map<String, String> pb = flatten(b);
+
+		if (!pa.keySet().equals(pb.keySet()))
+			return null;
+
+		LocalDate result = LocalDate.MAX;
+		for (Map.Entry<String, String> e : pa.entrySet()) {
+
+			String other = pb.get(e.getKey());
+			if (Objects.equals(e.getValue(), other))
+				continue;
+
+			LocalDate date = divergence(e.getValue(), other);
+			if (date == null)
+				return null;
+
+			if (date.isBefore(result))
+				result = date;
+		}
+
+		EpisimConfigGroup ea = ConfigUtils.addOrGetModule(a, EpisimConfigGroup.class);
+		EpisimConfigGroup eb = ConfigUtils.addOrGetModule(b, EpisimConfigGroup.class);
+
+		if (!ea.getProgressionConfig().root().equals(eb.getProgressionConfig().root()))
+			return null;
+
+		LocalDate policy = divergence(ea.getPolicy().root(), eb.getPolicy().root(), ea.getStartDate());
+		if (policy == null)
+			return null;
+
+		return policy.isBefore(result) ? policy : result;
+	}
+
+	/**
+	 * All options of a config, including parameter sets.
+	 */
+	private static Map<String, String> flatten(Config config) {
+		Map<String, String> params = new HashMap<>();
+		for (ConfigGroup group : config.getModules().values()) {
+			flatten(group.getName(), group, params);
+		}
+
+		return params;
+	}
+
+	private static void flatten(String prefix, ConfigGroup group, Map<String, String> params) {
+
+		for (Map.Entry<String, String> e : group.getParams().entrySet()) {
+			String key = prefix + "." + e.getKey();
+			if (!IGNORED.contains(key))
+				params.put(key, e.getValue());
+		}
+
+		for (Map.Entry<String, ? extends Collection<? extends ConfigGroup>> e : group.getParameterSets().entrySet()) {
+			int i = 0;
+			for (ConfigGroup set : e.getValue()) {
+				flatten(prefix + "." + e.getKey() + "[" + i++ + "]", set, params);
+			}
+		}
+	}
+
+	/**
+	 * Divergence of two differing option values.
+	 */
+	@Nullable
+	private static LocalDate divergence(@Nullable String a, @Nullable String b) {
+
+		Map<String, NavigableMap<LocalDate, String>> ma = parse(a);
+		Map<String, NavigableMap<LocalDate, String>> mb = parse(b);
+
+		if (ma == null || mb == null || !ma.keySet().equals(mb.keySet()))
+			return null;
+
+		LocalDate result = LocalDate.MAX;
+		for (Map.Entry<String, NavigableMap<LocalDate, String>> e : ma.entrySet()) {
+
+			LocalDate date = firstDifference(e.getValue(), mb.get(e.getKey()));
+			if (date == null)
+				continue;
+
+			// values may be interpolated from the previous entry on
+			NavigableSet<LocalDate> keys = new TreeSet<>(e.getValue().keySet());
+			keys.addAll(mb.get(e.getKey()).keySet());
+
+			LocalDate previous = keys.lower(date);
+			if (previous == null)
+				return null;
+
+			if (previous.plusDays(1).isBefore(result))
+				result = previous.plusDays(1);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parse an option value consisting only of dated entries.
+	 *
+	 * @return dated entries by group name, or null if the value has a different format.
+	 */
+	@Nullable
+	private static Map<String, NavigableMap<LocalDate, String>> parse(@Nullable String value) {
+
+		if (value == null || value.isBlank())
+			return null;
+
+		Map<String, NavigableMap<LocalDate, String>> result = new HashMap<>();
+
+		for (String group : GROUPS.split(value)) {
+
+			String name = "";
+			int idx = group.indexOf('>');
+			if (idx > -1) {
+				name = group.substring(0, idx);
+				group = group.substring(idx + 1);
+			}
+
+			NavigableMap<LocalDate, String> entries = new TreeMap<>();
+			for (String entry : ENTRIES.split(group)) {
+				int eq = entry.indexOf('=');
+				if (eq == -1)
+					return null;
+
+				try {
+					entries.put(LocalDate.parse(entry.substring(0, eq).trim()), entry.substring(eq + 1));
+				} catch (DateTimeParseException e) {
+					return null;
+				}
+			}
+
+			if (result.put(name, entries) != null)
+				return null;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Divergence of two policy configs. Dated entries of an activity are applied at their day, so activities may differ from their first
+	 * differing entry on.
+	 */
+	@Nullable
+	private static LocalDate divergence(ConfigObject a, ConfigObject b, LocalDate startDate) {
+
+		Set<String> keys = new HashSet<>(a.keySet());
+		keys.addAll(b.keySet());
+
+		LocalDate result = LocalDate.MAX;
+		for (String key : keys) {
+
+			ConfigValue va = a.get(key);
+			ConfigValue vb = b.get(key);
+			if (Objects.equals(va, vb))
+				continue;
+
+			NavigableMap<LocalDate, String> ea = dated(va, startDate);
+			NavigableMap<LocalDate, String> eb = dated(vb, startDate);
+
+			if (ea == null || eb == null)
+				return null;
+
+			LocalDate date = firstDifference(ea, eb);
+			if (date != null && date.isBefore(result))
+				result = date;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Entries of an activity in the policy config by their date. Entries by simulation day are converted to their date.
+	 *
+	 * @return null if the value is not an activity.
+	 */
+	@Nullable
+	private static NavigableMap<LocalDate, String> dated(@Nullable ConfigValue value, LocalDate startDate) {
+
+		if (value == null)
+			return new TreeMap<>();
+
+		if (!(value instanceof ConfigObject))
+			return null;
+
+		NavigableMap<LocalDate, String> result = new TreeMap<>();
+		for (Map.Entry<String, ConfigValue> e : ((ConfigObject) value).entrySet()) {
+
+			String key = e.getKey();
+			LocalDate date;
+			try {
+				if (key.startsWith("day-"))
+					date = startDate.plusDays(Long.parseLong(key.substring(4)) - 1);
+				else
+					date = LocalDate.parse(key);
+			} catch (NumberFormatException | DateTimeParseException ex) {
+				return null;
+			}
+
+			String rendered = e.getValue().render(ConfigRenderOptions.concise());
+			// an entry by day and by date for the same day can not be compared
+			if (result.put(date, rendered) != null)
+				return null;
+		}
+
+		return result;
+	}
+
+	/**
+	 * First date at which two dated entries differ, null if they are equal.
+	 */
+	@Nullable
+	private static LocalDate firstDifference(NavigableMap<LocalDate, String> a, NavigableMap<LocalDate, String> b) {
+
+		NavigableSet<LocalDate> keys = new TreeSet<>(a.keySet());
+		keys.addAll(b.keySet());
+
+		for (LocalDate date : keys) {
+			if (!Objects.equals(a.get(date), b.get(date)))
+				return date;
+		}
+
+		return null;
+	}
+
+}
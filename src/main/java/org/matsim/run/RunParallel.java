@@ -43,14 +43,18 @@ import java.io.File;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * Execute one {@link BatchRun} run in parallel. The work can also be distributed across multiple runners,
@@ -109,6 +113,13 @@ public class RunParallel<T> implements Callable<Integer> {
 	@CommandLine.Option(names = "--no-reuse", defaultValue = "false", description = "Don't reuse the scenario and events for the runs.")
 	private boolean noReuse;
 
+	@CommandLine.Option(names = "--reuse-prefix", defaultValue = "false", description = "Simulate days that are identical for multiple runs only once " +
+			"and continue these runs from a snapshot.")
+	private boolean reusePrefix;
+
+	@CommandLine.Option(names = "--min-prefix", defaultValue = "30", description = "Minimum number of identical days for runs to share their prefix.")
+	private int minPrefix;
+
 	@CommandLine.Option(names = "--async-io", defaultValue = "false", description = "Write files asynchronously.")
 	private boolean asyncIO;
 
@@ -192,6 +203,8 @@ public class RunParallel<T> implements Callable<Integer> {
 			infoWriter = CreateBatteryForCluster.writeInfoHeader(output, prepare);
 		}
 
+		Map<PreparedRun.Run, Module> bindings = new LinkedHashMap<>();
+
 		int i = 0;
 		for (PreparedRun.Run run : prepare.runs) {
 
@@ -229,12 +242,50 @@ public class RunParallel<T> implements Callable<Integer> {
 			run.config.controler().setRunId(prepare.setup.getMetadata().name + run.id);
 			run.config.setContext(context);
 
-			futures.add(CompletableFuture.runAsync(
-					new Task(((BatchRun) prepare.setup).getBindings(run.id, run.args), new ParallelModule(run.config, scenario, replay, writer), maxIterations), executor)
-					.exceptionally(t -> {
-						log.error("Task {} failed", outputPath, t);
-						return null;
-					}));
+			bindings.put(run, ((BatchRun) prepare.setup).getBindings(run.id, run.args));
+		}
+
+		// without reuse every run forms its own group
+		List<CommonPrefix> groups = CommonPrefix.group(bindings, maxIterations, reusePrefix ? minPrefix : maxIterations);
+
+		for (CommonPrefix group : groups) {
+
+			CompletableFuture<Void> prefix = CompletableFuture.completedFuture(null);
+
+			if (group.runs.size() > 1) {
+				PreparedRun.Run leader = group.runs.get(0);
+				Path prefixOutput = output.resolve(prepare.getName() + "-prefix" + leader.id);
+
+				// the prefix is simulated with its own copy of the config of the first run
+				Config prefixConfig = ((BatchRun) prepare.setup).prepareConfig(leader.id, leader.args);
+				if (prefixConfig != null) {
+					prefixConfig.setContext(context);
+					if (taskThreads > -1)
+						ConfigUtils.addOrGetModule(prefixConfig, EpisimConfigGroup.class).setThreads(taskThreads);
+				}
+
+				if (prefixConfig == null || !LocalDate.MAX.equals(CommonPrefix.divergence(leader.config, prefixConfig))) {
+					log.warn("Config of run {} could not be recreated, runs {} will simulate their prefix on their own", leader.id,
+							group.runs.stream().map(r -> r.id).collect(Collectors.toList()));
+				} else {
+					log.info("Runs {} share their first {} days", group.runs.stream().map(r -> r.id).collect(Collectors.toList()), group.iteration - 1);
+
+					prefix = CompletableFuture.runAsync(new PrefixTask(group, bindings.get(leader), new ParallelModule(prefixConfig, scenario, replay, writer),
+							prefixOutput), executor);
+				}
+			}
+
+			for (PreparedRun.Run run : group.runs) {
+
+				String outputPath = run.config.controler().getOutputDirectory();
+				Task task = new Task(bindings.get(run), new ParallelModule(run.config, scenario, replay, writer), maxIterations, false);
+
+				futures.add(prefix.thenRunAsync(task, executor)
+						.exceptionally(t -> {
+							log.error("Task {} failed", outputPath, t);
+							return null;
+						}));
+			}
 		}
 
 		if (writeMetadata) {
@@ -288,6 +339,55 @@ public class RunParallel<T> implements Callable<Integer> {
 		}
 	}
 
+	/**
+	 * Simulates the common prefix of a group with a copy of the config of its first run and lets all runs of the group start from its snapshot.
+	 */
+	private static final class PrefixTask implements Runnable {
+
+		private final CommonPrefix group;
+		@Nullable
+		private final Module bindings;
+		private final ParallelModule module;
+		private final Path output;
+
+		private PrefixTask(CommonPrefix group, @Nullable Module bindings, ParallelModule module, Path output) {
+			this.group = group;
+			this.bindings = bindings;
+			this.module = module;
+			this.output = output;
+		}
+
+		@Override
+		public void run() {
+
+			Config config = module.config;
+			EpisimConfigGroup episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
+
+			config.controler().setOutputDirectory(output.toString());
+			config.controler().setRunId(output.getFileName().toString());
+			// only the days before the divergence are simulated, the snapshot is written for the start of the following day
+			episimConfig.setSnapshotInterval(group.iteration);
+			episimConfig.setSnapshotCopyOutput(EpisimConfigGroup.SnapshotCopyOutput.yes);
+
+			new Task(bindings, module, group.iteration - 1, true).run();
+
+			String date = episimConfig.getStartDate().plusDays(group.iteration - 1).toString();
+			Path snapshot = output.resolve(episimConfig.getSnapshotPrefix() + String.format("-%03d-%s.zip", group.iteration, date));
+
+			// the simulation may have ended early
+			if (!Files.exists(snapshot)) {
+				log.warn("Prefix snapshot {} was not written, runs will start from the beginning", snapshot);
+				return;
+			}
+
+			for (PreparedRun.Run run : group.runs) {
+				EpisimConfigGroup c = ConfigUtils.addOrGetModule(run.config, EpisimConfigGroup.class);
+				c.setStartFromSnapshot(snapshot.toString());
+				c.setSnapshotSeed(EpisimConfigGroup.SnapshotSeed.restore);
+			}
+		}
+	}
+
 	private static final class Task implements Runnable {
 
 		private static final AtomicInteger i = new AtomicInteger(0);
@@ -296,11 +396,13 @@ public class RunParallel<T> implements Callable<Integer> {
 		private final Module bindings;
 		private final ParallelModule module;
 		private final int maxIterations;
+		private final boolean snapshotAfter;
 
-		private Task(@Nullable Module bindings, ParallelModule module, int maxIterations) {
+		private Task(@Nullable Module bindings, ParallelModule module, int maxIterations, boolean snapshotAfter) {
 			this.bindings = bindings;
 			this.module = module;
 			this.maxIterations = maxIterations;
+			this.snapshotAfter = snapshotAfter;
 		}
 
 		@Override
@@ -324,7 +426,7 @@ public class RunParallel<T> implements Callable<Integer> {
 
 			EpisimRunner runner = injector.getInstance(EpisimRunner.class);
 
-			runner.run(maxIterations);
+			runner.run(maxIterations, snapshotAfter);
 
 			log.info("Task finished: {}", this.module.config.controler().getOutputDirectory());
 		}
@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 
 
 /**
@@ -139,7 +140,7 @@ public class BMBF210430 implements BatchRun<BMBF210430.Params> {
 //		vaccinationConfig.setCompliancePerAge(vaccinationCompliance);
 
 		if (!params.vaccination.equals("current")) {
-			Map<LocalDate, Integer> vaccinations = vaccinationConfig.getVaccinationCapacity();
+			Map<LocalDate, Integer> vaccinations = new TreeMap<>(vaccinationConfig.getVaccinationCapacity());
 			int population = 4_800_000;
 			double dailyPercentageMay = (2./3.) * (250_000. / 7. / 3_645_000.);
 			double dailyPercentageJune = (2./3.) * (340_000. / 7. / 3_645_000.);
@@ -19,6 +19,7 @@ import org.matsim.run.modules.SnzBerlinWeekScenario2020;
 import javax.annotation.Nullable;
 import java.time.LocalDate;
 import java.util.Map;
+import java.util.TreeMap;
 
 
 /**
@@ -84,8 +85,9 @@ public class HolidayReturnees implements BatchRun<HolidayReturnees.Params> {
 			builder.restrict("2020-10-09", 0.2, "educ_primary", "educ_secondary", "educ_tertiary", "educ_other");
 			builder.restrict("2020-10-25", 0.5, "educ_primary", "educ_secondary", "educ_tertiary", "educ_other");
 
-			Map<LocalDate, Double> prob = tracingConfig.getTracingProbability();
+			Map<LocalDate, Double> prob = new TreeMap<>(tracingConfig.getTracingProbability());
 			prob.put(LocalDate.of(2020, 10, 1), 0.75);
+			tracingConfig.setTracingProbability(prob);
 
 		}
 
@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 
 
 /**
@@ -103,7 +104,7 @@ public class SMTesting implements BatchRun<SMTesting.Params> {
 
 		if (!params.vaccinationRate.equals("current")) {
 			VaccinationConfigGroup vaccinationConfig = ConfigUtils.addOrGetModule(config, VaccinationConfigGroup.class);
-			Map<LocalDate, Integer> vaccinations = vaccinationConfig.getReVaccinationCapacity();
+			Map<LocalDate, Integer> vaccinations = new TreeMap<>(vaccinationConfig.getReVaccinationCapacity());
 			vaccinations.put(restrictionDate, (int) (Double.parseDouble(params.vaccinationRate) * 4./3.));
 			vaccinationConfig.setVaccinationCapacity_pers_per_day(vaccinations);
 		}
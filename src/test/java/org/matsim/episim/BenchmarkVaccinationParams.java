@@ -0,0 +1,85 @@
+package org.matsim.episim;
+
+import org.matsim.episim.model.VaccinationType;
+import org.matsim.episim.model.VirusStrain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkVaccinationParams {
+
+	private VaccinationConfigGroup.VaccinationParams params;
+	private VaccinationConfigGroup.Parameter parameter;
+
+	private VirusStrain[] strains;
+	private int[] days;
+
+	public static void main(String[] args) throws RunnerException {
+
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkVaccinationParams.class.getSimpleName())
+				.warmupTime(TimeValue.seconds(5)).warmupIterations(3)
+				.measurementTime(TimeValue.seconds(10)).measurementIterations(5)
+				.forks(1)
+				.build();
+
+		new Runner(opt).run();
+	}
+
+	@Setup
+	public void setup() {
+
+		parameter = VaccinationConfigGroup.forStrain(VirusStrain.SARS_CoV_2)
+				.atDay(1, 0)
+				.atDay(7, 0.45)
+				.atDay(21, 0.8)
+				.atFullEffect(0.9)
+				.atDay(150, 0.6)
+				.atDay(300, 0.3);
+
+		params = new VaccinationConfigGroup().getOrAddParams(VaccinationType.mRNA)
+				.setDaysBeforeFullEffect(35)
+				.setEffectiveness(parameter);
+
+		SplittableRandom rnd = new SplittableRandom(1);
+
+		strains = new VirusStrain[10_000];
+		days = new int[10_000];
+
+		for (int i = 0; i < days.length; i++) {
+			strains[i] = VirusStrain.values()[rnd.nextInt(VirusStrain.values().length)];
+			days[i] = rnd.nextInt(0, 400);
+		}
+	}
+
+	@Benchmark
+	public void interpolate(Blackhole bh) {
+		for (int day : days) {
+			bh.consume(parameter.interpolate(day));
+		}
+	}
+
+	@Benchmark
+	public void table(Blackhole bh) {
+		for (int day : days) {
+			bh.consume(parameter.get(day));
+		}
+	}
+
+	@Benchmark
+	public void effectiveness(Blackhole bh) {
+		for (int i = 0; i < days.length; i++) {
+			bh.consume(params.getEffectiveness(strains[i], days[i]));
+		}
+	}
+}
@@ -6,8 +6,7 @@ import org.matsim.api.core.v01.population.Person;
 
 import java.io.*;
 import java.time.DayOfWeek;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -68,6 +67,51 @@ public class EpisimPersonTest {
 
 	}
 
+	@Test
+	public void traceableContacts() {
+
+		EpisimPerson p = EpisimTestUtils.createPerson("work", null);
+
+		List<EpisimPerson> contacts = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			contacts.add(EpisimTestUtils.createPerson("work", null));
+
+		// contacts over several days, not added in order of time or id
+		for (int i = 0; i < contacts.size(); i++) {
+			int day = (i * 7) % 5;
+			p.addTraceableContactPerson(contacts.get((i * 3) % contacts.size()), EpisimUtils.getCorrectedTime(0, 3600 * (i % 10), day));
+		}
+
+		// latest contact overwrites the previous one
+		p.addTraceableContactPerson(contacts.get(0), EpisimUtils.getCorrectedTime(0, 100, 6));
+
+		contacts.sort(Comparator.comparing(EpisimPerson::getPersonId));
+
+		assertThat(p.getTraceableContactPersons(0))
+				.containsExactlyElementsOf(contacts);
+
+		double after = EpisimUtils.getCorrectedTime(0, 3600 * 5, 2);
+		List<EpisimPerson> visited = new ArrayList<>();
+		p.visitTraceableContactPersons(after, visited::add);
+
+		assertThat(visited)
+				.isEqualTo(p.getTraceableContactPersons(after))
+				.isSortedAccordingTo(Comparator.comparing(EpisimPerson::getPersonId))
+				.hasSizeLessThan(contacts.size());
+
+		// visiting stops early
+		visited.clear();
+		p.visitTraceableContactPersons(0, c -> visited.add(c) && visited.size() < 3);
+		assertThat(visited).containsExactlyElementsOf(contacts.subList(0, 3));
+
+		p.clearTraceableContractPersons(after);
+		assertThat(p.getTraceableContactPersons(0))
+				.isEqualTo(p.getTraceableContactPersons(after));
+
+		p.clearTraceableContractPersons(Integer.MAX_VALUE);
+		assertThat(p.getTraceableContactPersons(0)).isEmpty();
+	}
+
 	@Test
 	public void activities() {
 
@@ -156,4 +200,31 @@ public class EpisimPersonTest {
 				.isEqualTo(EpisimPerson.DiseaseStatus.showingSymptoms);
 
 	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void legacySpentTime() throws IOException {
+
+		EpisimPerson p1 = EpisimTestUtils.createPerson("work", null);
+		p1.addSpentTime("work", 3600);
+		p1.addSpentTime("work", 1800);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ObjectOutputStream bout = new ObjectOutputStream(out);
+		p1.write(bout);
+		bout.flush();
+
+		EpisimPerson p2 = EpisimTestUtils.createPerson("c1.0", null);
+		p2.read(new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())), new HashMap<>());
+
+		assertThat(p2.getSpentTime().getDouble("work"))
+				.isEqualTo(5400);
+
+		// moved to the time use of the population once
+		assertThat(p2.removeSpentTime())
+				.containsEntry("work", 5400d);
+
+		assertThat(p2.hasSpentTime()).isFalse();
+		assertThat(p2.getSpentTime()).isEmpty();
+	}
 }
@@ -0,0 +1,94 @@
+package org.matsim.episim;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.episim.events.EpisimPersonStatusEvent;
+import org.matsim.episim.reporting.EpisimWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EpisimReportingTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void singleEventFile() throws IOException {
+
+		String out = tmp.newFolder("output").toString();
+
+		Config config = EpisimTestUtils.createTestConfig();
+		config.controler().setOutputDirectory(out);
+		config.controler().setRunId("test");
+
+		EpisimConfigGroup episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
+		episimConfig.setSingleEventFile(EpisimConfigGroup.SingleEventFile.yes);
+
+		EpisimReporting reporting = new EpisimReporting(config, new EpisimWriter(), EventsUtils.createEventsManager(),
+				new EventFilter(episimConfig, null));
+
+		for (int day = 1; day <= 3; day++) {
+			reporting.reset(day);
+			for (int i = 0; i < day; i++) {
+				reporting.handleEvent(new EpisimPersonStatusEvent(i, Id.createPersonId("p" + day + "_" + i),
+						EpisimPerson.DiseaseStatus.contagious));
+			}
+			reporting.flushEvents();
+		}
+
+		assertThat(Path.of(out, "test.events.tar.part")).exists();
+
+		// the spool is not part of the output
+		Map<String, File> files = new HashMap<>();
+		EpisimUtils.collectFiles(out, out, "test", files);
+		assertThat(files).containsKey("output/events.tar");
+		assertThat(files.keySet()).noneMatch(name -> name.endsWith(".part"));
+
+		reporting.close();
+
+		assertThat(Path.of(out, "test.events.tar.part")).doesNotExist();
+
+		Map<String, String> entries = new LinkedHashMap<>();
+		try (TarArchiveInputStream in = new TarArchiveInputStream(Files.newInputStream(Path.of(out, "test.events.tar")))) {
+			TarArchiveEntry entry;
+			while ((entry = in.getNextTarEntry()) != null) {
+				InputStream gz = new GZIPInputStream(in);
+				entries.put(entry.getName(), IOUtils.toString(gz, StandardCharsets.UTF_8));
+			}
+		}
+
+		assertThat(entries).containsOnlyKeys("day_001.xml.gz", "day_002.xml.gz", "day_003.xml.gz");
+
+		for (int day = 1; day <= 3; day++) {
+			String content = entries.get(String.format("day_%03d.xml.gz", day));
+
+			assertThat(content).startsWith("<?xml").endsWith("</events>");
+			for (int i = 0; i < 3; i++) {
+				if (i < day)
+					assertThat(content).contains("\"p" + day + "_" + i + "\"");
+				else
+					assertThat(content).doesNotContain("\"p" + day + "_" + i + "\"");
+			}
+		}
+	}
+
+}
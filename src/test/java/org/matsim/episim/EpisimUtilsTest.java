@@ -214,4 +214,31 @@ public class EpisimUtilsTest {
 				.isEqualTo(30);
 
 	}
+
+	@Test
+	public void stepFunction() {
+
+		Map<LocalDate, Integer> map = Map.of(
+				LocalDate.of(2020, 3, 1), 10,
+				LocalDate.of(2020, 4, 1), 20,
+				LocalDate.of(2020, 6, 1), 5
+		);
+
+		StepFunction<LocalDate, Integer> f = StepFunction.of(map);
+
+		LocalDate date = LocalDate.of(2020, 1, 1);
+		for (int i = 0; i < 200; i++) {
+			// also checks the cached lookup
+			for (int j = 0; j < 2; j++) {
+				assertThat(f.get(date, -1))
+						.isEqualTo(EpisimUtils.findValidEntry(new TreeMap<>(map), -1, date));
+			}
+			date = date.plusDays(1);
+		}
+
+		assertThat(f.get(LocalDate.of(2020, 4, 1), -1)).isEqualTo(20);
+		assertThat(f.get(LocalDate.of(2019, 4, 1), -1)).isEqualTo(-1);
+
+		assertThat(StepFunction.<Integer, Double>of(Map.of()).get(5, 1.0)).isEqualTo(1.0);
+	}
 }
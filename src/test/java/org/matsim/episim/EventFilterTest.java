@@ -0,0 +1,79 @@
+package org.matsim.episim;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.episim.events.EpisimContactEvent;
+import org.matsim.episim.events.EpisimPersonStatusEvent;
+import org.matsim.facilities.ActivityFacility;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventFilterTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void acceptAll() {
+
+		EventFilter filter = new EventFilter(new EpisimConfigGroup(), null);
+
+		assertThat(filter.acceptDay(1)).isTrue();
+		assertThat(filter.acceptType(EpisimContactEvent.EVENT_TYPE)).isTrue();
+		assertThat(filter.acceptContact(5, Id.createPersonId("a"), Id.createPersonId("b"), new StringBuilder("home_work"))).isTrue();
+		assertThat(filter.accept(new EpisimPersonStatusEvent(0, Id.createPersonId("a"), EpisimPerson.DiseaseStatus.contagious), 1)).isTrue();
+	}
+
+	@Test
+	public void selected() throws IOException {
+
+		File persons = tmp.newFile("persons.txt");
+		Files.write(persons.toPath(), List.of("p1", "", " p2 "));
+
+		EpisimConfigGroup config = new EpisimConfigGroup();
+		config.setEventFilterTypes("episimContact, episimPersonStatus");
+		config.setEventFilterDays("3-5,10");
+		config.setEventFilterPersons(persons.toString());
+		config.setEventFilterActivities("work,edu");
+
+		EventFilter filter = new EventFilter(config, null);
+
+		Id<Person> p1 = Id.createPersonId("p1");
+		Id<Person> p2 = Id.createPersonId("p2");
+		Id<Person> p3 = Id.createPersonId("p3");
+
+		assertThat(filter.acceptDay(2)).isFalse();
+		assertThat(filter.acceptDay(3)).isTrue();
+		assertThat(filter.acceptDay(5)).isTrue();
+		assertThat(filter.acceptDay(6)).isFalse();
+		assertThat(filter.acceptDay(10)).isTrue();
+
+		assertThat(filter.acceptPerson(p1)).isTrue();
+		assertThat(filter.acceptPerson(p2)).isTrue();
+		assertThat(filter.acceptPerson(p3)).isFalse();
+
+		assertThat(filter.acceptContact(4, p3, p2, new StringBuilder("home_work"))).isTrue();
+		assertThat(filter.acceptContact(4, p3, p2, new StringBuilder("home_leisure"))).isFalse();
+		assertThat(filter.acceptContact(4, p3, p2, new StringBuilder("educ_primary_leisure"))).isTrue();
+		assertThat(filter.acceptContact(4, p3, p2, new StringBuilder("home_homework"))).isFalse();
+		assertThat(filter.acceptContact(4, p3, p2, new StringBuilder("leisure_teamwork"))).isFalse();
+		assertThat(filter.acceptContact(4, p3, p3, new StringBuilder("home_work"))).isFalse();
+		assertThat(filter.acceptContact(6, p1, p2, new StringBuilder("home_work"))).isFalse();
+		assertThat(filter.acceptTracing(4, p1, p2)).isFalse();
+
+		Id<ActivityFacility> f = Id.create("f", ActivityFacility.class);
+		assertThat(filter.accept(new EpisimContactEvent(0, p3, p1, f, "edu_work", 10, 2), 4)).isTrue();
+		assertThat(filter.accept(new EpisimContactEvent(0, p3, p1, f, "home", 10, 2), 4)).isFalse();
+		assertThat(filter.accept(new EpisimPersonStatusEvent(0, p1, EpisimPerson.DiseaseStatus.contagious), 4)).isTrue();
+		assertThat(filter.accept(new EpisimPersonStatusEvent(0, p3, EpisimPerson.DiseaseStatus.contagious), 4)).isFalse();
+	}
+
+}
@@ -0,0 +1,142 @@
+package org.matsim.episim;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.episim.model.VaccinationType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportCountersTest {
+
+	private VaccinationConfigGroup vaccinationConfig;
+	private List<EpisimPerson> persons;
+
+	@Before
+	public void setup() {
+		vaccinationConfig = new VaccinationConfigGroup();
+		vaccinationConfig.getOrAddParams(VaccinationType.mRNA).setDaysBeforeFullEffect(21);
+
+		persons = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			EpisimPerson p = EpisimTestUtils.createPerson();
+			if (i % 4 != 0)
+				p.getAttributes().putAttribute("district", i % 2 == 0 ? "a" : "b");
+
+			persons.add(p);
+		}
+	}
+
+	private Map<String, EpisimReporting.InfectionReport> fill(ReportCounters counters, int iteration) {
+		Map<String, EpisimReporting.InfectionReport> reports = new LinkedHashMap<>();
+		EpisimReporting.InfectionReport total = new EpisimReporting.InfectionReport("total", 0, "", iteration);
+		reports.put("total", total);
+
+		counters.fill(reports, total, iteration);
+		return reports;
+	}
+
+	@Test
+	public void counts() {
+
+		ReportCounters counters = new ReportCounters(persons, vaccinationConfig, 1);
+
+		Map<String, EpisimReporting.InfectionReport> reports = fill(counters, 1);
+
+		assertThat(reports.keySet()).containsExactly("total", "unknown", "b", "a");
+		assertThat(reports.get("total").nSusceptible).isEqualTo(100);
+		assertThat(reports.get("unknown").nSusceptible).isEqualTo(25);
+		assertThat(reports.get("a").nSusceptible).isEqualTo(25);
+		assertThat(reports.get("b").nSusceptible).isEqualTo(50);
+
+		EpisimPerson p = persons.get(1);
+
+		p.setDiseaseStatus(0, EpisimPerson.DiseaseStatus.contagious);
+		counters.update(p, 1);
+
+		p.setQuarantineStatus(EpisimPerson.QuarantineStatus.atHome, 1);
+		counters.update(p, 1);
+
+		p.setTestStatus(EpisimPerson.TestStatus.positive, 1);
+		counters.update(p, 1);
+
+		reports = fill(counters, 2);
+
+		assertThat(reports.get("b").nSusceptible).isEqualTo(49);
+		assertThat(reports.get("b").nContagious).isEqualTo(1);
+		assertThat(reports.get("b").nTotalInfected).isEqualTo(1);
+		assertThat(reports.get("b").nInQuarantineHome).isEqualTo(1);
+		assertThat(reports.get("b").nTested).isEqualTo(1);
+		assertThat(reports.get("total").nTested).isEqualTo(1);
+		assertThat(reports.get("total").nTotal()).isEqualTo(100);
+
+		// tests are only reported on the next day
+		assertThat(fill(counters, 3).get("b").nTested).isEqualTo(0);
+	}
+
+	@Test
+	public void vaccination() {
+
+		ReportCounters counters = new ReportCounters(persons, vaccinationConfig, 1);
+
+		EpisimPerson p = persons.get(2);
+		p.setVaccinationStatus(EpisimPerson.VaccinationStatus.yes, VaccinationType.mRNA, 5);
+		counters.update(p, 5);
+
+		Map<String, EpisimReporting.InfectionReport> reports = fill(counters, 5);
+
+		assertThat(reports.get("a").nVaccinated).isEqualTo(1);
+		assertThat(reports.get("a").nSusceptibleVaccinated).isEqualTo(0);
+
+		assertThat(fill(counters, 25).get("a").nSusceptibleVaccinated).isEqualTo(0);
+
+		// full effect is reached without any further update
+		reports = fill(counters, 26);
+		assertThat(reports.get("a").nSusceptibleVaccinated).isEqualTo(1);
+		assertThat(reports.get("total").nSusceptibleVaccinated).isEqualTo(1);
+		assertThat(reports.get("total").nVaccinated).isEqualTo(1);
+
+		EpisimPerson other = persons.get(6);
+		other.setVaccinationStatus(EpisimPerson.VaccinationStatus.yes, VaccinationType.mRNA, 26);
+		counters.update(other, 26);
+		other.setReVaccinationStatus(EpisimPerson.VaccinationStatus.yes, 27);
+		counters.update(other, 27);
+
+		reports = fill(counters, 27);
+		assertThat(reports.get("a").nSusceptibleVaccinated).isEqualTo(2);
+		assertThat(reports.get("a").nReVaccinated).isEqualTo(1);
+	}
+
+	@Test
+	public void parallel() {
+
+		ReportCounters counters = new ReportCounters(persons, vaccinationConfig, 1);
+
+		IntStream.range(0, persons.size()).parallel().forEach(i -> {
+			EpisimPerson p = persons.get(i);
+			p.setDiseaseStatus(0, EpisimPerson.DiseaseStatus.contagious);
+			counters.update(p, 1);
+
+			if (i % 5 == 0) {
+				p.setTestStatus(EpisimPerson.TestStatus.positive, 1);
+				counters.update(p, 1);
+			}
+		});
+
+		Map<String, EpisimReporting.InfectionReport> reports = fill(counters, 2);
+
+		assertThat(reports.get("total").nSusceptible).isEqualTo(0);
+		assertThat(reports.get("total").nContagious).isEqualTo(100);
+		assertThat(reports.get("total").nTested).isEqualTo(20);
+		assertThat(reports.get("a").nContagious).isEqualTo(25);
+		assertThat(reports.get("b").nContagious).isEqualTo(50);
+		assertThat(reports.get("unknown").nContagious).isEqualTo(25);
+		assertThat(reports.get("total").nTotal()).isEqualTo(100);
+	}
+
+}
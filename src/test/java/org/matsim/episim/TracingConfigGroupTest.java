@@ -6,6 +6,7 @@ import java.time.LocalDate;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class TracingConfigGroupTest {
 
@@ -34,4 +35,25 @@ public class TracingConfigGroupTest {
 				.isNotEmpty();
 
 	}
+
+	@Test
+	public void functionInSync() {
+
+		TracingConfigGroup config = new TracingConfigGroup();
+		config.setTracingCapacity_pers_per_day(Map.of(LocalDate.of(2020, 4, 1), 30));
+
+		assertThat(config.getTracingCapacityFunction().get(LocalDate.of(2020, 6, 1), 0))
+				.isEqualTo(30);
+
+		assertThatThrownBy(() -> config.getTracingCapacity().put(LocalDate.of(2020, 6, 1), 50))
+				.isInstanceOf(UnsupportedOperationException.class);
+
+		config.setTracingCapacity_pers_per_day(Map.of(
+				LocalDate.of(2020, 4, 1), 30,
+				LocalDate.of(2020, 6, 1), 50
+		));
+
+		assertThat(config.getTracingCapacityFunction().get(LocalDate.of(2020, 6, 1), 0))
+				.isEqualTo(50);
+	}
 }
@@ -138,4 +138,33 @@ public class VaccinationConfigGroupTest {
 				.isEqualTo(0.35);
 
 	}
+
+	@Test
+	public void table() {
+
+		VaccinationConfigGroup.Parameter p = VaccinationConfigGroup.forStrain(VirusStrain.SARS_CoV_2)
+				.atDay(5, 0.3)
+				.atDay(20, 0.8)
+				.atFullEffect(0.9);
+
+		// day of full effect is not resolved
+		for (int day = -5; day < 1000; day++) {
+			assertThat(p.get(day)).isEqualTo(p.interpolate(day));
+		}
+
+		p.atDay(40, 0.5);
+
+		for (int day = -5; day < 1000; day++) {
+			assertThat(p.get(day)).isEqualTo(p.interpolate(day));
+		}
+
+		VaccinationConfigGroup.VaccinationParams params = new VaccinationConfigGroup().getParams(VaccinationType.generic);
+
+		assertThat(params.getEffectiveness(VirusStrain.B117, 5))
+				.isEqualTo(params.getEffectiveness(VirusStrain.SARS_CoV_2, 5))
+				.isEqualTo(0.45);
+
+		assertThat(params.getBoostEffectiveness(VirusStrain.SARS_CoV_2, 500))
+				.isEqualTo(params.getEffectiveness(VirusStrain.SARS_CoV_2, 500));
+	}
 }
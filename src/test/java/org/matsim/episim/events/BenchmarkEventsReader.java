@@ -0,0 +1,96 @@
+package org.matsim.episim.events;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.episim.reporting.EpisimWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reading one day of gzipped events in xml and binary format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkEventsReader {
+
+	private static final Logger log = LogManager.getLogger(BenchmarkEventsReader.class);
+
+	private byte[] xml;
+	private byte[] binary;
+
+	public static void main(String[] args) throws RunnerException {
+
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkEventsReader.class.getSimpleName())
+				.warmupTime(TimeValue.seconds(5)).warmupIterations(3)
+				.measurementTime(TimeValue.seconds(10)).measurementIterations(5)
+				.forks(1)
+				.build();
+
+		new Runner(opt).run();
+	}
+
+	@Setup
+	public void setup() throws IOException {
+
+		List<Event> events = EpisimBinaryEventsTest.createEvents(200_000, new SplittableRandom(1));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EpisimWriter writer = new EpisimWriter();
+		try (Writer w = new OutputStreamWriter(new GZIPOutputStream(out), StandardCharsets.UTF_8)) {
+			writer.append(w, "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n");
+			events.forEach(e -> writer.append(w, e));
+			writer.append(w, "</events>");
+		}
+		xml = out.toByteArray();
+
+		out = new ByteArrayOutputStream();
+		EpisimBinaryEventsWriter binaryWriter = new EpisimBinaryEventsWriter();
+		events.forEach(binaryWriter::append);
+		try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+			binaryWriter.write(gz);
+		}
+		binary = out.toByteArray();
+
+		log.info("Size xml: {}, binary: {}", xml.length, binary.length);
+	}
+
+	private static EventsManager createManager(Blackhole bh) {
+		EventsManager manager = EventsUtils.createEventsManager();
+		manager.addHandler((BasicEventHandler) bh::consume);
+		manager.initProcessing();
+		return manager;
+	}
+
+	@Benchmark
+	public void xml(Blackhole bh) throws IOException {
+		EventsManager manager = createManager(bh);
+		new EpisimEventsReader(manager).parse(new GZIPInputStream(new ByteArrayInputStream(xml)));
+		manager.finishProcessing();
+	}
+
+	@Benchmark
+	public void binary(Blackhole bh) throws IOException {
+		EventsManager manager = createManager(bh);
+		new EpisimBinaryEventsReader(manager).parse(new GZIPInputStream(new ByteArrayInputStream(binary)));
+		manager.finishProcessing();
+	}
+}
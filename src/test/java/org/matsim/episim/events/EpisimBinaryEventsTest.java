@@ -0,0 +1,161 @@
+package org.matsim.episim.events;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.episim.EpisimContainer;
+import org.matsim.episim.EpisimPerson;
+import org.matsim.episim.model.VaccinationType;
+import org.matsim.episim.model.VirusStrain;
+import org.matsim.facilities.ActivityFacility;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EpisimBinaryEventsTest {
+
+	/**
+	 * Random events of all types that are written during a simulation.
+	 */
+	static List<Event> createEvents(int n, SplittableRandom rnd) {
+
+		List<Event> events = new ArrayList<>();
+
+		VirusStrain[] strains = {VirusStrain.SARS_CoV_2, VirusStrain.B117};
+		EpisimPerson.DiseaseStatus[] states = EpisimPerson.DiseaseStatus.values();
+		VaccinationType[] types = {VaccinationType.generic, VaccinationType.mRNA};
+		String[] acts = {"home", "work", "leisure", "educ_primary"};
+
+		double time = 0;
+		for (int i = 0; i < n; i++) {
+
+			time += rnd.nextDouble(0, 10);
+			Id<Person> person = Id.createPersonId("p" + rnd.nextInt(n));
+			Id<Person> other = Id.createPersonId("p" + rnd.nextInt(n));
+			String act = acts[rnd.nextInt(acts.length)];
+
+			switch (rnd.nextInt(7)) {
+				case 0:
+					events.add(new EpisimInfectionEvent(time, person, other, Id.create("f" + rnd.nextInt(100), EpisimContainer.class), act + "_" + act,
+							rnd.nextInt(1, 20), strains[rnd.nextInt(strains.length)], rnd.nextDouble()));
+					break;
+				case 1:
+					events.add(new EpisimPotentialInfectionEvent(time, person, other, Id.create("f" + rnd.nextInt(100), EpisimContainer.class), act,
+							rnd.nextInt(1, 20), strains[rnd.nextInt(strains.length)], rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble()));
+					break;
+				case 2:
+					events.add(new EpisimInitialInfectionEvent(time, person, strains[rnd.nextInt(strains.length)]));
+					break;
+				case 3:
+					events.add(new EpisimVaccinationEvent(time, person, types[rnd.nextInt(types.length)], rnd.nextBoolean()));
+					break;
+				case 4:
+					events.add(new EpisimContactEvent(time, person, other, Id.create("f" + rnd.nextInt(100), ActivityFacility.class), act,
+							rnd.nextDouble(0, 3600), rnd.nextInt(1, 20)));
+					break;
+				case 5:
+					events.add(new EpisimTracingEvent(time, person, other));
+					break;
+				default:
+					events.add(new EpisimPersonStatusEvent(time, person, states[rnd.nextInt(states.length)]));
+			}
+		}
+
+		return events;
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+
+		List<Event> events = createEvents(5000, new SplittableRandom(1));
+
+		EpisimBinaryEventsWriter writer = new EpisimBinaryEventsWriter();
+		events.forEach(writer::append);
+
+		// corrected time is written instead of the event time
+		EpisimTracingEvent corrected = new EpisimTracingEvent(10, Id.createPersonId("a"), Id.createPersonId("b"));
+		writer.append(corrected, 86410);
+
+		assertThat(writer.size()).isEqualTo(events.size() + 1);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(out);
+
+		List<Event> read = read(out.toByteArray());
+
+		assertThat(read).hasSize(events.size() + 1);
+		assertSameEvents(read, events);
+
+		Event last = read.get(events.size());
+		assertThat(last.getTime()).isEqualTo(86410);
+		assertThat(last.getAttributes()).containsEntry("contactPerson", "b");
+
+		// writer can be reused after reset
+		writer.reset();
+		assertThat(writer.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void chunks() throws IOException {
+
+		List<Event> events = createEvents(5000, new SplittableRandom(1));
+
+		EpisimBinaryEventsWriter writer = new EpisimBinaryEventsWriter(300);
+
+		for (int day = 0; day < 2; day++) {
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			writer.open(out);
+
+			for (Event event : events) {
+				writer.append(event);
+				assertThat(writer.size()).isLessThan(300);
+			}
+
+			writer.close();
+
+			List<Event> read = read(out.toByteArray());
+
+			assertThat(read).hasSize(events.size());
+			assertSameEvents(read, events);
+		}
+	}
+
+	private static List<Event> read(byte[] data) throws IOException {
+
+		List<Event> read = new ArrayList<>();
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		manager.addHandler((BasicEventHandler) read::add);
+		manager.initProcessing();
+
+		new EpisimBinaryEventsReader(manager).parse(new ByteArrayInputStream(data));
+
+		manager.finishProcessing();
+
+		return read;
+	}
+
+	private static void assertSameEvents(List<Event> read, List<Event> events) {
+		for (int i = 0; i < events.size(); i++) {
+			// tracing events are read as generic events, same as from xml
+			if (!(events.get(i) instanceof EpisimTracingEvent))
+				assertThat(read.get(i)).isInstanceOf(events.get(i).getClass());
+
+			assertThat(read.get(i).getAttributes())
+					.as("Event %d", i)
+					.isEqualTo(events.get(i).getAttributes());
+		}
+	}
+
+}
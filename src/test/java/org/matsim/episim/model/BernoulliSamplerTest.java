@@ -0,0 +1,136 @@
+package org.matsim.episim.model;
+
+import org.assertj.core.data.Offset;
+import org.junit.Test;
+import org.matsim.episim.EpisimConfigGroup;
+import org.matsim.episim.EpisimTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BernoulliSamplerTest {
+
+	private static final int N = 2_000_000;
+
+	@Test
+	public void perDecision() {
+
+		SplittableRandom rnd = new SplittableRandom(1);
+		SplittableRandom cmp = new SplittableRandom(1);
+
+		BernoulliSampler sampler = new BernoulliSampler(rnd, EpisimConfigGroup.BernoulliSampling.perDecision);
+
+		// same results as drawing directly
+		for (int i = 0; i < 10_000; i++) {
+			double p = (i % 11) / 10d;
+			boolean expected = p == 1.0 || (p != 0.0 && cmp.nextDouble() < p);
+			assertThat(sampler.sample(i % 3, p)).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	public void geometricSkip() {
+
+		for (double p : new double[]{0.001, 0.1, 0.3, 0.5, 0.7, 0.95}) {
+
+			BernoulliSampler sampler = new BernoulliSampler(new SplittableRandom(1), EpisimConfigGroup.BernoulliSampling.geometricSkip);
+			BernoulliSampler reference = new BernoulliSampler(new SplittableRandom(1), EpisimConfigGroup.BernoulliSampling.perDecision);
+
+			double[] stats = stats(sampler, p);
+			double[] ref = stats(reference, p);
+
+			// standard error of the mean is below 0.00035
+			Offset<Double> offset = Offset.offset(0.002);
+
+			assertThat(stats[0]).as("Mean for p=%f", p).isCloseTo(p, offset).isCloseTo(ref[0], offset);
+
+			// consecutive decisions are independent
+			assertThat(stats[1]).as("Conditional mean for p=%f", p).isCloseTo(p, Offset.offset(p < 0.01 ? 0.003 : 0.005));
+		}
+	}
+
+	@Test
+	public void mixedRates() {
+
+		BernoulliSampler sampler = new BernoulliSampler(new SplittableRandom(1), EpisimConfigGroup.BernoulliSampling.geometricSkip);
+
+		int a = 0;
+		int b = 0;
+		for (int i = 0; i < N; i++) {
+			if (sampler.sample(0, 0.2)) a++;
+			if (sampler.sample(1, 0.9)) b++;
+
+			assertThat(sampler.sample(2, 0)).isFalse();
+			assertThat(sampler.sample(3, 1)).isTrue();
+		}
+
+		assertThat(a / (double) N).isCloseTo(0.2, Offset.offset(0.002));
+		assertThat(b / (double) N).isCloseTo(0.9, Offset.offset(0.002));
+	}
+
+	@Test
+	public void activityTypes() {
+
+		List<EpisimConfigGroup.InfectionParams> params = new ArrayList<>(EpisimTestUtils.TEST_CONFIG.getInfectionParams());
+
+		BernoulliSampler sampler = new BernoulliSampler(new SplittableRandom(1), EpisimConfigGroup.BernoulliSampling.geometricSkip);
+		SplittableRandom rnd = new SplittableRandom(2);
+
+		int[] n = new int[params.size()];
+		int[] count = new int[params.size()];
+
+		for (int day = 0; day < 20; day++) {
+			for (int i = 0; i < N / 20; i++) {
+
+				// activities of trajectories are interleaved randomly
+				int idx = rnd.nextInt(params.size());
+				EpisimConfigGroup.InfectionParams act = params.get(idx);
+
+				// rates differ between activities, the first activity changes its rate every day
+				double p = idx == 0 ? (day % 2 == 0 ? 0.3 : 0.6) : (idx + 1d) / (params.size() + 1);
+
+				count[idx]++;
+				if (sampler.sample(act.getCode(), p)) n[idx]++;
+			}
+		}
+
+		// changing rate is sampled with the mean of both rates
+		assertThat(n[0] / (double) count[0]).as("Rate of %s", params.get(0).getContainerName())
+				.isCloseTo(0.45, Offset.offset(0.01));
+
+		for (int i = 1; i < params.size(); i++) {
+			double p = (i + 1d) / (params.size() + 1);
+			assertThat(n[i] / (double) count[i]).as("Rate of %s", params.get(i).getContainerName())
+					.isCloseTo(p, Offset.offset(0.01));
+		}
+	}
+
+	/**
+	 * Returns the mean and the mean of decisions following a true decision.
+	 */
+	private static double[] stats(BernoulliSampler sampler, double p) {
+
+		int n = 0;
+		int afterTrue = 0;
+		int afterTrueCount = 0;
+		boolean prev = false;
+
+		for (int i = 0; i < N; i++) {
+			boolean s = sampler.sample(0, p);
+			if (s) n++;
+
+			if (prev) {
+				afterTrueCount++;
+				if (s) afterTrue++;
+			}
+
+			prev = s;
+		}
+
+		return new double[]{n / (double) N, afterTrue / (double) afterTrueCount};
+	}
+
+}
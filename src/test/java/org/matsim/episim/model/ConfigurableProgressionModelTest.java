@@ -6,13 +6,15 @@ import org.apache.commons.math3.stat.descriptive.moment.Mean;
 import org.assertj.core.data.Percentage;
 import org.junit.Before;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.episim.*;
 import org.matsim.episim.EpisimPerson.DiseaseStatus;
+import org.matsim.episim.events.EpisimInfectionEvent;
 import org.matsim.episim.model.progression.DefaultDiseaseStatusTransitionModel;
+import org.matsim.facilities.ActivityFacility;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.SplittableRandom;
+import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.matsim.episim.model.Transition.to;
@@ -199,6 +201,58 @@ public class ConfigurableProgressionModelTest {
 
 	}
 
+	@Test
+	public void tracingLocation() {
+
+		tracingConfig.setStrategy(TracingConfigGroup.Strategy.LOCATION);
+		tracingConfig.setLocationThreshold(1);
+		tracingConfig.setPutTraceablePersonsInQuarantineAfterDay(0);
+		tracingConfig.setTracingDelay_days(0);
+
+		Map<Id<Person>, EpisimPerson> persons = new LinkedHashMap<>();
+
+		// infected at the same location, but before the look-back window
+		EpisimPerson old = infect(persons, "f1", -30);
+
+		model.setIteration(1);
+		model.beforeStateUpdates(persons, 1, null);
+
+		List<EpisimPerson> infected = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			EpisimPerson p = infect(persons, "f1", 1);
+			model.onInfection(p);
+			infected.add(p);
+		}
+
+		for (int day = 2; day <= 9; day++) {
+			model.setIteration(day);
+			model.beforeStateUpdates(persons, day, null);
+
+			for (EpisimPerson p : infected) {
+				model.updateState(p, day);
+			}
+		}
+
+		// persons showing symptoms are in full quarantine, the others have been traced
+		assertThat(infected)
+				.anyMatch(p -> p.getQuarantineStatus() == EpisimPerson.QuarantineStatus.atHome)
+				.allMatch(p -> p.getQuarantineStatus() != EpisimPerson.QuarantineStatus.no);
+
+		assertThat(old.getQuarantineStatus())
+				.isEqualTo(EpisimPerson.QuarantineStatus.no);
+	}
+
+	private EpisimPerson infect(Map<Id<Person>, EpisimPerson> persons, String facility, int day) {
+
+		EpisimPerson p = EpisimTestUtils.createPerson(reporting);
+		p.possibleInfection(new EpisimInfectionEvent(day * 24 * 3600, p.getPersonId(), null,
+				Id.create(facility, ActivityFacility.class), "work", 2, VirusStrain.SARS_CoV_2, 1));
+		p.checkInfection();
+
+		persons.put(p.getPersonId(), p);
+		return p;
+	}
+
 	@Test
 	public void traceHome() {
 
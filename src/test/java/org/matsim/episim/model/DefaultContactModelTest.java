@@ -527,7 +527,8 @@ public class DefaultContactModelTest {
 		restrictions.put("c10", RestrictionTest.update(restrictions.get("c10"), Restriction.of(1.0)));
 
 		// These 2 lines are necessary repeats from setup(); TODO: a more elegant solution
-		model = new DefaultContactModel(rnd, config, reporting, infectionModel, scenario);
+		FacilityIndex facilities = new FacilityIndex(scenario, episimConfig);
+		model = new DefaultContactModel(rnd, config, reporting, infectionModel, facilities);
 		model.setRestrictionsForIteration(1, restrictions);
 
 		double rateBronx = sampleInfectionRate(Duration.ofHours(6), "c10",
@@ -1,6 +1,11 @@
 package org.matsim.episim.model.activity;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+import com.google.inject.util.Modules;
 import org.assertj.core.data.Percentage;
 import org.junit.Before;
 import org.junit.Test;
@@ -10,9 +15,7 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.scenario.ScenarioUtils;
-import org.matsim.episim.EpisimConfigGroup;
-import org.matsim.episim.EpisimPerson;
-import org.matsim.episim.EpisimTestUtils;
+import org.matsim.episim.*;
 import org.matsim.episim.policy.Restriction;
 import org.matsim.facilities.ActivityFacilitiesFactory;
 import org.matsim.facilities.ActivityFacility;
@@ -25,7 +28,6 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class LocationBasedParticipationModelTest {
 
 	private Config config;
-	private SplittableRandom rnd;
 	private EpisimConfigGroup episimConfig;
 
 	private final double POPULATION_SIZE = 10000.;
@@ -35,8 +37,6 @@ public class LocationBasedParticipationModelTest {
 	@Before
 	public void setup() {
 
-		rnd = new SplittableRandom(1);
-
 		config = EpisimTestUtils.createTestConfig();
 		episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
 		episimConfig.setDistrictLevelRestrictions(EpisimConfigGroup.DistrictLevelRestrictions.yes);
@@ -87,8 +87,20 @@ public class LocationBasedParticipationModelTest {
 		restrictions.put("work", workRestriction);
 
 
-		// Create LocationBasedParticipationModel
-		LocationBasedParticipationModel activityParticipationModel = new LocationBasedParticipationModel(rnd, episimConfig, scenario);
+		// Create LocationBasedParticipationModel, as bound by the production scenarios
+		Injector injector = Guice.createInjector(Modules.override(new EpisimModule()).with(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(Config.class).toInstance(config);
+				bind(Scenario.class).toInstance(scenario);
+				bind(ActivityParticipationModel.class).to(LocationBasedParticipationModel.class).in(Singleton.class);
+			}
+		}));
+
+		LocationBasedParticipationModel activityParticipationModel = (LocationBasedParticipationModel) injector.getInstance(ActivityParticipationModel.class);
+
+		// districts are taken from the shared index
+		assertThat(injector.getInstance(FacilityIndex.class).getDistricts()).containsExactly("Bronx", "Queens", "StatenIsland");
 
 		ImmutableMap<String, Restriction> restrictionsImmutable = ImmutableMap.copyOf(restrictions);
 
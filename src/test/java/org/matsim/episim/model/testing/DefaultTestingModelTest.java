@@ -0,0 +1,82 @@
+package org.matsim.episim.model.testing;
+
+import org.assertj.core.data.Offset;
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.episim.*;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DefaultTestingModelTest {
+
+	private static final int N = 1_000_000;
+
+	private DefaultTestingModel model;
+
+	@Before
+	public void setup() {
+		Config config = EpisimTestUtils.createTestConfig();
+		EpisimConfigGroup episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
+		episimConfig.setBernoulliSampling(EpisimConfigGroup.BernoulliSampling.geometricSkip);
+
+		model = new DefaultTestingModel(new SplittableRandom(1), config,
+				ConfigUtils.addOrGetModule(config, TestingConfigGroup.class),
+				ConfigUtils.addOrGetModule(config, VaccinationConfigGroup.class), episimConfig);
+	}
+
+	@Test
+	public void mixedRates() {
+
+		double[] rates = {0.1, 0.4, 0.75};
+		TestType[] types = {TestType.RAPID_TEST, TestType.PCR};
+
+		SplittableRandom rnd = new SplittableRandom(2);
+
+		int[][] n = new int[types.length][rates.length];
+		int[][] tested = new int[types.length][rates.length];
+
+		for (int i = 0; i < N; i++) {
+
+			// persons with different rates are visited in random order
+			int t = rnd.nextInt(types.length);
+			int r = rnd.nextInt(rates.length);
+
+			n[t][r]++;
+			if (model.sampleTest(types[t], rates[r])) tested[t][r]++;
+		}
+
+		for (int t = 0; t < types.length; t++) {
+			for (int r = 0; r < rates.length; r++) {
+				assertThat(tested[t][r] / (double) n[t][r])
+						.as("Rate of %s with %f", types[t], rates[r])
+						.isCloseTo(rates[r], Offset.offset(0.005));
+			}
+		}
+	}
+
+	@Test
+	public void manyRates() {
+
+		int[] n = new int[100];
+		int[] tested = new int[100];
+
+		SplittableRandom rnd = new SplittableRandom(2);
+
+		// more distinct rates than sampling sequences
+		for (int i = 0; i < N; i++) {
+			int r = rnd.nextInt(n.length);
+			n[r]++;
+			if (model.sampleTest(TestType.RAPID_TEST, (r + 1) / 101d)) tested[r]++;
+		}
+
+		for (int r = 0; r < n.length; r++) {
+			assertThat(tested[r] / (double) n[r])
+					.as("Rate %d", r)
+					.isCloseTo((r + 1) / 101d, Offset.offset(0.02));
+		}
+	}
+}
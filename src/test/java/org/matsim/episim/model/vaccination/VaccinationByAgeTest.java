@@ -7,6 +7,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.episim.EpisimPerson;
 import org.matsim.episim.EpisimTestUtils;
 import org.matsim.episim.VaccinationConfigGroup;
+import org.matsim.episim.model.VaccinationType;
 import org.matsim.episim.model.vaccination.VaccinationByAge;
 
 import java.time.LocalDate;
@@ -71,4 +72,40 @@ public class VaccinationByAgeTest {
 		}
 
 	}
+
+	@Test
+	public void reVaccination() {
+
+		Map<Id<Person>, EpisimPerson> persons = new HashMap<>();
+
+		for (int i = 0; i < 100; i++) {
+			EpisimPerson p = EpisimTestUtils.createPerson(true, 50);
+			persons.put(p.getPersonId(), p);
+		}
+
+		// infected persons are not vaccinated
+		EpisimPerson infected = persons.values().iterator().next();
+		infected.setDiseaseStatus(0, EpisimPerson.DiseaseStatus.infectedButNotContagious);
+
+		assertThat(model.handleVaccination(persons, false, 200, LocalDate.now(), 0, 0))
+				.isEqualTo(99);
+
+		assertThat(infected.getVaccinationStatus()).isEqualTo(EpisimPerson.VaccinationStatus.no);
+
+		int wait = new VaccinationConfigGroup().getParams(VaccinationType.generic).getBoostWaitPeriod();
+
+		// nobody can be boosted before the wait period
+		assertThat(model.handleVaccination(persons, true, 200, LocalDate.now(), wait - 1, 86400 * (wait - 1)))
+				.isEqualTo(0);
+
+		assertThat(model.handleVaccination(persons, true, 50, LocalDate.now(), wait, 86400 * wait))
+				.isEqualTo(50);
+
+		assertThat(model.handleVaccination(persons, true, 200, LocalDate.now(), wait + 1, 86400 * (wait + 1)))
+				.isEqualTo(49);
+
+		assertThat(persons.values())
+				.allMatch(p -> p == infected || p.getReVaccinationStatus() == EpisimPerson.VaccinationStatus.yes);
+
+	}
 }
@@ -97,4 +97,61 @@ public class VaccinationFromDataTest {
 
 
 	}
+
+	@Test
+	public void randomFallback() {
+
+		// same ages, only vaccinated from data, which gives the target per age group
+		Map<Id<Person>, EpisimPerson> reference = new HashMap<>();
+		SplittableRandom rnd = new SplittableRandom(0);
+		for (int i = 0; i < 1000; i++) {
+			EpisimPerson p = EpisimTestUtils.createPerson(true, rnd.nextInt(12, 100));
+			reference.put(p.getPersonId(), p);
+		}
+
+		createModel(reference).handleVaccination(reference, false, -1, LocalDate.of(2021, 7, 14), 60, 0);
+		int[] target = countPerGroup(reference);
+
+		model.handleVaccination(persons, false, -1, LocalDate.of(2021, 5, 14), 1, 0);
+		model.handleVaccination(persons, false, 100, LocalDate.of(2021, 5, 15), 2, 0);
+
+		int[] before = countPerGroup(persons);
+		assertThat(before[0] + before[1] + before[2]).isEqualTo(611);
+
+		// counts include the random vaccinations
+		model.handleVaccination(persons, false, -1, LocalDate.of(2021, 7, 14), 60, 0);
+
+		int[] after = countPerGroup(persons);
+		for (int i = 0; i < after.length; i++) {
+			assertThat(after[i]).as("Age group %d", i).isEqualTo(Math.max(target[i], before[i]));
+		}
+	}
+
+	private VaccinationFromData createModel(Map<Id<Person>, EpisimPerson> persons) {
+
+		VaccinationConfigGroup config = new VaccinationConfigGroup();
+		config.setFromFile(input.toString());
+
+		VaccinationFromData.Config conf = VaccinationFromData.newConfig("05315")
+				.withAgeGroup("12-17", 54587.2)
+				.withAgeGroup("18-59", 676995)
+				.withAgeGroup("60+", 250986);
+
+		SplittableRandom rnd = new SplittableRandom(1);
+		VaccinationFromData m = new VaccinationFromData(rnd, config, conf);
+		m.init(rnd, persons, null, null);
+		return m;
+	}
+
+	/**
+	 * Number of vaccinated persons in the age groups 12-17, 18-59 and 60+.
+	 */
+	private static int[] countPerGroup(Map<Id<Person>, EpisimPerson> persons) {
+		int[] count = new int[3];
+		for (EpisimPerson p : persons.values()) {
+			if (p.getVaccinationStatus() != EpisimPerson.VaccinationStatus.yes) continue;
+			count[p.getAge() < 18 ? 0 : p.getAge() < 60 ? 1 : 2]++;
+		}
+		return count;
+	}
 }
@@ -0,0 +1,108 @@
+package org.matsim.episim.policy;
+
+import it.unimi.dsi.fastutil.objects.Object2DoubleAVLTreeMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleSortedMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incidence triggers of {@link AdaptivePolicy} over a full simulation, for a number of policy variants evaluated in lockstep.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkIncidenceWindow {
+
+	private static final int INTERVAL = 14;
+
+	@Param({"1", "50"})
+	private int variants;
+
+	private LocalDate[] dates;
+	private double[] cumCases;
+	private double[] thresholds;
+
+	public static void main(String[] args) throws RunnerException {
+
+		Options opt = new OptionsBuilder()
+				.include(BenchmarkIncidenceWindow.class.getSimpleName())
+				.warmupTime(TimeValue.seconds(5)).warmupIterations(3)
+				.measurementTime(TimeValue.seconds(10)).measurementIterations(5)
+				.forks(1)
+				.build();
+
+		new Runner(opt).run();
+	}
+
+	@Setup
+	public void setup() {
+
+		SplittableRandom rnd = new SplittableRandom(1);
+
+		dates = new LocalDate[400];
+		cumCases = new double[dates.length];
+
+		double cases = 0;
+		for (int i = 0; i < dates.length; i++) {
+			cases += (i / 30) % 2 == 0 ? rnd.nextDouble(0, 4) : rnd.nextDouble(2, 20);
+			dates[i] = LocalDate.parse("2020-02-15").plusDays(i);
+			cumCases[i] = cases;
+		}
+
+		thresholds = new double[variants];
+		for (int i = 0; i < variants; i++) {
+			thresholds[i] = rnd.nextDouble(10, 100);
+		}
+	}
+
+	@Benchmark
+	public void treeMap(Blackhole bh) {
+
+		// each variant keeps its own history
+		Object2DoubleSortedMap<LocalDate>[] maps = new Object2DoubleSortedMap[variants];
+		for (int v = 0; v < variants; v++) {
+			maps[v] = new Object2DoubleAVLTreeMap<>();
+		}
+
+		for (int i = 0; i < dates.length; i++) {
+			for (int v = 0; v < variants; v++) {
+				maps[v].put(dates[i], cumCases[i]);
+				Object2DoubleSortedMap<LocalDate> incidence = IncidenceWindowTest.reference(maps[v], dates[i], INTERVAL);
+
+				double t = thresholds[v];
+				bh.consume(incidence.values().stream().allMatch(inc -> inc <= t));
+				if (!incidence.isEmpty())
+					bh.consume(incidence.getDouble(incidence.lastKey()) >= t);
+			}
+		}
+	}
+
+	@Benchmark
+	public void window(Blackhole bh) {
+
+		IncidenceWindow window = new IncidenceWindow(INTERVAL);
+		int[] idx = new int[variants];
+		for (int v = 0; v < variants; v++) {
+			idx[v] = window.register(thresholds[v]);
+		}
+
+		for (int i = 0; i < dates.length; i++) {
+			window.add(dates[i], cumCases[i]);
+
+			for (int v = 0; v < variants; v++) {
+				bh.consume(window.allBelow(idx[v]));
+				if (window.size() > 0)
+					bh.consume(window.getIncidence() >= thresholds[v]);
+			}
+		}
+	}
+}
@@ -124,6 +124,54 @@ public class FixedPolicyTest {
 
 	}
 
+	@Test
+	public void timeline() {
+
+		FixedPolicy.ConfigBuilder config = FixedPolicy.config()
+				.restrict("2020-02-20", 0.8, "work")
+				.restrict("2020-03-02", 0.6, "work")
+				.restrict("2020-03-04", 0.5, "work")
+				.restrict(4, Restriction.of(0.2), "work")
+				.restrict("2020-03-10", Restriction.of(ShutdownPolicy.REG_HOSPITAL), "work");
+
+		FixedPolicy policy = new FixedPolicy(config.build());
+		LocalDate start = LocalDate.parse("2020-03-01");
+		policy.init(start, r);
+
+		assertThat(r.get("work").getRemainingFraction()).isEqualTo(0.8);
+
+		policy.updateRestrictions(EpisimTestUtils.createReport("2020-03-02", 2), r);
+		assertThat(r.get("work").getRemainingFraction()).isEqualTo(0.6);
+
+		// day has precedence over date
+		policy.updateRestrictions(EpisimTestUtils.createReport("2020-03-04", 4), r);
+		assertThat(r.get("work").getRemainingFraction()).isEqualTo(0.2);
+
+		// earlier days can still be requested
+		policy.updateRestrictions(EpisimTestUtils.createReport("2020-03-02", 2), r);
+		assertThat(r.get("work").getRemainingFraction()).isEqualTo(0.6);
+
+		policy.updateRestrictions(EpisimTestUtils.createReport("2020-03-05", 5), r);
+		assertThat(r.get("work").getRemainingFraction()).isEqualTo(0.6);
+
+		// restored policy continues with the next entry and keeps extrapolating
+		ImmutableMap<String, Restriction> restored = ImmutableMap.of("work", Restriction.of(0.3));
+
+		FixedPolicy other = new FixedPolicy(config.build());
+		other.restore(LocalDate.parse("2020-03-05"), restored);
+		assertThat(restored.get("work").isExtrapolate()).isFalse();
+
+		other.updateRestrictions(EpisimTestUtils.createReport("2020-03-05", 5), restored);
+		assertThat(restored.get("work").getRemainingFraction()).isEqualTo(0.3);
+
+		other.updateRestrictions(EpisimTestUtils.createReport("2020-03-10", 10), restored);
+		assertThat(restored.get("work").isExtrapolate()).isTrue();
+
+		restored = ImmutableMap.of("work", Restriction.of(0.3));
+		new FixedPolicy(config.build()).restore(LocalDate.parse("2020-03-11"), restored);
+		assertThat(restored.get("work").isExtrapolate()).isTrue();
+	}
+
 	@Test
 	public void builder() {
 
@@ -0,0 +1,107 @@
+package org.matsim.episim.policy;
+
+import it.unimi.dsi.fastutil.objects.Object2DoubleAVLTreeMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleSortedMap;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncidenceWindowTest {
+
+	/**
+	 * Incidences as computed by the previous map based implementation of {@link AdaptivePolicy}.
+	 */
+	static Object2DoubleSortedMap<LocalDate> reference(Object2DoubleSortedMap<LocalDate> cumCases, LocalDate date, int interval) {
+
+		Object2DoubleSortedMap<LocalDate> cases = cumCases.tailMap(date.minus(interval + 6, ChronoUnit.DAYS));
+		Object2DoubleSortedMap<LocalDate> incidence = new Object2DoubleAVLTreeMap<>();
+
+		for (Object2DoubleMap.Entry<LocalDate> from : cases.object2DoubleEntrySet()) {
+			LocalDate until = from.getKey().plusDays(7);
+			if (cases.containsKey(until)) {
+				incidence.put(until, cases.getDouble(until) - cases.getDouble(from.getKey()));
+			} else
+				break;
+		}
+
+		return incidence;
+	}
+
+	@Test
+	public void sameAsReference() {
+
+		double[] thresholds = {10, 35, 50, 100};
+
+		IncidenceWindow window = new IncidenceWindow(14);
+		for (double t : thresholds) {
+			window.register(t);
+		}
+
+		Object2DoubleSortedMap<LocalDate> cumCases = new Object2DoubleAVLTreeMap<>();
+		SplittableRandom rnd = new SplittableRandom(1);
+
+		LocalDate date = LocalDate.parse("2020-02-15");
+		double cases = 0;
+
+		for (int day = 0; day < 300; day++) {
+
+			// phases with low and high incidence
+			cases += (day / 30) % 2 == 0 ? rnd.nextDouble(0, 4) : rnd.nextDouble(2, 20);
+
+			cumCases.put(date, cases);
+			window.add(date, cases);
+
+			Object2DoubleSortedMap<LocalDate> incidence = reference(cumCases, date, 14);
+
+			assertThat(window.size()).isEqualTo(incidence.size());
+
+			if (!incidence.isEmpty())
+				assertThat(window.getIncidence()).isEqualTo(incidence.getDouble(incidence.lastKey()));
+
+			for (int i = 0; i < thresholds.length; i++) {
+				double t = thresholds[i];
+				assertThat(window.allBelow(i))
+						.as("Threshold %f at %s", t, date)
+						.isEqualTo(incidence.values().stream().allMatch(inc -> inc <= t));
+			}
+
+			date = date.plusDays(1);
+		}
+	}
+
+	@Test
+	public void replaceAndGap() {
+
+		IncidenceWindow window = new IncidenceWindow(14);
+		int idx = window.register(5);
+
+		LocalDate date = LocalDate.parse("2020-03-01");
+		for (int day = 0; day < 10; day++) {
+			window.add(date.plusDays(day), day);
+		}
+
+		assertThat(window.size()).isEqualTo(3);
+		assertThat(window.getIncidence()).isEqualTo(7);
+		assertThat(window.allBelow(idx)).isFalse();
+
+		// same day is replaced
+		window.add(date.plusDays(9), 10);
+		assertThat(window.size()).isEqualTo(3);
+		assertThat(window.getIncidence()).isEqualTo(8);
+
+		window.add(date.plusDays(9), 9);
+		assertThat(window.getIncidence()).isEqualTo(7);
+
+		// gap discards the history
+		window.add(date.plusDays(20), 30);
+		assertThat(window.size()).isEqualTo(0);
+		assertThat(window.getIncidence()).isNaN();
+		assertThat(window.allBelow(idx)).isTrue();
+	}
+
+}
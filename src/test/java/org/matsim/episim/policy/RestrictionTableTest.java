@@ -0,0 +1,151 @@
+package org.matsim.episim.policy;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.episim.EpisimConfigGroup;
+import org.matsim.episim.EpisimTestUtils;
+import org.matsim.episim.model.FaceMask;
+import org.matsim.facilities.ActivityFacility;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RestrictionTableTest {
+
+	private static final EpisimConfigGroup CONFIG = EpisimTestUtils.TEST_CONFIG;
+
+	private static int code(String act) {
+		return CONFIG.getInfectionParam(act).getCode();
+	}
+
+	@Test
+	public void values() {
+
+		Restriction r = Restriction.of(0.8);
+		r.merge(Restriction.ofCiCorrection(0.5).asMap());
+		r.merge(Restriction.ofGroupSize(20).asMap());
+		r.merge(Restriction.ofReducedGroupSize(5).asMap());
+		r.merge(Restriction.ofClosingHours(0, 7).asMap());
+
+		ImmutableMap<String, Restriction> map = ImmutableMap.of("home", Restriction.none(), "work", r);
+		RestrictionTable table = RestrictionTable.compile(CONFIG, map);
+
+		int home = code("home");
+		int work = code("work");
+
+		assertThat(table.getRemainingFraction(home)).isEqualTo(1);
+		assertThat(table.getCiCorrection(home)).isEqualTo(1);
+		assertThat(table.getMaxGroupSize(home)).isEqualTo(Integer.MAX_VALUE);
+		assertThat(table.getReducedGroupSize(home)).isEqualTo(-1);
+		assertThat(table.hasClosingHours(home)).isFalse();
+
+		assertThat(table.getRemainingFraction(work)).isEqualTo(0.8);
+		assertThat(table.getCiCorrection(work)).isEqualTo(0.5);
+		assertThat(table.getMaxGroupSize(work)).isEqualTo(20);
+		assertThat(table.getReducedGroupSize(work)).isEqualTo(5);
+		assertThat(table.hasClosingHours(work)).isTrue();
+		assertThat(table.getRestriction(work)).isSameAs(r);
+
+		// activities without restriction
+		assertThat(table.getRestriction(code("leis"))).isNull();
+		assertThat(table.getMaxGroupSize(code("leis"))).isEqualTo(-1);
+	}
+
+	@Test
+	public void codes() {
+
+		// codes are dense and follow the order of the params
+		int i = 0;
+		for (EpisimConfigGroup.InfectionParams params : CONFIG.getInfectionParams()) {
+			assertThat(params.getCode()).isEqualTo(i++);
+		}
+	}
+
+	@Test
+	public void reuse() {
+
+		ImmutableMap<String, Restriction> map = ImmutableMap.of("work", Restriction.of(0.5));
+		RestrictionTable table = RestrictionTable.compile(CONFIG, map);
+
+		assertThat(RestrictionTable.compile(table, CONFIG, map)).isSameAs(table);
+		assertThat(RestrictionTable.compile(null, CONFIG, map)).isNotSameAs(table);
+		assertThat(RestrictionTable.compile(table, CONFIG, new HashMap<>(map))).isNotSameAs(table);
+
+		// mutable maps are compiled again after being changed in place
+		Map<String, Restriction> mutable = new HashMap<>(map);
+		table = RestrictionTable.compile(CONFIG, mutable);
+		assertThat(table.isFor(mutable)).isTrue();
+
+		mutable.put("work", Restriction.of(0.2));
+		assertThat(table.isFor(mutable)).isFalse();
+		assertThat(RestrictionTable.compile(table, CONFIG, mutable).getRemainingFraction(code("work"))).isEqualTo(0.2);
+	}
+
+	@Test
+	public void closingHours() {
+
+		Restriction r = Restriction.ofClosingHours(22, 5);
+		RestrictionTable table = RestrictionTable.compile(CONFIG, Map.of("work", r, "home", Restriction.none()));
+
+		for (int h = 0; h < 48; h++) {
+			double from = h * 3600;
+			double to = from + 7 * 3600;
+			assertThat(table.overlapWithClosingHour(code("work"), from, to)).isEqualTo(r.overlapWithClosingHour(from, to));
+		}
+
+		assertThat(table.overlapWithClosingHour(code("home"), 0, 86400)).isEqualTo(0);
+	}
+
+	@Test
+	public void masks() {
+
+		Map<FaceMask, Double> usage = new HashMap<>();
+		usage.put(FaceMask.CLOTH, 0.3);
+		usage.put(FaceMask.SURGICAL, 0.2);
+		usage.put(FaceMask.N95, 0.1);
+
+		Restriction r = Restriction.ofMask(usage);
+		RestrictionTable table = RestrictionTable.compile(CONFIG, ImmutableMap.of("work", r, "leis", Restriction.ofMask(FaceMask.N95, 1.0)));
+
+		SplittableRandom rnd = new SplittableRandom(1);
+		SplittableRandom cmp = new SplittableRandom(1);
+
+		// same masks and same random numbers as the restriction
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(table.determineMask(code("work"), rnd)).isEqualTo(r.determineMask(cmp));
+		}
+
+		assertThat(table.determineMask(code("leis"), rnd)).isEqualTo(FaceMask.N95);
+		assertThat(rnd.nextLong()).isEqualTo(cmp.nextLong());
+	}
+
+	@Test
+	public void facilitiesAndDistricts() {
+
+		Restriction work = Restriction.ofClosedFacilities(List.of("f1", "f3"));
+		work.update(Restriction.ofLocationBasedRf(Map.of("Bronx", 0.2, "Queens", 0.5)));
+
+		RestrictionTable table = RestrictionTable.compile(CONFIG, ImmutableMap.of("home", Restriction.none(), "work", work),
+				List.of("Bronx", "Queens", "StatenIsland"));
+
+		int home = code("home");
+		int code = code("work");
+
+		assertThat(table.isClosed(code, Id.create("f1", ActivityFacility.class).index())).isTrue();
+		assertThat(table.isClosed(code, Id.create("f2", ActivityFacility.class).index())).isFalse();
+		assertThat(table.isClosed(code, Id.create("f3", ActivityFacility.class).index())).isTrue();
+		assertThat(table.isClosed(home, Id.create("f1", ActivityFacility.class).index())).isFalse();
+
+		assertThat(table.getLocationBasedRf(code, 0)).isEqualTo(0.2);
+		assertThat(table.getLocationBasedRf(code, 1)).isEqualTo(0.5);
+		assertThat(table.getLocationBasedRf(code, 2)).isNaN();
+		assertThat(table.getLocationBasedRf(code, -1)).isNaN();
+		assertThat(table.getLocationBasedRf(home, 0)).isNaN();
+	}
+
+}
@@ -0,0 +1,113 @@
+package org.matsim.episim.reporting;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncEpisimWriterTest {
+
+	@Test
+	public void orderPerWriter() throws IOException {
+
+		AsyncEpisimWriter writer = new AsyncEpisimWriter(4, 3);
+
+		List<StringWriter> outputs = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			outputs.add(new StringWriter());
+		}
+
+		// each writer is filled by one producer
+		IntStream.range(0, outputs.size()).parallel().forEach(w -> {
+			StringWriter out = outputs.get(w);
+			writer.append(out, "header\n");
+			for (int i = 0; i < 10000; i++) {
+				writer.append(out, new String[]{String.valueOf(w), String.valueOf(i)});
+			}
+			writer.close(out);
+		});
+
+		writer.close();
+
+		for (int w = 0; w < outputs.size(); w++) {
+			String[] lines = outputs.get(w).toString().split("\n");
+			assertThat(lines).hasSize(10001);
+			assertThat(lines[0]).isEqualTo("header");
+			for (int i = 0; i < 10000; i++) {
+				assertThat(lines[i + 1]).isEqualTo(w + "\t" + i);
+			}
+		}
+
+		assertThat(writer.getOccupancy()).isEqualTo(0);
+	}
+
+	@Test
+	public void stalls() throws Exception {
+
+		AsyncEpisimWriter writer = new AsyncEpisimWriter(1, 1, 16);
+
+		CountDownLatch release = new CountDownLatch(1);
+
+		// consumer is blocked until released
+		StringWriter out = new StringWriter() {
+			@Override
+			public StringWriter append(CharSequence csq) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return super.append(csq);
+			}
+		};
+
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < 100; i++) {
+				writer.append(out, new String[]{String.valueOf(i)});
+			}
+		});
+		producer.start();
+
+		while (writer.getOccupancy() < writer.getBufferSize())
+			Thread.sleep(1);
+
+		assertThat(writer.getStalls()).isEqualTo(0);
+
+		release.countDown();
+		producer.join();
+
+		writer.close(out);
+		writer.close();
+
+		assertThat(writer.getStalls()).isGreaterThan(0);
+		assertThat(out.toString().split("\n")).hasSize(100);
+	}
+
+	@Test
+	public void flushWaits() throws IOException {
+
+		AsyncEpisimWriter writer = new AsyncEpisimWriter(1, 2);
+		StringWriter out = new StringWriter();
+
+		for (int i = 0; i < 1000; i++) {
+			writer.append(out, new String[]{String.valueOf(i)});
+		}
+
+		// content is written once flush returns
+		writer.flush(out);
+		assertThat(out.toString().split("\n")).hasSize(1000);
+
+		writer.append(out, "last\n");
+		writer.close(out);
+		assertThat(out.toString()).endsWith("999\nlast\n");
+
+		writer.close();
+	}
+
+}
@@ -0,0 +1,117 @@
+package org.matsim.episim.reporting;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParallelGZIPOutputStreamTest {
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(3);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	private byte[] roundTrip(byte[] data, SplittableRandom rnd) throws IOException {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (OutputStream gz = new ParallelGZIPOutputStream(out, executor, 3, 1000)) {
+			int i = 0;
+			while (i < data.length) {
+				if (rnd.nextBoolean())
+					gz.write(data[i++]);
+				else {
+					int len = Math.min(data.length - i, rnd.nextInt(3000));
+					gz.write(data, i, len);
+					i += len;
+				}
+				gz.flush();
+			}
+		}
+
+		return new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes();
+	}
+
+	@Test
+	public void concatenatedMembers() throws IOException {
+
+		SplittableRandom rnd = new SplittableRandom(1);
+
+		for (int n : new int[]{0, 1, 999, 1000, 1001, 12345, 100000}) {
+			byte[] data = new byte[n];
+			for (int i = 0; i < n; i++) {
+				data[i] = (byte) (i % 3 == 0 ? 1 : rnd.nextInt(256));
+			}
+
+			assertThat(roundTrip(data, rnd))
+					.as("Size %d", n)
+					.isEqualTo(data);
+		}
+	}
+
+	@Test
+	public void failedWrite() throws IOException {
+
+		CountDownLatch closed = new CountDownLatch(1);
+		OutputStream broken = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("Disk full");
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				throw new IOException("Disk full");
+			}
+
+			@Override
+			public void close() {
+				closed.countDown();
+			}
+		};
+
+		OutputStream gz = new ParallelGZIPOutputStream(broken, executor, 3, 1000);
+
+		assertThatThrownBy(() -> {
+			for (int i = 0; i < 100; i++)
+				gz.write(new byte[1000]);
+		}).isInstanceOf(IOException.class);
+
+		// remaining blocks are discarded and the target is closed anyway
+		gz.close();
+		assertThat(closed.getCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void sharedExecutor() throws IOException {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (OutputStream gz = new ParallelGZIPOutputStream(out, ParallelGZIPOutputStream.sharedExecutor(), 2, 1000)) {
+			gz.write(new byte[5000]);
+		}
+
+		assertThat(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes())
+				.isEqualTo(new byte[5000]);
+		assertThat(ParallelGZIPOutputStream.sharedExecutor().isShutdown()).isFalse();
+	}
+
+}
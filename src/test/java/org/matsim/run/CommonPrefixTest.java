@@ -0,0 +1,122 @@
+package org.matsim.run;
+
+import com.google.inject.AbstractModule;
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.episim.EpisimConfigGroup;
+import org.matsim.episim.EpisimTestUtils;
+import org.matsim.episim.TracingConfigGroup;
+import org.matsim.episim.policy.AdaptivePolicy;
+import org.matsim.episim.policy.FixedPolicy;
+import org.matsim.episim.policy.ShutdownPolicy;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CommonPrefixTest {
+
+	private static final LocalDate START = LocalDate.parse("2020-02-25");
+
+	private Config a;
+	private Config b;
+
+	@Before
+	public void setUp() {
+		a = createConfig();
+		b = createConfig();
+	}
+
+	private static Config createConfig() {
+		Config config = EpisimTestUtils.createTestConfig();
+		EpisimConfigGroup episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
+		episimConfig.setStartDate(START);
+		episimConfig.setPolicy(FixedPolicy.config()
+				.restrict("2020-03-10", 0.5, "work")
+				.restrict(5, 0.8, "leis")
+				.build());
+
+		return config;
+	}
+
+	@Test
+	public void equal() {
+		assertThat(CommonPrefix.divergence(a, b)).isEqualTo(LocalDate.MAX);
+
+		a.controler().setOutputDirectory("other");
+		ConfigUtils.addOrGetModule(a, EpisimConfigGroup.class).setSnapshotInterval(10);
+
+		assertThat(CommonPrefix.divergence(a, b)).isEqualTo(LocalDate.MAX);
+	}
+
+	@Test
+	public void policy() {
+
+		ConfigUtils.addOrGetModule(b, EpisimConfigGroup.class).setPolicy(FixedPolicy.config()
+				.restrict("2020-03-10", 0.5, "work")
+				.restrict("2020-04-01", 0.2, "work")
+				.restrict(5, 0.8, "leis")
+				.build());
+
+		assertThat(CommonPrefix.divergence(a, b)).isEqualTo(LocalDate.parse("2020-04-01"));
+
+		// day 3 of the simulation
+		ConfigUtils.addOrGetModule(a, EpisimConfigGroup.class).setPolicy(FixedPolicy.config()
+				.restrict("2020-03-10", 0.5, "work")
+				.restrict(3, 0.9, "leis")
+				.restrict(5, 0.8, "leis")
+				.build());
+
+		assertThat(CommonPrefix.divergence(a, b)).isEqualTo(LocalDate.parse("2020-02-27"));
+	}
+
+	@Test
+	public void datedOption() {
+
+		ConfigUtils.addOrGetModule(a, TracingConfigGroup.class).setTracingDelay_days(Map.of(
+				LocalDate.parse("2020-03-01"), 4,
+				LocalDate.parse("2020-05-01"), 2
+		));
+
+		ConfigUtils.addOrGetModule(b, TracingConfigGroup.class).setTracingDelay_days(Map.of(
+				LocalDate.parse("2020-03-01"), 4,
+				LocalDate.parse("2020-06-01"), 2
+		));
+
+		// values may be interpolated after the last common entry
+		assertThat(CommonPrefix.divergence(a, b)).isEqualTo(LocalDate.parse("2020-03-02"));
+	}
+
+	@Test
+	public void otherOption() {
+
+		ConfigUtils.addOrGetModule(b, EpisimConfigGroup.class).setCalibrationParameter(0.002);
+
+		assertThat(CommonPrefix.divergence(a, b)).isNull();
+	}
+
+	@Test
+	public void restorable() {
+
+		assertThat(CommonPrefix.restorable(null)).isTrue();
+
+		assertThat(CommonPrefix.restorable(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(ShutdownPolicy.class).to(FixedPolicy.class);
+			}
+		})).isTrue();
+
+		// incidences of the adaptive policy are not contained in snapshots
+		assertThat(CommonPrefix.restorable(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(ShutdownPolicy.class).to(AdaptivePolicy.class);
+			}
+		})).isFalse();
+	}
+
+}
@@ -96,8 +96,32 @@ public class RunEpisimSnapshotTest {
 
 	@Test
 	public void compareSnapshots() throws IOException {
+		compareSnapshots(15);
+	}
+
+	@Test
+	public void compareBinarySnapshots() throws IOException {
+		episimConfig.setSnapshotFormat(EpisimConfigGroup.SnapshotFormat.binary);
+		compareSnapshots(15);
+	}
+
+	@Test
+	public void compareDeltaSnapshots() throws IOException {
+		// snapshot on day 15 is the second delta after the full one of day 5
+		episimConfig.setSnapshotFormat(EpisimConfigGroup.SnapshotFormat.binary);
+		episimConfig.setSnapshotFullInterval(3);
+		compareSnapshots(5);
+	}
+
+	@Test
+	public void compareAsyncSnapshots() throws IOException {
+		episimConfig.setSnapshotAsync(EpisimConfigGroup.SnapshotAsync.yes);
+		compareSnapshots(15);
+	}
+
+	private void compareSnapshots(int interval) throws IOException {
 
-		episimConfig.setSnapshotInterval(15);
+		episimConfig.setSnapshotInterval(interval);
 		runner.run(30);
 
 		setup();
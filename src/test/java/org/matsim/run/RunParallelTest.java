@@ -0,0 +1,128 @@
+package org.matsim.run;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Module;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.episim.BatchRun;
+import org.matsim.episim.EpisimConfigGroup;
+import org.matsim.episim.PreparedRun;
+import org.matsim.episim.policy.FixedPolicy;
+import org.matsim.run.modules.OpenBerlinScenario;
+import org.matsim.testcases.MatsimTestUtils;
+import picocli.CommandLine;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RunParallelTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void reusePrefix() {
+
+		Path reused = Path.of(utils.getOutputDirectory(), "reused");
+		Path standalone = Path.of(utils.getOutputDirectory(), "standalone");
+
+		int code = new CommandLine(new RunParallel<>(BatchRun.prepare(Batch.class, Params.class)))
+				.execute("--output", reused.toString(), "--iterations", "20", "--tasks", "2", "--reuse-prefix", "--min-prefix", "5");
+
+		assertThat(code).isEqualTo(0);
+
+		code = new CommandLine(new RunParallel<>(BatchRun.prepare(Batch.class, Params.class)))
+				.execute("--output", standalone.toString(), "--iterations", "20", "--tasks", "2");
+
+		assertThat(code).isEqualTo(0);
+
+		// first 14 days were simulated once
+		assertThat(reused.resolve("prefix-prefix1").toFile()).isDirectory();
+
+		File[] runs = Objects.requireNonNull(standalone.toFile().listFiles(File::isDirectory));
+		assertThat(runs).hasSize(2);
+
+		for (File run : runs) {
+			for (File file : Objects.requireNonNull(run.listFiles())) {
+
+				if (file.isDirectory() || !(file.getName().endsWith(".txt") || file.getName().endsWith(".tsv"))
+						|| file.getName().endsWith("cputime.tsv")) continue;
+
+				assertThat(file)
+						.hasSameTextualContentAs(reused.resolve(run.getName()).resolve(file.getName()).toFile());
+			}
+		}
+	}
+
+	/**
+	 * Two runs that differ only from day 15 on.
+	 */
+	public static final class Batch implements BatchRun<Params> {
+
+		@Override
+		public Module getBindings(int id, @Nullable Params params) {
+			return new TestScenario();
+		}
+
+		@Override
+		public Metadata getMetadata() {
+			return Metadata.of("berlin", "prefix");
+		}
+
+		@Override
+		public Config prepareConfig(int id, Params params) {
+
+			Config config = TestScenario.createConfig();
+			EpisimConfigGroup episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
+
+			episimConfig.setPolicy(FixedPolicy.config()
+					.restrict(5, 0.5, "leisure")
+					.restrict(15, params.work, "work")
+					.build());
+
+			return config;
+		}
+	}
+
+	public static final class Params {
+
+		@BatchRun.Parameter({0.2, 0.8})
+		private double work;
+
+	}
+
+	private static final class TestScenario extends AbstractModule {
+
+		private static Config createConfig() {
+			Config config = ConfigUtils.createConfig(new EpisimConfigGroup());
+			EpisimConfigGroup episimConfig = ConfigUtils.addOrGetModule(config, EpisimConfigGroup.class);
+
+			episimConfig.setInputEventsFile(
+					"https://svn.vsp.tu-berlin.de/repos/public-svn/matsim/scenarios/countries/de/berlin/berlin-v5.4-1pct/output-berlin-v5.4-1pct/berlin-v5.4-1pct.output_events_for_episim.xml.gz");
+
+			episimConfig.setFacilitiesHandling(EpisimConfigGroup.FacilitiesHandling.bln);
+			episimConfig.setSampleSize(0.01);
+			episimConfig.setCalibrationParameter(0.01);
+			episimConfig.setThreads(2);
+
+			OpenBerlinScenario.addDefaultParams(episimConfig);
+
+			return config;
+		}
+
+		@Provides
+		@Singleton
+		public Config config() {
+			return createConfig();
+		}
+	}
+
+}